@@ -17,6 +17,7 @@ package org.jchai3d.collisions;
 
 import org.jchai3d.graphics.JTriangle;
 import java.util.ArrayList;
+import java.util.List;
 import org.jchai3d.math.JVector3d;
 
 /**
@@ -78,4 +79,46 @@ public class JCollisionBrute extends JGenericCollision {
         // return result
         return (hit);
     }
+
+    /**
+     * Find the point of the mesh closest to a point by testing all
+     * triangles. Used as a reference for the collision trees.
+     */
+    @Override
+    public boolean computeClosestPoint(JVector3d aPoint, double aMaxDistance, JCollisionRecorder aRecorder) {
+        JCollisionEvent nearest = aRecorder.getNearestCollision();
+        JVector3d scratch = closestPointScratch;
+        beginClosestPoint(aPoint, aMaxDistance, nearest, mTriangles, scratch);
+
+        int numTriangles = mTriangles.size();
+        for (int i = 0; i < numTriangles; i++) {
+            JTriangle triangle = mTriangles.get(i);
+            if (triangle.isAllocated()) {
+                testClosestPoint(triangle, aPoint, nearest, scratch);
+            }
+        }
+
+        return (endClosestPoint(nearest));
+    }
+
+    /**
+     * Collect the triangles within a distance of a point by testing all
+     * triangles.
+     */
+    @Override
+    public int computeNearbyTriangles(JVector3d aPoint, double aRadius, List<JTriangle> aResult) {
+        JVector3d scratch = nearbyScratch;
+        double radiusSq = aRadius * aRadius;
+        int count = 0;
+
+        int numTriangles = mTriangles.size();
+        for (int i = 0; i < numTriangles; i++) {
+            JTriangle triangle = mTriangles.get(i);
+            if (triangle.isAllocated() && isNearby(triangle, aPoint, radiusSq, scratch)) {
+                aResult.add(triangle);
+                count++;
+            }
+        }
+        return (count);
+    }
 }
@@ -0,0 +1,218 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.collisions;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.jchai3d.graphics.JColorf;
+import org.jchai3d.graphics.JTriangle;
+import org.jchai3d.math.JVector3d;
+
+/**
+ * JCollisionDistanceField answers collision queries with a distance field
+ * when the segment is far from the surface, and forwards the others to an
+ * exact collision detector (typically a JCollisionAABB). A segment whose
+ * middle point is further from the surface than half its length (plus the
+ * collision radius and the error of the field) can not touch any triangle,
+ * so the common queries of a tool moving in free space cost a single field
+ * lookup. The results are always those of the exact detector.
+ *
+ * The field may be set after construction (when it is built in the
+ * background); until then all queries are exact.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JCollisionDistanceField extends JGenericCollision {
+
+    /**
+     * Exact collision detector.
+     */
+    protected JGenericCollision exactDetector;
+    /**
+     * Triangles of the mesh, to check that the field is up to date.
+     */
+    protected ArrayList<JTriangle> triangles;
+    /**
+     * Distance field of the mesh, or null.
+     */
+    protected volatile JDistanceField distanceField;
+    /**
+     * Number of queries, and of queries answered by the field alone.
+     */
+    protected long numQueries;
+    protected long numFieldRejections;
+
+    /**
+     * Constructor of JCollisionDistanceField.
+     *
+     * @param aTriangles triangles of the mesh.
+     * @param aExactDetector exact collision detector of the mesh.
+     * @param aDistanceField distance field of the mesh, or null.
+     */
+    public JCollisionDistanceField(ArrayList<JTriangle> aTriangles,
+            JGenericCollision aExactDetector, JDistanceField aDistanceField) {
+        triangles = aTriangles;
+        exactDetector = aExactDetector;
+        distanceField = aDistanceField;
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS:
+    //-----------------------------------------------------------------------
+    /**
+     * Initialize the exact detector. The field is dropped if the mesh was
+     * modified since it was built.
+     */
+    @Override
+    public void initialize(double aRadius) {
+        exactDetector.initialize(aRadius);
+
+        JDistanceField field = distanceField;
+        if ((field != null) && (field.getKey() != JDistanceField.computeKey(triangles))) {
+            distanceField = null;
+        }
+    }
+
+    @Override
+    public void render() {
+        exactDetector.render();
+    }
+
+    /**
+     * Check whether a segment intersects the mesh.
+     */
+    @Override
+    public boolean computeCollision(JVector3d aSegmentPointA, JVector3d aSegmentPointB,
+            JCollisionRecorder aRecorder, JCollisionSettings aSettings) {
+
+        numQueries++;
+
+        JDistanceField field = distanceField;
+        if (field != null) {
+            double mx = 0.5 * (aSegmentPointA.x + aSegmentPointB.x);
+            double my = 0.5 * (aSegmentPointA.y + aSegmentPointB.y);
+            double mz = 0.5 * (aSegmentPointA.z + aSegmentPointB.z);
+            double dx = aSegmentPointB.x - aSegmentPointA.x;
+            double dy = aSegmentPointB.y - aSegmentPointA.y;
+            double dz = aSegmentPointB.z - aSegmentPointA.z;
+            double reach = 0.5 * Math.sqrt(dx * dx + dy * dy + dz * dz)
+                    + aSettings.getCollisionRadius() + field.getMaxError();
+
+            if (Math.abs(field.getDistance(mx, my, mz)) > reach) {
+                numFieldRejections++;
+                return (false);
+            }
+        }
+
+        return (exactDetector.computeCollision(aSegmentPointA, aSegmentPointB, aRecorder, aSettings));
+    }
+
+    /**
+     * Find the point of the mesh closest to a point. Points further from the
+     * surface than the maximum distance (plus the error of the field) are
+     * rejected by the field; the others are searched by the exact detector
+     * within the bound given by the field.
+     */
+    @Override
+    public boolean computeClosestPoint(JVector3d aPoint, double aMaxDistance, JCollisionRecorder aRecorder) {
+        JDistanceField field = distanceField;
+        double maxDistance = aMaxDistance;
+        if (field != null) {
+            double bound = Math.abs(field.getDistance(aPoint)) - field.getMaxError();
+            if (bound > aMaxDistance) {
+                aRecorder.getNearestCollision().clear();
+                numClosestPointTests = 0;
+                return (false);
+            }
+
+            // near the surface, the field also bounds the distance from above
+            maxDistance = Math.min(maxDistance, field.getDistanceUpperBound(aPoint));
+        }
+
+        boolean found = exactDetector.computeClosestPoint(aPoint, maxDistance, aRecorder);
+        numClosestPointTests = exactDetector.getNumClosestPointTests();
+        return (found);
+    }
+
+    /**
+     * Collect the triangles within a distance of a point. Points further
+     * from the surface are rejected by the field.
+     */
+    @Override
+    public int computeNearbyTriangles(JVector3d aPoint, double aRadius, List<JTriangle> aResult) {
+        JDistanceField field = distanceField;
+        if ((field != null) && (Math.abs(field.getDistance(aPoint)) - field.getMaxError() > aRadius)) {
+            return (0);
+        }
+        return (exactDetector.computeNearbyTriangles(aPoint, aRadius, aResult));
+    }
+
+    @Override
+    public void setDisplayDepth(int aDepth) {
+        super.setDisplayDepth(aDepth);
+        exactDetector.setDisplayDepth(aDepth);
+    }
+
+    @Override
+    public void setTreeColor(JColorf color) {
+        super.setTreeColor(color);
+        exactDetector.setTreeColor(color);
+    }
+
+    /**
+     * Read the exact collision detector.
+     */
+    public JGenericCollision getExactDetector() {
+        return (exactDetector);
+    }
+
+    /**
+     * Read the distance field, or null if it is not available.
+     */
+    public JDistanceField getDistanceField() {
+        return (distanceField);
+    }
+
+    /**
+     * Set the distance field. Can be called from another thread.
+     */
+    public void setDistanceField(JDistanceField aDistanceField) {
+        distanceField = aDistanceField;
+    }
+
+    /**
+     * Read the number of collision queries.
+     */
+    public long getNumQueries() {
+        return (numQueries);
+    }
+
+    /**
+     * Read the number of collision queries answered by the field alone.
+     */
+    public long getNumFieldRejections() {
+        return (numFieldRejections);
+    }
+
+    /**
+     * Reset the query counters.
+     */
+    public void resetCounters() {
+        numQueries = 0;
+        numFieldRejections = 0;
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.collisions;
+
+import org.jchai3d.graphics.JTriangle;
+import org.jchai3d.math.JMatrix3d;
+import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JGenericObject;
+
+/**
+ * JCollisionHitList stores the hits of an exhaustive collision query (see
+ * JCollisionSettings.setCheckForNearestCollisionOnly()) in arrays of
+ * primitives, instead of one JCollisionEvent per hit. The arrays only grow,
+ * so a list that is cleared and reused between queries stops allocating
+ * once it has reached the size of the largest query. Attach it to a
+ * recorder with JCollisionRecorder.setHitList().
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JCollisionHitList {
+
+    /**
+     * Default number of hits allocated.
+     */
+    public static int CHAI_HIT_LIST_INITIAL_CAPACITY = 64;
+    /**
+     * Object and triangle of each hit.
+     */
+    private JGenericObject[] objects;
+    private JTriangle[] triangles;
+    /**
+     * Positions and normals of each hit, three values per hit.
+     */
+    private double[] localPositions;
+    private double[] localNormals;
+    private double[] globalPositions;
+    private double[] globalNormals;
+    /**
+     * Square distance from the segment origin to each hit.
+     */
+    private double[] squareDistances;
+    /**
+     * Number of hits.
+     */
+    private int size;
+
+    /**
+     * Constructor of JCollisionHitList.
+     */
+    public JCollisionHitList() {
+        this(CHAI_HIT_LIST_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructor of JCollisionHitList.
+     *
+     * @param aCapacity number of hits allocated.
+     */
+    public JCollisionHitList(int aCapacity) {
+        allocate(Math.max(1, aCapacity));
+        size = 0;
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS:
+    //-----------------------------------------------------------------------
+    /**
+     * Remove all hits. Memory is kept for the next query.
+     */
+    public void clear() {
+        // release references so that meshes can be collected
+        for (int i = 0; i < size; i++) {
+            objects[i] = null;
+            triangles[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Add a hit.
+     *
+     * @param aObject object hit.
+     * @param aTriangle triangle hit.
+     * @param aLocalPosition position of the hit (object coordinates).
+     * @param aLocalNormal normal at the hit (object coordinates).
+     * @param aSquareDistance square distance from the segment origin.
+     * @param aGlobalPosition position of the object, or null to skip the
+     * computation of the global position and normal.
+     * @param aGlobalRotation rotation of the object.
+     * @return the index of the hit.
+     */
+    public int add(JGenericObject aObject, JTriangle aTriangle,
+            JVector3d aLocalPosition, JVector3d aLocalNormal, double aSquareDistance,
+            JVector3d aGlobalPosition, JMatrix3d aGlobalRotation) {
+
+        if (size == squareDistances.length) {
+            grow(2 * size);
+        }
+
+        int i = size;
+        int k = 3 * i;
+        objects[i] = aObject;
+        triangles[i] = aTriangle;
+        squareDistances[i] = aSquareDistance;
+        put(localPositions, k, aLocalPosition);
+        put(localNormals, k, aLocalNormal);
+
+        if (aGlobalPosition != null) {
+            JMatrix3d m = aGlobalRotation;
+            double px = aLocalPosition.x, py = aLocalPosition.y, pz = aLocalPosition.z;
+            double nx = aLocalNormal.x, ny = aLocalNormal.y, nz = aLocalNormal.z;
+            globalPositions[k] = aGlobalPosition.x + m.m00 * px + m.m01 * py + m.m02 * pz;
+            globalPositions[k + 1] = aGlobalPosition.y + m.m10 * px + m.m11 * py + m.m12 * pz;
+            globalPositions[k + 2] = aGlobalPosition.z + m.m20 * px + m.m21 * py + m.m22 * pz;
+            globalNormals[k] = m.m00 * nx + m.m01 * ny + m.m02 * nz;
+            globalNormals[k + 1] = m.m10 * nx + m.m11 * ny + m.m12 * nz;
+            globalNormals[k + 2] = m.m20 * nx + m.m21 * ny + m.m22 * nz;
+        } else {
+            for (int j = 0; j < 3; j++) {
+                globalPositions[k + j] = 0.0;
+                globalNormals[k + j] = 0.0;
+            }
+        }
+
+        size++;
+        return (i);
+    }
+
+    /**
+     * Append the hits of another list.
+     */
+    public void addAll(JCollisionHitList aList) {
+        if (size + aList.size > squareDistances.length) {
+            grow(Math.max(2 * squareDistances.length, size + aList.size));
+        }
+        System.arraycopy(aList.objects, 0, objects, size, aList.size);
+        System.arraycopy(aList.triangles, 0, triangles, size, aList.size);
+        System.arraycopy(aList.squareDistances, 0, squareDistances, size, aList.size);
+        System.arraycopy(aList.localPositions, 0, localPositions, 3 * size, 3 * aList.size);
+        System.arraycopy(aList.localNormals, 0, localNormals, 3 * size, 3 * aList.size);
+        System.arraycopy(aList.globalPositions, 0, globalPositions, 3 * size, 3 * aList.size);
+        System.arraycopy(aList.globalNormals, 0, globalNormals, 3 * size, 3 * aList.size);
+        size += aList.size;
+    }
+
+    /**
+     * Copy a hit into a collision event.
+     */
+    public void getEvent(int aIndex, JCollisionEvent aEvent) {
+        int k = 3 * aIndex;
+        aEvent.setObject(objects[aIndex]);
+        aEvent.setTriangle(triangles[aIndex]);
+        aEvent.setSquareDistance(squareDistances[aIndex]);
+        aEvent.getLocalPosition().set(localPositions[k], localPositions[k + 1], localPositions[k + 2]);
+        aEvent.getLocalNormal().set(localNormals[k], localNormals[k + 1], localNormals[k + 2]);
+        aEvent.getGlobalPosition().set(globalPositions[k], globalPositions[k + 1], globalPositions[k + 2]);
+        aEvent.getGlobalNormal().set(globalNormals[k], globalNormals[k + 1], globalNormals[k + 2]);
+    }
+
+    /**
+     * Sort the hits by increasing distance from the segment origin.
+     */
+    public void sortByDistance() {
+        // heap sort, in place
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i, size);
+        }
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+    }
+
+    /**
+     * Read the number of hits.
+     */
+    public int size() {
+        return (size);
+    }
+
+    /**
+     * Read the number of hits that can be stored without allocating.
+     */
+    public int getCapacity() {
+        return (squareDistances.length);
+    }
+
+    public JGenericObject getObject(int aIndex) {
+        return (objects[aIndex]);
+    }
+
+    public JTriangle getTriangle(int aIndex) {
+        return (triangles[aIndex]);
+    }
+
+    public double getSquareDistance(int aIndex) {
+        return (squareDistances[aIndex]);
+    }
+
+    public void getLocalPosition(int aIndex, JVector3d aResult) {
+        get(localPositions, 3 * aIndex, aResult);
+    }
+
+    public void getLocalNormal(int aIndex, JVector3d aResult) {
+        get(localNormals, 3 * aIndex, aResult);
+    }
+
+    public void getGlobalPosition(int aIndex, JVector3d aResult) {
+        get(globalPositions, 3 * aIndex, aResult);
+    }
+
+    public void getGlobalNormal(int aIndex, JVector3d aResult) {
+        get(globalNormals, 3 * aIndex, aResult);
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS - INTERNAL:
+    //-----------------------------------------------------------------------
+    private void allocate(int aCapacity) {
+        objects = new JGenericObject[aCapacity];
+        triangles = new JTriangle[aCapacity];
+        squareDistances = new double[aCapacity];
+        localPositions = new double[3 * aCapacity];
+        localNormals = new double[3 * aCapacity];
+        globalPositions = new double[3 * aCapacity];
+        globalNormals = new double[3 * aCapacity];
+    }
+
+    private void grow(int aCapacity) {
+        JGenericObject[] oldObjects = objects;
+        JTriangle[] oldTriangles = triangles;
+        double[] oldSquareDistances = squareDistances;
+        double[] oldLocalPositions = localPositions;
+        double[] oldLocalNormals = localNormals;
+        double[] oldGlobalPositions = globalPositions;
+        double[] oldGlobalNormals = globalNormals;
+
+        allocate(aCapacity);
+
+        System.arraycopy(oldObjects, 0, objects, 0, size);
+        System.arraycopy(oldTriangles, 0, triangles, 0, size);
+        System.arraycopy(oldSquareDistances, 0, squareDistances, 0, size);
+        System.arraycopy(oldLocalPositions, 0, localPositions, 0, 3 * size);
+        System.arraycopy(oldLocalNormals, 0, localNormals, 0, 3 * size);
+        System.arraycopy(oldGlobalPositions, 0, globalPositions, 0, 3 * size);
+        System.arraycopy(oldGlobalNormals, 0, globalNormals, 0, 3 * size);
+    }
+
+    private void siftDown(int aRoot, int aEnd) {
+        int root = aRoot;
+        while (2 * root + 1 < aEnd) {
+            int child = 2 * root + 1;
+            if ((child + 1 < aEnd) && (squareDistances[child] < squareDistances[child + 1])) {
+                child++;
+            }
+            if (squareDistances[root] >= squareDistances[child]) {
+                return;
+            }
+            swap(root, child);
+            root = child;
+        }
+    }
+
+    private void swap(int aI, int aJ) {
+        JGenericObject object = objects[aI];
+        objects[aI] = objects[aJ];
+        objects[aJ] = object;
+        JTriangle triangle = triangles[aI];
+        triangles[aI] = triangles[aJ];
+        triangles[aJ] = triangle;
+        double distance = squareDistances[aI];
+        squareDistances[aI] = squareDistances[aJ];
+        squareDistances[aJ] = distance;
+        swap3(localPositions, aI, aJ);
+        swap3(localNormals, aI, aJ);
+        swap3(globalPositions, aI, aJ);
+        swap3(globalNormals, aI, aJ);
+    }
+
+    private static void swap3(double[] aArray, int aI, int aJ) {
+        for (int k = 0; k < 3; k++) {
+            double tmp = aArray[3 * aI + k];
+            aArray[3 * aI + k] = aArray[3 * aJ + k];
+            aArray[3 * aJ + k] = tmp;
+        }
+    }
+
+    private static void put(double[] aArray, int aOffset, JVector3d aVector) {
+        aArray[aOffset] = aVector.x;
+        aArray[aOffset + 1] = aVector.y;
+        aArray[aOffset + 2] = aVector.z;
+    }
+
+    private static void get(double[] aArray, int aOffset, JVector3d aResult) {
+        aResult.set(aArray[aOffset], aArray[aOffset + 1], aArray[aOffset + 2]);
+    }
+}
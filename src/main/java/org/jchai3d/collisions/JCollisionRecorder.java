@@ -31,6 +31,11 @@ public class JCollisionRecorder {
      */
     private JCollisionEvent nearestCollision;
     private ArrayList<JCollisionEvent> collisions;
+    /**
+     * If set, the hits of exhaustive queries are stored here instead of in
+     * the list of collision events.
+     */
+    private JCollisionHitList hitList;
 
     /**
      * Constructor of JCollisionRecorder
@@ -46,6 +51,9 @@ public class JCollisionRecorder {
     public void clear() {
         nearestCollision.clear();
         collisions.clear();
+        if (hitList != null) {
+            hitList.clear();
+        }
     }
 
     /**
@@ -68,4 +76,36 @@ public class JCollisionRecorder {
     public void setCollisions(ArrayList<JCollisionEvent> collisions) {
         this.collisions = collisions;
     }
+
+    /**
+     * Append a new collision event to the list of collisions and return it,
+     * to be filled by the caller.
+     */
+    public JCollisionEvent addCollision() {
+        JCollisionEvent event = new JCollisionEvent();
+        collisions.add(event);
+        return (event);
+    }
+
+    /**
+     * @return the number of hits recorded, as events or in the hit list.
+     */
+    public int getNumCollisions() {
+        return (collisions.size() + ((hitList != null) ? hitList.size() : 0));
+    }
+
+    /**
+     * @return the hit list, or null if hits are recorded as events.
+     */
+    public JCollisionHitList getHitList() {
+        return hitList;
+    }
+
+    /**
+     * @param hitList the list in which to store the hits of exhaustive
+     * queries, or null to record them as collision events.
+     */
+    public void setHitList(JCollisionHitList hitList) {
+        this.hitList = hitList;
+    }
 }
@@ -35,6 +35,12 @@ public class JCollisionSettings {
     private boolean checkBothSidesOfTriangles;
     private boolean adjustObjectMotion;
     private double collisionRadius;
+    /**
+     * Split the traversal of large collision trees between several threads?
+     * Meant for queries made outside of the haptic loop (picking, cutting);
+     * disabled by default.
+     */
+    private boolean parallelTraversal;
 
     /**
      * @return the checkForNearestCollisionOnly
@@ -133,5 +139,18 @@ public class JCollisionSettings {
     public void setCollisionRadius(double collisionRadius) {
         this.collisionRadius = collisionRadius;
     }
-    
+
+    /**
+     * @return the parallelTraversal
+     */
+    public boolean isParallelTraversal() {
+        return parallelTraversal;
+    }
+
+    /**
+     * @param parallelTraversal the parallelTraversal to set
+     */
+    public void setParallelTraversal(boolean parallelTraversal) {
+        this.parallelTraversal = parallelTraversal;
+    }
 }
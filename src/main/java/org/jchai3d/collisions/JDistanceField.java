@@ -0,0 +1,671 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.collisions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import org.jchai3d.graphics.JTriangle;
+import org.jchai3d.math.JMaths;
+import org.jchai3d.math.JVector3d;
+
+/**
+ * JDistanceField is a narrow-band signed distance field sampled on a
+ * regular grid around a static mesh. Distances are exact (to the nearest
+ * triangle) at the grid points located within \e bandWidth of the surface;
+ * further points hold \e bandWidth, meaning "at least that far". Queries
+ * interpolate the grid trilinearly, so they run in constant time whatever
+ * the size of the mesh, with an error bounded by the diagonal of a cell.
+ *
+ * The sign is taken from the normal of the nearest triangle (positive on
+ * the side the normal points to), so it is only meaningful for closed,
+ * consistently oriented meshes. The field describes the mesh as it was
+ * when the field was built: it must be rebuilt if the mesh is modified.
+ *
+ * Fields are expensive to build but cheap to store; they can be saved to
+ * and loaded from a cache directory, keyed by the geometry of the mesh.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JDistanceField {
+
+    /**
+     * Maximum number of grid points; the cell size is increased if needed.
+     */
+    public static int CHAI_DISTANCE_FIELD_MAX_POINTS = 4 * 1024 * 1024;
+    /**
+     * Identification of the cache files ("JSDF") and format version.
+     */
+    private static final int FILE_MAGIC = 0x4A534446;
+    private static final int FILE_VERSION = 1;
+    /**
+     * Thread building the fields requested in the background.
+     */
+    private static ExecutorService executor;
+    /**
+     * Number of grid points along each axis.
+     */
+    private final int nx, ny, nz;
+    /**
+     * Position of the first grid point (mesh coordinates).
+     */
+    private final double originX, originY, originZ;
+    /**
+     * Distance between two grid points.
+     */
+    private final double cellSize;
+    /**
+     * Width of the band in which distances are exact.
+     */
+    private final double bandWidth;
+    /**
+     * Distance at each grid point, x varying fastest.
+     */
+    private final float[] values;
+    /**
+     * Key of the geometry the field was built from.
+     */
+    private final long key;
+
+    private JDistanceField(int aNx, int aNy, int aNz,
+            double aOriginX, double aOriginY, double aOriginZ,
+            double aCellSize, double aBandWidth, float[] aValues, long aKey) {
+        nx = aNx;
+        ny = aNy;
+        nz = aNz;
+        originX = aOriginX;
+        originY = aOriginY;
+        originZ = aOriginZ;
+        cellSize = aCellSize;
+        bandWidth = aBandWidth;
+        values = aValues;
+        key = aKey;
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS - CONSTRUCTION:
+    //-----------------------------------------------------------------------
+    /**
+     * Build the distance field of a list of triangles. Each triangle only
+     * updates the grid points within the band around it, so the cost is
+     * proportional to the area of the surface, not to the volume of the grid.
+     *
+     * @param aTriangles triangles of the mesh (mesh coordinates).
+     * @param aCellSize distance between two grid points.
+     * @param aBandWidth distance to the surface up to which the field is
+     * exact; should be at least the range of the effects using the field.
+     * @return the field, or null if there is no allocated triangle.
+     * @throws IllegalArgumentException if the cell size is not positive or
+     * the band width is negative.
+     */
+    public static JDistanceField build(ArrayList<JTriangle> aTriangles, double aCellSize, double aBandWidth) {
+        checkParameters(aCellSize, aBandWidth);
+
+        // bounds of the mesh
+        double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, minZ = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE, maxY = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        boolean empty = true;
+        for (int i = 0; i < aTriangles.size(); i++) {
+            JTriangle triangle = aTriangles.get(i);
+            if (!triangle.isAllocated()) {
+                continue;
+            }
+            empty = false;
+            for (int k = 0; k < 3; k++) {
+                JVector3d p = triangle.getVertex(k).getPosition();
+                minX = Math.min(minX, p.x);
+                minY = Math.min(minY, p.y);
+                minZ = Math.min(minZ, p.z);
+                maxX = Math.max(maxX, p.x);
+                maxY = Math.max(maxY, p.y);
+                maxZ = Math.max(maxZ, p.z);
+            }
+        }
+        if (empty) {
+            return (null);
+        }
+
+        // grid covering the mesh and its band; the band must be thicker
+        // than a cell to separate the inside from the outside, and the
+        // border of the grid must lie beyond the band
+        double cellSize = aCellSize;
+        double bandWidth, margin;
+        int gx, gy, gz;
+        while (true) {
+            bandWidth = Math.max(aBandWidth, 2.0 * cellSize);
+            margin = bandWidth + 2.0 * cellSize;
+            gx = (int) Math.ceil((maxX - minX + 2.0 * margin) / cellSize) + 1;
+            gy = (int) Math.ceil((maxY - minY + 2.0 * margin) / cellSize) + 1;
+            gz = (int) Math.ceil((maxZ - minZ + 2.0 * margin) / cellSize) + 1;
+            if ((long) gx * gy * gz <= CHAI_DISTANCE_FIELD_MAX_POINTS) {
+                break;
+            }
+            cellSize *= 1.25;
+        }
+        minX -= margin;
+        minY -= margin;
+        minZ -= margin;
+
+        int numPoints = gx * gy * gz;
+        float[] values = new float[numPoints];
+        double[] distancesSq = new double[numPoints];
+        float[] cosines = new float[numPoints];
+        double bandSq = bandWidth * bandWidth;
+        for (int i = 0; i < numPoints; i++) {
+            values[i] = (float) bandWidth;
+            distancesSq[i] = Double.MAX_VALUE;
+        }
+
+        JVector3d closest = new JVector3d();
+        for (int t = 0; t < aTriangles.size(); t++) {
+            JTriangle triangle = aTriangles.get(t);
+            if (!triangle.isAllocated()) {
+                continue;
+            }
+            JVector3d a = triangle.getVertex0().getPosition();
+            JVector3d b = triangle.getVertex1().getPosition();
+            JVector3d c = triangle.getVertex2().getPosition();
+
+            // normal of the triangle
+            double nX = (b.y - a.y) * (c.z - a.z) - (b.z - a.z) * (c.y - a.y);
+            double nY = (b.z - a.z) * (c.x - a.x) - (b.x - a.x) * (c.z - a.z);
+            double nZ = (b.x - a.x) * (c.y - a.y) - (b.y - a.y) * (c.x - a.x);
+            double length = Math.sqrt(nX * nX + nY * nY + nZ * nZ);
+            if (length == 0.0) {
+                continue;
+            }
+            nX /= length;
+            nY /= length;
+            nZ /= length;
+
+            // grid points within the band of the triangle
+            int i0 = Math.max(0, (int) Math.floor((Math.min(a.x, Math.min(b.x, c.x)) - bandWidth - minX) / cellSize));
+            int j0 = Math.max(0, (int) Math.floor((Math.min(a.y, Math.min(b.y, c.y)) - bandWidth - minY) / cellSize));
+            int k0 = Math.max(0, (int) Math.floor((Math.min(a.z, Math.min(b.z, c.z)) - bandWidth - minZ) / cellSize));
+            int i1 = Math.min(gx - 1, (int) Math.ceil((Math.max(a.x, Math.max(b.x, c.x)) + bandWidth - minX) / cellSize));
+            int j1 = Math.min(gy - 1, (int) Math.ceil((Math.max(a.y, Math.max(b.y, c.y)) + bandWidth - minY) / cellSize));
+            int k1 = Math.min(gz - 1, (int) Math.ceil((Math.max(a.z, Math.max(b.z, c.z)) + bandWidth - minZ) / cellSize));
+
+            for (int k = k0; k <= k1; k++) {
+                double pz = minZ + k * cellSize;
+                for (int j = j0; j <= j1; j++) {
+                    double py = minY + j * cellSize;
+                    int index = (k * gy + j) * gx + i0;
+                    for (int i = i0; i <= i1; i++, index++) {
+                        double px = minX + i * cellSize;
+                        double dSq = JMaths.jClosestPointOnTriangle(px, py, pz, a, b, c, closest);
+                        if ((dSq > bandSq) || (dSq > distancesSq[index] * (1.0 + 1e-9) + 1e-24)) {
+                            continue;
+                        }
+
+                        // side of the point, from the normal of the triangle
+                        double dx = px - closest.x;
+                        double dy = py - closest.y;
+                        double dz = pz - closest.z;
+                        double d = Math.sqrt(dSq);
+                        double side = dx * nX + dy * nY + dz * nZ;
+                        float cosine = (d > 0.0) ? (float) Math.abs(side / d) : 1.0f;
+
+                        // triangles sharing the nearest edge or vertex: keep the
+                        // one facing the point the most, which gives the right side
+                        if ((dSq >= distancesSq[index] * (1.0 - 1e-9) - 1e-24)
+                                && (cosine <= cosines[index])) {
+                            continue;
+                        }
+
+                        distancesSq[index] = Math.min(dSq, distancesSq[index]);
+                        cosines[index] = cosine;
+                        values[index] = (float) ((side < 0.0) ? -d : d);
+                    }
+                }
+            }
+        }
+
+        markInside(values, distancesSq, gx, gy, gz, bandWidth);
+
+        return (new JDistanceField(gx, gy, gz, minX, minY, minZ, cellSize, bandWidth,
+                values, computeKey(aTriangles)));
+    }
+
+    /**
+     * Load the field of a list of triangles from a cache directory, or build
+     * it and store it there. The cache file is named after the key of the
+     * geometry and the parameters, so a modified mesh never loads a stale
+     * field. Failures to read or write the cache only cost a rebuild.
+     *
+     * @param aTriangles triangles of the mesh.
+     * @param aCellSize distance between two grid points.
+     * @param aBandWidth width of the band of exact distances.
+     * @param aCacheDirectory cache directory, or null to always build.
+     * @throws IllegalArgumentException if the cell size is not positive or
+     * the band width is negative.
+     */
+    public static JDistanceField loadOrBuild(ArrayList<JTriangle> aTriangles,
+            double aCellSize, double aBandWidth, File aCacheDirectory) {
+        checkParameters(aCellSize, aBandWidth);
+
+        long key = computeKey(aTriangles);
+        File file = null;
+
+        if (aCacheDirectory != null) {
+            long name = mix(mix(key, Double.doubleToLongBits(aCellSize)), Double.doubleToLongBits(aBandWidth));
+            file = new File(aCacheDirectory, String.format("%016x.sdf", name));
+            if (file.isFile()) {
+                try {
+                    JDistanceField field = load(file);
+                    if (field.key == key) {
+                        return (field);
+                    }
+                } catch (IOException ex) {
+                    // corrupted or outdated file, build again
+                }
+            }
+        }
+
+        JDistanceField field = build(aTriangles, aCellSize, aBandWidth);
+
+        if ((field != null) && (file != null)) {
+            try {
+                aCacheDirectory.mkdirs();
+                field.save(file);
+            } catch (IOException ex) {
+                // the cache is optional
+            }
+        }
+        return (field);
+    }
+
+    /**
+     * Load or build a field on a background thread (see loadOrBuild()). The
+     * triangles must not be modified until the field is available.
+     *
+     * @param aDetector collision detector receiving the field when it is
+     * available, or null.
+     * @return the field, once available.
+     * @throws IllegalArgumentException if the cell size is not positive or
+     * the band width is negative; checked before the thread starts.
+     */
+    public static Future<JDistanceField> loadOrBuildInBackground(final ArrayList<JTriangle> aTriangles,
+            final double aCellSize, final double aBandWidth, final File aCacheDirectory,
+            final JCollisionDistanceField aDetector) {
+        checkParameters(aCellSize, aBandWidth);
+        return (getExecutor().submit(new Callable<JDistanceField>() {
+
+            public JDistanceField call() {
+                JDistanceField field = loadOrBuild(aTriangles, aCellSize, aBandWidth, aCacheDirectory);
+                if (aDetector != null) {
+                    aDetector.setDistanceField(field);
+                }
+                return (field);
+            }
+        }));
+    }
+
+    /**
+     * Check the parameters of a field; a cell size of zero would never end
+     * the construction.
+     *
+     * @throws IllegalArgumentException if the cell size is not positive or
+     * the band width is negative.
+     */
+    public static void checkParameters(double aCellSize, double aBandWidth) {
+        if (!(aCellSize > 0.0) || Double.isInfinite(aCellSize)) {
+            throw new IllegalArgumentException("The cell size of a distance field must be positive: " + aCellSize);
+        }
+        if (!(aBandWidth >= 0.0) || Double.isInfinite(aBandWidth)) {
+            throw new IllegalArgumentException("The band width of a distance field must not be negative: " + aBandWidth);
+        }
+    }
+
+    /**
+     * Write the field to a file.
+     */
+    public void save(File aFile) throws IOException {
+        // write to a temporary file first, so that readers never see a
+        // partially written field
+        File temp = new File(aFile.getPath() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(FILE_MAGIC);
+            out.writeInt(FILE_VERSION);
+            out.writeLong(key);
+            out.writeInt(nx);
+            out.writeInt(ny);
+            out.writeInt(nz);
+            out.writeDouble(originX);
+            out.writeDouble(originY);
+            out.writeDouble(originZ);
+            out.writeDouble(cellSize);
+            out.writeDouble(bandWidth);
+            for (int i = 0; i < values.length; i++) {
+                out.writeFloat(values[i]);
+            }
+        } finally {
+            out.close();
+        }
+        if (aFile.exists() && !aFile.delete()) {
+            throw new IOException("Can not replace " + aFile);
+        }
+        if (!temp.renameTo(aFile)) {
+            throw new IOException("Can not rename " + temp);
+        }
+    }
+
+    /**
+     * Read a field from a file.
+     */
+    public static JDistanceField load(File aFile) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(aFile)));
+        try {
+            if ((in.readInt() != FILE_MAGIC) || (in.readInt() != FILE_VERSION)) {
+                throw new IOException("Not a distance field: " + aFile);
+            }
+            long key = in.readLong();
+            int nx = in.readInt();
+            int ny = in.readInt();
+            int nz = in.readInt();
+            if ((nx <= 0) || (ny <= 0) || (nz <= 0)
+                    || ((long) nx * ny * nz > CHAI_DISTANCE_FIELD_MAX_POINTS)) {
+                throw new IOException("Invalid distance field size: " + aFile);
+            }
+            double originX = in.readDouble();
+            double originY = in.readDouble();
+            double originZ = in.readDouble();
+            double cellSize = in.readDouble();
+            double bandWidth = in.readDouble();
+            float[] values = new float[nx * ny * nz];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = in.readFloat();
+            }
+            return (new JDistanceField(nx, ny, nz, originX, originY, originZ,
+                    cellSize, bandWidth, values, key));
+        } finally {
+            in.close();
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS - QUERIES:
+    //-----------------------------------------------------------------------
+    /**
+     * Read the signed distance from a point to the surface (mesh
+     * coordinates). Points outside of the grid or beyond the band return a
+     * value whose magnitude is a lower bound of the distance. Does not
+     * allocate.
+     */
+    public double getDistance(double aX, double aY, double aZ) {
+        double fx = (aX - originX) / cellSize;
+        double fy = (aY - originY) / cellSize;
+        double fz = (aZ - originZ) / cellSize;
+
+        // outside of the grid: at least the distance to the grid plus the band
+        if ((fx < 0) || (fy < 0) || (fz < 0) || (fx > nx - 1) || (fy > ny - 1) || (fz > nz - 1)) {
+            double dx = Math.max(0.0, Math.max(-fx, fx - (nx - 1)));
+            double dy = Math.max(0.0, Math.max(-fy, fy - (ny - 1)));
+            double dz = Math.max(0.0, Math.max(-fz, fz - (nz - 1)));
+            return (bandWidth + cellSize * Math.sqrt(dx * dx + dy * dy + dz * dz));
+        }
+
+        int i = Math.min((int) fx, nx - 2);
+        int j = Math.min((int) fy, ny - 2);
+        int k = Math.min((int) fz, nz - 2);
+        double u = fx - i;
+        double v = fy - j;
+        double w = fz - k;
+
+        int index = (k * ny + j) * nx + i;
+        int sy = nx;
+        int sz = nx * ny;
+
+        double c00 = values[index] + u * (values[index + 1] - values[index]);
+        double c10 = values[index + sy] + u * (values[index + sy + 1] - values[index + sy]);
+        double c01 = values[index + sz] + u * (values[index + sz + 1] - values[index + sz]);
+        double c11 = values[index + sy + sz] + u * (values[index + sy + sz + 1] - values[index + sy + sz]);
+        double c0 = c00 + v * (c10 - c00);
+        double c1 = c01 + v * (c11 - c01);
+        return (c0 + w * (c1 - c0));
+    }
+
+    public double getDistance(JVector3d aPoint) {
+        return (getDistance(aPoint.x, aPoint.y, aPoint.z));
+    }
+
+    /**
+     * Compute an upper bound of the unsigned distance from a point to the
+     * surface: the smallest exact distance at the corners of its cell, plus
+     * the diagonal of the cell. Returns infinity if no corner lies within
+     * the band.
+     */
+    public double getDistanceUpperBound(JVector3d aPoint) {
+        double fx = (aPoint.x - originX) / cellSize;
+        double fy = (aPoint.y - originY) / cellSize;
+        double fz = (aPoint.z - originZ) / cellSize;
+        if ((fx < 0) || (fy < 0) || (fz < 0) || (fx > nx - 1) || (fy > ny - 1) || (fz > nz - 1)) {
+            return (Double.POSITIVE_INFINITY);
+        }
+
+        int i = Math.min((int) fx, nx - 2);
+        int j = Math.min((int) fy, ny - 2);
+        int k = Math.min((int) fz, nz - 2);
+        int index = (k * ny + j) * nx + i;
+
+        double bound = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < 8; c++) {
+            int corner = index + (c & 1) + (((c >> 1) & 1) * nx) + (((c >> 2) & 1) * nx * ny);
+            double distance = Math.abs(values[corner]);
+            if (distance < bandWidth) {
+                bound = Math.min(bound, distance);
+            }
+        }
+        return (bound + getMaxError());
+    }
+
+    /**
+     * Compute the signed distance at a point and the direction in which the
+     * distance increases the fastest (the outward surface normal near the
+     * surface), by central differences. Does not allocate.
+     *
+     * @param aPoint point (mesh coordinates).
+     * @param aGradient resulting unit gradient (zero if undefined).
+     * @return the signed distance.
+     */
+    public double computeGradient(JVector3d aPoint, JVector3d aGradient) {
+        double h = 0.5 * cellSize;
+        double gx = getDistance(aPoint.x + h, aPoint.y, aPoint.z) - getDistance(aPoint.x - h, aPoint.y, aPoint.z);
+        double gy = getDistance(aPoint.x, aPoint.y + h, aPoint.z) - getDistance(aPoint.x, aPoint.y - h, aPoint.z);
+        double gz = getDistance(aPoint.x, aPoint.y, aPoint.z + h) - getDistance(aPoint.x, aPoint.y, aPoint.z - h);
+        double length = Math.sqrt(gx * gx + gy * gy + gz * gz);
+        if (length > 0.0) {
+            aGradient.set(gx / length, gy / length, gz / length);
+        } else {
+            aGradient.set(0.0, 0.0, 0.0);
+        }
+        return (getDistance(aPoint.x, aPoint.y, aPoint.z));
+    }
+
+    /**
+     * Check whether a point may be within a distance of the surface, taking
+     * the interpolation error into account. A false result is exact.
+     */
+    public boolean isNearSurface(JVector3d aPoint, double aDistance) {
+        return (Math.abs(getDistance(aPoint.x, aPoint.y, aPoint.z)) <= aDistance + getMaxError());
+    }
+
+    /**
+     * Read the largest error of the interpolated distances (the diagonal of
+     * a cell).
+     */
+    public double getMaxError() {
+        return (cellSize * Math.sqrt(3.0));
+    }
+
+    public double getCellSize() {
+        return (cellSize);
+    }
+
+    public double getBandWidth() {
+        return (bandWidth);
+    }
+
+    /**
+     * Read the number of grid points.
+     */
+    public int getNumPoints() {
+        return (values.length);
+    }
+
+    /**
+     * Read the key of the geometry the field was built from.
+     */
+    public long getKey() {
+        return (key);
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS - INTERNAL:
+    //-----------------------------------------------------------------------
+    /**
+     * Compute a 64 bit key (FNV-1a) of the geometry of a list of triangles.
+     */
+    public static long computeKey(ArrayList<JTriangle> aTriangles) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < aTriangles.size(); i++) {
+            JTriangle triangle = aTriangles.get(i);
+            if (!triangle.isAllocated()) {
+                continue;
+            }
+            for (int k = 0; k < 3; k++) {
+                JVector3d p = triangle.getVertex(k).getPosition();
+                hash = mix(hash, Double.doubleToLongBits(p.x));
+                hash = mix(hash, Double.doubleToLongBits(p.y));
+                hash = mix(hash, Double.doubleToLongBits(p.z));
+            }
+        }
+        return (hash);
+    }
+
+    private static long mix(long aHash, long aValue) {
+        long hash = aHash;
+        for (int i = 0; i < 8; i++) {
+            hash ^= (aValue >>> (8 * i)) & 0xFF;
+            hash *= 0x100000001b3L;
+        }
+        return (hash);
+    }
+
+    /**
+     * Give the sign of the grid points beyond the band: those connected to
+     * the border of the grid without crossing the band are outside, the
+     * others are enclosed by the surface.
+     */
+    private static void markInside(float[] aValues, double[] aDistancesSq,
+            int aNx, int aNy, int aNz, double aBandWidth) {
+        int numPoints = aValues.length;
+        boolean[] outside = new boolean[numPoints];
+        int[] queue = new int[numPoints];
+        int head = 0, tail = 0;
+
+        // seeds on the border of the grid
+        for (int k = 0; k < aNz; k++) {
+            for (int j = 0; j < aNy; j++) {
+                boolean border = (j == 0) || (k == 0) || (j == aNy - 1) || (k == aNz - 1);
+                for (int i = 0; i < aNx; i++) {
+                    int index = (k * aNy + j) * aNx + i;
+                    if ((border || (i == 0) || (i == aNx - 1))
+                            && (aDistancesSq[index] == Double.MAX_VALUE)) {
+                        outside[index] = true;
+                        queue[tail++] = index;
+                    }
+                }
+            }
+        }
+
+        // flood fill through the points beyond the band
+        int sy = aNx;
+        int sz = aNx * aNy;
+        while (head < tail) {
+            int index = queue[head++];
+            int i = index % aNx;
+            int j = (index / aNx) % aNy;
+            int k = index / sz;
+            for (int n = 0; n < 6; n++) {
+                int next;
+                switch (n) {
+                    case 0:
+                        next = (i > 0) ? index - 1 : -1;
+                        break;
+                    case 1:
+                        next = (i < aNx - 1) ? index + 1 : -1;
+                        break;
+                    case 2:
+                        next = (j > 0) ? index - sy : -1;
+                        break;
+                    case 3:
+                        next = (j < aNy - 1) ? index + sy : -1;
+                        break;
+                    case 4:
+                        next = (k > 0) ? index - sz : -1;
+                        break;
+                    default:
+                        next = (k < aNz - 1) ? index + sz : -1;
+                        break;
+                }
+                if ((next >= 0) && !outside[next] && (aDistancesSq[next] == Double.MAX_VALUE)) {
+                    outside[next] = true;
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        float inside = (float) -aBandWidth;
+        for (int index = 0; index < numPoints; index++) {
+            if ((aDistancesSq[index] == Double.MAX_VALUE) && !outside[index]) {
+                aValues[index] = inside;
+            }
+        }
+    }
+
+    /**
+     * Lazily create the background thread. The thread is a daemon so that it
+     * never keeps an application alive.
+     */
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+                public Thread newThread(Runnable aRunnable) {
+                    Thread thread = new Thread(aRunnable, "JDistanceField");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return (thread);
+                }
+            });
+        }
+        return (executor);
+    }
+}
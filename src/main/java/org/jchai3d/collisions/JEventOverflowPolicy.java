@@ -0,0 +1,38 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.collisions;
+
+/**
+ * Behavior of a pooled event recorder (JPooledCollisionRecorder,
+ * JPooledInteractionRecorder) when more events are recorded than its pool
+ * can hold.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public enum JEventOverflowPolicy {
+
+    /**
+     * Allocate more events. They are kept in the pool, so the recorder stops
+     * allocating once it has reached the size of the largest update.
+     */
+    GROW,
+    /**
+     * Discard the events beyond the capacity and count them. The nearest
+     * collision is still tracked. Never allocates.
+     */
+    DROP;
+}
@@ -18,8 +18,12 @@
 
 package org.jchai3d.collisions;
 
+import java.util.ArrayList;
+import java.util.List;
 import org.jchai3d.graphics.JColorf;
 import org.jchai3d.graphics.JMaterial;
+import org.jchai3d.graphics.JTriangle;
+import org.jchai3d.math.JMaths;
 import org.jchai3d.math.JVector3d;
 
 /**
@@ -42,6 +46,18 @@ public abstract class JGenericCollision {
      * up to and including this level, positive values render _just_ this level.
      */
     protected int displayDepth;
+    /**
+     * Number of triangles tested by the last closest point query.
+     */
+    protected int numClosestPointTests;
+    /**
+     * Work vectors of the closest point queries (haptic thread) and of the
+     * nearby triangle queries (planner thread), kept to avoid allocating
+     * one per query. Each kind of query must only be made by one thread at
+     * a time.
+     */
+    protected final JVector3d closestPointScratch = new JVector3d();
+    protected final JVector3d nearbyScratch = new JVector3d();
     
 
     // Do any necessary initialization, such as building trees.
@@ -55,9 +71,138 @@ public abstract class JGenericCollision {
     // Provide a visual representation of the method.
     public abstract void render();
 
-    // Return the triangles intersected by the given segment, if any.
+    // Return the triangles intersected by the given segment, if any. With a
+    // positive collision radius in the settings, the segment is swept by a
+    // sphere of that radius (see JProxyPointForceAlgo).
     public abstract boolean computeCollision(JVector3d aSegmentPointA, JVector3d aSegmentPointB, JCollisionRecorder aRecorder, JCollisionSettings aSettings);
 
+    /**
+     * Find the point of the mesh closest to \e aPoint, if it lies within
+     * \e aMaxDistance. The nearest collision event of the recorder receives
+     * the triangle, the closest point, the normal of the triangle (mesh
+     * coordinates) and the square distance.
+     *
+     * The triangle found by the previous query made with the same recorder,
+     * and its neighbors, are tested first, so that a point moving a little
+     * from one call to the next bounds the search from the start. Clear the
+     * recorder to forget it. Detectors without a hierarchy to search return
+     * false.
+     *
+     * @return true if a triangle lies within \e aMaxDistance.
+     */
+    public boolean computeClosestPoint(JVector3d aPoint, double aMaxDistance, JCollisionRecorder aRecorder) {
+        aRecorder.getNearestCollision().clear();
+        numClosestPointTests = 0;
+        return (false);
+    }
+
+    /**
+     * Collect the triangles of the mesh that lie within \e aRadius of
+     * \e aPoint (mesh coordinates). Detectors without a hierarchy to search
+     * find nothing.
+     *
+     * @return the number of triangles added to \e aResult.
+     */
+    public int computeNearbyTriangles(JVector3d aPoint, double aRadius, List<JTriangle> aResult) {
+        return (0);
+    }
+
+    /**
+     * Read the number of triangles tested by the last closest point query.
+     */
+    public int getNumClosestPointTests() {
+        return (numClosestPointTests);
+    }
+
+    /**
+     * Start a closest point query: reset the nearest event to the maximum
+     * distance and test the triangle of the previous query, if it belongs to
+     * \e aTriangles, and its neighbors.
+     */
+    protected void beginClosestPoint(JVector3d aPoint, double aMaxDistance,
+            JCollisionEvent aNearest, ArrayList<JTriangle> aTriangles, JVector3d aScratch) {
+        JTriangle hint = aNearest.getTriangle();
+
+        aNearest.clear();
+        aNearest.setSquareDistance(aMaxDistance * aMaxDistance);
+        numClosestPointTests = 0;
+
+        if ((hint == null) || !hint.isAllocated() || (hint.getParent() == null)
+                || (hint.getParent().getTriangles() != aTriangles)) {
+            return;
+        }
+
+        testClosestPoint(hint, aPoint, aNearest, aScratch);
+        ArrayList<JTriangle> neighbors = hint.getNeighbors();
+        if (neighbors != null) {
+            for (int i = 0; i < neighbors.size(); i++) {
+                testClosestPoint(neighbors.get(i), aPoint, aNearest, aScratch);
+            }
+        }
+    }
+
+    /**
+     * Test a triangle during a closest point query. If it is closer to the
+     * point than the nearest event, it becomes the nearest event.
+     */
+    protected boolean testClosestPoint(JTriangle aTriangle, JVector3d aPoint,
+            JCollisionEvent aNearest, JVector3d aScratch) {
+        numClosestPointTests++;
+
+        double distanceSq = JMaths.jClosestPointOnTriangle(aPoint,
+                aTriangle.getVertex0().getPosition(),
+                aTriangle.getVertex1().getPosition(),
+                aTriangle.getVertex2().getPosition(), aScratch);
+
+        if (distanceSq < aNearest.getSquareDistance()) {
+            aNearest.setTriangle(aTriangle);
+            aNearest.setSquareDistance(distanceSq);
+            aNearest.getLocalPosition().copyFrom(aScratch);
+            return (true);
+        }
+        return (false);
+    }
+
+    /**
+     * Test a triangle during a nearby triangles query.
+     */
+    protected static boolean isNearby(JTriangle aTriangle, JVector3d aPoint,
+            double aRadiusSq, JVector3d aScratch) {
+        return (JMaths.jClosestPointOnTriangle(aPoint,
+                aTriangle.getVertex0().getPosition(),
+                aTriangle.getVertex1().getPosition(),
+                aTriangle.getVertex2().getPosition(), aScratch) <= aRadiusSq);
+    }
+
+    /**
+     * End a closest point query: complete the nearest event with the normal
+     * of the triangle and its mesh.
+     *
+     * @return true if a triangle was found.
+     */
+    protected boolean endClosestPoint(JCollisionEvent aNearest) {
+        JTriangle triangle = aNearest.getTriangle();
+        if (triangle == null) {
+            aNearest.clear();
+            return (false);
+        }
+
+        JVector3d v0 = triangle.getVertex0().getPosition();
+        JVector3d v1 = triangle.getVertex1().getPosition();
+        JVector3d v2 = triangle.getVertex2().getPosition();
+        double nx = (v1.y - v0.y) * (v2.z - v0.z) - (v1.z - v0.z) * (v2.y - v0.y);
+        double ny = (v1.z - v0.z) * (v2.x - v0.x) - (v1.x - v0.x) * (v2.z - v0.z);
+        double nz = (v1.x - v0.x) * (v2.y - v0.y) - (v1.y - v0.y) * (v2.x - v0.x);
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (length > 0.0) {
+            aNearest.getLocalNormal().set(nx / length, ny / length, nz / length);
+        } else {
+            aNearest.getLocalNormal().zero();
+        }
+        aNearest.setObject(triangle.getParent());
+        return (true);
+    }
+
     // Set level of collision tree to display.
     public void setDisplayDepth(int aDepth) {
         displayDepth = aDepth;
@@ -0,0 +1,159 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.collisions;
+
+/**
+ * JPooledCollisionRecorder is a collision recorder whose events are taken
+ * from a preallocated pool instead of being allocated for each hit. The
+ * events are recycled by clear(): an event read from the recorder is only
+ * valid until the next call to clear().
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JPooledCollisionRecorder extends JCollisionRecorder {
+
+    /**
+     * Default number of events allocated.
+     */
+    public static int CHAI_COLLISION_POOL_CAPACITY = 64;
+    /**
+     * Preallocated events.
+     */
+    private JCollisionEvent[] pool;
+    /**
+     * Number of events of the pool in use.
+     */
+    private int numUsed;
+    /**
+     * Behavior when the pool is full.
+     */
+    private JEventOverflowPolicy overflowPolicy;
+    /**
+     * Event filled and discarded when the pool is full and the policy is
+     * JEventOverflowPolicy.DROP.
+     */
+    private final JCollisionEvent overflowEvent;
+    /**
+     * Number of events discarded since the last call to clear().
+     */
+    private int numDroppedEvents;
+
+    /**
+     * Constructor of JPooledCollisionRecorder.
+     */
+    public JPooledCollisionRecorder() {
+        this(CHAI_COLLISION_POOL_CAPACITY, JEventOverflowPolicy.GROW);
+    }
+
+    /**
+     * Constructor of JPooledCollisionRecorder.
+     *
+     * @param aCapacity number of events allocated.
+     * @param aOverflowPolicy behavior when the pool is full.
+     */
+    public JPooledCollisionRecorder(int aCapacity, JEventOverflowPolicy aOverflowPolicy) {
+        pool = new JCollisionEvent[Math.max(1, aCapacity)];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = new JCollisionEvent();
+        }
+        getCollisions().ensureCapacity(pool.length);
+        overflowPolicy = aOverflowPolicy;
+        overflowEvent = new JCollisionEvent();
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS:
+    //-----------------------------------------------------------------------
+    /**
+     * Clear all records. The events return to the pool.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        numUsed = 0;
+        numDroppedEvents = 0;
+    }
+
+    /**
+     * Take an event from the pool and append it to the list of collisions.
+     * When the pool is full, the event is either allocated or discarded,
+     * depending on the overflow policy.
+     */
+    @Override
+    public JCollisionEvent addCollision() {
+        if (numUsed == pool.length) {
+            if (overflowPolicy == JEventOverflowPolicy.DROP) {
+                numDroppedEvents++;
+                overflowEvent.clear();
+                return (overflowEvent);
+            }
+            resize(2 * pool.length);
+        }
+
+        JCollisionEvent event = pool[numUsed++];
+        event.clear();
+        getCollisions().add(event);
+        return (event);
+    }
+
+    /**
+     * Read the number of events the pool holds.
+     */
+    public int getCapacity() {
+        return (pool.length);
+    }
+
+    /**
+     * Set the number of events the pool holds. The pool grows or shrinks,
+     * but never below the number of events in use, which are kept.
+     */
+    public void setCapacity(int aCapacity) {
+        int capacity = Math.max(Math.max(1, aCapacity), numUsed);
+        if (capacity != pool.length) {
+            resize(capacity);
+        }
+    }
+
+    public JEventOverflowPolicy getOverflowPolicy() {
+        return (overflowPolicy);
+    }
+
+    public void setOverflowPolicy(JEventOverflowPolicy aOverflowPolicy) {
+        overflowPolicy = aOverflowPolicy;
+    }
+
+    /**
+     * Read the number of events discarded since the last call to clear().
+     */
+    public int getNumDroppedEvents() {
+        return (numDroppedEvents);
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS - INTERNAL:
+    //-----------------------------------------------------------------------
+    private void resize(int aCapacity) {
+        JCollisionEvent[] events = new JCollisionEvent[aCapacity];
+        int kept = Math.min(pool.length, aCapacity);
+        System.arraycopy(pool, 0, events, 0, kept);
+        for (int i = kept; i < aCapacity; i++) {
+            events[i] = new JCollisionEvent();
+        }
+        pool = events;
+        getCollisions().ensureCapacity(aCapacity);
+    }
+}
@@ -0,0 +1,415 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.collisions;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import org.jchai3d.collisions.aabb.JCollisionAABB;
+import org.jchai3d.extras.JWorkerThreads;
+import org.jchai3d.graphics.JTriangle;
+import org.jchai3d.math.JMatrix3d;
+import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JGenericObject;
+
+/**
+ * JRayCaster casts large numbers of rays (depth sensors, picking) through
+ * the collision detectors of a scene. Rays are given and returned in packed
+ * arrays: for each ray, the distance to the nearest hit, the triangle and
+ * the object hit. Rays are grouped in packets that traverse the AABB trees
+ * together, and packets are distributed between worker threads. Objects
+ * using other collision detectors are queried one ray at a time.
+ *
+ * The global positions of the scene must be up to date before casting
+ * (see JGenericObject.computeGlobalPositions()).
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JRayCaster {
+
+    /**
+     * Number of rays traversing the trees together.
+     */
+    public static int CHAI_RAY_PACKET_SIZE = 64;
+    /**
+     * Root of the scene (usually the world).
+     */
+    protected JGenericObject root;
+    /**
+     * Settings selecting the objects and triangle sides that can be hit.
+     */
+    protected JCollisionSettings collisionSettings;
+    /**
+     * Distribute the packets between several threads?
+     */
+    protected boolean parallelEnabled;
+    /**
+     * Objects tested by the current cast, and their poses.
+     */
+    private ArrayList<JGenericObject> objects;
+    private ArrayList<JVector3d> objectPositions;
+    private ArrayList<JMatrix3d> objectRotations;
+    /**
+     * Work arrays of each thread.
+     */
+    private final ThreadLocal<RayPacket> packets;
+    /**
+     * Number of rays and duration [ns] of the last cast.
+     */
+    protected int lastNumRays;
+    protected long lastCastTime;
+
+    /**
+     * Constructor of JRayCaster.
+     *
+     * @param aRoot root of the scene to cast rays into.
+     */
+    public JRayCaster(JGenericObject aRoot) {
+        root = aRoot;
+        collisionSettings = new JCollisionSettings();
+        collisionSettings.setCheckVisibleObjectsOnly(true);
+        collisionSettings.setCheckBothSidesOfTriangles(true);
+        parallelEnabled = true;
+        objects = new ArrayList<JGenericObject>();
+        objectPositions = new ArrayList<JVector3d>();
+        objectRotations = new ArrayList<JMatrix3d>();
+        packets = new ThreadLocal<RayPacket>() {
+
+            @Override
+            protected RayPacket initialValue() {
+                return (new RayPacket());
+            }
+        };
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS:
+    //-----------------------------------------------------------------------
+    /**
+     * Cast rays into the scene.
+     *
+     * @param aOrigins origins of the rays (global coordinates), three values
+     * per ray.
+     * @param aDirections directions of the rays, three values per ray; they
+     * do not need to be normalized.
+     * @param aNumRays number of rays.
+     * @param aMaxDistance length of the rays.
+     * @param aDistances out: distance from the origin to the nearest hit of
+     * each ray, or Double.POSITIVE_INFINITY if the ray hits nothing.
+     * @param aTriangles out: triangle hit by each ray, or null (may be null).
+     * @param aObjects out: object hit by each ray, or null (may be null).
+     * @return the number of rays that hit an object.
+     */
+    public int castRays(final double[] aOrigins,
+            final double[] aDirections,
+            final int aNumRays,
+            final double aMaxDistance,
+            final double[] aDistances,
+            final JTriangle[] aTriangles,
+            final JGenericObject[] aObjects) {
+
+        long start = System.nanoTime();
+
+        // select the objects once for all rays
+        objects.clear();
+        objectPositions.clear();
+        objectRotations.clear();
+        selectObjects(root);
+
+        int numPackets = (aNumRays + CHAI_RAY_PACKET_SIZE - 1) / CHAI_RAY_PACKET_SIZE;
+        int numHits = 0;
+
+        if (!parallelEnabled || (numPackets < 2)) {
+            for (int p = 0; p < numPackets; p++) {
+                int first = p * CHAI_RAY_PACKET_SIZE;
+                numHits += castPacket(aOrigins, aDirections, first,
+                        Math.min(CHAI_RAY_PACKET_SIZE, aNumRays - first), aMaxDistance,
+                        aDistances, aTriangles, aObjects);
+            }
+        } else {
+            // a few packets per task, a few tasks per thread
+            int numThreads = JWorkerThreads.getNumThreads();
+            int packetsPerTask = Math.max(1, numPackets / (4 * numThreads));
+            ArrayList<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+
+            for (int p = 0; p < numPackets; p += packetsPerTask) {
+                final int firstPacket = p;
+                final int lastPacket = Math.min(numPackets, p + packetsPerTask);
+                tasks.add(new Callable<Integer>() {
+
+                    public Integer call() {
+                        int hits = 0;
+                        for (int q = firstPacket; q < lastPacket; q++) {
+                            int first = q * CHAI_RAY_PACKET_SIZE;
+                            hits += castPacket(aOrigins, aDirections, first,
+                                    Math.min(CHAI_RAY_PACKET_SIZE, aNumRays - first), aMaxDistance,
+                                    aDistances, aTriangles, aObjects);
+                        }
+                        return (hits);
+                    }
+                });
+            }
+
+            for (Integer hits : JWorkerThreads.callAll(tasks)) {
+                numHits += hits;
+            }
+        }
+
+        lastNumRays = aNumRays;
+        lastCastTime = System.nanoTime() - start;
+        return (numHits);
+    }
+
+    /**
+     * Read the settings used to select the objects (visible or haptic only)
+     * and the triangle sides that can be hit.
+     */
+    public JCollisionSettings getCollisionSettings() {
+        return (collisionSettings);
+    }
+
+    public boolean isParallelEnabled() {
+        return (parallelEnabled);
+    }
+
+    public void setParallelEnabled(boolean aEnabled) {
+        parallelEnabled = aEnabled;
+    }
+
+    /**
+     * Read the duration of the last cast [ns].
+     */
+    public long getLastCastTime() {
+        return (lastCastTime);
+    }
+
+    /**
+     * Read the number of rays cast per second during the last cast.
+     */
+    public double getRaysPerSecond() {
+        return (lastCastTime > 0 ? lastNumRays * 1e9 / lastCastTime : 0.0);
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS - INTERNAL:
+    //-----------------------------------------------------------------------
+    /**
+     * Gather the objects that can be hit, with their global poses.
+     */
+    private void selectObjects(JGenericObject aObject) {
+        if (aObject.isGhost()) {
+            return;
+        }
+
+        if ((aObject.getCollisionDetector() != null)
+                && (!collisionSettings.isCheckVisibleObjectsOnly() || aObject.isVisible())
+                && (!collisionSettings.isCheckHapticObjectsOnly() || aObject.isHapticEnabled())) {
+            objects.add(aObject);
+            objectPositions.add(aObject.getGlobalPosition());
+            objectRotations.add(aObject.getGlobalRotation());
+        }
+
+        for (int i = 0; i < aObject.getNumChildren(); i++) {
+            selectObjects(aObject.getChild(i));
+        }
+    }
+
+    /**
+     * Cast a packet of rays through all selected objects.
+     */
+    private int castPacket(double[] aOrigins, double[] aDirections, int aFirst, int aCount,
+            double aMaxDistance, double[] aDistances, JTriangle[] aTriangles, JGenericObject[] aObjects) {
+
+        RayPacket packet = packets.get();
+        packet.reset(aCount);
+
+        // normalized directions; degenerated rays hit nothing
+        for (int i = 0; i < aCount; i++) {
+            int k = 3 * (aFirst + i);
+            double dx = aDirections[k], dy = aDirections[k + 1], dz = aDirections[k + 2];
+            double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+            if (length > 0.0) {
+                packet.directions[3 * i] = dx / length;
+                packet.directions[3 * i + 1] = dy / length;
+                packet.directions[3 * i + 2] = dz / length;
+                packet.nearest[i] = aMaxDistance;
+            } else {
+                packet.directions[3 * i] = 0.0;
+                packet.directions[3 * i + 1] = 0.0;
+                packet.directions[3 * i + 2] = 0.0;
+                packet.nearest[i] = -1.0;
+            }
+        }
+
+        for (int n = 0; n < objects.size(); n++) {
+            JGenericObject object = objects.get(n);
+            JVector3d position = objectPositions.get(n);
+            JMatrix3d m = objectRotations.get(n);
+
+            // rays in the frame of the object
+            for (int i = 0; i < aCount; i++) {
+                int k = 3 * (aFirst + i);
+                double ox = aOrigins[k] - position.x;
+                double oy = aOrigins[k + 1] - position.y;
+                double oz = aOrigins[k + 2] - position.z;
+                double dx = packet.directions[3 * i];
+                double dy = packet.directions[3 * i + 1];
+                double dz = packet.directions[3 * i + 2];
+                packet.localOrigins[3 * i] = m.m00 * ox + m.m10 * oy + m.m20 * oz;
+                packet.localOrigins[3 * i + 1] = m.m01 * ox + m.m11 * oy + m.m21 * oz;
+                packet.localOrigins[3 * i + 2] = m.m02 * ox + m.m12 * oy + m.m22 * oz;
+                double lx = m.m00 * dx + m.m10 * dy + m.m20 * dz;
+                double ly = m.m01 * dx + m.m11 * dy + m.m21 * dz;
+                double lz = m.m02 * dx + m.m12 * dy + m.m22 * dz;
+                packet.localDirections[3 * i] = lx;
+                packet.localDirections[3 * i + 1] = ly;
+                packet.localDirections[3 * i + 2] = lz;
+                packet.invDirections[3 * i] = 1.0 / lx;
+                packet.invDirections[3 * i + 1] = 1.0 / ly;
+                packet.invDirections[3 * i + 2] = 1.0 / lz;
+                packet.distances[i] = packet.nearest[i];
+                packet.triangles[i] = null;
+            }
+
+            JGenericCollision detector = object.getCollisionDetector();
+            if (detector instanceof JCollisionDistanceField) {
+                detector = ((JCollisionDistanceField) detector).getExactDetector();
+            }
+            if (detector instanceof JCollisionAABB) {
+                JCollisionAABB tree = (JCollisionAABB) detector;
+                int size = tree.getRayPacketScratchSize(aCount);
+                if (packet.scratch.length < size) {
+                    packet.scratch = new int[size];
+                }
+                tree.computeRayPacketCollision(packet.localOrigins, packet.localDirections,
+                        packet.invDirections, aCount, packet.distances, packet.triangles,
+                        collisionSettings.isCheckBothSidesOfTriangles(), packet.scratch);
+            } else {
+                castSingleRays(detector, packet, aCount);
+            }
+
+            // keep the nearest hits
+            for (int i = 0; i < aCount; i++) {
+                if ((packet.triangles[i] != null) && (packet.distances[i] < packet.nearest[i])) {
+                    packet.nearest[i] = packet.distances[i];
+                    packet.nearestTriangles[i] = packet.triangles[i];
+                    packet.nearestObjects[i] = object;
+                }
+            }
+        }
+
+        // write the results
+        int numHits = 0;
+        for (int i = 0; i < aCount; i++) {
+            boolean hit = (packet.nearestTriangles[i] != null);
+            aDistances[aFirst + i] = hit ? packet.nearest[i] : Double.POSITIVE_INFINITY;
+            if (aTriangles != null) {
+                aTriangles[aFirst + i] = packet.nearestTriangles[i];
+            }
+            if (aObjects != null) {
+                aObjects[aFirst + i] = packet.nearestObjects[i];
+            }
+            if (hit) {
+                numHits++;
+            }
+        }
+        return (numHits);
+    }
+
+    /**
+     * Query a collision detector one ray at a time, for detectors that do
+     * not support ray packets.
+     */
+    private void castSingleRays(JGenericCollision aDetector, RayPacket aPacket, int aCount) {
+        JCollisionSettings settings = aPacket.settings;
+        settings.setCheckForNearestCollisionOnly(true);
+        settings.setReturnMinimalCollisionData(true);
+        settings.setCheckBothSidesOfTriangles(collisionSettings.isCheckBothSidesOfTriangles());
+
+        for (int i = 0; i < aCount; i++) {
+            if (aPacket.distances[i] <= 0.0) {
+                continue;
+            }
+            aPacket.pointA.set(aPacket.localOrigins[3 * i],
+                    aPacket.localOrigins[3 * i + 1],
+                    aPacket.localOrigins[3 * i + 2]);
+            aPacket.pointB.set(aPacket.localDirections[3 * i],
+                    aPacket.localDirections[3 * i + 1],
+                    aPacket.localDirections[3 * i + 2]);
+            aPacket.pointB.mul(aPacket.distances[i]);
+            aPacket.pointB.add(aPacket.pointA);
+
+            aPacket.recorder.clear();
+            if (aDetector.computeCollision(aPacket.pointA, aPacket.pointB, aPacket.recorder, settings)) {
+                JCollisionEvent event = aPacket.recorder.getNearestCollision();
+                aPacket.distances[i] = Math.sqrt(event.getSquareDistance());
+                aPacket.triangles[i] = event.getTriangle();
+            }
+        }
+    }
+}
+
+/**
+ * Work arrays of a packet of rays, reused by a thread from one packet to the
+ * next.
+ */
+class RayPacket {
+
+    double[] directions;
+    double[] localOrigins;
+    double[] localDirections;
+    double[] invDirections;
+    double[] distances;
+    double[] nearest;
+    JTriangle[] triangles;
+    JTriangle[] nearestTriangles;
+    JGenericObject[] nearestObjects;
+    int[] scratch;
+    JVector3d pointA = new JVector3d();
+    JVector3d pointB = new JVector3d();
+    JCollisionRecorder recorder = new JCollisionRecorder();
+    JCollisionSettings settings = new JCollisionSettings();
+
+    RayPacket() {
+        allocate(JRayCaster.CHAI_RAY_PACKET_SIZE);
+        scratch = new int[0];
+    }
+
+    /**
+     * Prepare the arrays for a packet of aCount rays.
+     */
+    void reset(int aCount) {
+        if (distances.length < aCount) {
+            allocate(aCount);
+        }
+        for (int i = 0; i < aCount; i++) {
+            nearestTriangles[i] = null;
+            nearestObjects[i] = null;
+        }
+    }
+
+    private void allocate(int aCount) {
+        directions = new double[3 * aCount];
+        localOrigins = new double[3 * aCount];
+        localDirections = new double[3 * aCount];
+        invDirections = new double[3 * aCount];
+        distances = new double[aCount];
+        nearest = new double[aCount];
+        triangles = new JTriangle[aCount];
+        nearestTriangles = new JTriangle[aCount];
+        nearestObjects = new JGenericObject[aCount];
+    }
+}
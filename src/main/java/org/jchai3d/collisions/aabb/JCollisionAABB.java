@@ -16,14 +16,20 @@
 package org.jchai3d.collisions.aabb;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
 import com.jogamp.opengl.GL;
 import com.jogamp.opengl.GL2;
 import com.jogamp.opengl.GLContext;
+import org.jchai3d.collisions.JCollisionEvent;
+import org.jchai3d.collisions.JCollisionHitList;
 import org.jchai3d.collisions.JCollisionRecorder;
 import org.jchai3d.collisions.JCollisionSettings;
 import org.jchai3d.collisions.JGenericCollision;
+import org.jchai3d.extras.JWorkerThreads;
 import org.jchai3d.graphics.JDraw3D;
 import org.jchai3d.graphics.JTriangle;
+import org.jchai3d.math.JConstants;
 import org.jchai3d.math.JVector3d;
 
 /**
@@ -66,6 +72,19 @@ public class JCollisionAABB extends JGenericCollision {
      * Use list of triangles' neighbors to speed up collision detection?
      */
     protected boolean neighborsEnabled;
+    /**
+     * Trees with fewer triangles than this are always traversed by the
+     * calling thread, even when a parallel traversal is requested.
+     */
+    public static int CHAI_PARALLEL_COLLISION_THRESHOLD = 20000;
+    /**
+     * Recorders of the subtrees of a parallel query, reused between queries.
+     */
+    private ArrayList<JCollisionRecorder> subtreeRecorders;
+    /**
+     * Depth of the deepest leaf of the tree.
+     */
+    protected int maxDepth;
 
     /**
      * Constructor of JCollisionAABB.
@@ -83,6 +102,7 @@ public class JCollisionAABB extends JGenericCollision {
         this.leaves = null;
         this.numTriangles = 0;
         this.neighborsEnabled = useNeighbors;
+        this.subtreeRecorders = new ArrayList<JCollisionRecorder>();
     }
 
     /**
@@ -93,7 +113,8 @@ public class JCollisionAABB extends JGenericCollision {
      * a bounding box of minimal dimensions such that it fully encloses the
      * bounding boxes of its two children and is aligned with the axes.
      *
-     * @param radius radius to add around the triangles.
+     * @param radius not used; boxes are fitted tightly around the triangles
+     * and expanded by the collision radius of each query.
      */
     @Override
     public void initialize(double radius) {
@@ -143,10 +164,14 @@ public class JCollisionAABB extends JGenericCollision {
         //assign parent relationship in the tree
         root.setParent(null, true);
 
+        // depth of the tree, used to size the work arrays of ray packets
+        maxDepth = 0;
+        for (int i = 0; i < numTriangles; i++) {
+            maxDepth = Math.max(maxDepth, leaves[i].depth);
+        }
+
     }
 
-    JVector3d a = new JVector3d();
-    JVector3d b = new JVector3d();
     /**
      * Draw the bounding boxes in OpenGL2.
      */
@@ -158,8 +183,7 @@ public class JCollisionAABB extends JGenericCollision {
             gl.glDisable(GL2.GL_LIGHTING);
             gl.glLineWidth(1.0f);
             gl.glColor3f(0.2f, 0.2f, 0.2f);
-            
-            //JDraw3D.jDrawWireBox(a.x, a.y, a.z, b.x, b.y, b.z);
+
             // render tree by calling the root, which recursively calls the children
             root.render(displayDepth);
 
@@ -180,6 +204,11 @@ public class JCollisionAABB extends JGenericCollision {
      * the line segment does not intersect the bounding box of the node. At the
      * leafs, triangle-segment intersection testing is called.
      *
+     * When the collision radius of the settings is positive, the segment is
+     * the path of a sphere of that radius (a capsule): the box of the segment
+     * is expanded by the radius and the triangles are tested against the
+     * swept sphere.
+     *
      * @param segmentPointA Initial point of segment.
      * @param segmentPointB End point of segment.
      * @param recorder Stores all collision events
@@ -199,9 +228,19 @@ public class JCollisionAABB extends JGenericCollision {
         lineBox.setEmpty();
         lineBox.enclose(segmentPointA);
         lineBox.enclose(segmentPointB);
-        
-        a.copyFrom(segmentPointA);
-        b.copyFrom(segmentPointB);
+        double radius = settings.getCollisionRadius();
+        if (radius > 0.0) {
+            lineBox.min.sub(radius, radius, radius);
+            lineBox.max.add(radius, radius, radius);
+        }
+
+        // large queries made outside of the haptic loop may be split between
+        // several threads
+        if (settings.isParallelTraversal() && (numTriangles >= CHAI_PARALLEL_COLLISION_THRESHOLD)) {
+            return (computeCollisionParallel(segmentPointA, segmentPointB,
+                    lineBox, recorder, settings));
+        }
+
         // test for intersection between the line segment and the root of the
         // collision tree; the root will recursively call children down the tree
         //System.out.println("Testing collision");
@@ -212,6 +251,104 @@ public class JCollisionAABB extends JGenericCollision {
 
     }
     
+    /**
+     * Find the point of the mesh closest to a point. The tree is searched
+     * nearest child first, and the subtrees whose boxes are further than the
+     * closest triangle found so far (initially the maximum distance, or the
+     * triangle of the previous query) are skipped.
+     */
+    @Override
+    public boolean computeClosestPoint(JVector3d aPoint, double aMaxDistance, JCollisionRecorder aRecorder) {
+        JCollisionEvent nearest = aRecorder.getNearestCollision();
+        JVector3d scratch = closestPointScratch;
+        beginClosestPoint(aPoint, aMaxDistance, nearest, triangles, scratch);
+
+        if ((root != null) && (distanceSq(root.bbox, aPoint) < nearest.getSquareDistance())) {
+            computeClosestPoint(root, aPoint, nearest, scratch);
+        }
+
+        return (endClosestPoint(nearest));
+    }
+
+    /**
+     * Search a subtree whose box is closer than the nearest event.
+     */
+    private void computeClosestPoint(JCollisionAABBNode aNode, JVector3d aPoint,
+            JCollisionEvent aNearest, JVector3d aScratch) {
+
+        if (aNode instanceof JCollisionAABBLeaf) {
+            testClosestPoint(((JCollisionAABBLeaf) aNode).triangle, aPoint, aNearest, aScratch);
+            return;
+        }
+
+        JCollisionAABBInternal internal = (JCollisionAABBInternal) aNode;
+        JCollisionAABBNode first = internal.leftSubTree;
+        JCollisionAABBNode second = internal.rightSubTree;
+        double firstDistance = (first != null) ? distanceSq(first.bbox, aPoint) : Double.MAX_VALUE;
+        double secondDistance = (second != null) ? distanceSq(second.bbox, aPoint) : Double.MAX_VALUE;
+
+        // visit the nearest child first, it is the most likely to tighten
+        // the bound
+        if (secondDistance < firstDistance) {
+            JCollisionAABBNode node = first;
+            first = second;
+            second = node;
+            double distance = firstDistance;
+            firstDistance = secondDistance;
+            secondDistance = distance;
+        }
+
+        if (firstDistance < aNearest.getSquareDistance()) {
+            computeClosestPoint(first, aPoint, aNearest, aScratch);
+        }
+        if (secondDistance < aNearest.getSquareDistance()) {
+            computeClosestPoint(second, aPoint, aNearest, aScratch);
+        }
+    }
+
+    /**
+     * Collect the triangles within a distance of a point, skipping the
+     * subtrees whose boxes are further.
+     */
+    @Override
+    public int computeNearbyTriangles(JVector3d aPoint, double aRadius, List<JTriangle> aResult) {
+        int count = aResult.size();
+        if (root != null) {
+            computeNearbyTriangles(root, aPoint, aRadius * aRadius, aResult, nearbyScratch);
+        }
+        return (aResult.size() - count);
+    }
+
+    private void computeNearbyTriangles(JCollisionAABBNode aNode, JVector3d aPoint,
+            double aRadiusSq, List<JTriangle> aResult, JVector3d aScratch) {
+
+        if ((aNode == null) || (distanceSq(aNode.bbox, aPoint) > aRadiusSq)) {
+            return;
+        }
+
+        if (aNode instanceof JCollisionAABBLeaf) {
+            JTriangle triangle = ((JCollisionAABBLeaf) aNode).triangle;
+            if (isNearby(triangle, aPoint, aRadiusSq, aScratch)) {
+                aResult.add(triangle);
+            }
+            return;
+        }
+
+        JCollisionAABBInternal internal = (JCollisionAABBInternal) aNode;
+        computeNearbyTriangles(internal.leftSubTree, aPoint, aRadiusSq, aResult, aScratch);
+        computeNearbyTriangles(internal.rightSubTree, aPoint, aRadiusSq, aResult, aScratch);
+    }
+
+    /**
+     * Compute the square distance between a point and a box (zero inside).
+     */
+    private static double distanceSq(JCollisionAABBBox aBox, JVector3d aPoint) {
+        double dx = Math.max(0.0, Math.max(aBox.min.x - aPoint.x, aPoint.x - aBox.max.x));
+        double dy = Math.max(0.0, Math.max(aBox.min.y - aPoint.y, aPoint.y - aBox.max.y));
+        double dz = Math.max(0.0, Math.max(aBox.min.z - aPoint.z, aPoint.z - aBox.max.z));
+        return (dx * dx + dy * dy + dz * dz);
+    }
+
     /**
      * Return the root node of the collision tree.
      *
@@ -221,6 +358,297 @@ public class JCollisionAABB extends JGenericCollision {
         return (root);
     }
 
+    /**
+     * Intersect a packet of rays with the mesh, keeping for each ray the
+     * nearest triangle hit. The rays are traversed together: each node is
+     * visited once for all the rays whose (clipped) path crosses its box, and
+     * each ray is clipped to its nearest hit so far. Does not allocate;
+     * several threads may query the same tree with their own arrays.
+     *
+     * @param aOrigins origins of the rays (local coordinates), three values
+     * per ray.
+     * @param aDirections unit directions of the rays (local coordinates).
+     * @param aInvDirections inverse of each component of the directions.
+     * @param aCount number of rays.
+     * @param aDistances in: maximum distance of each ray; out: distance to
+     * the nearest hit, if any.
+     * @param aTriangles out: triangle hit by each ray, left unchanged if the
+     * ray does not hit the mesh.
+     * @param aBothSides if false, triangles are only hit on their front side.
+     * @param aScratch work array of at least getRayPacketScratchSize(aCount)
+     * values.
+     * @return true if at least one ray hits the mesh.
+     */
+    public boolean computeRayPacketCollision(double[] aOrigins,
+            double[] aDirections,
+            double[] aInvDirections,
+            int aCount,
+            double[] aDistances,
+            JTriangle[] aTriangles,
+            boolean aBothSides,
+            int[] aScratch) {
+
+        if (root == null) {
+            return (false);
+        }
+
+        // rays crossing the box of the root
+        int numActive = 0;
+        for (int i = 0; i < aCount; i++) {
+            if (intersectRay(root.bbox, aOrigins, aDirections, aInvDirections, i, aDistances[i])) {
+                aScratch[numActive++] = i;
+            }
+        }
+        if (numActive == 0) {
+            return (false);
+        }
+
+        return (traverseRayPacket(root, 0, numActive, aOrigins, aDirections, aInvDirections,
+                aDistances, aTriangles, aBothSides, aScratch));
+    }
+
+    /**
+     * Read the size of the work array needed by computeRayPacketCollision().
+     */
+    public int getRayPacketScratchSize(int aCount) {
+        return (aCount * (maxDepth + 2));
+    }
+
+    /**
+     * Visit a node with the rays listed in aScratch[aStart, aStart + aCount),
+     * all of which cross the box of the node. The rays crossing the box of a
+     * child are listed right after, and the list is reused for the second
+     * child once the first one has been visited.
+     */
+    private boolean traverseRayPacket(JCollisionAABBNode aNode, int aStart, int aCount,
+            double[] aOrigins, double[] aDirections, double[] aInvDirections,
+            double[] aDistances, JTriangle[] aTriangles, boolean aBothSides, int[] aScratch) {
+
+        if (aNode instanceof JCollisionAABBLeaf) {
+            JTriangle triangle = ((JCollisionAABBLeaf) aNode).triangle;
+            boolean hit = false;
+            for (int j = aStart; j < aStart + aCount; j++) {
+                int i = aScratch[j];
+                double t = intersectRayTriangle(triangle, aOrigins, aDirections, i, aBothSides);
+                if ((t >= 0.0) && (t < aDistances[i])) {
+                    aDistances[i] = t;
+                    aTriangles[i] = triangle;
+                    hit = true;
+                }
+            }
+            return (hit);
+        }
+
+        JCollisionAABBInternal internal = (JCollisionAABBInternal) aNode;
+        boolean hit = false;
+        int childStart = aStart + aCount;
+        for (int c = 0; c < 2; c++) {
+            JCollisionAABBNode child = (c == 0) ? internal.leftSubTree : internal.rightSubTree;
+            if (child == null) {
+                continue;
+            }
+
+            int childCount = 0;
+            for (int j = aStart; j < aStart + aCount; j++) {
+                int i = aScratch[j];
+                if (intersectRay(child.bbox, aOrigins, aDirections, aInvDirections, i, aDistances[i])) {
+                    aScratch[childStart + childCount++] = i;
+                }
+            }
+
+            if ((childCount > 0) && traverseRayPacket(child, childStart, childCount,
+                    aOrigins, aDirections, aInvDirections, aDistances, aTriangles, aBothSides, aScratch)) {
+                hit = true;
+            }
+        }
+        return (hit);
+    }
+
+    /**
+     * Slab test between a box and the part [0, aMaxDistance] of a ray.
+     */
+    private static boolean intersectRay(JCollisionAABBBox aBox, double[] aOrigins,
+            double[] aDirections, double[] aInvDirections, int aRay, double aMaxDistance) {
+        double tMin = 0.0;
+        double tMax = aMaxDistance;
+
+        for (int k = 0; k < 3; k++) {
+            double origin = aOrigins[3 * aRay + k];
+            double lower = aBox.min.get(k);
+            double upper = aBox.max.get(k);
+
+            if (aDirections[3 * aRay + k] == 0.0) {
+                // ray parallel to the slab
+                if ((origin < lower) || (origin > upper)) {
+                    return (false);
+                }
+            } else {
+                double inv = aInvDirections[3 * aRay + k];
+                double t0 = (lower - origin) * inv;
+                double t1 = (upper - origin) * inv;
+                if (t0 > t1) {
+                    double tmp = t0;
+                    t0 = t1;
+                    t1 = tmp;
+                }
+                tMin = Math.max(tMin, t0);
+                tMax = Math.min(tMax, t1);
+                if (tMin > tMax) {
+                    return (false);
+                }
+            }
+        }
+        return (true);
+    }
+
+    /**
+     * Distance along a ray to a triangle (Moller-Trumbore), or -1 if the ray
+     * misses it. Triangles are hit on their front side only (the side their
+     * normal points to) unless aBothSides is set.
+     */
+    private static double intersectRayTriangle(JTriangle aTriangle, double[] aOrigins,
+            double[] aDirections, int aRay, boolean aBothSides) {
+        JVector3d v0 = aTriangle.getVertex0().getPosition();
+        JVector3d v1 = aTriangle.getVertex1().getPosition();
+        JVector3d v2 = aTriangle.getVertex2().getPosition();
+
+        double dx = aDirections[3 * aRay];
+        double dy = aDirections[3 * aRay + 1];
+        double dz = aDirections[3 * aRay + 2];
+
+        double e1x = v1.x - v0.x, e1y = v1.y - v0.y, e1z = v1.z - v0.z;
+        double e2x = v2.x - v0.x, e2y = v2.y - v0.y, e2z = v2.z - v0.z;
+
+        double px = dy * e2z - dz * e2y;
+        double py = dz * e2x - dx * e2z;
+        double pz = dx * e2y - dy * e2x;
+        double det = e1x * px + e1y * py + e1z * pz;
+
+        // ray parallel to the triangle, or hitting its back side
+        if (aBothSides ? (Math.abs(det) < JConstants.CHAI_TINY) : (det < JConstants.CHAI_TINY)) {
+            return (-1.0);
+        }
+        double invDet = 1.0 / det;
+
+        double sx = aOrigins[3 * aRay] - v0.x;
+        double sy = aOrigins[3 * aRay + 1] - v0.y;
+        double sz = aOrigins[3 * aRay + 2] - v0.z;
+        double u = (sx * px + sy * py + sz * pz) * invDet;
+        if ((u < 0.0) || (u > 1.0)) {
+            return (-1.0);
+        }
+
+        double qx = sy * e1z - sz * e1y;
+        double qy = sz * e1x - sx * e1z;
+        double qz = sx * e1y - sy * e1x;
+        double v = (dx * qx + dy * qy + dz * qz) * invDet;
+        if ((v < 0.0) || (u + v > 1.0)) {
+            return (-1.0);
+        }
+
+        return ((e2x * qx + e2y * qy + e2z * qz) * invDet);
+    }
+
+    /**
+     * Split the tree at its upper levels into subtrees intersected by the
+     * segment, and traverse the subtrees in parallel, each with its own
+     * recorder. The results are then merged in the order of the subtrees, so
+     * that the hits are always reported in the same order.
+     */
+    protected boolean computeCollisionParallel(final JVector3d segmentPointA,
+            final JVector3d segmentPointB,
+            final JCollisionAABBBox lineBox,
+            JCollisionRecorder recorder,
+            final JCollisionSettings settings) {
+
+        int numThreads = JWorkerThreads.getNumThreads();
+        double radius = settings.getCollisionRadius();
+
+        // descend the upper levels until there are enough subtrees
+        ArrayList<JCollisionAABBNode> subtrees = new ArrayList<JCollisionAABBNode>();
+        subtrees.add(root);
+        boolean split = true;
+        while (split && (subtrees.size() < 4 * numThreads)) {
+            split = false;
+            ArrayList<JCollisionAABBNode> next = new ArrayList<JCollisionAABBNode>();
+            for (JCollisionAABBNode node : subtrees) {
+                if (node instanceof JCollisionAABBInternal) {
+                    JCollisionAABBInternal internal = (JCollisionAABBInternal) node;
+                    split = true;
+                    if (!intersect(internal.bbox, lineBox)
+                            || (internal.testLineBox && !intersectSegment(internal.bbox, radius,
+                            segmentPointA, segmentPointB))) {
+                        continue;
+                    }
+                    if (internal.leftSubTree != null) {
+                        next.add(internal.leftSubTree);
+                    }
+                    if (internal.rightSubTree != null) {
+                        next.add(internal.rightSubTree);
+                    }
+                } else {
+                    next.add(node);
+                }
+            }
+            subtrees = next;
+        }
+
+        // prepare one recorder per subtree
+        while (subtreeRecorders.size() < subtrees.size()) {
+            subtreeRecorders.add(new JCollisionRecorder());
+        }
+        for (int i = 0; i < subtrees.size(); i++) {
+            JCollisionRecorder subtreeRecorder = subtreeRecorders.get(i);
+            if (recorder.getHitList() == null) {
+                subtreeRecorder.setHitList(null);
+            } else if (subtreeRecorder.getHitList() == null) {
+                subtreeRecorder.setHitList(new JCollisionHitList());
+            }
+            subtreeRecorder.clear();
+        }
+
+        // traverse the subtrees
+        ArrayList<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>();
+        for (int i = 0; i < subtrees.size(); i++) {
+            final JCollisionAABBNode subtree = subtrees.get(i);
+            final JCollisionRecorder subtreeRecorder = subtreeRecorders.get(i);
+            tasks.add(new Callable<Boolean>() {
+
+                public Boolean call() {
+                    return (subtree.computeCollision(segmentPointA, segmentPointB,
+                            lineBox, subtreeRecorder, settings));
+                }
+            });
+        }
+        ArrayList<Boolean> results = JWorkerThreads.callAll(tasks);
+
+        // merge the results
+        boolean hit = false;
+        for (int i = 0; i < results.size(); i++) {
+            if (!results.get(i)) {
+                continue;
+            }
+            hit = true;
+
+            JCollisionRecorder subtreeRecorder = subtreeRecorders.get(i);
+            recorder.getCollisions().addAll(subtreeRecorder.getCollisions());
+            if (recorder.getHitList() != null) {
+                recorder.getHitList().addAll(subtreeRecorder.getHitList());
+            }
+            if (subtreeRecorder.getNearestCollision().getSquareDistance()
+                    < recorder.getNearestCollision().getSquareDistance()) {
+                recorder.getNearestCollision().copyFrom(subtreeRecorder.getNearestCollision());
+            }
+        }
+
+        // release the events and objects held by the recorders
+        for (int i = 0; i < subtrees.size(); i++) {
+            subtreeRecorders.get(i).clear();
+        }
+
+        return (hit);
+    }
+
     /**
      * Determine whether the two given boxes intersect each other.
      *
@@ -253,6 +681,53 @@ public class JCollisionAABB extends JGenericCollision {
         return true;
     }
 
+    /**
+     * Determine whether a segment intersects a bounding box expanded by a
+     * radius along each axis, which conservatively bounds the path of a
+     * sphere of that radius moving along the segment. Slab test; does not
+     * allocate.
+     *
+     * @param aBox bounding box.
+     * @param aRadius radius of the sphere (0 for a plain segment).
+     * @param aSegmentPointA initial point of the segment.
+     * @param aSegmentPointB end point of the segment.
+     * @return true if the segment intersects the expanded box.
+     */
+    public static boolean intersectSegment(JCollisionAABBBox aBox, double aRadius,
+            JVector3d aSegmentPointA, JVector3d aSegmentPointB) {
+        double tMin = 0.0;
+        double tMax = 1.0;
+
+        for (int i = 0; i < 3; i++) {
+            double origin = aSegmentPointA.get(i);
+            double dir = aSegmentPointB.get(i) - origin;
+            double lower = aBox.min.get(i) - aRadius;
+            double upper = aBox.max.get(i) + aRadius;
+
+            if (Math.abs(dir) < JConstants.CHAI_TINY) {
+                // segment parallel to the slab
+                if ((origin < lower) || (origin > upper)) {
+                    return (false);
+                }
+            } else {
+                double t0 = (lower - origin) / dir;
+                double t1 = (upper - origin) / dir;
+                if (t0 > t1) {
+                    double tmp = t0;
+                    t0 = t1;
+                    t1 = tmp;
+                }
+                tMin = Math.max(tMin, t0);
+                tMax = Math.min(tMax, t1);
+                if (tMin > tMax) {
+                    return (false);
+                }
+            }
+        }
+
+        return (true);
+    }
+
     /**
      * Determine whether the given ray intersects the bounding box. Based on
      * code by Andrew Woo from "Graphics Gems", Academic Press, 1990.
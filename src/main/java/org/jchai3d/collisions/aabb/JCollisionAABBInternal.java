@@ -192,11 +192,8 @@ public class JCollisionAABBInternal extends JCollisionAABBNode {
         //System.out.println("intersect: "+depth);
 
         if (testLineBox) {
-            if (!JCollisionAABB.hitBoundingBox(
-                    (bbox.min.toArray()),
-                    (bbox.max.toArray()),
-                    segmentPointA.toArray(),
-                    segmentPointB.toArray())) {
+            if (!JCollisionAABB.intersectSegment(bbox, settings.getCollisionRadius(),
+                    segmentPointA, segmentPointB)) {
                 return (false);
             }
         }
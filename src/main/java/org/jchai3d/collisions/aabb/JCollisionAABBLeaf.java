@@ -53,6 +53,8 @@ public class JCollisionAABBLeaf extends JCollisionAABBNode {
 
     /**
      * Create a bounding box to enclose triangle belonging to this leaf node.
+     * The box is tight: the radius of the proxy is accounted for at query
+     * time, when the box of the segment is expanded by the collision radius.
      */
     @Override
     public void fitBBox(double radius) {
@@ -61,16 +63,9 @@ public class JCollisionAABBLeaf extends JCollisionAABBNode {
 
         // enclose all three vertices of triangle
         if (triangle != null) {
-            radius = 2*radius;
             bbox.enclose(triangle.getVertex0().getPosition());
             bbox.enclose(triangle.getVertex1().getPosition());
             bbox.enclose(triangle.getVertex2().getPosition());
-            JVector3d min = new JVector3d(bbox.min);
-            JVector3d max = new JVector3d(bbox.max);
-            min.sub(radius, radius, radius);
-            max.add(radius, radius, radius);
-            bbox.setValue(min, max);
-            //System.out.println(":: "+((float)bbox.getCenter().get(bbox.longestAxis())));
         }
     }
 
@@ -16,15 +16,18 @@
 package org.jchai3d.collisions.spheres;
 
 import java.util.ArrayList;
+import java.util.List;
 import com.jogamp.opengl.GL;
 import com.jogamp.opengl.GL2;
 import com.jogamp.opengl.GLContext;
+import org.jchai3d.collisions.JCollisionEvent;
 import org.jchai3d.collisions.JCollisionRecorder;
 import org.jchai3d.collisions.JCollisionSettings;
 import org.jchai3d.collisions.JGenericCollision;
 import org.jchai3d.graphics.JColorf;
 import org.jchai3d.graphics.JTriangle;
 import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JMeshAdjacency;
 
 /**
  *
@@ -42,6 +45,10 @@ public class JCollisionSpheres extends JGenericCollision {
     boolean useNeighbors;
     //! For internal and debug usage.
     JTriangle secret;
+    //! Connectivity of the triangles, used instead of the neighbor lists.
+    JMeshAdjacency adjacency;
+    //! Radius added around the triangles when the tree was built.
+    double extendedRadius;
 
     /**
      * Constructor of cCollisionSpheres.
@@ -65,12 +72,14 @@ public class JCollisionSpheres extends JGenericCollision {
         int numTriangles = this.triangles.size();
         this.root = null;
         this.lastCollision = null;
+        this.extendedRadius = 0.0;
 
         // if there are triangles, build the tree
         if (numTriangles > 0) {
             // if there is more than one triangle, allocate internal nodes
             if (numTriangles > 1) {
                 this.root = new JCollisionSpheresNode(triangles, null, aRadius);
+                this.extendedRadius = aRadius;
             } // if there is only one triangle, just allocate one leaf node and
             // set the root to point to it
             else {
@@ -80,6 +89,12 @@ public class JCollisionSpheres extends JGenericCollision {
         else {
             this.root = null;
         }
+
+        // the neighbors of the last intersected triangle are read from the
+        // connectivity arrays, built here unless the mesh provided them
+        if (useNeighbors && ((adjacency == null) || (adjacency.getNumTriangles() != numTriangles))) {
+            adjacency = JMeshAdjacency.build(triangles, true);
+        }
     }
 
     @Override
@@ -137,7 +152,28 @@ public class JCollisionSpheres extends JGenericCollision {
         // an initial collision, and if the flag to use neighbor checking is set,
         // only neighbors of the triangle from the first collision detection
         // need to be checked
-        if ((useNeighbors) && (root != null)
+        if ((useNeighbors) && (root != null) && (lastCollision != null)
+                && (adjacency != null) && (lastCollision.getIndex() < adjacency.getNumTriangles())) {
+            // check the triangle and the triangles sharing one of its
+            // vertices, read from the connectivity arrays
+            int index = lastCollision.getIndex();
+            lastCollision.computeCollision(segmentPointA, segmentPointB, recorder, settings);
+            int[] offsets = adjacency.getNeighborOffsets();
+            int[] neighbors = adjacency.getNeighbors();
+            for (int i = offsets[index]; i < offsets[index + 1]; i++) {
+                triangles.get(neighbors[i]).computeCollision(
+                        segmentPointA, segmentPointB, recorder, settings);
+            }
+
+            // if at least one neighbor triangle was intersected, return true
+            if (recorder.getNumCollisions() > 0) {
+                return true;
+            }
+
+            // otherwise there was no collision; return false
+            lastCollision = null;
+            return false;
+        } else if ((useNeighbors) && (root != null)
                 && (lastCollision != null) && (lastCollision.neighbors != null)) {
             // check each neighbor, and find the closest for which there is a
             // collision, if any
@@ -147,7 +183,7 @@ public class JCollisionSpheres extends JGenericCollision {
             }
 
             // if at least one neighbor triangle was intersected, return true
-            if (recorder.getCollisions().size() > 0) {
+            if (recorder.getNumCollisions() > 0) {
                 return true;
             }
 
@@ -169,6 +205,13 @@ public class JCollisionSpheres extends JGenericCollision {
         JCollisionSpheresLine curLine = new JCollisionSpheresLine(segmentPointA, segmentPointB);
         JCollisionSpheresLeaf lineSphere = new JCollisionSpheresLeaf(curLine);
 
+        // a sphere swept along the segment is bounded by the sphere of the
+        // segment grown by the part of its radius not already added around
+        // the triangles
+        if (settings.getCollisionRadius() > extendedRadius) {
+            lineSphere.radius += settings.getCollisionRadius() - extendedRadius;
+        }
+
         // test for intersection between the line segment and the root of the
         // collision tree; the root will recursively call children down the tree
         boolean result = JCollisionSpheresSphere.computeCollision(root,
@@ -183,4 +226,128 @@ public class JCollisionSpheres extends JGenericCollision {
         // return whether there was an intersection
         return result;
     }
+
+    /**
+     * Find the point of the mesh closest to a point. The tree is searched
+     * nearest child first, and the subtrees whose spheres are further than
+     * the closest triangle found so far (initially the maximum distance, or
+     * the triangle of the previous query) are skipped.
+     */
+    @Override
+    public boolean computeClosestPoint(JVector3d aPoint, double aMaxDistance, JCollisionRecorder aRecorder) {
+        JCollisionEvent nearest = aRecorder.getNearestCollision();
+        JVector3d scratch = closestPointScratch;
+        beginClosestPoint(aPoint, aMaxDistance, nearest, triangles, scratch);
+
+        if ((root != null) && (distanceSq(root, aPoint) < nearest.getSquareDistance())) {
+            computeClosestPoint(root, aPoint, nearest, scratch);
+        }
+
+        return (endClosestPoint(nearest));
+    }
+
+    /**
+     * Search a subtree whose sphere is closer than the nearest event.
+     */
+    private void computeClosestPoint(JCollisionSpheresSphere aSphere, JVector3d aPoint,
+            JCollisionEvent aNearest, JVector3d aScratch) {
+
+        if (aSphere.isLeaf()) {
+            JCollisionSpheresGenericShape primitive = ((JCollisionSpheresLeaf) aSphere).primitive;
+            if (primitive instanceof JCollisionSpheresTri) {
+                testClosestPoint(((JCollisionSpheresTri) primitive).original, aPoint, aNearest, aScratch);
+            }
+            return;
+        }
+
+        JCollisionSpheresNode node = (JCollisionSpheresNode) aSphere;
+        JCollisionSpheresSphere first = node.left;
+        JCollisionSpheresSphere second = node.right;
+        double firstDistance = (first != null) ? distanceSq(first, aPoint) : Double.MAX_VALUE;
+        double secondDistance = (second != null) ? distanceSq(second, aPoint) : Double.MAX_VALUE;
+
+        // visit the nearest child first, it is the most likely to tighten
+        // the bound
+        if (secondDistance < firstDistance) {
+            JCollisionSpheresSphere sphere = first;
+            first = second;
+            second = sphere;
+            double distance = firstDistance;
+            firstDistance = secondDistance;
+            secondDistance = distance;
+        }
+
+        if (firstDistance < aNearest.getSquareDistance()) {
+            computeClosestPoint(first, aPoint, aNearest, aScratch);
+        }
+        if (secondDistance < aNearest.getSquareDistance()) {
+            computeClosestPoint(second, aPoint, aNearest, aScratch);
+        }
+    }
+
+    /**
+     * Collect the triangles within a distance of a point, skipping the
+     * subtrees whose spheres are further.
+     */
+    @Override
+    public int computeNearbyTriangles(JVector3d aPoint, double aRadius, List<JTriangle> aResult) {
+        int count = aResult.size();
+        if (root != null) {
+            computeNearbyTriangles(root, aPoint, aRadius * aRadius, aResult, nearbyScratch);
+        }
+        return (aResult.size() - count);
+    }
+
+    private void computeNearbyTriangles(JCollisionSpheresSphere aSphere, JVector3d aPoint,
+            double aRadiusSq, List<JTriangle> aResult, JVector3d aScratch) {
+
+        if ((aSphere == null) || (distanceSq(aSphere, aPoint) > aRadiusSq)) {
+            return;
+        }
+
+        if (aSphere.isLeaf()) {
+            JCollisionSpheresGenericShape primitive = ((JCollisionSpheresLeaf) aSphere).primitive;
+            if (primitive instanceof JCollisionSpheresTri) {
+                JTriangle triangle = ((JCollisionSpheresTri) primitive).original;
+                if (isNearby(triangle, aPoint, aRadiusSq, aScratch)) {
+                    aResult.add(triangle);
+                }
+            }
+            return;
+        }
+
+        JCollisionSpheresNode node = (JCollisionSpheresNode) aSphere;
+        computeNearbyTriangles(node.left, aPoint, aRadiusSq, aResult, aScratch);
+        computeNearbyTriangles(node.right, aPoint, aRadiusSq, aResult, aScratch);
+    }
+
+    /**
+     * Compute the square distance between a point and a sphere (zero
+     * inside).
+     */
+    private static double distanceSq(JCollisionSpheresSphere aSphere, JVector3d aPoint) {
+        double distance = aSphere.center.distance(aPoint) - aSphere.radius;
+        return ((distance > 0.0) ? distance * distance : 0.0);
+    }
+
+    /**
+     * Use the connectivity arrays of the mesh to find the neighbors of the
+     * last intersected triangle, instead of the per-triangle neighbor lists.
+     * JMesh.createSphereTreeCollisionDetector() passes those of the mesh;
+     * otherwise initialize() builds them when neighbors are used.
+     *
+     * @param adjacency connectivity built from the same triangle list, or
+     * null.
+     */
+    public void setAdjacency(JMeshAdjacency adjacency) {
+        this.adjacency = adjacency;
+    }
+
+    /**
+     * @return the connectivity used to find the neighbors of the last
+     * intersected triangle, or null
+     */
+    public JMeshAdjacency getAdjacency() {
+        return (adjacency);
+    }
 }
@@ -22,6 +22,7 @@ import org.jchai3d.graphics.JTriangle;
 import org.jchai3d.math.JMaths;
 import org.jchai3d.math.JVector3d;
 import org.jchai3d.scenegraph.JMesh;
+import org.jchai3d.scenegraph.JMeshAdjacency;
 
 /**
  *
@@ -36,6 +37,7 @@ public class JSpringMass implements IDeformation {
     private JVector3d forca;
     private JVector3d posicao;
     private JTriangle triangle;
+    private JMeshAdjacency adjacency;
     
     public JSpringMass() {
         oldVelocidade = new JVector3d();
@@ -97,19 +99,40 @@ public class JSpringMass implements IDeformation {
 
         JVector3d posicaoAtual = JMaths.jAdd(getPosicao(), part2, JMaths.jAdd(part3, part4));
 
-        triangle.getVertex0().setPosition(posicaoAtual);
-
-        for (JTriangle tri : triangle.getNeighbors()) {
-            
-            System.out.println("Tri V=" + tri.getIndex());
-            tri.getVertex0().setPosition(posicaoAtual);
-            
+        moveVertex(triangle, posicaoAtual);
+
+        if (adjacency != null) {
+            // neighbors read from the connectivity arrays of the mesh
+            int index = triangle.getIndex();
+            for (int i = 0; i < adjacency.getNumNeighbors(index); i++) {
+                moveVertex(triangle.getParent().getTriangles().get(adjacency.getNeighbor(index, i)), posicaoAtual);
+            }
+        } else {
+            for (JTriangle tri : triangle.getNeighbors()) {
+                moveVertex(tri, posicaoAtual);
+            }
         }
 
 
         return null;
     }
 
+    /**
+     * Move the first vertex of a triangle; the vertex marks itself as
+     * modified for the rendering of the mesh.
+     */
+    private void moveVertex(JTriangle tri, JVector3d posicaoAtual) {
+        tri.getVertex0().setPosition(posicaoAtual);
+    }
+
+    /**
+     * Use the connectivity arrays of the mesh (JMesh.createAdjacency()) to
+     * find the neighbors of the triangle, instead of its neighbor list.
+     */
+    public void setAdjacency(JMeshAdjacency adjacency) {
+        this.adjacency = adjacency;
+    }
+
     public void setVelocidade(JVector3d velocidade) {
         this.oldVelocidade = velocidade;
     }
@@ -668,15 +668,15 @@ public class JDeltaDevice extends JGenericHapticDevice {
                 }
 
                 //JMatrix3d result;
-                frame.m[0][0] = rot[0];
-                frame.m[0][1] = rot[1];
-                frame.m[0][2] = rot[2];
-                frame.m[1][0] = rot[3];
-                frame.m[1][1] = rot[4];
-                frame.m[1][2] = rot[5];
-                frame.m[2][0] = rot[6];
-                frame.m[2][1] = rot[7];
-                frame.m[2][2] = rot[8];
+                frame.m00 = rot[0];
+                frame.m01 = rot[1];
+                frame.m02 = rot[2];
+                frame.m10 = rot[3];
+                frame.m11 = rot[4];
+                frame.m12 = rot[5];
+                frame.m20 = rot[6];
+                frame.m21 = rot[7];
+                frame.m22 = rot[8];
             }
             break;
         }
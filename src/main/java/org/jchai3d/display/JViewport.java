@@ -19,6 +19,7 @@ import java.nio.DoubleBuffer;
 import java.nio.IntBuffer;
 import com.jogamp.opengl.*;
 import com.jogamp.opengl.glu.GLU;
+import org.jchai3d.collisions.JCollisionHitList;
 import org.jchai3d.collisions.JCollisionRecorder;
 import org.jchai3d.collisions.JCollisionSettings;
 import org.jchai3d.graphics.JTriangle;
@@ -81,9 +82,10 @@ public class JViewport implements GLEventListener {
      */
     protected static JViewport lastActiveViewport;
     /**
-     * Last collision events with mouse.
+     * Last collision events with mouse. All hits of a selection are kept in
+     * a reusable hit list.
      */
-    protected JCollisionRecorder collisionRecorder;
+    protected JCollisionRecorder collisionRecorder = createCollisionRecorder();
     /**
      * It's useful to store the last viewport transformation, for gluProject'ing
      * things.
@@ -365,6 +367,17 @@ public class JViewport implements GLEventListener {
 
     }
 
+    //! Get the recorder holding all hits of the last selection.
+    public JCollisionRecorder getCollisionRecorder() {
+        return (collisionRecorder);
+    }
+
+    private static JCollisionRecorder createCollisionRecorder() {
+        JCollisionRecorder recorder = new JCollisionRecorder();
+        recorder.setHitList(new JCollisionHitList());
+        return (recorder);
+    }
+
     //! Get last selected mesh.
     public JGenericObject getLastSelectedObject() {
         return (collisionRecorder.getNearestCollision().getObject());
@@ -19,13 +19,38 @@ package org.jchai3d.effects;
  *   version   1.0.0
  */
 
-import org.jchai3d.math.JMaths;
+import org.jchai3d.graphics.JMaterial;
 import org.jchai3d.math.JMatrix3d;
 import org.jchai3d.math.JVector3d;
 import org.jchai3d.scenegraph.JGenericObject;
 
 public class JEffectMagnet extends JGenericEffect {
 
+    /**
+     * Maximum force of the magnet, read from the material.
+     */
+    protected double magnetMaxForce;
+    /**
+     * Radius of the magnet zone, read from the material.
+     */
+    protected double magnetMaxDistance;
+    /**
+     * Stiffness of the linear model, read from the material.
+     */
+    protected double stiffness;
+    /**
+     * Damping coefficient, read from the material.
+     */
+    protected double viscosity;
+    /**
+     * Distance under which the linear model applies.
+     */
+    protected double limitLinearModel;
+    /**
+     * Coefficients of the quadratic model applied beyond the linear zone.
+     */
+    protected double quadraticA, quadraticB, quadraticC;
+
     /**
      * Constructor of JEffectMagnet.
      */
@@ -33,6 +58,57 @@ public class JEffectMagnet extends JGenericEffect {
         super(aParent);
     }
 
+    /**
+     * Precompute the coefficients of the force model from the material.
+     */
+    @Override
+    protected void initialize() {
+        JMaterial material = parent.getMaterial();
+        magnetMaxForce = material.getMagnetMaxForce();
+        magnetMaxDistance = material.getMagnetMaxDistance();
+        stiffness = material.getStiffness();
+        viscosity = material.getViscosity();
+
+        quadraticA = 0.0;
+        quadraticB = 0.0;
+        quadraticC = 0.0;
+        if (stiffness <= 0) {
+            limitLinearModel = 0.0;
+            return;
+        }
+        limitLinearModel = (magnetMaxForce / stiffness);
+
+        /**
+         * solve the quadratic model
+         */
+        JMatrix3d sys = new JMatrix3d();
+        sys.m00 = limitLinearModel * limitLinearModel;
+        sys.m01 = limitLinearModel;
+        sys.m02 = 1.0;
+        sys.m10 = magnetMaxDistance * magnetMaxDistance;
+        sys.m11 = magnetMaxDistance;
+        sys.m12 = 1.0;
+        sys.m20 = 2.0 * limitLinearModel;
+        sys.m21 = 1.0;
+        sys.m22 = 0.0;
+        if (sys.invert()) {
+            JVector3d param = new JVector3d();
+            sys.mulr(new JVector3d(magnetMaxForce, 0.0, -1.0), param);
+            quadraticA = param.x;
+            quadraticB = param.y;
+            quadraticC = param.z;
+        }
+    }
+
+    /**
+     * The magnet attracts the tool up to the maximum distance of the
+     * material.
+     */
+    @Override
+    public double getInfluenceRadius() {
+        return (parent.getMaterial().getMagnetMaxDistance());
+    }
+
     /**
      * Compute resulting force.
      */
@@ -43,22 +119,16 @@ public class JEffectMagnet extends JGenericEffect {
             final int aToolID,
             JVector3d aReactionForce) {
 
-        /**
-         * compute distance from object to tool
-         */
-        double distance = JMaths.jDistance(aToolPos, parent.getInteractionProjectedPoint());
+        updateModel();
 
         /**
-         * get parameters of magnet
+         * compute distance from object to tool
          */
-        double magnetMaxForce = parent.getMaterial().getMagnetMaxForce();
-        double magnetMaxDistance = parent.getMaterial().getMagnetMaxDistance();
-        double stiffness = parent.getMaterial().getStiffness();
-        double forceMagnitude = 0;
+        JVector3d projectedPoint = parent.getInteractionProjectedPoint();
+        double distance = aToolPos.distance(projectedPoint);
 
         if ((distance > 0) && (distance < magnetMaxDistance) && (stiffness > 0)) {
-            double limitLinearModel = (magnetMaxForce / stiffness);
-            JMaths.jClamp(limitLinearModel, 0.0f, 0.5f * distance);
+            double forceMagnitude;
 
             if (distance < limitLinearModel) {
                 /**
@@ -66,40 +136,23 @@ public class JEffectMagnet extends JGenericEffect {
                  */
                 forceMagnitude = stiffness * distance;
             } else {
-                /**
-                 * compute quadratic model
-                 */
-                JMatrix3d sys = new JMatrix3d();
-                sys.m[0][0] = limitLinearModel * limitLinearModel;
-                sys.m[0][1] = limitLinearModel;
-                sys.m[0][2] = 1.0;
-                sys.m[1][0] = magnetMaxDistance * magnetMaxDistance;
-                sys.m[1][1] = magnetMaxDistance;
-                sys.m[1][2] = 1.0;
-                sys.m[2][0] = 2.0 * limitLinearModel;
-                sys.m[2][1] = 1.0;
-                sys.m[2][2] = 0.0;
-                sys.invert();
-
-                JVector3d param = new JVector3d();
-                sys.mulr(new JVector3d(magnetMaxForce, 0.0, -1.0), param);
-
                 /**
                  * apply quadratic model
                  */
                 double val = distance - limitLinearModel;
-                forceMagnitude = param.x * val * val + param.y * val + param.z;
+                forceMagnitude = quadraticA * val * val + quadraticB * val + quadraticC;
             }
 
             /**
              * compute magnetic force
              */
-            aReactionForce.copyFrom(JMaths.jMul(forceMagnitude, JMaths.jNormalize(JMaths.jSub(parent.getInteractionProjectedPoint(), aToolPos))));
+            projectedPoint.subr(aToolPos, aReactionForce);
+            aReactionForce.mul(forceMagnitude / distance);
 
             // add damping component
-            double viscosity = parent.getMaterial().getViscosity();
-            JVector3d viscousForce = JMaths.jMul(-viscosity, aToolVel);
-            aReactionForce.add(viscousForce);
+            aReactionForce.add(-viscosity * aToolVel.x,
+                    -viscosity * aToolVel.y,
+                    -viscosity * aToolVel.z);
 
             return (true);
 
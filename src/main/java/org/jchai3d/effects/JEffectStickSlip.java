@@ -17,7 +17,6 @@ package org.jchai3d.effects;
  * version 1.0.0
  */
 import org.jchai3d.math.JVector3d;
-import org.jchai3d.math.JMaths;
 import org.jchai3d.scenegraph.JGenericObject;
 
 public class JEffectStickSlip extends JGenericEffect {
@@ -26,6 +25,14 @@ public class JEffectStickSlip extends JGenericEffect {
      * store the algorithm history for each IDN calling this effect.
      */
     protected JStickSlipStatus[] history;
+    /**
+     * Spring stiffness of the stick and slip model, read from the material.
+     */
+    protected double stiffness;
+    /**
+     * Force threshold of the stick and slip model, read from the material.
+     */
+    protected double forceMax;
 
     /**
      * Constructor of JEffectStickSlip.
@@ -39,6 +46,15 @@ public class JEffectStickSlip extends JGenericEffect {
         }
     }
 
+    /**
+     * Read the stick and slip parameters of the material.
+     */
+    @Override
+    protected void initialize() {
+        stiffness = parent.getMaterial().getStickSlipStiffness();
+        forceMax = parent.getMaterial().getStickSlipForceMax();
+    }
+
     /**
      * Compute resulting force.
      */
@@ -52,6 +68,8 @@ public class JEffectStickSlip extends JGenericEffect {
          * check if history for this IDN exists
          */
         if (aToolID < CHAI_EFFECT_MAX_IDN) {
+            updateModel();
+
             if (parent.isInteractionInside()) {
                 /**
                  * check if a recent valid point has been stored previously
@@ -61,17 +79,11 @@ public class JEffectStickSlip extends JGenericEffect {
                     history[aToolID].valid = true;
                 }
 
-                /**
-                 * read parameters for stick and slip model
-                 */
-                double stiffness = parent.getMaterial().getStickSlipStiffness();
-                double forceMax = parent.getMaterial().getStickSlipForceMax();
-
                 /**
                  * compute current force between last stick position and current
                  * tool position
                  */
-                double distance = JMaths.jDistance(aToolPos, history[aToolID].currentStickPosition);
+                double distance = aToolPos.distance(history[aToolID].currentStickPosition);
                 double forceMag = distance * stiffness;
 
                 if (forceMag > 0) {
@@ -79,14 +91,14 @@ public class JEffectStickSlip extends JGenericEffect {
                      * if force above threshold, slip...
                      */
                     if (forceMag > forceMax) {
-                        history[aToolID].currentStickPosition = aToolPos;
+                        history[aToolID].setCurrentStickPosition(aToolPos);
                         aReactionForce.zero();
                     } /**
                      * ...otherwise stick
                      */
                     else {
-                        aReactionForce.copyFrom(JMaths.jSub(history[aToolID].currentStickPosition, aToolPos));
-                        aReactionForce.operatorMul((forceMag / distance));
+                        history[aToolID].currentStickPosition.subr(aToolPos, aReactionForce);
+                        aReactionForce.mul(forceMag / distance);
                     }
                 } else {
                     aReactionForce.zero();
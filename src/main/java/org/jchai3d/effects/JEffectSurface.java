@@ -15,7 +15,6 @@ package org.jchai3d.effects;
  *
  * project <https://sourceforge.net/projects/jchai3d>
  */
-import org.jchai3d.math.JMaths;
 import org.jchai3d.math.JVector3d;
 import org.jchai3d.scenegraph.JGenericObject;
 
@@ -25,6 +24,11 @@ import org.jchai3d.scenegraph.JGenericObject;
  */
 public class JEffectSurface extends JGenericEffect {
 
+    /**
+     * Stiffness of the surface, read from the material.
+     */
+    protected double stiffness;
+
     /**
      * Constructor of JEffectSurface.
      */
@@ -32,6 +36,15 @@ public class JEffectSurface extends JGenericEffect {
         super(aParent);
 
     }
+
+    /**
+     * Read the stiffness of the material.
+     */
+    @Override
+    protected void initialize() {
+        stiffness = parent.getMaterial().getStiffness();
+    }
+
     /**
      * Compute resulting force.
      */
@@ -41,13 +54,15 @@ public class JEffectSurface extends JGenericEffect {
             final int aToolID,
             JVector3d aReactionForce) {
 
+        updateModel();
+
         if (parent.isInteractionInside()) {
             /**
              * the tool is located inside the object, we compute a reaction
              * force using Hooke's law
              */
-            double stiffness = parent.getMaterial().getStiffness();
-            aReactionForce.copyFrom(JMaths.jMul(stiffness, JMaths.jSub(parent.getInteractionProjectedPoint(), aToolPos)));
+            parent.getInteractionProjectedPoint().subr(aToolPos, aReactionForce);
+            aReactionForce.mul(stiffness);
             return (true);
         } else {
             /**
@@ -17,7 +17,6 @@ package org.jchai3d.effects;
  * version 1.0.0
  */
 import org.jchai3d.math.JConstants;
-import org.jchai3d.math.JMaths;
 import org.jchai3d.math.JVector3d;
 import org.jchai3d.scenegraph.JGenericObject;
 import org.jchai3d.timers.JPrecisionClock;
@@ -28,6 +27,14 @@ public class JEffectVibration extends JGenericEffect {
      * Vibration signal clock.
      */
     protected JPrecisionClock clock;
+    /**
+     * Angular frequency of the vibration [rad/s], read from the material.
+     */
+    protected double angularFrequency;
+    /**
+     * Amplitude of the vibration [N], read from the material.
+     */
+    protected double vibrationAmplitude;
 
     /**
      * Constructor of cEffectVibration.
@@ -38,6 +45,15 @@ public class JEffectVibration extends JGenericEffect {
         clock.start(true);
     }
 
+    /**
+     * Read the vibration parameters of the material.
+     */
+    @Override
+    protected void initialize() {
+        angularFrequency = 2.0 * JConstants.CHAI_PI * parent.getMaterial().getVibrationFrequency();
+        vibrationAmplitude = parent.getMaterial().getVibrationAmplitude();
+    }
+
     /**
      * Compute resulting force.
      */
@@ -47,13 +63,9 @@ public class JEffectVibration extends JGenericEffect {
             final int aToolID,
             JVector3d aReactionForce) {
 
-        if (parent.isInteractionInside()) {
-            /**
-             * read vibration parameters
-             */
-            double vibrationFrequency = parent.getMaterial().getVibrationFrequency();
-            double vibrationAmplitude = parent.getMaterial().getVibrationAmplitude();
+        updateModel();
 
+        if (parent.isInteractionInside()) {
             /**
              * read time
              */
@@ -62,9 +74,9 @@ public class JEffectVibration extends JGenericEffect {
             /**
              * compute force magnitude
              */
-            double forceMag = vibrationAmplitude * Math.sin(2.0 * JConstants.CHAI_PI * vibrationFrequency * time);
+            double forceMag = vibrationAmplitude * Math.sin(angularFrequency * time);
 
-            aReactionForce.copyFrom(JMaths.jMul(forceMag, new JVector3d(1, 0, 0)));
+            aReactionForce.set(forceMag, 0, 0);
             return (true);
         } else {
 
@@ -16,12 +16,16 @@ package org.jchai3d.effects;
  * project <https://sourceforge.net/projects/jchai3d> author João Cerqueira
  * version 1.0.0
  */
-import org.jchai3d.math.JMaths;
 import org.jchai3d.math.JVector3d;
 import org.jchai3d.scenegraph.JGenericObject;
 
 public class JEffectViscosity extends JGenericEffect {
 
+    /**
+     * Level of viscosity, read from the material.
+     */
+    protected double viscosity;
+
     /**
      * Constructor of JEffectViscosity.
      */
@@ -33,6 +37,14 @@ public class JEffectViscosity extends JGenericEffect {
     //-----------------------------------------------------------------------
     // METHODS:
     //-----------------------------------------------------------------------
+    /**
+     * Read the viscosity of the material.
+     */
+    @Override
+    protected void initialize() {
+        viscosity = parent.getMaterial().getViscosity();
+    }
+
     /**
      * Compute resulting force
      */
@@ -42,13 +54,14 @@ public class JEffectViscosity extends JGenericEffect {
             final int aToolID,
             JVector3d aReactionForce) {
 
+        updateModel();
+
         if (parent.isInteractionInside()) {
 
             /**
              * the tool is located inside the object.
              */
-            double viscosity = parent.getMaterial().getViscosity();
-            aReactionForce.copyFrom(JMaths.jMul(-viscosity, aToolVel));
+            aToolVel.mulr(-viscosity, aReactionForce);
             return (true);
         } else {
 
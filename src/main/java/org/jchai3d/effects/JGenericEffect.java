@@ -16,6 +16,7 @@ package org.jchai3d.effects;
  * project <https://sourceforge.net/projects/jchai3d> 
  * version 1.0.0
  */
+import org.jchai3d.graphics.JMaterial;
 import org.jchai3d.scenegraph.JGenericObject;
 import org.jchai3d.math.JVector3d;
 
@@ -38,6 +39,14 @@ public class JGenericEffect {
      * Object to which the force effects applies.
      */
     public JGenericObject parent;
+    /**
+     * Material from which the effect model was last initialized.
+     */
+    protected JMaterial modelMaterial;
+    /**
+     * Version of the material when the effect model was last initialized.
+     */
+    protected long modelMaterialVersion;
 
     /**
      * Constructor of JGenericEffect.
@@ -72,10 +81,37 @@ public class JGenericEffect {
     }
 
     /**
-     * Initialize effect model.
+     * Initialize effect model. Subclasses precompute here the state that
+     * depends only on the material of the parent object; it is called by
+     * {@link #updateModel()} whenever the material is replaced or edited.
      */
     protected void initialize() {};
 
+    /**
+     * Initialize the effect model again if the material of the parent object
+     * has been replaced or modified since the last call. Called at the
+     * beginning of each force computation; costs two comparisons when nothing
+     * changed.
+     */
+    protected final void updateModel() {
+        JMaterial material = parent.getMaterial();
+        if (material != modelMaterial || material.getVersion() != modelMaterialVersion) {
+            modelMaterial = material;
+            modelMaterialVersion = material.getVersion();
+            initialize();
+        }
+    }
+
+    /**
+     * Distance beyond the boundary box of the parent object within which
+     * this effect can produce a force. Effects that act only while the tool
+     * is inside the object return 0; effects reaching further must override
+     * this method, otherwise they may be skipped by boundary pruning.
+     */
+    public double getInfluenceRadius() {
+        return (0.0);
+    }
+
     /**
      * Read last computed force.
      */
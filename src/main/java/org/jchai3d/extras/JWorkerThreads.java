@@ -0,0 +1,150 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.extras;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * JWorkerThreads holds the worker threads shared by all parallel operations
+ * of the library (mipmap generation, neighbor lists, tree traversals, ray
+ * casting, scene-wide mesh operations). There is one thread per processor;
+ * threads are created on first use and are daemons, so that they never keep
+ * an application alive.
+ *
+ * Tasks submitted from a worker thread are run by that thread, one after the
+ * other: a parallel operation nested in another one would otherwise wait
+ * for workers that are all busy waiting themselves.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public final class JWorkerThreads {
+
+    /**
+     * Worker threads, created on first use.
+     */
+    private static ExecutorService executor;
+    /**
+     * Is the current thread a worker?
+     */
+    private static final ThreadLocal<Boolean> worker = new ThreadLocal<Boolean>() {
+
+        @Override
+        protected Boolean initialValue() {
+            return (Boolean.FALSE);
+        }
+    };
+
+    private JWorkerThreads() {
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS:
+    //-----------------------------------------------------------------------
+    /**
+     * Read the number of worker threads.
+     */
+    public static int getNumThreads() {
+        return (Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Run tasks on the worker threads and wait for all of them.
+     *
+     * @param aTasks tasks to run.
+     */
+    public static void runAll(ArrayList<? extends Runnable> aTasks) {
+        ArrayList<Callable<Object>> tasks = new ArrayList<Callable<Object>>(aTasks.size());
+        for (Runnable task : aTasks) {
+            tasks.add(Executors.callable(task));
+        }
+        callAll(tasks);
+    }
+
+    /**
+     * Run tasks on the worker threads, wait for all of them, and return
+     * their results in the order of the tasks. An exception thrown by a
+     * task is rethrown as a RuntimeException.
+     *
+     * @param aTasks tasks to run.
+     * @return the results of the tasks.
+     */
+    public static <T> ArrayList<T> callAll(ArrayList<? extends Callable<T>> aTasks) {
+        ArrayList<T> results = new ArrayList<T>(aTasks.size());
+
+        // nested calls and single tasks are run by the calling thread
+        if (worker.get() || (aTasks.size() <= 1)) {
+            try {
+                for (Callable<T> task : aTasks) {
+                    results.add(task.call());
+                }
+            } catch (RuntimeException ex) {
+                throw ex;
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+            return (results);
+        }
+
+        ArrayList<Future<T>> futures = new ArrayList<Future<T>>(aTasks.size());
+        for (Callable<T> task : aTasks) {
+            futures.add(getExecutor().submit(task));
+        }
+
+        try {
+            for (Future<T> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex.getMessage());
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        }
+        return (results);
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS - INTERNAL:
+    //-----------------------------------------------------------------------
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(getNumThreads(), new ThreadFactory() {
+
+                private int count = 0;
+
+                public synchronized Thread newThread(final Runnable aRunnable) {
+                    Thread thread = new Thread(new Runnable() {
+
+                        public void run() {
+                            worker.set(Boolean.TRUE);
+                            aRunnable.run();
+                        }
+                    }, "JWorkerThreads-" + (count++));
+                    thread.setDaemon(true);
+                    return (thread);
+                }
+            });
+        }
+        return (executor);
+    }
+}
@@ -39,6 +39,17 @@ public class JFileLoaderOBJ {
      * _distinct_ vertices per triangle, with no vertex re-use.
      */
     public static boolean OBJ_LOADER_SHOULD_GENERATE_EXTRA_VERTICES = true;
+    /**
+     * If \b true, vertices of loaded obj files closer than
+     * OBJ_LOADER_WELD_EPSILON are merged once the file is read (see
+     * JMesh.weldVertices()). Vertices with different normals or texture
+     * coordinates are kept apart, so creases and texture seams survive.
+     */
+    public static boolean OBJ_LOADER_SHOULD_WELD_VERTICES = false;
+    /**
+     * Welding distance used when OBJ_LOADER_SHOULD_WELD_VERTICES is set.
+     */
+    public static double OBJ_LOADER_WELD_EPSILON = 0.0;
 
     /*
      * List of vertices.
@@ -734,6 +745,37 @@ public class JFileLoaderOBJ {
         }
     }
 
+    /**
+     * Load the texture of a material. The image is first searched at the path
+     * given by the material file, then in the directory of the obj file. When
+     * the mesh belongs to a world, the texture is shared through the world
+     * texture cache so that an image used by several models is decoded and
+     * uploaded only once.
+     *
+     * @return the texture, or null if the image file was not found
+     */
+    private static JTexture2D loadTexture(JWorld world, File file, String texturePath) throws IOException {
+        File textureFile = new File(texturePath);
+
+        // If this didn't work out, try again in the obj file's path
+        if (!textureFile.isFile()) {
+            String modelDir = file.getPath().replace(file.getName(), "");
+            textureFile = new File(modelDir + texturePath);
+        }
+
+        if (!textureFile.isFile()) {
+            return (null);
+        }
+
+        if (world != null) {
+            return (world.newTexture(textureFile));
+        }
+
+        JTexture2D newTexture = new JTexture2D();
+        newTexture.load(textureFile);
+        return (newTexture);
+    }
+
     /**
      * Loads a OBJ image by providing a filename and mesh in which object is
      * loaded.
@@ -790,27 +832,16 @@ public class JFileLoaderOBJ {
 
                 int textureId = material.textureID;
                 if (textureId >= 1) {
-                    JTexture2D newTexture;
-
-                    if (world != null) {
-                        newTexture = world.newTexture();
-                    } else {
-                        newTexture = new JTexture2D();
-                    }
+                    JTexture2D newTexture = loadTexture(world, file, material.texture);
 
-                    boolean result = newTexture.load(new File(material.texture));
-
-                    // If this didn't work out, try again in the obj file's path
-                    if (!result) {
-                        String modelDir = file.getPath().replace(file.getName(), "");
-                        String newTexturePath = modelDir + material.texture;
-
-                        result = newTexture.load(new File(newTexturePath));
-                    }
-
-                    if (result) {
+                    if (newTexture != null) {
                         newMesh.setTexture(newTexture);
                         newMesh.setTextureMappingEnabled(true);
+
+                        // the mesh holds its own reference on the texture
+                        if (world != null) {
+                            world.releaseTexture(newTexture);
+                        }
                     }
                     /*
                      * // We really failed to load a texture... else { #if
@@ -980,6 +1011,11 @@ public class JFileLoaderOBJ {
 
         vertexMaps = null;
 
+        // merge duplicated vertices
+        if (OBJ_LOADER_SHOULD_WELD_VERTICES) {
+            mesh.weldVertices(OBJ_LOADER_WELD_EPSILON, true, true, true);
+        }
+
         // if no normals were specified in the file, compute them
         // based on triangle faces
         if (numNormals == 0) {
@@ -1050,27 +1086,16 @@ public class JFileLoaderOBJ {
 
                 int textureId = material.textureID;
                 if (textureId >= 1) {
-                    JTexture2D newTexture;
+                    JTexture2D newTexture = loadTexture(world, file, material.texture);
 
-                    if (world != null) {
-                        newTexture = world.newTexture();
-                    } else {
-                        newTexture = new JTexture2D();
-                    }
-
-                    boolean result = newTexture.load(new File(material.texture));
-
-                    // If this didn't work out, try again in the obj file's path
-                    if (!result) {
-                        String modelDir = file.getPath().replace(file.getName(), "");
-                        String newTexturePath = modelDir + material.texture;
-
-                        result = newTexture.load(new File(newTexturePath));
-                    }
-
-                    if (result) {
+                    if (newTexture != null) {
                         newMesh.setTexture(newTexture);
                         newMesh.setTextureMappingEnabled(true);
+
+                        // the mesh holds its own reference on the texture
+                        if (world != null) {
+                            world.releaseTexture(newTexture);
+                        }
                     }
                     /*
                      * // We really failed to load a texture... else { #if
@@ -1240,6 +1265,11 @@ public class JFileLoaderOBJ {
 
         vertexMaps = null;
 
+        // merge duplicated vertices
+        if (OBJ_LOADER_SHOULD_WELD_VERTICES) {
+            mesh.weldVertices(OBJ_LOADER_WELD_EPSILON, true, true, true);
+        }
+
         // if no normals were specified in the file, compute them
         // based on triangle faces
         if (numNormals == 0) {
@@ -59,12 +59,18 @@ public class JInteractionEvent {
     /**
      * Initialize all data contained in current event.
      */
-    void clear() {
+    final void clear() {
         object = null;
         inside = false;
-        localPosition = new JVector3d();
-        localForce = new JVector3d();
-        localSurfacePosition = new JVector3d();
+        if (localPosition == null) {
+            localPosition = new JVector3d();
+            localForce = new JVector3d();
+            localSurfacePosition = new JVector3d();
+        } else {
+            localPosition.zero();
+            localForce.zero();
+            localSurfacePosition.zero();
+        }
     }
 
     /**
@@ -25,10 +25,69 @@ import java.util.ArrayList;
  */
 public class JInteractionRecorder extends ArrayList<JInteractionEvent> {
 
+    /**
+     * Number of objects whose interactions were computed since the last
+     * call to clear().
+     */
+    private int numVisitedObjects;
+    /**
+     * Number of subtrees skipped by boundary pruning since the last call to
+     * clear().
+     */
+    private int numPrunedObjects;
+
     /**
      * Initializes this interaction recorder with capacity set as 1.
      */
     public JInteractionRecorder() {
         super(1);
     }
+
+    /**
+     * Remove all interaction events and reset the traversal counters.
+     */
+    @Override
+    public void clear() {
+        super.clear();
+        numVisitedObjects = 0;
+        numPrunedObjects = 0;
+    }
+
+    /**
+     * Append a new event to the recorder and return it, to be filled by the
+     * caller.
+     */
+    public JInteractionEvent addEvent() {
+        JInteractionEvent event = new JInteractionEvent();
+        add(event);
+        return (event);
+    }
+
+    /**
+     * @return the number of objects visited since the last clear
+     */
+    public int getNumVisitedObjects() {
+        return numVisitedObjects;
+    }
+
+    /**
+     * @return the number of subtrees pruned since the last clear
+     */
+    public int getNumPrunedObjects() {
+        return numPrunedObjects;
+    }
+
+    /**
+     * Count an object whose interactions are computed.
+     */
+    public void incrementNumVisitedObjects() {
+        numVisitedObjects++;
+    }
+
+    /**
+     * Count a subtree skipped by boundary pruning.
+     */
+    public void incrementNumPrunedObjects() {
+        numPrunedObjects++;
+    }
 }
\ No newline at end of file
@@ -34,6 +34,12 @@ public class JInteractionSettings {
      * haptic enabled objects only.
      */
     private boolean hapticObjectsOnly;
+    /**
+     * If <b>true</b>, then subtrees whose boundary boxes, expanded by the
+     * reach of their effects, do not contain the tool are skipped. Boundary
+     * boxes must be kept up to date with computeBoundaryBox().
+     */
+    private boolean boundaryPruningEnabled;
 
     /**
      * Default constructor
@@ -80,4 +86,18 @@ public class JInteractionSettings {
     public void setHapticObjectsOnly(boolean hapticObjectsOnly) {
         this.hapticObjectsOnly = hapticObjectsOnly;
     }
+
+    /**
+     * @return the boundaryPruningEnabled
+     */
+    public boolean isBoundaryPruningEnabled() {
+        return boundaryPruningEnabled;
+    }
+
+    /**
+     * @param boundaryPruningEnabled the boundaryPruningEnabled to set
+     */
+    public void setBoundaryPruningEnabled(boolean boundaryPruningEnabled) {
+        this.boundaryPruningEnabled = boundaryPruningEnabled;
+    }
 }
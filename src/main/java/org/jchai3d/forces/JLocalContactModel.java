@@ -0,0 +1,368 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.forces;
+
+import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JGenericObject;
+
+/**
+ * JLocalContactModel is a local intermediate representation of the
+ * environment around the proxy, used to decouple the servo loop from the
+ * collision queries. A slow planner runs the finger-proxy algorithm against
+ * the whole world and publishes the constraint planes around the proxy: the
+ * planes touched by the proxy, which pass through its position, and the
+ * planes of the triangles lying within a radius of it, which catch the
+ * device when it moves into a surface between two planner updates. The
+ * servo loop then computes, for each fresh device position, the closest
+ * point to the device that satisfies these constraints and renders a
+ * spring towards it. Instances are immutable once published, so they can
+ * be handed from one thread to another without locking.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JLocalContactModel {
+
+    /**
+     * Tolerance used when testing constraints and solving small systems.
+     */
+    private static final double TOLERANCE = 1e-12;
+    /**
+     * Maximum number of constraint planes of a model. The servo evaluates
+     * all combinations of up to three planes, so the cost grows with the
+     * cube of this number.
+     */
+    public static int CHAI_LOCAL_MODEL_MAX_PLANES = 12;
+    /**
+     * Proxy position when the model was built (global coordinates).
+     */
+    private final double qx, qy, qz;
+    /**
+     * Unit normals of the constraint planes, pointing away from the surfaces.
+     */
+    private final double[] normals;
+    /**
+     * Offsets of the constraint planes (n.x >= offset).
+     */
+    private final double[] offsets;
+    /**
+     * Number of constraint planes.
+     */
+    private final int numPlanes;
+    /**
+     * Objects in contact with the tool when the model was built.
+     */
+    private final JGenericObject[] contactObjects;
+    /**
+     * Stiffness of the spring between the constrained proxy and the device.
+     */
+    private final double stiffness;
+    /**
+     * Force of the potential field effects, held until the next model.
+     */
+    private final JVector3d fieldForce;
+    /**
+     * Time at which the model was built [ns].
+     */
+    private final long timestamp;
+
+    /**
+     * Constructor of JLocalContactModel, for planes passing through the
+     * proxy.
+     *
+     * @param aProxyPos position of the proxy (global coordinates).
+     * @param aNormals normals of the surfaces touched by the proxy.
+     * @param aNumPlanes number of normals to use.
+     * @param aStiffness stiffness of the surfaces [N/m].
+     * @param aFieldForce force of the potential fields, or null.
+     */
+    public JLocalContactModel(final JVector3d aProxyPos,
+            final JVector3d[] aNormals,
+            final int aNumPlanes,
+            final double aStiffness,
+            final JVector3d aFieldForce) {
+        this(aProxyPos, aNormals, null, aNumPlanes, aStiffness, aFieldForce, null);
+    }
+
+    /**
+     * Constructor of JLocalContactModel. Each plane constrains the proxy to
+     * n.x >= offset. Planes are given by decreasing priority: when there are
+     * more than CHAI_LOCAL_MODEL_MAX_PLANES, the last ones are dropped.
+     * Planes with the same normal are merged, and offsets are lowered where
+     * needed so that the proxy position satisfies all constraints.
+     *
+     * @param aProxyPos position of the proxy (global coordinates).
+     * @param aNormals normals of the planes, pointing towards the proxy.
+     * @param aOffsets offsets of the planes along their normals, or null for
+     * planes passing through the proxy.
+     * @param aNumPlanes number of planes to use.
+     * @param aStiffness stiffness of the surfaces [N/m].
+     * @param aFieldForce force of the potential fields, or null.
+     * @param aContactObjects objects in contact with the tool, or null.
+     */
+    public JLocalContactModel(final JVector3d aProxyPos,
+            final JVector3d[] aNormals,
+            final double[] aOffsets,
+            final int aNumPlanes,
+            final double aStiffness,
+            final JVector3d aFieldForce,
+            final JGenericObject[] aContactObjects) {
+
+        qx = aProxyPos.x;
+        qy = aProxyPos.y;
+        qz = aProxyPos.z;
+        stiffness = aStiffness;
+        fieldForce = (aFieldForce == null) ? new JVector3d(0, 0, 0) : new JVector3d(aFieldForce);
+        contactObjects = (aContactObjects == null) ? new JGenericObject[0] : aContactObjects.clone();
+        timestamp = System.nanoTime();
+
+        int maxPlanes = Math.max(0, Math.min(aNumPlanes, CHAI_LOCAL_MODEL_MAX_PLANES));
+        double[] n = new double[3 * maxPlanes];
+        double[] o = new double[maxPlanes];
+        int count = 0;
+        for (int i = 0; (i < aNumPlanes) && (count < maxPlanes); i++) {
+            double length = aNormals[i].length();
+            if (length < TOLERANCE) {
+                continue;
+            }
+            double nx = aNormals[i].x / length;
+            double ny = aNormals[i].y / length;
+            double nz = aNormals[i].z / length;
+
+            // the proxy must stay feasible
+            double proxyOffset = nx * qx + ny * qy + nz * qz;
+            double offset = (aOffsets == null) ? proxyOffset : Math.min(aOffsets[i] / length, proxyOffset);
+
+            // a plane parallel to a previous one only keeps the tightest
+            // constraint
+            int same = -1;
+            for (int j = 0; j < count; j++) {
+                if (n[3 * j] * nx + n[3 * j + 1] * ny + n[3 * j + 2] * nz > 1.0 - TOLERANCE) {
+                    same = j;
+                    break;
+                }
+            }
+            if (same >= 0) {
+                o[same] = Math.max(o[same], offset);
+                continue;
+            }
+
+            n[3 * count] = nx;
+            n[3 * count + 1] = ny;
+            n[3 * count + 2] = nz;
+            o[count] = offset;
+            count++;
+        }
+        normals = n;
+        offsets = o;
+        numPlanes = count;
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS:
+    //-----------------------------------------------------------------------
+    /**
+     * Compute the constrained proxy position and the force to apply for a
+     * device position. Does not allocate; meant to be called by the servo
+     * loop.
+     *
+     * @param aDevicePos position of the device (global coordinates).
+     * @param aProxyPos resulting proxy position.
+     * @param aForce resulting force.
+     * @return true if the proxy is in contact.
+     */
+    public boolean computeForce(final JVector3d aDevicePos, JVector3d aProxyPos, JVector3d aForce) {
+        double gx = aDevicePos.x;
+        double gy = aDevicePos.y;
+        double gz = aDevicePos.z;
+
+        // free motion
+        if (isFeasible(gx, gy, gz)) {
+            aProxyPos.set(gx, gy, gz);
+            aForce.copyFrom(fieldForce);
+            return (false);
+        }
+
+        // the apex of the constraints is always feasible
+        double bestX = qx, bestY = qy, bestZ = qz;
+        double bestDist = distanceSq(qx, qy, qz, gx, gy, gz);
+
+        // projections on single planes
+        for (int i = 0; i < numPlanes; i++) {
+            double r = offsets[i] - dot(i, gx, gy, gz);
+            double x = gx + r * normals[3 * i];
+            double y = gy + r * normals[3 * i + 1];
+            double z = gz + r * normals[3 * i + 2];
+            double dist = distanceSq(x, y, z, gx, gy, gz);
+            if (dist < bestDist && isFeasible(x, y, z)) {
+                bestX = x;
+                bestY = y;
+                bestZ = z;
+                bestDist = dist;
+            }
+        }
+
+        // projections on the intersection lines of two planes
+        for (int i = 0; i < numPlanes; i++) {
+            for (int j = i + 1; j < numPlanes; j++) {
+                double c = normals[3 * i] * normals[3 * j]
+                        + normals[3 * i + 1] * normals[3 * j + 1]
+                        + normals[3 * i + 2] * normals[3 * j + 2];
+                double det = 1.0 - c * c;
+                if (det < TOLERANCE) {
+                    continue;
+                }
+                double ri = offsets[i] - dot(i, gx, gy, gz);
+                double rj = offsets[j] - dot(j, gx, gy, gz);
+                double a = (ri - c * rj) / det;
+                double b = (rj - c * ri) / det;
+                double x = gx + a * normals[3 * i] + b * normals[3 * j];
+                double y = gy + a * normals[3 * i + 1] + b * normals[3 * j + 1];
+                double z = gz + a * normals[3 * i + 2] + b * normals[3 * j + 2];
+                double dist = distanceSq(x, y, z, gx, gy, gz);
+                if (dist < bestDist && isFeasible(x, y, z)) {
+                    bestX = x;
+                    bestY = y;
+                    bestZ = z;
+                    bestDist = dist;
+                }
+            }
+        }
+
+        // vertices where three planes meet
+        for (int i = 0; i < numPlanes; i++) {
+            for (int j = i + 1; j < numPlanes; j++) {
+                for (int k = j + 1; k < numPlanes; k++) {
+                    // solve n_i.x = o_i, n_j.x = o_j, n_k.x = o_k by Cramer's rule
+                    double ax = normals[3 * i], ay = normals[3 * i + 1], az = normals[3 * i + 2];
+                    double bx = normals[3 * j], by = normals[3 * j + 1], bz = normals[3 * j + 2];
+                    double cx = normals[3 * k], cy = normals[3 * k + 1], cz = normals[3 * k + 2];
+                    double ux = by * cz - bz * cy;
+                    double uy = bz * cx - bx * cz;
+                    double uz = bx * cy - by * cx;
+                    double det = ax * ux + ay * uy + az * uz;
+                    if (Math.abs(det) < TOLERANCE) {
+                        continue;
+                    }
+                    double vx = cy * az - cz * ay;
+                    double vy = cz * ax - cx * az;
+                    double vz = cx * ay - cy * ax;
+                    double wx = ay * bz - az * by;
+                    double wy = az * bx - ax * bz;
+                    double wz = ax * by - ay * bx;
+                    double x = (offsets[i] * ux + offsets[j] * vx + offsets[k] * wx) / det;
+                    double y = (offsets[i] * uy + offsets[j] * vy + offsets[k] * wy) / det;
+                    double z = (offsets[i] * uz + offsets[j] * vz + offsets[k] * wz) / det;
+                    double dist = distanceSq(x, y, z, gx, gy, gz);
+                    if (dist < bestDist && isFeasible(x, y, z)) {
+                        bestX = x;
+                        bestY = y;
+                        bestZ = z;
+                        bestDist = dist;
+                    }
+                }
+            }
+        }
+
+        aProxyPos.set(bestX, bestY, bestZ);
+        aForce.set(stiffness * (bestX - gx) + fieldForce.x,
+                stiffness * (bestY - gy) + fieldForce.y,
+                stiffness * (bestZ - gz) + fieldForce.z);
+        return (true);
+    }
+
+    /**
+     * Read the number of constraint planes.
+     */
+    public int getNumPlanes() {
+        return (numPlanes);
+    }
+
+    /**
+     * Read the normal of a constraint plane.
+     */
+    public JVector3d getNormal(int aIndex) {
+        return (new JVector3d(normals[3 * aIndex], normals[3 * aIndex + 1], normals[3 * aIndex + 2]));
+    }
+
+    /**
+     * Read the offset of a constraint plane (n.x >= offset).
+     */
+    public double getOffset(int aIndex) {
+        return (offsets[aIndex]);
+    }
+
+    /**
+     * Read the number of objects in contact with the tool when the model
+     * was built.
+     */
+    public int getNumContactObjects() {
+        return (contactObjects.length);
+    }
+
+    /**
+     * Read an object in contact with the tool when the model was built.
+     */
+    public JGenericObject getContactObject(int aIndex) {
+        return (contactObjects[aIndex]);
+    }
+
+    /**
+     * Read the proxy position from which the model was built.
+     */
+    public JVector3d getProxyPosition() {
+        return (new JVector3d(qx, qy, qz));
+    }
+
+    /**
+     * Read the stiffness of the model.
+     */
+    public double getStiffness() {
+        return (stiffness);
+    }
+
+    /**
+     * Read the time at which the model was built, as given by
+     * System.nanoTime().
+     */
+    public long getTimestamp() {
+        return (timestamp);
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS - INTERNAL:
+    //-----------------------------------------------------------------------
+    private boolean isFeasible(double aX, double aY, double aZ) {
+        for (int i = 0; i < numPlanes; i++) {
+            if (dot(i, aX, aY, aZ) < offsets[i] - TOLERANCE) {
+                return (false);
+            }
+        }
+        return (true);
+    }
+
+    private double dot(int aPlane, double aX, double aY, double aZ) {
+        return (normals[3 * aPlane] * aX + normals[3 * aPlane + 1] * aY + normals[3 * aPlane + 2] * aZ);
+    }
+
+    private static double distanceSq(double aX0, double aY0, double aZ0,
+            double aX1, double aY1, double aZ1) {
+        double dx = aX0 - aX1;
+        double dy = aY0 - aY1;
+        double dz = aZ0 - aZ1;
+        return (dx * dx + dy * dy + dz * dz);
+    }
+}
@@ -0,0 +1,412 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.forces;
+
+import java.util.ArrayList;
+import org.jchai3d.math.JMatrix3d;
+import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JGenericObject;
+import org.jchai3d.scenegraph.JWorld;
+
+/**
+ * JMultiPointForceAlgo renders the forces applied on a tool sampled at
+ * several points (a drill bit, a probe...). Each point drives its own
+ * finger-proxy, but the scene is traversed once per update for all points:
+ * potential fields are evaluated for all points in a single descent of the
+ * scene graph, and the objects close enough to the tool to be touched are
+ * selected once, so that each proxy only queries their collision trees. The
+ * forces of all points are summed into a force and a torque about the tool
+ * origin.
+ *
+ * If boundary pruning is enabled in the interaction settings, the subtrees
+ * whose boundary boxes do not overlap the region swept by the proxies are
+ * skipped when selecting the objects, as they are for the potential fields.
+ * The boundary boxes must then bound the children of each object (see
+ * JGenericObject.computeBoundaryBox()).
+ *
+ * Run org.jchai3d.forces.JMultiPointForceBenchmark to measure an update.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMultiPointForceAlgo extends JGenericPointForceAlgo {
+
+    /**
+     * Points of the tool, in the tool frame.
+     */
+    protected JVector3d[] localPoints;
+    /**
+     * Finger-proxy algorithm of each point.
+     */
+    protected JProxyPointForceAlgo[] proxies;
+    /**
+     * Identification number of each point, for the effects.
+     */
+    protected int[] ids;
+    /**
+     * Positions and velocities of the points in world coordinates.
+     */
+    protected JVector3d[] globalPoints;
+    protected JVector3d[] globalVelocities;
+    /**
+     * Potential field force of each point.
+     */
+    protected JVector3d[] fieldForces;
+    /**
+     * Total force of each point.
+     */
+    protected JVector3d[] pointForces;
+    /**
+     * Sum of the forces of all points.
+     */
+    protected JVector3d force;
+    /**
+     * Torque of the forces about the tool origin.
+     */
+    protected JVector3d torque;
+    /**
+     * Objects selected for the collision queries of the current update.
+     */
+    protected ArrayList<JGenericObject> collisionCandidates;
+    /**
+     * Interactions recorder settings.
+     */
+    protected JInteractionSettings interactionSettings;
+    /**
+     * Interactions recorder, shared by all points.
+     */
+    protected JInteractionRecorder interactionRecorder;
+    /**
+     * Use the finger-proxy algorithm?
+     */
+    protected boolean proxyEnabled;
+    /**
+     * Use the potential fields?
+     */
+    protected boolean potentialFieldsEnabled;
+    /**
+     * Duration of the last update [ns].
+     */
+    protected long lastComputeTime;
+    /**
+     * Tool orientation used when none is given.
+     */
+    private final JMatrix3d identity;
+    /**
+     * Region swept by the proxies during the current update.
+     */
+    private final JVector3d candidatesMin;
+    private final JVector3d candidatesMax;
+    /**
+     * Scratch vectors of the torque computation.
+     */
+    private final JVector3d arm;
+    private final JVector3d moment;
+
+    /**
+     * Constructor of JMultiPointForceAlgo.
+     *
+     * @param aLocalPoints points of the tool, in the tool frame.
+     * @param aProxyRadius radius of the proxy of each point.
+     */
+    public JMultiPointForceAlgo(final JVector3d[] aLocalPoints, final double aProxyRadius) {
+        int n = aLocalPoints.length;
+
+        localPoints = new JVector3d[n];
+        proxies = new JProxyPointForceAlgo[n];
+        ids = new int[n];
+        globalPoints = new JVector3d[n];
+        globalVelocities = new JVector3d[n];
+        fieldForces = new JVector3d[n];
+        pointForces = new JVector3d[n];
+
+        for (int i = 0; i < n; i++) {
+            localPoints[i] = new JVector3d(aLocalPoints[i]);
+            proxies[i] = new JProxyPointForceAlgo();
+            proxies[i].setProxyRadius(aProxyRadius);
+            globalPoints[i] = new JVector3d();
+            globalVelocities[i] = new JVector3d();
+            fieldForces[i] = new JVector3d();
+            pointForces[i] = new JVector3d();
+
+            // each point is a distinct tool for the effects
+            ids[i] = JPotentialFieldForceAlgo.FORCE_ALGO_ID;
+            JPotentialFieldForceAlgo.FORCE_ALGO_ID++;
+        }
+
+        force = new JVector3d();
+        torque = new JVector3d();
+        collisionCandidates = new ArrayList<JGenericObject>();
+        interactionSettings = new JInteractionSettings(true, true);
+        interactionRecorder = new JPooledInteractionRecorder();
+        proxyEnabled = true;
+        potentialFieldsEnabled = true;
+
+        identity = new JMatrix3d();
+        identity.identity();
+
+        candidatesMin = new JVector3d();
+        candidatesMax = new JVector3d();
+        arm = new JVector3d();
+        moment = new JVector3d();
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS:
+    //-----------------------------------------------------------------------
+    /**
+     * Initialize the algorithm with the initial position of the tool, whose
+     * orientation is taken as the identity.
+     */
+    @Override
+    public void initialize(JWorld aWorld, JVector3d aInitialPos) {
+        initialize(aWorld, aInitialPos, identity);
+    }
+
+    /**
+     * Initialize the algorithm with the initial pose of the tool.
+     */
+    public void initialize(JWorld aWorld, JVector3d aInitialPos, JMatrix3d aInitialRot) {
+        parentWorld = aWorld;
+        computeGlobalPoints(aInitialPos, aInitialRot, null);
+
+        for (int i = 0; i < proxies.length; i++) {
+            proxies[i].initialize(aWorld, globalPoints[i]);
+            proxies[i].setCollisionCandidates(collisionCandidates);
+        }
+    }
+
+    /**
+     * Compute the force applied on the tool, whose orientation is taken as
+     * the identity.
+     */
+    @Override
+    public JVector3d computeForces(JVector3d aToolPos, JVector3d aToolVel) {
+        return (computeForces(aToolPos, identity, aToolVel));
+    }
+
+    /**
+     * Compute the force and torque applied on the tool.
+     *
+     * @param aToolPos position of the tool origin (world coordinates).
+     * @param aToolRot orientation of the tool (world coordinates).
+     * @param aToolVel linear velocity of the tool.
+     * @return the sum of the forces of all points.
+     */
+    public JVector3d computeForces(JVector3d aToolPos, JMatrix3d aToolRot, JVector3d aToolVel) {
+        long start = System.nanoTime();
+        int n = localPoints.length;
+
+        computeGlobalPoints(aToolPos, aToolRot, aToolVel);
+
+        for (int i = 0; i < n; i++) {
+            fieldForces[i].zero();
+            pointForces[i].zero();
+        }
+        force.zero();
+        torque.zero();
+
+        if (parentWorld != null) {
+            // potential fields of all points in one traversal
+            if (potentialFieldsEnabled) {
+                interactionRecorder.clear();
+                parentWorld.computeInteractions(globalPoints, globalVelocities, ids, n,
+                        fieldForces, interactionRecorder, interactionSettings);
+                for (int i = 0; i < n; i++) {
+                    pointForces[i].add(fieldForces[i]);
+                }
+            }
+
+            // proxies, restricted to the objects near the tool
+            if (proxyEnabled) {
+                selectCollisionCandidates();
+                for (int i = 0; i < n; i++) {
+                    pointForces[i].add(proxies[i].computeForces(globalPoints[i], globalVelocities[i]));
+                }
+            }
+
+            // sum forces and torques
+            for (int i = 0; i < n; i++) {
+                force.add(pointForces[i]);
+                globalPoints[i].subr(aToolPos, arm);
+                arm.crossr(pointForces[i], moment);
+                torque.add(moment);
+            }
+        }
+
+        lastComputeTime = System.nanoTime() - start;
+        return (force);
+    }
+
+    /**
+     * Read the torque of the last update, about the tool origin.
+     */
+    public JVector3d getTorque() {
+        return (torque);
+    }
+
+    /**
+     * Read the force of the last update.
+     */
+    public JVector3d getForce() {
+        return (force);
+    }
+
+    /**
+     * Read the number of points of the tool.
+     */
+    public int getNumPoints() {
+        return (localPoints.length);
+    }
+
+    /**
+     * Read the force applied on a point during the last update.
+     */
+    public JVector3d getPointForce(int aIndex) {
+        return (pointForces[aIndex]);
+    }
+
+    /**
+     * Read the position of a point during the last update.
+     */
+    public JVector3d getPointGlobalPosition(int aIndex) {
+        return (globalPoints[aIndex]);
+    }
+
+    /**
+     * Read the finger-proxy algorithm of a point.
+     */
+    public JProxyPointForceAlgo getProxyAlgo(int aIndex) {
+        return (proxies[aIndex]);
+    }
+
+    /**
+     * Read the number of objects selected for collision queries during the
+     * last update.
+     */
+    public int getNumCollisionCandidates() {
+        return (collisionCandidates.size());
+    }
+
+    /**
+     * Read the duration of the last update [ns].
+     */
+    public long getLastComputeTime() {
+        return (lastComputeTime);
+    }
+
+    /**
+     * Read the settings used for the potential fields.
+     */
+    public JInteractionSettings getInteractionSettings() {
+        return (interactionSettings);
+    }
+
+    /**
+     * Read the interactions recorded during the last update.
+     */
+    public JInteractionRecorder getInteractionRecorder() {
+        return (interactionRecorder);
+    }
+
+    public boolean isProxyEnabled() {
+        return (proxyEnabled);
+    }
+
+    public void setProxyEnabled(boolean aEnabled) {
+        proxyEnabled = aEnabled;
+    }
+
+    public boolean isPotentialFieldsEnabled() {
+        return (potentialFieldsEnabled);
+    }
+
+    public void setPotentialFieldsEnabled(boolean aEnabled) {
+        potentialFieldsEnabled = aEnabled;
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS - INTERNAL:
+    //-----------------------------------------------------------------------
+    /**
+     * Place the points of the tool in world coordinates.
+     */
+    protected void computeGlobalPoints(JVector3d aToolPos, JMatrix3d aToolRot, JVector3d aToolVel) {
+        for (int i = 0; i < localPoints.length; i++) {
+            aToolRot.mulr(localPoints[i], globalPoints[i]);
+            globalPoints[i].add(aToolPos);
+            if (aToolVel != null) {
+                globalVelocities[i].copyFrom(aToolVel);
+            }
+        }
+    }
+
+    /**
+     * Select the objects whose boundary boxes overlap the region swept by
+     * the proxies during this update.
+     */
+    protected void selectCollisionCandidates() {
+        collisionCandidates.clear();
+        if (localPoints.length == 0) {
+            return;
+        }
+
+        JVector3d min = candidatesMin;
+        JVector3d max = candidatesMax;
+        min.set(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
+        max.set(-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE);
+        double radius = 0.0;
+
+        for (int i = 0; i < localPoints.length; i++) {
+            expand(min, max, globalPoints[i]);
+            expand(min, max, proxies[i].getProxyGlobalPosition());
+            radius = Math.max(radius, proxies[i].getProxyRadius());
+        }
+        min.sub(radius, radius, radius);
+        max.add(radius, radius, radius);
+
+        boolean pruning = interactionSettings.isBoundaryPruningEnabled();
+        for (int i = 0; i < parentWorld.getNumChildren(); i++) {
+            selectCollisionCandidates(parentWorld.getChild(i), min, max, pruning);
+        }
+    }
+
+    private void selectCollisionCandidates(JGenericObject aObject, JVector3d aMin, JVector3d aMax,
+            final boolean aPruning) {
+        if (aObject.isGhost()) {
+            return;
+        }
+
+        // the box of the object also bounds its children when pruning
+        boolean inRange = aObject.isInCollisionRange(aMin, aMax);
+        if (aPruning && !inRange) {
+            return;
+        }
+
+        if ((aObject.getCollisionDetector() != null) && inRange) {
+            collisionCandidates.add(aObject);
+        }
+
+        for (int i = 0; i < aObject.getNumChildren(); i++) {
+            selectCollisionCandidates(aObject.getChild(i), aMin, aMax, aPruning);
+        }
+    }
+
+    private static void expand(JVector3d aMin, JVector3d aMax, JVector3d aPoint) {
+        aMin.set(Math.min(aMin.x, aPoint.x), Math.min(aMin.y, aPoint.y), Math.min(aMin.z, aPoint.z));
+        aMax.set(Math.max(aMax.x, aPoint.x), Math.max(aMax.y, aPoint.y), Math.max(aMax.z, aPoint.z));
+    }
+}
@@ -48,7 +48,7 @@ public class JPotentialFieldForceAlgo extends JGenericPointForceAlgo {
      * Constructor of cPotentialFieldForceAlgo.
      */
     public JPotentialFieldForceAlgo() {
-        interactionRecorder = new JInteractionRecorder();
+        interactionRecorder = new JPooledInteractionRecorder();
 
         id = FORCE_ALGO_ID;
 
@@ -59,6 +59,13 @@ public class JPotentialFieldForceAlgo extends JGenericPointForceAlgo {
         interactionSettings = new JInteractionSettings(true, true);
     }
 
+    /**
+     * Read the settings used when computing interactions.
+     */
+    public JInteractionSettings getInteractionSettings() {
+        return (interactionSettings);
+    }
+
     /**
      * Initialize the algorithm by passing the initial position of the device.
      */
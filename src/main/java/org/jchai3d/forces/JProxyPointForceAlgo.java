@@ -15,9 +15,15 @@
  */
 package org.jchai3d.forces;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
 import org.jchai3d.collisions.JCollisionEvent;
 import org.jchai3d.collisions.JCollisionRecorder;
 import org.jchai3d.collisions.JCollisionSettings;
+import org.jchai3d.collisions.JPooledCollisionRecorder;
+import org.jchai3d.graphics.JTriangle;
 import org.jchai3d.math.JConstants;
 import org.jchai3d.math.JMaths;
 import org.jchai3d.math.JVector3d;
@@ -140,15 +146,19 @@ public class JProxyPointForceAlgo extends JGenericPointForceAlgo {
      * Value of state machine.
      */
     protected int algoCount;
+    /**
+     * Objects to test for collisions, or null to search the whole world.
+     */
+    protected List<JGenericObject> collisionCandidates;
 
     /**
      * Constructor of cProxyPointForceAlgo.
      */
     public JProxyPointForceAlgo() {
         collisionSettings = new JCollisionSettings();
-        collisionRecorderConstraint0 = new JCollisionRecorder();
-        collisionRecorderConstraint1 = new JCollisionRecorder();
-        collisionRecorderConstraint2 = new JCollisionRecorder();
+        collisionRecorderConstraint0 = new JPooledCollisionRecorder();
+        collisionRecorderConstraint1 = new JPooledCollisionRecorder();
+        collisionRecorderConstraint2 = new JPooledCollisionRecorder();
 
         proxyGlobalPosition = new JVector3d();
         deviceGlobalPosition = new JVector3d();
@@ -280,6 +290,252 @@ public class JProxyPointForceAlgo extends JGenericPointForceAlgo {
         }
     }
 
+    /**
+     * Restrict the collision queries of the algorithm to a list of objects,
+     * tested without their children. Algorithms driving several proxies use
+     * it to select the objects near the tool once for all proxies.
+     *
+     * @param aCandidates objects to test, or null to search the whole world.
+     */
+    public void setCollisionCandidates(List<JGenericObject> aCandidates) {
+        collisionCandidates = aCandidates;
+    }
+
+    /**
+     * Search for a collision between a segment and the environment, either
+     * the whole world or the collision candidates.
+     */
+    protected boolean computeCollisionDetection(JVector3d aSegmentPointA,
+            JVector3d aSegmentPointB,
+            JCollisionRecorder aRecorder,
+            JCollisionSettings aSettings) {
+        if (collisionCandidates == null) {
+            return (parentWorld.computeCollisionDetection(aSegmentPointA,
+                    aSegmentPointB,
+                    aRecorder,
+                    aSettings));
+        }
+
+        boolean hit = false;
+        for (int i = 0; i < collisionCandidates.size(); i++) {
+            if (collisionCandidates.get(i).computeCollisionDetectionGlobal(aSegmentPointA,
+                    aSegmentPointB,
+                    aRecorder,
+                    aSettings)) {
+                hit = true;
+            }
+        }
+        return (hit);
+    }
+
+    /**
+     * Build a local model of the constraints currently touched by the proxy,
+     * to be evaluated by a faster servo loop until the next call. The
+     * normals are oriented towards the proxy and the stiffness is averaged
+     * over the contacts, as in updateForce().
+     *
+     * @param aFieldForce force of the potential fields to hold in the model,
+     * or null.
+     * @return a new immutable local model.
+     */
+    public JLocalContactModel createLocalContactModel(final JVector3d aFieldForce) {
+        return (createLocalContactModel(aFieldForce, null, 0.0));
+    }
+
+    /**
+     * Build a local model of the environment around the proxy, to be
+     * evaluated by a faster servo loop until the next call. The model holds
+     * the planes touched by the proxy and, ahead of them, the planes of the
+     * triangles lying within \e aRadius of the proxy (offset by the proxy
+     * radius), nearest first: a device moving into a surface between two
+     * updates is stopped by the model even if the proxy was in free space.
+     * Normals are oriented towards the proxy. The stiffness is averaged over
+     * the contacts, or over the nearby triangles in free space.
+     *
+     * @param aFieldForce force of the potential fields to hold in the model,
+     * or null.
+     * @param aFieldObjects objects interacting with the tool through
+     * potential fields, or null.
+     * @param aRadius distance from the proxy within which triangles are
+     * added to the model; 0 for the touched planes only.
+     * @return a new immutable local model.
+     */
+    public JLocalContactModel createLocalContactModel(final JVector3d aFieldForce,
+            final List<JGenericObject> aFieldObjects,
+            final double aRadius) {
+        JCollisionEvent[] contacts = {getContactPoint0(), getContactPoint1(), getContactPoint2()};
+        ArrayList<JVector3d> normals = new ArrayList<JVector3d>();
+        ArrayList<JGenericObject> objects = new ArrayList<JGenericObject>();
+        if (aFieldObjects != null) {
+            objects.addAll(aFieldObjects);
+        }
+        double stiffness = 0.0;
+        int count = 0;
+
+        for (int i = 0; i < contactCount && i < 3; i++) {
+            JCollisionEvent contact = contacts[i];
+            if (contact.getTriangle() == null) {
+                continue;
+            }
+
+            // orient the normal from the surface towards the proxy
+            JVector3d normal = new JVector3d(contact.getGlobalNormal());
+            JVector3d toProxy = new JVector3d();
+            proxyGlobalPosition.subr(contact.getGlobalPosition(), toProxy);
+            if (normal.dot(toProxy) < 0) {
+                normal.negate();
+            }
+
+            normals.add(normal);
+            stiffness += contact.getTriangle().getParent().getMaterial().getStiffness();
+            if (!objects.contains(contact.getObject())) {
+                objects.add(contact.getObject());
+            }
+            count++;
+        }
+
+        // the touched planes pass through the proxy
+        double[] offsets = new double[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = normals.get(i).dot(proxyGlobalPosition);
+        }
+
+        // planes of the nearby triangles, nearest first
+        double[][] planes = computeNearbyPlanes(aRadius);
+        if (planes.length > 0) {
+            offsets = Arrays.copyOf(offsets, count + planes.length);
+            double nearbyStiffness = 0.0;
+            int numNearby = Math.min(planes.length, JLocalContactModel.CHAI_LOCAL_MODEL_MAX_PLANES);
+            for (int i = 0; i < planes.length; i++) {
+                normals.add(new JVector3d(planes[i][1], planes[i][2], planes[i][3]));
+                offsets[count + i] = planes[i][4];
+                if (i < numNearby) {
+                    nearbyStiffness += planes[i][5];
+                }
+            }
+            if (count == 0) {
+                stiffness = nearbyStiffness / numNearby;
+            }
+        }
+
+        if (count > 0) {
+            stiffness /= count;
+        }
+
+        return (new JLocalContactModel(proxyGlobalPosition,
+                normals.toArray(new JVector3d[normals.size()]),
+                offsets, normals.size(), stiffness, aFieldForce,
+                objects.toArray(new JGenericObject[objects.size()])));
+    }
+
+    /**
+     * Compute the planes of the triangles within a distance of the proxy,
+     * sorted by distance, as {distance, nx, ny, nz, offset, stiffness}, with
+     * the normals oriented towards the proxy and the planes offset by the
+     * proxy radius.
+     */
+    private double[][] computeNearbyPlanes(final double aRadius) {
+        if ((aRadius <= 0) || (parentWorld == null)) {
+            return (new double[0][]);
+        }
+
+        ArrayList<JTriangle> triangles = new ArrayList<JTriangle>();
+        if (collisionCandidates == null) {
+            parentWorld.computeNearbyTriangles(proxyGlobalPosition, aRadius, triangles,
+                    collisionSettings, true);
+        } else {
+            for (int i = 0; i < collisionCandidates.size(); i++) {
+                collisionCandidates.get(i).computeNearbyTriangles(proxyGlobalPosition, aRadius,
+                        triangles, collisionSettings, false);
+            }
+        }
+
+        ArrayList<double[]> planes = new ArrayList<double[]>(triangles.size());
+        JVector3d v0 = new JVector3d();
+        JVector3d v1 = new JVector3d();
+        JVector3d v2 = new JVector3d();
+        JVector3d closest = new JVector3d();
+        for (int i = 0; i < triangles.size(); i++) {
+            JTriangle triangle = triangles.get(i);
+            JMesh mesh = triangle.getParent();
+            JMaths.jTransform(mesh.getGlobalPosition(), mesh.getGlobalRotation(),
+                    triangle.getVertex0().getPosition(), v0);
+            JMaths.jTransform(mesh.getGlobalPosition(), mesh.getGlobalRotation(),
+                    triangle.getVertex1().getPosition(), v1);
+            JMaths.jTransform(mesh.getGlobalPosition(), mesh.getGlobalRotation(),
+                    triangle.getVertex2().getPosition(), v2);
+
+            double nx = (v1.y - v0.y) * (v2.z - v0.z) - (v1.z - v0.z) * (v2.y - v0.y);
+            double ny = (v1.z - v0.z) * (v2.x - v0.x) - (v1.x - v0.x) * (v2.z - v0.z);
+            double nz = (v1.x - v0.x) * (v2.y - v0.y) - (v1.y - v0.y) * (v2.x - v0.x);
+            double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length < JConstants.CHAI_TINY) {
+                continue;
+            }
+            nx /= length;
+            ny /= length;
+            nz /= length;
+
+            // orient the plane towards the proxy; a proxy lying in the plane
+            // gives no side
+            double distanceSq = JMaths.jClosestPointOnTriangle(proxyGlobalPosition, v0, v1, v2, closest);
+            double side = nx * (proxyGlobalPosition.x - closest.x)
+                    + ny * (proxyGlobalPosition.y - closest.y)
+                    + nz * (proxyGlobalPosition.z - closest.z);
+            if (Math.abs(side) < epsilon) {
+                continue;
+            }
+            if (side < 0) {
+                nx = -nx;
+                ny = -ny;
+                nz = -nz;
+            }
+
+            double offset = nx * v0.x + ny * v0.y + nz * v0.z + proxyRadius;
+            planes.add(new double[]{distanceSq, nx, ny, nz, offset,
+                        mesh.getMaterial().getStiffness()});
+        }
+
+        double[][] result = planes.toArray(new double[planes.size()][]);
+        Arrays.sort(result, new Comparator<double[]>() {
+
+            public int compare(double[] aPlane1, double[] aPlane2) {
+                return (Double.compare(aPlane1[0], aPlane2[0]));
+            }
+        });
+        return (result);
+    }
+
+    /**
+     * Copy the settings of another proxy algorithm (radius, friction,
+     * shading, epsilons, collision settings and candidates), but not its
+     * state.
+     */
+    public void copySettings(JProxyPointForceAlgo aAlgo) {
+        proxyRadius = aAlgo.proxyRadius;
+        frictionEnabled = aAlgo.frictionEnabled;
+        dynamicProxyEnabled = aAlgo.dynamicProxyEnabled;
+        forceShadingEnabled = aAlgo.forceShadingEnabled;
+        frictionDynHysteresisMultiplier = aAlgo.frictionDynHysteresisMultiplier;
+        forceShadingAngleThreshold = aAlgo.forceShadingAngleThreshold;
+        epsilonInitialValue = aAlgo.epsilonInitialValue;
+        epsilonBaseValue = aAlgo.epsilonBaseValue;
+        epsilonMinimalValue = aAlgo.epsilonMinimalValue;
+        epsilon = aAlgo.epsilon;
+        epsilonCollisionDetection = aAlgo.epsilonCollisionDetection;
+        collisionCandidates = aAlgo.collisionCandidates;
+
+        JCollisionSettings settings = aAlgo.collisionSettings;
+        collisionSettings.setCheckForNearestCollisionOnly(settings.isCheckForNearestCollisionOnly());
+        collisionSettings.setReturnMinimalCollisionData(settings.isReturnMinimalCollisionData());
+        collisionSettings.setCheckVisibleObjectsOnly(settings.isCheckVisibleObjectsOnly());
+        collisionSettings.setCheckHapticObjectsOnly(settings.isCheckHapticObjectsOnly());
+        collisionSettings.setCheckBothSidesOfTriangles(settings.isCheckBothSidesOfTriangles());
+        collisionSettings.setAdjustObjectMotion(settings.isAdjustObjectMotion());
+        collisionSettings.setCollisionRadius(settings.getCollisionRadius());
+        collisionSettings.setParallelTraversal(settings.isParallelTraversal());
+    }
+
     /**
      * Set radius of proxy.
      */
@@ -351,7 +607,8 @@ public class JProxyPointForceAlgo extends JGenericPointForceAlgo {
         if (dynamicProxyEnabled) {
             targetPos = new JVector3d(goalGlobalPos);
         } else {
-            targetPos = JMaths.jAdd(goalGlobalPos, JMaths.jMul(epsilonCollisionDetection, vProxyToGoalNormalized));
+            targetPos = new JVector3d();
+            JMaths.jAddScaled(goalGlobalPos, epsilonCollisionDetection, vProxyToGoalNormalized, targetPos);
         }
 
         // setup collision detector
@@ -363,7 +620,7 @@ public class JProxyPointForceAlgo extends JGenericPointForceAlgo {
         collisionRecorderConstraint0.clear();
         p.copyFrom(proxyGlobalPosition);
         d.copyFrom(targetPos);
-        boolean hit = parentWorld.computeCollisionDetection(proxyGlobalPosition,
+        boolean hit = computeCollisionDetection(proxyGlobalPosition,
                 targetPos,
                 collisionRecorderConstraint0,
                 collisionSettings);
@@ -512,7 +769,8 @@ public class JProxyPointForceAlgo extends JGenericPointForceAlgo {
         // For this we create a segment that goes from the proxy position to
         // the goal position plus a little extra to take into account the
         // physical radius of the proxy.
-        JVector3d targetPos = JMaths.jAdd(goalGlobalPos, JMaths.jMul(epsilonCollisionDetection, vProxyToGoalNormalized));
+        JVector3d targetPos = new JVector3d();
+        JMaths.jAddScaled(goalGlobalPos, epsilonCollisionDetection, vProxyToGoalNormalized, targetPos);
 
         // setup collision detector
         collisionSettings.setCollisionRadius(proxyRadius);
@@ -520,7 +778,7 @@ public class JProxyPointForceAlgo extends JGenericPointForceAlgo {
         // search for collision
         collisionSettings.setAdjustObjectMotion(false);
         collisionRecorderConstraint1.clear();
-        boolean hit = parentWorld.computeCollisionDetection(proxyGlobalPosition,
+        boolean hit = computeCollisionDetection(proxyGlobalPosition,
                 targetPos,
                 collisionRecorderConstraint1,
                 collisionSettings);
@@ -671,7 +929,8 @@ public class JProxyPointForceAlgo extends JGenericPointForceAlgo {
         // For this we create a segment that goes from the proxy position to
         // the goal position plus a little extra to take into account the
         // physical radius of the proxy.
-        JVector3d targetPos = JMaths.jAdd(goalGlobalPos, JMaths.jMul(epsilonCollisionDetection, vProxyToGoalNormalized));
+        JVector3d targetPos = new JVector3d();
+        JMaths.jAddScaled(goalGlobalPos, epsilonCollisionDetection, vProxyToGoalNormalized, targetPos);
 
         // setup collision detector
         collisionSettings.setCollisionRadius(proxyRadius);
@@ -679,7 +938,7 @@ public class JProxyPointForceAlgo extends JGenericPointForceAlgo {
         // search for collision
         collisionSettings.setAdjustObjectMotion(false);
         collisionRecorderConstraint2.clear();
-        boolean hit = parentWorld.computeCollisionDetection(proxyGlobalPosition,
+        boolean hit = computeCollisionDetection(proxyGlobalPosition,
                 targetPos,
                 collisionRecorderConstraint2,
                 collisionSettings);
@@ -1090,9 +1349,10 @@ public class JProxyPointForceAlgo extends JGenericPointForceAlgo {
 
         if ((forceShadingEnabled) && (contactCount == 1)) {
             // get vertices and normals related to contact triangle
-            JVector3d vertex0 = JMaths.jAdd(contactPoint0.getObject().getGlobalPosition(), JMaths.jMul(contactPoint0.getObject().getGlobalRotation(), contactPoint0.getTriangle().getVertex0().getPosition()));
-            JVector3d vertex1 = JMaths.jAdd(contactPoint0.getObject().getGlobalPosition(), JMaths.jMul(contactPoint0.getObject().getGlobalRotation(), contactPoint0.getTriangle().getVertex1().getPosition()));
-            JVector3d vertex2 = JMaths.jAdd(contactPoint0.getObject().getGlobalPosition(), JMaths.jMul(contactPoint0.getObject().getGlobalRotation(), contactPoint0.getTriangle().getVertex2().getPosition()));
+            JVector3d vertex0 = new JVector3d();
+            JVector3d vertex1 = new JVector3d();
+            JVector3d vertex2 = new JVector3d();
+            contactPoint0.getTriangle().computeGlobalVertices(vertex0, vertex1, vertex2);
             JVector3d normal0 = JMaths.jMul(contactPoint0.getObject().getGlobalRotation(), contactPoint0.getTriangle().getVertex0().getNormal());
             JVector3d normal1 = JMaths.jMul(contactPoint0.getObject().getGlobalRotation(), contactPoint0.getTriangle().getVertex1().getNormal());
             JVector3d normal2 = JMaths.jMul(contactPoint0.getObject().getGlobalRotation(), contactPoint0.getTriangle().getVertex2().getNormal());
@@ -16,6 +16,7 @@
  */
 package org.jchai3d.graphics;
 
+import java.util.concurrent.atomic.AtomicLong;
 import com.jogamp.opengl.GL2;
 import com.jogamp.opengl.GLContext;
 import org.jchai3d.math.JMaths;
@@ -57,6 +58,8 @@ public class JMaterial {
     protected double stickSlipForceMax;
     //! Spring stiffness of stick slip model.
     protected double stickSlipStiffness;
+    //! Modification counter of the haptic properties, read by the haptic thread.
+    protected final AtomicLong version = new AtomicLong();
     //-----------------------------------------------------------------------
     // MEMBERS - GRAPHICS PROPERTIES:
     //-----------------------------------------------------------------------
@@ -156,6 +159,7 @@ public class JMaterial {
      */
     public void setStiffness(double aStiffness) {
         stiffness = JMaths.jClamp0(aStiffness);
+        version.incrementAndGet();
     }
 
     /**
@@ -174,6 +178,7 @@ public class JMaterial {
      */
     public void setStaticFriction(double aFriction) {
         staticFriction = JMaths.jClamp0(aFriction);
+        version.incrementAndGet();
     }
 
     /**
@@ -192,6 +197,7 @@ public class JMaterial {
      */
     public void setDynamicFriction(double aFriction) {
         dynamicFriction = JMaths.jClamp0(aFriction);
+        version.incrementAndGet();
     }
 
     /**
@@ -210,6 +216,7 @@ public class JMaterial {
      */
     public void setViscosity(double aViscosity) {
         viscosity = JMaths.jClamp0(aViscosity);
+        version.incrementAndGet();
     }
 
     /**
@@ -228,6 +235,7 @@ public class JMaterial {
      */
     public void setVibrationFrequency(double aVibrationFrequency) {
         vibrationFrequency = JMaths.jClamp0(aVibrationFrequency);
+        version.incrementAndGet();
     }
 
     /**
@@ -246,6 +254,7 @@ public class JMaterial {
      */
     public void setVibrationAmplitude(double aVibrationAmplitude) {
         vibrationAmplitude = JMaths.jClamp0(aVibrationAmplitude);
+        version.incrementAndGet();
     }
 
     /**
@@ -264,6 +273,7 @@ public class JMaterial {
      */
     public void setMagnetMaxForce(double aMagnetMaxForce) {
         magnetMaxForce = JMaths.jClamp0(aMagnetMaxForce);
+        version.incrementAndGet();
     }
 
     /**
@@ -283,6 +293,7 @@ public class JMaterial {
      */
     public void setMagnetMaxDistance(double aMagnetMaxDistance) {
         magnetMaxDistance = JMaths.jClamp0(aMagnetMaxDistance);
+        version.incrementAndGet();
     }
 
     /**
@@ -302,6 +313,7 @@ public class JMaterial {
      */
     public void setStickSlipForceMax(double aStickSlipForceMax) {
         stickSlipForceMax = JMaths.jClamp0(aStickSlipForceMax);
+        version.incrementAndGet();
     }
 
     /**
@@ -320,6 +332,7 @@ public class JMaterial {
      */
     public void setStickSlipStiffness(double aStickSlipStiffness) {
         stickSlipStiffness = JMaths.jClamp0(aStickSlipStiffness);
+        version.incrementAndGet();
     }
 
     //! Get the stiffness for the stick and slip model [N/m]
@@ -327,6 +340,17 @@ public class JMaterial {
         return (stickSlipStiffness);
     }
 
+    /**
+     * //! Get the modification counter of the haptic properties. It is
+     * incremented by every haptic setter, so that force effects can detect
+     * that their precomputed parameters are out of date.
+     *
+     * @return
+     */
+    public final long getVersion() {
+        return (version.get());
+    }
+
     /**
      * Render this material in OpenGL2.
      */
@@ -414,6 +438,7 @@ public class JMaterial {
             this.magnetMaxDistance = m.magnetMaxDistance;
             this.stickSlipForceMax = m.stickSlipForceMax;
             this.stickSlipStiffness = m.stiffness;
+            version.incrementAndGet();
         }
     }
 }
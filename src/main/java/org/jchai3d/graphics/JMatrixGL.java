@@ -50,8 +50,10 @@ public class JMatrixGL {
     //-----------------------------------------------------------------------
     // MEMBERS:
     //-----------------------------------------------------------------------
-    //! array of type \e double, defining the actual transformation
-    private double[][] m = new double[4][4];
+    //! array of type \e double, defining the actual transformation. The
+    //! 16 values are stored in the order expected by OpenGL, so that the
+    //! array can be passed to glLoadMatrixd/glMultMatrixd as it is.
+    private final double[] m = new double[16];
 
     //-----------------------------------------------------------------------
     // CONSTRUCTOR & DESTRUCTOR:
@@ -64,12 +66,13 @@ public class JMatrixGL {
     // METHODS:
     //-----------------------------------------------------------------------
     /**
-     * Returns a pointer to the matrix array in memory.
+     * Returns a pointer to the matrix array in memory. The array is not
+     * copied and must not be modified.
      * @return
      */
     public final double[] pMatrix() {
 
-        return toArray();
+        return m;
     }
 
     /**
@@ -78,22 +81,22 @@ public class JMatrixGL {
      * @param aPos
      */
     public void set(final JVector3d aPos) {
-        m[0][0] = 1.0;
-        m[0][1] = 0.0;
-        m[0][2] = 0.0;
-        m[0][3] = 0.0;
-        m[1][0] = 0.0;
-        m[1][1] = 1.0;
-        m[1][2] = 0.0;
-        m[1][3] = 0.0;
-        m[2][0] = 0.0;
-        m[2][1] = 0.0;
-        m[2][2] = 1.0;
-        m[2][3] = 0.0;
-        m[3][0] = aPos.getX();
-        m[3][1] = aPos.getY();
-        m[3][2] = aPos.getZ();
-        m[3][3] = 1.0;
+        m[0] = 1.0;
+        m[1] = 0.0;
+        m[2] = 0.0;
+        m[3] = 0.0;
+        m[4] = 0.0;
+        m[5] = 1.0;
+        m[6] = 0.0;
+        m[7] = 0.0;
+        m[8] = 0.0;
+        m[9] = 0.0;
+        m[10] = 1.0;
+        m[11] = 0.0;
+        m[12] = aPos.getX();
+        m[13] = aPos.getY();
+        m[14] = aPos.getZ();
+        m[15] = 1.0;
     }
 
     /**
@@ -101,7 +104,7 @@ public class JMatrixGL {
      * @return
      */
     public final JVector3d getPos() {
-        return new JVector3d(m[3][0], m[3][1], m[3][2]);
+        return new JVector3d(m[12], m[13], m[14]);
     }
 
     /**
@@ -110,9 +113,9 @@ public class JMatrixGL {
      */
     public final JMatrix3d getRot() {
         JMatrix3d mat = new JMatrix3d();
-        mat.set(m[0][0], m[1][0], m[2][0],
-                m[0][1], m[1][1], m[2][1],
-                m[0][2], m[1][2], m[2][2]);
+        mat.set(m[0], m[4], m[8],
+                m[1], m[5], m[9],
+                m[2], m[6], m[10]);
         return mat;
     }
 
@@ -122,22 +125,22 @@ public class JMatrixGL {
      * @param aRot
      */
     public void set(final JMatrix3d aRot) {
-        m[0][0] = aRot.m[0][0];
-        m[0][1] = aRot.m[1][0];
-        m[0][2] = aRot.m[2][0];
-        m[0][3] = 0.0;
-        m[1][0] = aRot.m[0][1];
-        m[1][1] = aRot.m[1][1];
-        m[1][2] = aRot.m[2][1];
-        m[1][3] = 0.0;
-        m[2][0] = aRot.m[0][2];
-        m[2][1] = aRot.m[1][2];
-        m[2][2] = aRot.m[2][2];
-        m[2][3] = 0.0;
-        m[3][0] = 0.0;
-        m[3][1] = 0.0;
-        m[3][2] = 0.0;
-        m[3][3] = 1.0;
+        m[0] = aRot.m00;
+        m[1] = aRot.m10;
+        m[2] = aRot.m20;
+        m[3] = 0.0;
+        m[4] = aRot.m01;
+        m[5] = aRot.m11;
+        m[6] = aRot.m21;
+        m[7] = 0.0;
+        m[8] = aRot.m02;
+        m[9] = aRot.m12;
+        m[10] = aRot.m22;
+        m[11] = 0.0;
+        m[12] = 0.0;
+        m[13] = 0.0;
+        m[14] = 0.0;
+        m[15] = 1.0;
     }
 
     /**
@@ -147,22 +150,22 @@ public class JMatrixGL {
      * @param aRot
      */
     public void set(final JVector3d aPos, final JMatrix3d aRot) {
-        m[0][0] = aRot.m[0][0];
-        m[0][1] = aRot.m[1][0];
-        m[0][2] = aRot.m[2][0];
-        m[0][3] = 0.0;
-        m[1][0] = aRot.m[0][1];
-        m[1][1] = aRot.m[1][1];
-        m[1][2] = aRot.m[2][1];
-        m[1][3] = 0.0;
-        m[2][0] = aRot.m[0][2];
-        m[2][1] = aRot.m[1][2];
-        m[2][2] = aRot.m[2][2];
-        m[2][3] = 0.0;
-        m[3][0] = aPos.getX();
-        m[3][1] = aPos.getY();
-        m[3][2] = aPos.getZ();
-        m[3][3] = 1.0;
+        m[0] = aRot.m00;
+        m[1] = aRot.m10;
+        m[2] = aRot.m20;
+        m[3] = 0.0;
+        m[4] = aRot.m01;
+        m[5] = aRot.m11;
+        m[6] = aRot.m21;
+        m[7] = 0.0;
+        m[8] = aRot.m02;
+        m[9] = aRot.m12;
+        m[10] = aRot.m22;
+        m[11] = 0.0;
+        m[12] = aPos.getX();
+        m[13] = aPos.getY();
+        m[14] = aPos.getZ();
+        m[15] = 1.0;
     }
 
     /**
@@ -170,22 +173,22 @@ public class JMatrixGL {
      * @param aDestination
      */
     public final void copyto(JMatrixGL aDestination) {
-        aDestination.m[0][0] = m[0][0];
-        aDestination.m[0][1] = m[0][1];
-        aDestination.m[0][2] = m[0][2];
-        aDestination.m[0][3] = m[0][3];
-        aDestination.m[1][0] = m[1][0];
-        aDestination.m[1][1] = m[1][1];
-        aDestination.m[1][2] = m[1][2];
-        aDestination.m[1][3] = m[1][3];
-        aDestination.m[2][0] = m[2][0];
-        aDestination.m[2][1] = m[2][1];
-        aDestination.m[2][2] = m[2][2];
-        aDestination.m[2][3] = m[2][3];
-        aDestination.m[3][0] = m[3][0];
-        aDestination.m[3][1] = m[3][1];
-        aDestination.m[3][2] = m[3][2];
-        aDestination.m[3][3] = m[3][3];
+        aDestination.m[0] = m[0];
+        aDestination.m[1] = m[1];
+        aDestination.m[2] = m[2];
+        aDestination.m[3] = m[3];
+        aDestination.m[4] = m[4];
+        aDestination.m[5] = m[5];
+        aDestination.m[6] = m[6];
+        aDestination.m[7] = m[7];
+        aDestination.m[8] = m[8];
+        aDestination.m[9] = m[9];
+        aDestination.m[10] = m[10];
+        aDestination.m[11] = m[11];
+        aDestination.m[12] = m[12];
+        aDestination.m[13] = m[13];
+        aDestination.m[14] = m[14];
+        aDestination.m[15] = m[15];
     }
 
     /**
@@ -193,44 +196,44 @@ public class JMatrixGL {
      * @param aSource
      */
     public void copyfrom(final JMatrixGL aSource) {
-        m[0][0] = aSource.m[0][0];
-        m[0][1] = aSource.m[0][1];
-        m[0][2] = aSource.m[0][2];
-        m[0][3] = aSource.m[0][3];
-        m[1][0] = aSource.m[1][0];
-        m[1][1] = aSource.m[1][1];
-        m[1][2] = aSource.m[1][2];
-        m[1][3] = aSource.m[1][3];
-        m[2][0] = aSource.m[2][0];
-        m[2][1] = aSource.m[2][1];
-        m[2][2] = aSource.m[2][2];
-        m[2][3] = aSource.m[2][3];
-        m[3][0] = aSource.m[3][0];
-        m[3][1] = aSource.m[3][1];
-        m[3][2] = aSource.m[3][2];
-        m[3][3] = aSource.m[3][3];
+        m[0] = aSource.m[0];
+        m[1] = aSource.m[1];
+        m[2] = aSource.m[2];
+        m[3] = aSource.m[3];
+        m[4] = aSource.m[4];
+        m[5] = aSource.m[5];
+        m[6] = aSource.m[6];
+        m[7] = aSource.m[7];
+        m[8] = aSource.m[8];
+        m[9] = aSource.m[9];
+        m[10] = aSource.m[10];
+        m[11] = aSource.m[11];
+        m[12] = aSource.m[12];
+        m[13] = aSource.m[13];
+        m[14] = aSource.m[14];
+        m[15] = aSource.m[15];
     }
 
     /**
      * Set this matrix to be equal to the identity matrix.
      */
     public void identity() {
-        m[0][0] = 1.0;
-        m[0][1] = 0.0;
-        m[0][2] = 0.0;
-        m[0][3] = 0.0;
-        m[1][0] = 0.0;
-        m[1][1] = 1.0;
-        m[1][2] = 0.0;
-        m[1][3] = 0.0;
-        m[2][0] = 0.0;
-        m[2][1] = 0.0;
-        m[2][2] = 1.0;
-        m[2][3] = 0.0;
-        m[3][0] = 0.0;
-        m[3][1] = 0.0;
-        m[3][2] = 0.0;
-        m[3][3] = 1.0;
+        m[0] = 1.0;
+        m[1] = 0.0;
+        m[2] = 0.0;
+        m[3] = 0.0;
+        m[4] = 0.0;
+        m[5] = 1.0;
+        m[6] = 0.0;
+        m[7] = 0.0;
+        m[8] = 0.0;
+        m[9] = 0.0;
+        m[10] = 1.0;
+        m[11] = 0.0;
+        m[12] = 0.0;
+        m[13] = 0.0;
+        m[14] = 0.0;
+        m[15] = 1.0;
     }
 
     /**
@@ -246,59 +249,59 @@ public class JMatrixGL {
      */
     public void mul(final JMatrixGL aMatrix) {
         // compute multiplication between both matrices
-        double m00 = m[0][0] * aMatrix.m[0][0] + m[0][1] * aMatrix.m[1][0]
-                + m[0][2] * aMatrix.m[2][0] + m[0][3] * aMatrix.m[3][0];
-        double m01 = m[0][0] * aMatrix.m[0][1] + m[0][1] * aMatrix.m[1][1]
-                + m[0][2] * aMatrix.m[2][1] + m[0][3] * aMatrix.m[3][1];
-        double m02 = m[0][0] * aMatrix.m[0][2] + m[0][1] * aMatrix.m[1][2]
-                + m[0][2] * aMatrix.m[2][2] + m[0][3] * aMatrix.m[3][2];
-        double m03 = m[0][0] * aMatrix.m[0][3] + m[0][1] * aMatrix.m[1][3]
-                + m[0][2] * aMatrix.m[2][3] + m[0][3] * aMatrix.m[3][3];
-
-        double m10 = m[1][0] * aMatrix.m[0][0] + m[1][1] * aMatrix.m[1][0]
-                + m[1][2] * aMatrix.m[2][0] + m[1][3] * aMatrix.m[3][0];
-        double m11 = m[1][0] * aMatrix.m[0][1] + m[1][1] * aMatrix.m[1][1]
-                + m[1][2] * aMatrix.m[2][1] + m[1][3] * aMatrix.m[3][1];
-        double m12 = m[1][0] * aMatrix.m[0][2] + m[1][1] * aMatrix.m[1][2]
-                + m[1][2] * aMatrix.m[2][2] + m[1][3] * aMatrix.m[3][2];
-        double m13 = m[1][0] * aMatrix.m[0][3] + m[1][1] * aMatrix.m[1][3]
-                + m[1][2] * aMatrix.m[2][3] + m[1][3] * aMatrix.m[3][3];
-
-        double m20 = m[2][0] * aMatrix.m[0][0] + m[2][1] * aMatrix.m[1][0]
-                + m[2][2] * aMatrix.m[2][0] + m[2][3] * aMatrix.m[3][0];
-        double m21 = m[2][0] * aMatrix.m[0][1] + m[2][1] * aMatrix.m[1][1]
-                + m[2][2] * aMatrix.m[2][1] + m[2][3] * aMatrix.m[3][1];
-        double m22 = m[2][0] * aMatrix.m[0][2] + m[2][1] * aMatrix.m[1][2]
-                + m[2][2] * aMatrix.m[2][2] + m[2][3] * aMatrix.m[3][2];
-        double m23 = m[2][0] * aMatrix.m[0][3] + m[2][1] * aMatrix.m[1][3]
-                + m[2][2] * aMatrix.m[2][3] + m[2][3] * aMatrix.m[3][3];
-
-        double m30 = m[3][0] * aMatrix.m[0][0] + m[3][1] * aMatrix.m[1][0]
-                + m[3][2] * aMatrix.m[2][0] + m[3][3] * aMatrix.m[3][0];
-        double m31 = m[3][0] * aMatrix.m[0][1] + m[3][1] * aMatrix.m[1][1]
-                + m[3][2] * aMatrix.m[2][1] + m[3][3] * aMatrix.m[3][1];
-        double m32 = m[3][0] * aMatrix.m[0][2] + m[3][1] * aMatrix.m[1][2]
-                + m[3][2] * aMatrix.m[2][2] + m[3][3] * aMatrix.m[3][2];
-        double m33 = m[3][0] * aMatrix.m[0][3] + m[3][1] * aMatrix.m[1][3]
-                + m[3][2] * aMatrix.m[2][3] + m[3][3] * aMatrix.m[3][3];
+        double m00 = m[0] * aMatrix.m[0] + m[1] * aMatrix.m[4]
+                + m[2] * aMatrix.m[8] + m[3] * aMatrix.m[12];
+        double m01 = m[0] * aMatrix.m[1] + m[1] * aMatrix.m[5]
+                + m[2] * aMatrix.m[9] + m[3] * aMatrix.m[13];
+        double m02 = m[0] * aMatrix.m[2] + m[1] * aMatrix.m[6]
+                + m[2] * aMatrix.m[10] + m[3] * aMatrix.m[14];
+        double m03 = m[0] * aMatrix.m[3] + m[1] * aMatrix.m[7]
+                + m[2] * aMatrix.m[11] + m[3] * aMatrix.m[15];
+
+        double m10 = m[4] * aMatrix.m[0] + m[5] * aMatrix.m[4]
+                + m[6] * aMatrix.m[8] + m[7] * aMatrix.m[12];
+        double m11 = m[4] * aMatrix.m[1] + m[5] * aMatrix.m[5]
+                + m[6] * aMatrix.m[9] + m[7] * aMatrix.m[13];
+        double m12 = m[4] * aMatrix.m[2] + m[5] * aMatrix.m[6]
+                + m[6] * aMatrix.m[10] + m[7] * aMatrix.m[14];
+        double m13 = m[4] * aMatrix.m[3] + m[5] * aMatrix.m[7]
+                + m[6] * aMatrix.m[11] + m[7] * aMatrix.m[15];
+
+        double m20 = m[8] * aMatrix.m[0] + m[9] * aMatrix.m[4]
+                + m[10] * aMatrix.m[8] + m[11] * aMatrix.m[12];
+        double m21 = m[8] * aMatrix.m[1] + m[9] * aMatrix.m[5]
+                + m[10] * aMatrix.m[9] + m[11] * aMatrix.m[13];
+        double m22 = m[8] * aMatrix.m[2] + m[9] * aMatrix.m[6]
+                + m[10] * aMatrix.m[10] + m[11] * aMatrix.m[14];
+        double m23 = m[8] * aMatrix.m[3] + m[9] * aMatrix.m[7]
+                + m[10] * aMatrix.m[11] + m[11] * aMatrix.m[15];
+
+        double m30 = m[12] * aMatrix.m[0] + m[13] * aMatrix.m[4]
+                + m[14] * aMatrix.m[8] + m[15] * aMatrix.m[12];
+        double m31 = m[12] * aMatrix.m[1] + m[13] * aMatrix.m[5]
+                + m[14] * aMatrix.m[9] + m[15] * aMatrix.m[13];
+        double m32 = m[12] * aMatrix.m[2] + m[13] * aMatrix.m[6]
+                + m[14] * aMatrix.m[10] + m[15] * aMatrix.m[14];
+        double m33 = m[12] * aMatrix.m[3] + m[13] * aMatrix.m[7]
+                + m[14] * aMatrix.m[11] + m[15] * aMatrix.m[15];
 
         // return values to current matrix
-        m[0][0] = m00;
-        m[0][1] = m01;
-        m[0][2] = m02;
-        m[0][3] = m03;
-        m[1][0] = m10;
-        m[1][1] = m11;
-        m[1][2] = m12;
-        m[1][3] = m13;
-        m[2][0] = m20;
-        m[2][1] = m21;
-        m[2][2] = m22;
-        m[2][3] = m23;
-        m[3][0] = m30;
-        m[3][1] = m31;
-        m[3][2] = m32;
-        m[3][3] = m33;
+        m[0] = m00;
+        m[1] = m01;
+        m[2] = m02;
+        m[3] = m03;
+        m[4] = m10;
+        m[5] = m11;
+        m[6] = m12;
+        m[7] = m13;
+        m[8] = m20;
+        m[9] = m21;
+        m[10] = m22;
+        m[11] = m23;
+        m[12] = m30;
+        m[13] = m31;
+        m[14] = m32;
+        m[15] = m33;
     }
 
     /**
@@ -314,15 +317,15 @@ public class JMatrixGL {
      */
     public final void mulr(final JMatrix3d aMatrix, JMatrix3d aResult) {
         // compute multiplication between both matrices
-        aResult.m[0][0] = m[0][0] * aMatrix.m[0][0] + m[0][1] * aMatrix.m[1][0] + m[0][2] * aMatrix.m[2][0];
-        aResult.m[0][1] = m[0][0] * aMatrix.m[0][1] + m[0][1] * aMatrix.m[1][1] + m[0][2] * aMatrix.m[2][1];
-        aResult.m[0][2] = m[0][0] * aMatrix.m[0][2] + m[0][1] * aMatrix.m[1][2] + m[0][2] * aMatrix.m[2][2];
-        aResult.m[1][0] = m[1][0] * aMatrix.m[0][0] + m[1][1] * aMatrix.m[1][0] + m[1][2] * aMatrix.m[2][0];
-        aResult.m[1][1] = m[1][0] * aMatrix.m[0][1] + m[1][1] * aMatrix.m[1][1] + m[1][2] * aMatrix.m[2][1];
-        aResult.m[1][2] = m[1][0] * aMatrix.m[0][2] + m[1][1] * aMatrix.m[1][2] + m[1][2] * aMatrix.m[2][2];
-        aResult.m[2][0] = m[2][0] * aMatrix.m[0][0] + m[2][1] * aMatrix.m[1][0] + m[2][2] * aMatrix.m[2][0];
-        aResult.m[2][1] = m[2][0] * aMatrix.m[0][1] + m[2][1] * aMatrix.m[1][1] + m[2][2] * aMatrix.m[2][1];
-        aResult.m[2][2] = m[2][0] * aMatrix.m[0][2] + m[2][1] * aMatrix.m[1][2] + m[2][2] * aMatrix.m[2][2];
+        aResult.m00 = m[0] * aMatrix.m00 + m[1] * aMatrix.m10 + m[2] * aMatrix.m20;
+        aResult.m01 = m[0] * aMatrix.m01 + m[1] * aMatrix.m11 + m[2] * aMatrix.m21;
+        aResult.m02 = m[0] * aMatrix.m02 + m[1] * aMatrix.m12 + m[2] * aMatrix.m22;
+        aResult.m10 = m[4] * aMatrix.m00 + m[5] * aMatrix.m10 + m[6] * aMatrix.m20;
+        aResult.m11 = m[4] * aMatrix.m01 + m[5] * aMatrix.m11 + m[6] * aMatrix.m21;
+        aResult.m12 = m[4] * aMatrix.m02 + m[5] * aMatrix.m12 + m[6] * aMatrix.m22;
+        aResult.m20 = m[8] * aMatrix.m00 + m[9] * aMatrix.m10 + m[10] * aMatrix.m20;
+        aResult.m21 = m[8] * aMatrix.m01 + m[9] * aMatrix.m11 + m[10] * aMatrix.m21;
+        aResult.m22 = m[8] * aMatrix.m02 + m[9] * aMatrix.m12 + m[10] * aMatrix.m22;
     }
 
     /**
@@ -331,24 +334,24 @@ public class JMatrixGL {
     public void trans() {
         double t;
 
-        t = m[0][1];
-        m[0][1] = m[1][0];
-        m[1][0] = t;
-        t = m[0][2];
-        m[0][2] = m[2][0];
-        m[2][0] = t;
-        t = m[0][3];
-        m[0][3] = m[3][0];
-        m[3][0] = t;
-        t = m[1][2];
-        m[1][2] = m[2][1];
-        m[2][1] = t;
-        t = m[1][3];
-        m[1][3] = m[3][1];
-        m[3][1] = t;
-        t = m[2][3];
-        m[2][3] = m[3][2];
-        m[3][2] = t;
+        t = m[1];
+        m[1] = m[4];
+        m[4] = t;
+        t = m[2];
+        m[2] = m[8];
+        m[8] = t;
+        t = m[3];
+        m[3] = m[12];
+        m[12] = t;
+        t = m[6];
+        m[6] = m[9];
+        m[9] = t;
+        t = m[7];
+        m[7] = m[13];
+        m[13] = t;
+        t = m[11];
+        m[11] = m[14];
+        m[14] = t;
     }
 
     /**
@@ -356,25 +359,25 @@ public class JMatrixGL {
      * @param aResult
      */
     public final void transr(JMatrixGL aResult) {
-        aResult.m[0][0] = m[0][0];
-        aResult.m[0][1] = m[1][0];
-        aResult.m[0][2] = m[2][0];
-        aResult.m[0][3] = m[3][0];
-
-        aResult.m[1][0] = m[0][1];
-        aResult.m[1][1] = m[1][1];
-        aResult.m[1][2] = m[2][1];
-        aResult.m[1][3] = m[3][1];
-
-        aResult.m[2][0] = m[0][2];
-        aResult.m[2][1] = m[1][2];
-        aResult.m[2][2] = m[2][2];
-        aResult.m[2][3] = m[3][2];
-
-        aResult.m[3][0] = m[0][3];
-        aResult.m[3][1] = m[1][3];
-        aResult.m[3][2] = m[2][3];
-        aResult.m[3][3] = m[3][3];
+        aResult.m[0] = m[0];
+        aResult.m[1] = m[4];
+        aResult.m[2] = m[8];
+        aResult.m[3] = m[12];
+
+        aResult.m[4] = m[1];
+        aResult.m[5] = m[5];
+        aResult.m[6] = m[9];
+        aResult.m[7] = m[13];
+
+        aResult.m[8] = m[2];
+        aResult.m[9] = m[6];
+        aResult.m[10] = m[10];
+        aResult.m[11] = m[14];
+
+        aResult.m[12] = m[3];
+        aResult.m[13] = m[7];
+        aResult.m[14] = m[11];
+        aResult.m[15] = m[15];
     }
 
     /**
@@ -389,25 +392,25 @@ public class JMatrixGL {
      */
     public void buildFrustumMatrix(double l, double r, double b, double t,
             double n, double f) {
-        m[0][0] = (2.0 * n) / (r - l);
-        m[0][1] = 0.0;
-        m[0][2] = 0.0;
-        m[0][3] = 0.0;
-
-        m[1][0] = 0.0;
-        m[1][1] = (2.0 * n) / (t - b);
-        m[1][2] = 0.0;
-        m[1][3] = 0.0;
-
-        m[2][0] = (r + l) / (r - l);
-        m[2][1] = (t + b) / (t - b);
-        m[2][2] = -(f + n) / (f - n);
-        m[2][3] = -1.0;
-
-        m[3][0] = 0.0;
-        m[3][1] = 0.0;
-        m[3][2] = -(2.0 * f * n) / (f - n);
-        m[3][3] = 0.0;
+        m[0] = (2.0 * n) / (r - l);
+        m[1] = 0.0;
+        m[2] = 0.0;
+        m[3] = 0.0;
+
+        m[4] = 0.0;
+        m[5] = (2.0 * n) / (t - b);
+        m[6] = 0.0;
+        m[7] = 0.0;
+
+        m[8] = (r + l) / (r - l);
+        m[9] = (t + b) / (t - b);
+        m[10] = -(f + n) / (f - n);
+        m[11] = -1.0;
+
+        m[12] = 0.0;
+        m[13] = 0.0;
+        m[14] = -(2.0 * f * n) / (f - n);
+        m[15] = 0.0;
     }
 
     private static void SWAP_ROWS(double[] a, double[] b) {
@@ -423,8 +426,6 @@ public class JMatrixGL {
      */
     public boolean invert() {
 
-        double[] mat = toArray();
-
         double[][] wtmp = new double[4][8];
         double m0, m1, m2, m3, s;
         double[] r0 = new double[3];
@@ -440,10 +441,10 @@ public class JMatrixGL {
 
 
 
-        r0[0] = m[0][0];
-        r0[1] = m[0][1];
-        r0[2] = m[0][2];
-        r0[3] = m[0][3];
+        r0[0] = m[0];
+        r0[1] = m[1];
+        r0[2] = m[2];
+        r0[3] = m[3];
         r0[4] = 1.0;
         r0[5] = 0.0;
         r0[6] = 0.0;
@@ -456,10 +457,10 @@ public class JMatrixGL {
 
 
 
-        r1[0] = m[1][0];
-        r1[1] = m[1][1];
-        r1[2] = m[1][2];
-        r1[3] = m[1][3];
+        r1[0] = m[4];
+        r1[1] = m[5];
+        r1[2] = m[6];
+        r1[3] = m[7];
         r1[4] = 0.0;
         r1[5] = 1.0;
         r1[6] = 0.0;
@@ -468,19 +469,19 @@ public class JMatrixGL {
 
 
 
-        r2[0] = m[2][0];
-        r2[1] = m[2][1];
-        r2[2] = m[2][2];
-        r2[3] = m[2][3];
+        r2[0] = m[8];
+        r2[1] = m[9];
+        r2[2] = m[10];
+        r2[3] = m[11];
         r2[4] = 0.0;
         r2[5] = 0.0;
         r2[6] = 1.0;
         r2[7] = 0.0;
 
-        r3[0] = m[3][0];
-        r3[1] = m[3][1];
-        r3[2] = m[3][2];
-        r3[3] = m[3][3];
+        r3[0] = m[12];
+        r3[1] = m[13];
+        r3[2] = m[14];
+        r3[3] = m[15];
         r3[4] = 0.0;
         r3[5] = 0.0;
         r3[6] = 0.0;
@@ -698,25 +699,25 @@ public class JMatrixGL {
 
 
 
-        m[0][0] = r0[4];
-        m[0][1] = r0[5];
-        m[0][2] = r0[6];
-        m[0][3] = r0[7];
+        m[0] = r0[4];
+        m[1] = r0[5];
+        m[2] = r0[6];
+        m[3] = r0[7];
 
-        m[1][0] = r1[4];
-        m[1][1] = r1[5];
-        m[1][2] = r1[6];
-        m[1][3] = r1[7];
+        m[4] = r1[4];
+        m[5] = r1[5];
+        m[6] = r1[6];
+        m[7] = r1[7];
 
-        m[2][0] = r2[4];
-        m[2][1] = r2[5];
-        m[2][2] = r2[6];
-        m[2][3] = r2[7];
+        m[8] = r2[4];
+        m[9] = r2[5];
+        m[10] = r2[6];
+        m[11] = r2[7];
 
-        m[3][0] = r3[4];
-        m[3][1] = r3[5];
-        m[3][2] = r3[6];
-        m[3][3] = r3[7];
+        m[12] = r3[4];
+        m[13] = r3[5];
+        m[14] = r3[6];
+        m[15] = r3[7];
 
         return true;
     }
@@ -806,22 +807,22 @@ public class JMatrixGL {
             y[2] /= mag;
         }
 
-        m[0][0] = x[0];
-        m[1][0] = x[1];
-        m[2][0] = x[2];
-        m[3][0] = -x[0] * eyex + -x[1] * eyey + -x[2] * eyez;
-        m[0][1] = y[0];
-        m[1][1] = y[1];
-        m[2][1] = y[2];
-        m[3][1] = -y[0] * eyex + -y[1] * eyey + -y[2] * eyez;
-        m[0][2] = z[0];
-        m[1][2] = z[1];
-        m[2][2] = z[2];
-        m[3][2] = -z[0] * eyex + -z[1] * eyey + -z[2] * eyez;
-        m[0][3] = 0.0;
-        m[1][3] = 0.0;
-        m[2][3] = 0.0;
-        m[3][3] = 1.0;
+        m[0] = x[0];
+        m[4] = x[1];
+        m[8] = x[2];
+        m[12] = -x[0] * eyex + -x[1] * eyey + -x[2] * eyez;
+        m[1] = y[0];
+        m[5] = y[1];
+        m[9] = y[2];
+        m[13] = -y[0] * eyex + -y[1] * eyey + -y[2] * eyez;
+        m[2] = z[0];
+        m[6] = z[1];
+        m[10] = z[2];
+        m[14] = -z[0] * eyex + -z[1] * eyey + -z[2] * eyez;
+        m[3] = 0.0;
+        m[7] = 0.0;
+        m[11] = 0.0;
+        m[15] = 1.0;
     }
 
     /**
@@ -883,7 +884,7 @@ public class JMatrixGL {
         for (int i = 0; i < 4; i++) {
             aString.concat("( ");
             for (int j = 0; j < 4; j++) {
-                JString.jStr(aString, m[j][i], aPrecision);
+                JString.jStr(aString, m[4 * j + i], aPrecision);
                 if (j < 3) {
                     aString.concat(", ");
                 }
@@ -893,27 +894,13 @@ public class JMatrixGL {
         aString.concat("]");
     }
 
+    /**
+     * Returns a copy of the matrix array.
+     * @return
+     */
     public double[] toArray() {
         double[] k = new double[16];
-        k[0] = m[0][0];
-        k[1] = m[0][1];
-        k[2] = m[0][2];
-        k[3] = m[0][3];
-
-        k[4] = m[1][0];
-        k[5] = m[1][1];
-        k[6] = m[1][2];
-        k[7] = m[1][3];
-
-        k[8] = m[2][0];
-        k[9] = m[2][1];
-        k[10] = m[2][2];
-        k[11] = m[2][3];
-
-        k[12] = m[3][0];
-        k[13] = m[3][1];
-        k[14] = m[3][2];
-        k[15] = m[3][3];
+        System.arraycopy(m, 0, k, 0, 16);
         return k;
     }
 
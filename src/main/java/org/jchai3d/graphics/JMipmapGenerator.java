@@ -0,0 +1,134 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.graphics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import org.jchai3d.extras.JWorkerThreads;
+
+/**
+ * JMipmapGenerator builds mipmap chains of 8 bit per component images stored
+ * in direct byte buffers. Each level is computed with a 2x2 box filter from
+ * the previous one; rows of large levels are split between worker threads.
+ * It is used by JTexture2D when the OpenGL implementation does not provide
+ * glGenerateMipmap.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMipmapGenerator {
+
+    /**
+     * Levels with fewer pixels than this are filtered by the calling thread.
+     */
+    public static int CHAI_MIPMAP_PARALLEL_THRESHOLD = 256 * 256;
+
+    /**
+     * Build all levels of a mipmap chain below a base image, down to 1x1.
+     *
+     * @param aBase base level, row after row, aComponents bytes per pixel.
+     * @param aWidth width of the base level.
+     * @param aHeight height of the base level.
+     * @param aComponents number of bytes per pixel (1 to 4).
+     * @return the levels 1..n as direct byte buffers.
+     */
+    public static ByteBuffer[] generate(ByteBuffer aBase, int aWidth, int aHeight, int aComponents) {
+        ArrayList<ByteBuffer> levels = new ArrayList<ByteBuffer>();
+
+        ByteBuffer src = aBase;
+        int width = aWidth;
+        int height = aHeight;
+
+        while (width > 1 || height > 1) {
+            int dstWidth = Math.max(1, width / 2);
+            int dstHeight = Math.max(1, height / 2);
+            ByteBuffer dst = ByteBuffer.allocateDirect(dstWidth * dstHeight * aComponents).order(ByteOrder.nativeOrder());
+
+            downsample(src, width, height, dst, dstWidth, dstHeight, aComponents);
+
+            levels.add(dst);
+            src = dst;
+            width = dstWidth;
+            height = dstHeight;
+        }
+
+        return (levels.toArray(new ByteBuffer[levels.size()]));
+    }
+
+    /**
+     * Compute one level from the previous one.
+     */
+    public static void downsample(final ByteBuffer aSrc, final int aSrcWidth, final int aSrcHeight,
+            final ByteBuffer aDst, final int aDstWidth, final int aDstHeight,
+            final int aComponents) {
+
+        // small level, filter here
+        if (aDstWidth * aDstHeight < CHAI_MIPMAP_PARALLEL_THRESHOLD) {
+            downsampleRows(aSrc, aSrcWidth, aSrcHeight, aDst, aDstWidth, aComponents, 0, aDstHeight);
+            return;
+        }
+
+        // split rows between workers
+        int numThreads = JWorkerThreads.getNumThreads();
+        int rowsPerTask = (aDstHeight + numThreads - 1) / numThreads;
+        ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+
+        for (int start = 0; start < aDstHeight; start += rowsPerTask) {
+            final int rowStart = start;
+            final int rowEnd = Math.min(aDstHeight, start + rowsPerTask);
+            tasks.add(new Runnable() {
+
+                public void run() {
+                    downsampleRows(aSrc, aSrcWidth, aSrcHeight, aDst, aDstWidth, aComponents, rowStart, rowEnd);
+                }
+            });
+        }
+        JWorkerThreads.runAll(tasks);
+    }
+
+    /**
+     * Filter a range of rows of the destination level. Absolute get/put are
+     * used so that several threads can share the buffers.
+     */
+    private static void downsampleRows(ByteBuffer aSrc, int aSrcWidth, int aSrcHeight,
+            ByteBuffer aDst, int aDstWidth, int aComponents,
+            int aRowStart, int aRowEnd) {
+
+        int srcStride = aSrcWidth * aComponents;
+
+        for (int y = aRowStart; y < aRowEnd; y++) {
+            int y0 = Math.min(2 * y, aSrcHeight - 1);
+            int y1 = Math.min(2 * y + 1, aSrcHeight - 1);
+            int row0 = y0 * srcStride;
+            int row1 = y1 * srcStride;
+            int dstIndex = y * aDstWidth * aComponents;
+
+            for (int x = 0; x < aDstWidth; x++) {
+                int x0 = Math.min(2 * x, aSrcWidth - 1) * aComponents;
+                int x1 = Math.min(2 * x + 1, aSrcWidth - 1) * aComponents;
+
+                for (int c = 0; c < aComponents; c++) {
+                    int sum = (aSrc.get(row0 + x0 + c) & 0xFF)
+                            + (aSrc.get(row0 + x1 + c) & 0xFF)
+                            + (aSrc.get(row1 + x0 + c) & 0xFF)
+                            + (aSrc.get(row1 + x1 + c) & 0xFF);
+                    aDst.put(dstIndex++, (byte) ((sum + 2) >> 2));
+                }
+            }
+        }
+    }
+}
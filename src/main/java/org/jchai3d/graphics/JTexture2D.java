@@ -16,19 +16,23 @@
  */
 package org.jchai3d.graphics;
 
-import com.jogamp.opengl.util.awt.ImageUtil;
 import com.jogamp.opengl.util.texture.TextureData;
 import com.jogamp.opengl.util.texture.TextureIO;
-import com.jogamp.opengl.util.texture.awt.AWTTextureIO;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
 import javax.imageio.ImageIO;
 import com.jogamp.opengl.GL;
 import com.jogamp.opengl.GL2;
 import com.jogamp.opengl.GLContext;
+import com.jogamp.opengl.GLProfile;
 import com.jogamp.opengl.glu.GLU;
 
 /**
@@ -65,7 +69,8 @@ public class JTexture2D {
      */
     protected int minifyingFunction;
     /**
-     * If \b true, we use GLU to build mipmaps.
+     * If \b true, we build mipmaps (glGenerateMipmap when available,
+     * JMipmapGenerator otherwise).
      */
     protected boolean mipMapEnabled;
     /**
@@ -85,6 +90,26 @@ public class JTexture2D {
      *
      */
     protected InputStream imageInputStream;
+    /**
+     * If \b true, the image stream holds a precompressed (DDS) image.
+     */
+    protected boolean compressedImage;
+    /**
+     * Number of bytes per pixel of the decoded image (0 if compressed).
+     */
+    protected int numComponents;
+    /**
+     * Mipmap levels built in Java, kept for re-uploads.
+     */
+    protected ByteBuffer[] mipmapLevels;
+    /**
+     * If \b true, the image was rescaled by GLU at upload time.
+     */
+    protected boolean rescaledUpload;
+    /**
+     * Regions of the image modified since the last upload.
+     */
+    protected ArrayList<int[]> pendingRegions;
     /**
      * Environmental color.
      */
@@ -108,28 +133,127 @@ public class JTexture2D {
      * Loads a image file to this JBitmap object.
      */
     public boolean load(File file) throws IOException {
+        if (file.getName().toLowerCase().endsWith("." + TextureIO.DDS)) {
+            return loadCompressed(new FileInputStream(file));
+        }
         return load(new FileInputStream(file));
     }
 
+    /**
+     * Loads an image (any format read by ImageIO) from a stream.
+     */
     public boolean load(InputStream stream) {
         if (stream != null) {
             this.imageInputStream = stream;
+            compressedImage = false;
+            updateTextureFlag = true;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Loads a precompressed DDS image (DXT1/3/5) from a stream. The
+     * compressed blocks and the mipmap levels stored in the file are sent
+     * as is to the graphics card.
+     */
+    public boolean loadCompressed(InputStream stream) {
+        if (stream != null) {
+            this.imageInputStream = stream;
+            compressedImage = true;
             updateTextureFlag = true;
             return true;
         }
         return false;
     }
 
+    /**
+     * Set a precompressed image already in memory (S3TC, ETC or any
+     * format supported by glCompressedTexImage2D).
+     *
+     * @param aInternalFormat compressed OpenGL format, e.g.
+     * GL_COMPRESSED_RGBA_S3TC_DXT5_EXT.
+     * @param aWidth width of the base level.
+     * @param aHeight height of the base level.
+     * @param aLevels compressed blocks of the base level followed by the
+     * smaller mipmap levels, if any.
+     */
+    public void setCompressedImage(int aInternalFormat, int aWidth, int aHeight, ByteBuffer[] aLevels) {
+        data = new TextureData(null, aInternalFormat, aWidth, aHeight, 0,
+                aInternalFormat, GL.GL_UNSIGNED_BYTE, true, false, aLevels, null);
+        imageInputStream = null;
+        mipmapLevels = null;
+        numComponents = 0;
+        updateTextureFlag = true;
+    }
+
+    /**
+     * Replace a rectangle of the image. The pixels are copied into the
+     * image kept in memory and only the modified rectangle is sent to the
+     * graphics card (glTexSubImage2D) at the next rendering pass.
+     *
+     * @param aX first column of the rectangle.
+     * @param aY first row of the rectangle (row 0 is the bottom of the image).
+     * @param aWidth width of the rectangle.
+     * @param aHeight height of the rectangle.
+     * @param aPixels pixels of the rectangle, row after row, in the format of
+     * the image (RGB or RGBA, one byte per component).
+     * @return false if the image is not decoded yet, is compressed, or if
+     * the rectangle does not fit in the image.
+     */
+    public boolean updateRegion(int aX, int aY, int aWidth, int aHeight, ByteBuffer aPixels) {
+        if (data == null || numComponents == 0 || !(data.getBuffer() instanceof ByteBuffer)) {
+            return (false);
+        }
+        if (aX < 0 || aY < 0 || aWidth <= 0 || aHeight <= 0
+                || aX + aWidth > data.getWidth() || aY + aHeight > data.getHeight()
+                || aPixels.remaining() < aWidth * aHeight * numComponents) {
+            return (false);
+        }
+
+        // copy rows into the image kept in memory
+        ByteBuffer image = ((ByteBuffer) data.getBuffer()).duplicate();
+        ByteBuffer src = aPixels.duplicate();
+        int rowBytes = aWidth * numComponents;
+        for (int y = 0; y < aHeight; y++) {
+            image.position(((aY + y) * data.getWidth() + aX) * numComponents);
+            src.limit(src.position() + rowBytes);
+            image.put(src);
+        }
+
+        // mipmaps built in Java are now out of date
+        mipmapLevels = null;
+
+        if (rescaledUpload) {
+            updateTextureFlag = true;
+        } else {
+            pendingRegions.add(new int[]{aX, aY, aWidth, aHeight});
+        }
+        return (true);
+    }
+
     private void updateBitmap() {
+        // the image stream can only be read once; keep the decoded data
+        // when the texture is uploaded again
+        if (imageInputStream == null) {
+            updateTextureFlag = false;
+            return;
+        }
+
         try {
-           
-            BufferedImage img = ImageIO.read(imageInputStream);
-            data = AWTTextureIO.newTextureData(GLContext.getCurrentGL().getGLProfile(), img, false);
-            
-            if (data.getMustFlipVertically()) {
-                ImageUtil.flipImageVertically(img);
-                data = AWTTextureIO.newTextureData(GLContext.getCurrentGL().getGLProfile(), img, false);
+            GLProfile profile = GLContext.getCurrentGL().getGLProfile();
+
+            if (compressedImage) {
+                data = TextureIO.newTextureData(profile, imageInputStream, mipMapEnabled, TextureIO.DDS);
+                numComponents = 0;
+            } else {
+                BufferedImage img = ImageIO.read(imageInputStream);
+                data = (img != null) ? createTextureData(profile, img) : null;
             }
+
+            imageInputStream.close();
+            imageInputStream = null;
+            mipmapLevels = null;
         } catch (IOException ex) {
             //TODO this is a very, very bad practice...
             throw new RuntimeException(ex.getMessage());
@@ -138,6 +262,41 @@ public class JTexture2D {
         updateTextureFlag = false;
     }
 
+    /**
+     * Copy a decoded image into a direct buffer, bottom row first, with one
+     * byte per component. Images without alpha are stored as RGB.
+     */
+    private TextureData createTextureData(GLProfile aProfile, BufferedImage aImage) {
+        int width = aImage.getWidth();
+        int height = aImage.getHeight();
+        boolean alpha = aImage.getColorModel().hasAlpha();
+        numComponents = alpha ? 4 : 3;
+
+        ByteBuffer pixels = ByteBuffer.allocateDirect(width * height * numComponents).order(ByteOrder.nativeOrder());
+        int[] row = new int[width];
+
+        for (int y = 0; y < height; y++) {
+            // OpenGL expects the bottom row first
+            aImage.getRGB(0, height - 1 - y, width, 1, row, 0, width);
+            for (int x = 0; x < width; x++) {
+                int argb = row[x];
+                pixels.put((byte) (argb >> 16));
+                pixels.put((byte) (argb >> 8));
+                pixels.put((byte) argb);
+                if (alpha) {
+                    pixels.put((byte) (argb >> 24));
+                }
+            }
+        }
+        pixels.rewind();
+
+        int format = alpha ? GL.GL_RGBA : GL.GL_RGB;
+        TextureData result = new TextureData(aProfile, format, width, height, 0,
+                format, GL.GL_UNSIGNED_BYTE, false, false, false, pixels, null);
+        result.setAlignment(1);
+        return (result);
+    }
+
     /**
      *
      */
@@ -162,6 +321,16 @@ public class JTexture2D {
             updateTextureFlag = false;
         }
 
+        // texture resources have been released
+        if (textureID == -1) {
+            return;
+        }
+
+        // send modified rectangles
+        if (!pendingRegions.isEmpty()) {
+            updateRegions(gl);
+        }
+
         // enable texturing
         gl.glEnable(GL2.GL_TEXTURE_2D);
 
@@ -239,6 +408,9 @@ public class JTexture2D {
 
         // use mipmaps
         mipMapEnabled = false;
+
+        // no modified rectangle to send
+        pendingRegions = new ArrayList<int[]>();
     }
 
     /**
@@ -248,6 +420,11 @@ public class JTexture2D {
         
         // update bitmap, loading from file if necessary
         updateBitmap();
+
+        // nothing to upload (resources released)
+        if (data == null) {
+            return;
+        }
         
         GL gl = GLContext.getCurrent().getGL();
         if (textureID != -1) {
@@ -265,7 +442,17 @@ public class JTexture2D {
         textureID = tmp[0];
         gl.glBindTexture(GL2.GL_TEXTURE_2D, textureID);
 
-        if (mipMapEnabled) {
+        // the whole image is sent, including modified rectangles
+        pendingRegions.clear();
+        rescaledUpload = false;
+
+        if (data.isDataCompressed()) {
+            uploadCompressed(gl);
+
+        } else if (mipMapEnabled
+                && (numComponents == 0 || (!gl.isNPOTTextureAvailable()
+                && !(isPowerOfTwo(data.getWidth()) && isPowerOfTwo(data.getHeight()))))) {
+            // GLU rescales images that the hardware cannot map
             GLU glu = new GLU();
             glu.gluBuild2DMipmaps(
                     GL2.GL_TEXTURE_2D,
@@ -275,13 +462,9 @@ public class JTexture2D {
                     data.getPixelFormat(),
                     data.getPixelType(),
                     data.getBuffer());
+            rescaledUpload = true;
 
         } else {
-            gl.glPixelStorei(GL2.GL_UNPACK_ALIGNMENT, data.getAlignment());
-            ////gl.glPixelStorei(GL2.GL_UNPACK_ROW_LENGTH, 0);
-            //gl.glPixelStorei(GL2.GL_UNPACK_SKIP_ROWS, 0);
-            //gl.glPixelStorei(GL2.GL_UNPACK_SKIP_PIXELS, 0);
-
             gl.glTexImage2D(
                     GL2.GL_TEXTURE_2D,
                     0,
@@ -292,9 +475,186 @@ public class JTexture2D {
                     data.getPixelFormat(),
                     data.getPixelType(),
                     data.getBuffer());
+
+            if (mipMapEnabled) {
+                generateMipmaps(gl);
+            }
         }
     }
 
+    /**
+     * Send a precompressed image and its stored mipmap levels.
+     */
+    private void uploadCompressed(GL gl) {
+        Buffer[] levels = data.getMipmapData();
+        if (levels == null) {
+            levels = new Buffer[]{data.getBuffer()};
+        }
+
+        int count = mipMapEnabled ? levels.length : 1;
+        for (int level = 0; level < count; level++) {
+            int width = Math.max(1, data.getWidth() >> level);
+            int height = Math.max(1, data.getHeight() >> level);
+            gl.glCompressedTexImage2D(GL2.GL_TEXTURE_2D, level, data.getInternalFormat(),
+                    width, height, 0, levels[level].remaining(), levels[level]);
+        }
+
+        // compressed formats cannot be filtered down by the driver; only use
+        // the levels we have
+        gl.glTexParameteri(GL2.GL_TEXTURE_2D, GL2.GL_TEXTURE_MAX_LEVEL, count - 1);
+    }
+
+    /**
+     * Build the mipmap levels of the currently bound texture from level 0.
+     */
+    private void generateMipmaps(GL gl) {
+        if (gl.isFunctionAvailable("glGenerateMipmap")) {
+            gl.glGenerateMipmap(GL2.GL_TEXTURE_2D);
+            return;
+        }
+
+        if (mipmapLevels == null) {
+            mipmapLevels = JMipmapGenerator.generate((ByteBuffer) data.getBuffer(),
+                    data.getWidth(), data.getHeight(), numComponents);
+        }
+
+        for (int i = 0; i < mipmapLevels.length; i++) {
+            gl.glTexImage2D(
+                    GL2.GL_TEXTURE_2D,
+                    i + 1,
+                    data.getInternalFormat(),
+                    Math.max(1, data.getWidth() >> (i + 1)),
+                    Math.max(1, data.getHeight() >> (i + 1)),
+                    0,
+                    data.getPixelFormat(),
+                    data.getPixelType(),
+                    mipmapLevels[i]);
+        }
+    }
+
+    /**
+     * Send the rectangles modified by updateRegion().
+     */
+    private void updateRegions(GL2 gl) {
+        gl.glBindTexture(GL2.GL_TEXTURE_2D, textureID);
+        gl.glPixelStorei(GL2.GL_UNPACK_ALIGNMENT, 1);
+        gl.glPixelStorei(GL2.GL_UNPACK_ROW_LENGTH, data.getWidth());
+
+        for (int[] region : pendingRegions) {
+            gl.glPixelStorei(GL2.GL_UNPACK_SKIP_PIXELS, region[0]);
+            gl.glPixelStorei(GL2.GL_UNPACK_SKIP_ROWS, region[1]);
+            gl.glTexSubImage2D(GL2.GL_TEXTURE_2D, 0, region[0], region[1], region[2], region[3],
+                    data.getPixelFormat(), data.getPixelType(), data.getBuffer());
+        }
+        pendingRegions.clear();
+
+        // restore default unpacking
+        gl.glPixelStorei(GL2.GL_UNPACK_ROW_LENGTH, 0);
+        gl.glPixelStorei(GL2.GL_UNPACK_SKIP_PIXELS, 0);
+        gl.glPixelStorei(GL2.GL_UNPACK_SKIP_ROWS, 0);
+
+        if (mipMapEnabled) {
+            generateMipmaps(gl);
+        }
+    }
+
+    /**
+     * Check if a texture dimension is a power of two.
+     */
+    private static boolean isPowerOfTwo(int aValue) {
+        return (aValue > 0 && (aValue & (aValue - 1)) == 0);
+    }
+
+    /**
+     * Memory used in main memory by the decoded image and its mipmap
+     * levels, in bytes. Returns 0 if the image has not been decoded yet.
+     */
+    public long getCpuBytes() {
+        if (data == null) {
+            return (0);
+        }
+
+        long bytes = getBufferBytes(data.getBuffer());
+        if (data.getMipmapData() != null) {
+            for (Buffer level : data.getMipmapData()) {
+                bytes += getBufferBytes(level);
+            }
+        }
+        if (mipmapLevels != null) {
+            for (Buffer level : mipmapLevels) {
+                bytes += getBufferBytes(level);
+            }
+        }
+        return (bytes);
+    }
+
+    /**
+     * Estimated memory used in graphics memory by the texture, in bytes.
+     * Returns 0 if the texture has not been uploaded.
+     */
+    public long getGpuBytes() {
+        if (textureID == -1 || data == null) {
+            return (0);
+        }
+
+        // compressed blocks are stored as they are
+        if (data.isDataCompressed()) {
+            long bytes = getBufferBytes(data.getBuffer());
+            if (data.getMipmapData() != null) {
+                Buffer[] levels = data.getMipmapData();
+                for (int i = 0; i < (mipMapEnabled ? levels.length : 1); i++) {
+                    bytes += getBufferBytes(levels[i]);
+                }
+            }
+            return (bytes);
+        }
+
+        // a full mipmap chain adds one third to the base level
+        long bytes = (long) data.getWidth() * data.getHeight() * (numComponents > 0 ? numComponents : 4);
+        return (mipMapEnabled ? bytes + bytes / 3 : bytes);
+    }
+
+    /**
+     * Size of a pixel buffer, in bytes.
+     */
+    private static long getBufferBytes(Buffer aBuffer) {
+        if (aBuffer == null) {
+            return (0);
+        } else if (aBuffer instanceof ByteBuffer) {
+            return (aBuffer.capacity());
+        } else if (aBuffer instanceof ShortBuffer) {
+            return (2L * aBuffer.capacity());
+        } else {
+            return (4L * aBuffer.capacity());
+        }
+    }
+
+    /**
+     * Drop the decoded image and forget the OpenGL texture. The texture ID
+     * is returned so that the caller can delete it once a GL context is
+     * current.
+     *
+     * @return the OpenGL texture ID, or -1 if the texture was not uploaded.
+     */
+    public int releaseResources() {
+        int id = textureID;
+        textureID = -1;
+        data = null;
+        mipmapLevels = null;
+        pendingRegions.clear();
+
+        if (imageInputStream != null) {
+            try {
+                imageInputStream.close();
+            } catch (IOException ex) {
+                // nothing to do, the stream is dropped anyway
+            }
+            imageInputStream = null;
+        }
+        updateTextureFlag = false;
+        return (id);
+    }
+
     /**
      * @return the updateTextureFlag
      */
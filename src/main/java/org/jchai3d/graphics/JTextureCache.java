@@ -0,0 +1,513 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.graphics;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GLContext;
+
+/**
+ * JTextureCache shares texture images between all objects of a world.
+ * Textures are keyed by the canonical path of the image file and by a hash
+ * of its content, so two models referencing the same image (even through
+ * different paths) decode and upload it only once. Each entry is reference
+ * counted; entries no longer referenced stay in the cache and are evicted in
+ * least-recently-used order when the CPU + GPU memory used by the cache
+ * exceeds the configured budget. Meshes hold a reference on the cached
+ * texture they use (see JMesh.setTexture()).
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JTextureCache {
+
+    /**
+     * Default memory budget (CPU + GPU bytes) of a texture cache.
+     */
+    public static long CHAI_DEFAULT_TEXTURE_CACHE_BUDGET = 256L * 1024L * 1024L;
+    /**
+     * Cache entries keyed by content hash, kept in access order (LRU first).
+     */
+    protected LinkedHashMap<String, JTextureCacheEntry> entries;
+    /**
+     * Cache entries keyed by texture.
+     */
+    protected IdentityHashMap<JTexture2D, JTextureCacheEntry> textures;
+    /**
+     * Content hash of every canonical path already read by the cache.
+     */
+    protected HashMap<String, JTexturePathRecord> paths;
+    /**
+     * OpenGL texture IDs of evicted textures, waiting for a GL context.
+     */
+    protected ArrayList<Integer> pendingDeletions;
+    /**
+     * Memory budget in bytes (CPU + GPU).
+     */
+    protected long budget;
+    /**
+     * Number of requests served from the cache. The counters are only read
+     * and written with the lock of the cache held.
+     */
+    protected long hits;
+    /**
+     * Number of requests that had to load a new image.
+     */
+    protected long misses;
+    /**
+     * Number of entries evicted so far.
+     */
+    protected long evictions;
+
+    /**
+     * Constructor of JTextureCache.
+     */
+    public JTextureCache() {
+        this(CHAI_DEFAULT_TEXTURE_CACHE_BUDGET);
+    }
+
+    /**
+     * Constructor of JTextureCache.
+     *
+     * @param aBudget memory budget in bytes (CPU + GPU).
+     */
+    public JTextureCache(long aBudget) {
+        entries = new LinkedHashMap<String, JTextureCacheEntry>(16, 0.75f, true);
+        textures = new IdentityHashMap<JTexture2D, JTextureCacheEntry>();
+        paths = new HashMap<String, JTexturePathRecord>();
+        pendingDeletions = new ArrayList<Integer>();
+        budget = aBudget;
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS:
+    //-----------------------------------------------------------------------
+    /**
+     * Get a texture for an image file, loading it only if no texture with
+     * the same path or the same content is already in the cache. Each call
+     * must be balanced by a call to {@link #release(JTexture2D)}.
+     *
+     * The file is read and hashed without holding the lock of the cache, so
+     * that a slow load does not block the other users of the cache; the
+     * result is published under the lock. If two threads load the same
+     * image at the same time, the first one to publish it wins and the
+     * other one gets its texture.
+     *
+     * @param aFile image file.
+     * @return the shared texture, or null if the file does not exist.
+     */
+    public JTexture2D acquire(File aFile) throws IOException {
+        if (aFile == null || !aFile.isFile()) {
+            return (null);
+        }
+
+        // look for a previous read of the same file
+        String path = aFile.getCanonicalPath();
+        long lastModified = aFile.lastModified();
+        long length = aFile.length();
+        synchronized (this) {
+            JTexturePathRecord record = paths.get(path);
+            if (record != null
+                    && record.lastModified == lastModified
+                    && record.length == length) {
+                JTexture2D texture = retainEntry(record.hash);
+                if (texture != null) {
+                    return (texture);
+                }
+            }
+        }
+
+        // read file, outside of the lock
+        byte[] content = readFully(aFile);
+        String hash = computeHash(content);
+
+        synchronized (this) {
+            paths.put(path, new JTexturePathRecord(hash, lastModified, content.length));
+
+            // look for an identical image loaded from another path
+            JTexture2D texture = retainEntry(hash);
+            if (texture != null) {
+                return (texture);
+            }
+
+            // create new entry
+            misses++;
+            texture = new JTexture2D();
+            texture.load(new ByteArrayInputStream(content));
+
+            JTextureCacheEntry entry = new JTextureCacheEntry(hash, texture, content.length);
+            entry.refCount = 1;
+            entries.put(hash, entry);
+            textures.put(texture, entry);
+
+            // make room for the new texture if needed
+            evict();
+
+            return (texture);
+        }
+    }
+
+    /**
+     * Add a reference to a cached texture, to be balanced by a call to
+     * {@link #release(JTexture2D)}.
+     *
+     * @param aTexture texture to reference.
+     * @return true if the texture belongs to this cache.
+     */
+    public synchronized boolean retain(JTexture2D aTexture) {
+        JTextureCacheEntry entry = findEntry(aTexture);
+        if (entry == null) {
+            return (false);
+        }
+        entry.refCount++;
+        return (true);
+    }
+
+    /**
+     * Release a texture previously obtained with {@link #acquire(File)} or
+     * {@link #retain(JTexture2D)}. The texture stays in the cache until it
+     * is evicted.
+     *
+     * @param aTexture texture to release.
+     * @return true if the texture belongs to this cache.
+     */
+    public synchronized boolean release(JTexture2D aTexture) {
+        JTextureCacheEntry entry = findEntry(aTexture);
+        if (entry == null) {
+            return (false);
+        }
+
+        if (entry.refCount > 0) {
+            entry.refCount--;
+        }
+
+        if (entry.refCount == 0) {
+            evict();
+        }
+        return (true);
+    }
+
+    /**
+     * Check if a texture is managed by this cache.
+     */
+    public synchronized boolean contains(JTexture2D aTexture) {
+        return (findEntry(aTexture) != null);
+    }
+
+    /**
+     * Evict unreferenced textures, least recently used first, until the
+     * memory used by the cache fits in the budget.
+     *
+     * @return number of textures evicted.
+     */
+    public synchronized int evict() {
+        long used = getCpuBytes() + getGpuBytes();
+        int count = 0;
+
+        Iterator<JTextureCacheEntry> iter = entries.values().iterator();
+        while (used > budget && iter.hasNext()) {
+            JTextureCacheEntry entry = iter.next();
+            if (entry.refCount > 0) {
+                continue;
+            }
+
+            used -= getCpuBytes(entry) + entry.texture.getGpuBytes();
+            iter.remove();
+            textures.remove(entry.texture);
+            discard(entry);
+            count++;
+        }
+
+        evictions += count;
+        return (count);
+    }
+
+    /**
+     * Remove all unreferenced textures from the cache, whatever the budget.
+     * Textures still referenced are kept.
+     *
+     * @return number of textures removed.
+     */
+    public synchronized int purge() {
+        int count = 0;
+        Iterator<JTextureCacheEntry> iter = entries.values().iterator();
+        while (iter.hasNext()) {
+            JTextureCacheEntry entry = iter.next();
+            if (entry.refCount == 0) {
+                iter.remove();
+                textures.remove(entry.texture);
+                discard(entry);
+                count++;
+            }
+        }
+        evictions += count;
+        return (count);
+    }
+
+    /**
+     * Remove all textures from the cache, referenced or not. Only call it
+     * when no object uses the textures any more, e.g. when the world is
+     * destroyed; see {@link #purge()} otherwise.
+     */
+    public synchronized void clear() {
+        for (JTextureCacheEntry entry : entries.values()) {
+            discard(entry);
+        }
+        entries.clear();
+        textures.clear();
+        paths.clear();
+    }
+
+    /**
+     * Delete from graphics memory the textures evicted since the last call.
+     * Must be called while an OpenGL context is current; JWorld does it at
+     * the beginning of each rendering pass.
+     */
+    public synchronized void deletePendingTextures() {
+        if (pendingDeletions.isEmpty() || GLContext.getCurrent() == null) {
+            return;
+        }
+
+        GL gl = GLContext.getCurrentGL();
+        int[] ids = new int[pendingDeletions.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = pendingDeletions.get(i);
+        }
+        gl.glDeleteTextures(ids.length, ids, 0);
+        pendingDeletions.clear();
+    }
+
+    /**
+     * Memory held in main memory by the cached textures, in bytes. Images
+     * not decoded yet are accounted by the size of their file.
+     */
+    public synchronized long getCpuBytes() {
+        long bytes = 0;
+        for (JTextureCacheEntry entry : entries.values()) {
+            bytes += getCpuBytes(entry);
+        }
+        return (bytes);
+    }
+
+    /**
+     * Memory held in graphics memory by the cached textures, in bytes.
+     */
+    public synchronized long getGpuBytes() {
+        long bytes = 0;
+        for (JTextureCacheEntry entry : entries.values()) {
+            bytes += entry.texture.getGpuBytes();
+        }
+        return (bytes);
+    }
+
+    /**
+     * Number of references held on a cached texture.
+     *
+     * @return reference count, or -1 if the texture is not in the cache.
+     */
+    public synchronized int getReferenceCount(JTexture2D aTexture) {
+        JTextureCacheEntry entry = findEntry(aTexture);
+        return (entry == null ? -1 : entry.refCount);
+    }
+
+    /**
+     * @return the number of textures in the cache
+     */
+    public synchronized int getNumTextures() {
+        return (entries.size());
+    }
+
+    /**
+     * @return the memory budget in bytes
+     */
+    public synchronized long getBudget() {
+        return (budget);
+    }
+
+    /**
+     * @param aBudget the memory budget in bytes to set
+     */
+    public synchronized void setBudget(long aBudget) {
+        budget = aBudget;
+        evict();
+    }
+
+    /**
+     * @return the number of requests served from the cache
+     */
+    public synchronized long getHits() {
+        return (hits);
+    }
+
+    /**
+     * @return the number of requests that loaded a new image
+     */
+    public synchronized long getMisses() {
+        return (misses);
+    }
+
+    /**
+     * @return the number of textures evicted so far
+     */
+    public synchronized long getEvictions() {
+        return (evictions);
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS - INTERNAL:
+    //-----------------------------------------------------------------------
+    /**
+     * Add a reference to the texture of a content hash, if it is in the
+     * cache. Must be called with the lock held.
+     */
+    private JTexture2D retainEntry(String aHash) {
+        JTextureCacheEntry entry = entries.get(aHash);
+        if (entry == null) {
+            return (null);
+        }
+        hits++;
+        entry.refCount++;
+        return (entry.texture);
+    }
+
+    /**
+     * Find the entry holding a texture.
+     */
+    private JTextureCacheEntry findEntry(JTexture2D aTexture) {
+        return (aTexture == null ? null : textures.get(aTexture));
+    }
+
+    /**
+     * Main memory used by an entry.
+     */
+    private long getCpuBytes(JTextureCacheEntry aEntry) {
+        long bytes = aEntry.texture.getCpuBytes();
+        return (bytes > 0 ? bytes : aEntry.fileBytes);
+    }
+
+    /**
+     * Free the resources of an entry removed from the cache.
+     */
+    private void discard(JTextureCacheEntry aEntry) {
+        int id = aEntry.texture.releaseResources();
+        if (id != -1) {
+            pendingDeletions.add(id);
+        }
+
+        // forget the paths leading to this image
+        Iterator<Map.Entry<String, JTexturePathRecord>> iter = paths.entrySet().iterator();
+        while (iter.hasNext()) {
+            if (iter.next().getValue().hash.equals(aEntry.hash)) {
+                iter.remove();
+            }
+        }
+    }
+
+    /**
+     * Read the content of a file.
+     */
+    private static byte[] readFully(File aFile) throws IOException {
+        InputStream in = new FileInputStream(aFile);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int) aFile.length());
+            byte[] buffer = new byte[8192];
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                out.write(buffer, 0, n);
+            }
+            return (out.toByteArray());
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Compute the content hash of an image file.
+     */
+    private static String computeHash(byte[] aContent) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(aContent);
+            StringBuilder hash = new StringBuilder(digest.length * 2);
+            for (int i = 0; i < digest.length; i++) {
+                hash.append(Character.forDigit((digest[i] >> 4) & 0xF, 16));
+                hash.append(Character.forDigit(digest[i] & 0xF, 16));
+            }
+            return (hash.toString());
+        } catch (NoSuchAlgorithmException ex) {
+            // every Java platform ships SHA-1
+            throw new RuntimeException(ex.getMessage());
+        }
+    }
+}
+
+/**
+ * A texture shared through a JTextureCache.
+ */
+class JTextureCacheEntry {
+
+    /**
+     * content hash of the image
+     */
+    final String hash;
+    /**
+     * shared texture
+     */
+    final JTexture2D texture;
+    /**
+     * size of the image file
+     */
+    final long fileBytes;
+    /**
+     * number of users of the texture
+     */
+    int refCount;
+
+    JTextureCacheEntry(String aHash, JTexture2D aTexture, long aFileBytes) {
+        hash = aHash;
+        texture = aTexture;
+        fileBytes = aFileBytes;
+    }
+}
+
+/**
+ * Content hash of a file read by a JTextureCache, with the file stamp used to
+ * detect changes on disk.
+ */
+class JTexturePathRecord {
+
+    final String hash;
+    final long lastModified;
+    final long length;
+
+    JTexturePathRecord(String aHash, long aLastModified, long aLength) {
+        hash = aHash;
+        lastModified = aLastModified;
+        length = aLength;
+    }
+}
@@ -18,10 +18,12 @@ package org.jchai3d.graphics;
 
 import java.util.ArrayList;
 import org.jchai3d.collisions.JCollisionEvent;
+import org.jchai3d.collisions.JCollisionHitList;
 import org.jchai3d.collisions.JCollisionRecorder;
 import org.jchai3d.collisions.JCollisionSettings;
 import org.jchai3d.math.JConstants;
 import org.jchai3d.math.JMaths;
+import org.jchai3d.math.JMatrix3d;
 import org.jchai3d.math.JVector3d;
 import org.jchai3d.scenegraph.JMesh;
 
@@ -238,6 +240,23 @@ public class JTriangle implements Comparable<JTriangle> {
         return (parentMesh);
     }
 
+    /**
+     * Compute the global positions of the vertices of this triangle from the
+     * frame of its mesh, without reading nor storing the global positions of
+     * the vertices.
+     *
+     * @param aVertex0
+     * @param aVertex1
+     * @param aVertex2
+     */
+    public void computeGlobalVertices(JVector3d aVertex0, JVector3d aVertex1, JVector3d aVertex2) {
+        JVector3d position = parentMesh.getGlobalPosition();
+        JMatrix3d rotation = parentMesh.getGlobalRotation();
+        JMaths.jTransform(position, rotation, getVertex0().getLocalPosition(), aVertex0);
+        JMaths.jTransform(position, rotation, getVertex1().getLocalPosition(), aVertex1);
+        JMaths.jTransform(position, rotation, getVertex2().getLocalPosition(), aVertex2);
+    }
+
     /**
      * Set pointer to mesh parent of triangle.
      *
@@ -256,6 +275,46 @@ public class JTriangle implements Comparable<JTriangle> {
         return (allocated);
     }
 
+    /**
+     * Check if a segment lies entirely on one side of the plane of a
+     * triangle, at a distance greater than \e aRadius. This is a cheap
+     * rejection test run before the exact segment (or swept sphere) test;
+     * it does not allocate.
+     */
+    private static boolean isSegmentOutsideShell(JVector3d aSegmentPointA,
+            JVector3d aSegmentPointB,
+            JVector3d aVertex0,
+            JVector3d aVertex1,
+            JVector3d aVertex2,
+            double aRadius) {
+
+        double e1x = aVertex1.x - aVertex0.x;
+        double e1y = aVertex1.y - aVertex0.y;
+        double e1z = aVertex1.z - aVertex0.z;
+        double e2x = aVertex2.x - aVertex0.x;
+        double e2y = aVertex2.y - aVertex0.y;
+        double e2z = aVertex2.z - aVertex0.z;
+        double nx = e1y * e2z - e1z * e2y;
+        double ny = e1z * e2x - e1x * e2z;
+        double nz = e1x * e2y - e1y * e2x;
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+
+        // degenerated triangles are left to the exact test
+        if (length < JConstants.CHAI_TINY) {
+            return (false);
+        }
+
+        double limit = (aRadius + JConstants.CHAI_TINY) * length;
+        double da = nx * (aSegmentPointA.x - aVertex0.x)
+                + ny * (aSegmentPointA.y - aVertex0.y)
+                + nz * (aSegmentPointA.z - aVertex0.z);
+        double db = nx * (aSegmentPointB.x - aVertex0.x)
+                + ny * (aSegmentPointB.y - aVertex0.y)
+                + nz * (aSegmentPointB.z - aVertex0.z);
+
+        return (((da > limit) && (db > limit)) || ((da < -limit) && (db < -limit)));
+    }
+
     /**
      * Check if a ray intersects this triangle. The ray is described by its
      * origin (\e a_origin) and its direction (\e a_direction). \n
@@ -278,6 +337,17 @@ public class JTriangle implements Comparable<JTriangle> {
             JCollisionRecorder aRecorder,
             JCollisionSettings aSettings) {
 
+        // Get the position of the triangle's vertices
+        JVector3d vertex0 = parentMesh.getVertex(indexVertex0, true).getPosition();
+        JVector3d vertex1 = parentMesh.getVertex(indexVertex1, true).getPosition();
+        JVector3d vertex2 = parentMesh.getVertex(indexVertex2, true).getPosition();
+
+        // a segment lying entirely on one side of the triangle plane, further
+        // than the collision radius, can not touch the triangle
+        if (isSegmentOutsideShell(aSegmentPointA, aSegmentPointB,
+                vertex0, vertex1, vertex2, aSettings.getCollisionRadius())) {
+            return (false);
+        }
 
         // temp variables
         boolean hit = false;
@@ -285,11 +355,6 @@ public class JTriangle implements Comparable<JTriangle> {
         JVector3d collisionNormal = new JVector3d();
         double collisionDistanceSq = JConstants.CHAI_LARGE;
 
-        // Get the position of the triangle's vertices
-        JVector3d vertex0 = parentMesh.getVertex(indexVertex0, true).getPosition();
-        JVector3d vertex1 = parentMesh.getVertex(indexVertex1, true).getPosition();
-        JVector3d vertex2 = parentMesh.getVertex(indexVertex2, true).getPosition();
-
         // If getCollisionRadius() == 0, we search for a possible intersection between
         // the segment AB and the triangle defined by its three vertices V0, V1, V2.
         if (aSettings.getCollisionRadius() == 0) {
@@ -512,13 +577,28 @@ public class JTriangle implements Comparable<JTriangle> {
 
                         // report advanced collision data
                         if (!aSettings.isReturnMinimalCollisionData()) {
-                            aRecorder.getNearestCollision().setGlobalPosition(JMaths.jAdd(parentMesh.getGlobalPosition(), JMaths.jMul(parentMesh.getGlobalRotation(), aRecorder.getNearestCollision().getLocalPosition())));
-                            aRecorder.getNearestCollision().setGlobalNormal(JMaths.jMul(parentMesh.getGlobalRotation(), aRecorder.getNearestCollision().getLocalNormal()));
+                            JCollisionEvent nearest = aRecorder.getNearestCollision();
+                            JMaths.jTransform(parentMesh.getGlobalPosition(), parentMesh.getGlobalRotation(),
+                                    nearest.getLocalPosition(), nearest.getGlobalPosition());
+                            parentMesh.getGlobalRotation().mulr(nearest.getLocalNormal(), nearest.getGlobalNormal());
                         }
 
                     }
+                } else if (aRecorder.getHitList() != null) {
+                    // store the hit in the primitive arrays of the hit list
+                    JCollisionHitList hits = aRecorder.getHitList();
+                    int index = hits.add(parentMesh, this, collisionPoint, collisionNormal,
+                            collisionDistanceSq,
+                            aSettings.isReturnMinimalCollisionData() ? null : parentMesh.getGlobalPosition(),
+                            parentMesh.getGlobalRotation());
+
+                    // check if this new collision is a candidate for "nearest one"
+                    if (collisionDistanceSq < aRecorder.getNearestCollision().getSquareDistance()) {
+                        hits.getEvent(index, aRecorder.getNearestCollision());
+                        aRecorder.getNearestCollision().setAdjustedSegmentAPoint(aSegmentPointA);
+                    }
                 } else {
-                    JCollisionEvent newCollisionEvent = new JCollisionEvent();
+                    JCollisionEvent newCollisionEvent = aRecorder.addCollision();
 
                     // report basic collision data
                     newCollisionEvent.setObject(parentMesh);
@@ -530,13 +610,11 @@ public class JTriangle implements Comparable<JTriangle> {
 
                     // report advanced collision data
                     if (!aSettings.isReturnMinimalCollisionData()) {
-                        newCollisionEvent.setGlobalPosition(JMaths.jAdd(parentMesh.getGlobalPosition(), JMaths.jMul(parentMesh.getGlobalRotation(), newCollisionEvent.getLocalPosition())));
-                        newCollisionEvent.setGlobalNormal(JMaths.jMul(parentMesh.getGlobalRotation(), newCollisionEvent.getLocalNormal()));
+                        JMaths.jTransform(parentMesh.getGlobalPosition(), parentMesh.getGlobalRotation(),
+                                newCollisionEvent.getLocalPosition(), newCollisionEvent.getGlobalPosition());
+                        parentMesh.getGlobalRotation().mulr(newCollisionEvent.getLocalNormal(), newCollisionEvent.getGlobalNormal());
                     }
 
-                    // add new collision even to collision list
-                    aRecorder.getCollisions().add(newCollisionEvent);
-
                     // check if this new collision is a candidate for "nearest one"
                     if (collisionDistanceSq < aRecorder.getNearestCollision().getSquareDistance()) {
                         aRecorder.getNearestCollision().copyFrom(newCollisionEvent);
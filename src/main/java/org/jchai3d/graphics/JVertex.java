@@ -17,8 +17,11 @@
 
 package org.jchai3d.graphics;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import org.jchai3d.math.JMaths;
 import org.jchai3d.math.JMatrix3d;
 import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JMesh;
 
 /**
  * JVertex defines a point in 3 dimensional space and the associated
@@ -34,8 +37,17 @@ public class JVertex {
     //-----------------------------------------------------------------------
     //! Local position of this vertex.
     private JVector3d localPosition;
-    //! Global position of this vertex in world coordinates.
+    //! Global position of this vertex in world coordinates, allocated on first use.
     private JVector3d globalPosition;
+    //! Frame stamp of the mesh when the global position was computed, or -1.
+    //! Written after the position, so a thread reading an up to date stamp
+    //! also reads the position it was computed with.
+    private volatile int globalPositionStamp;
+    //! Ordered writes of the stamp, cheaper than volatile writes.
+    private static final AtomicIntegerFieldUpdater<JVertex> GLOBAL_POSITION_STAMP =
+            AtomicIntegerFieldUpdater.newUpdater(JVertex.class, "globalPositionStamp");
+    //! Mesh that owns me, or null.
+    private JMesh parentMesh;
     //! Surface normal.
     private JVector3d normal;
     //! Texture coordinate (uvw).
@@ -56,7 +68,8 @@ public class JVertex {
     //-----------------------------------------------------------------------
     public JVertex(final double aX, final double aY, final double aZ) {
         localPosition = new JVector3d(aX, aY, aZ);
-        globalPosition = new JVector3d(aX, aY, aZ);
+        globalPosition = null;
+        globalPositionStamp = -1;
         normal = new JVector3d(aX, aY, aZ);
         this.texCoord = new JVector3d();
         color = new JColorf();
@@ -70,7 +83,8 @@ public class JVertex {
     //-----------------------------------------------------------------------
     public JVertex(JVector3d position, JVector3d textureCoord, JVector3d normal) {
         localPosition = position;
-        globalPosition = position;
+        globalPosition = null;
+        globalPositionStamp = -1;
         this.normal = normal;
         this.texCoord = textureCoord;
         color = new JColorf();
@@ -92,6 +106,8 @@ public class JVertex {
     public void setPosition(final double aX, final double aY, final double aZ) {
         // set local position
         localPosition.set(aX, aY, aZ);
+        GLOBAL_POSITION_STAMP.lazySet(this, -1);
+        invalidateRenderData();
     }
 
     /**
@@ -101,6 +117,8 @@ public class JVertex {
      */
     public void setPosition(final JVector3d aPos) {
         localPosition.copyFrom(aPos);
+        GLOBAL_POSITION_STAMP.lazySet(this, -1);
+        invalidateRenderData();
     }
 
     /**
@@ -110,6 +128,8 @@ public class JVertex {
      */
     public void translate(final JVector3d aTranslation) {
         localPosition.add(aTranslation);
+        GLOBAL_POSITION_STAMP.lazySet(this, -1);
+        invalidateRenderData();
     }
 
     /**
@@ -122,13 +142,52 @@ public class JVertex {
     }
 
     /**
-     * Read global position. This value is only correct if the
-    computeGlobalPositions() method is called from the parent world.
+     * Read global position. If the vertex or its parent mesh moved since the
+    position was computed, or if the mesh computes its global positions
+    lazily, it is computed again from the current frame of the mesh. The
+    frame of the mesh must be up to date (see
+    JGenericObject.computeGlobalPositions()).
+
+    Several threads may read the position at the same time. The returned
+    vector is shared and is updated when the mesh moves; use
+    JMesh.computeVertexGlobalPosition() to get a private copy.
      *
      * @return
      */
     public final JVector3d getGlobalPosition() {
-        return (globalPosition);
+        if (parentMesh == null) {
+            if (globalPosition == null) {
+                globalPosition = new JVector3d(localPosition);
+            }
+            return (globalPosition);
+        }
+
+        int stamp = parentMesh.getGlobalPositionsStamp();
+        if (globalPositionStamp == stamp) {
+            JVector3d position = globalPosition;
+            if (position != null) {
+                return (position);
+            }
+        }
+        return (updateGlobalPosition(parentMesh.getGlobalPosition(), parentMesh.getGlobalRotation(), stamp));
+    }
+
+    /**
+     * Read the frame stamp of the parent mesh for which the global position
+    was computed, or -1 if it is out of date.
+     *
+     * @return
+     */
+    public final int getGlobalPositionStamp() {
+        return (globalPositionStamp);
+    }
+
+    /**
+     * Release the memory of the global position.
+     */
+    public void releaseGlobalPosition() {
+        globalPositionStamp = -1;
+        globalPosition = null;
     }
 
     /**
@@ -138,6 +197,7 @@ public class JVertex {
      */
     public void setNormal(final JVector3d aNormal) {
         normal.copyFrom(aNormal);
+        invalidateRenderData();
     }
 
     /**
@@ -155,6 +215,7 @@ public class JVertex {
 
             normal.set(aX, aY, aZ);
         }
+        invalidateRenderData();
     }
 
     /**
@@ -173,6 +234,7 @@ public class JVertex {
      */
     public void setTexCoord(final JVector3d aTexCoord) {
         texCoord.copyFrom(aTexCoord);
+        invalidateRenderData();
     }
 
     /**
@@ -182,6 +244,7 @@ public class JVertex {
      */
     public void setTexCoord(final double aTx, final double aTy) {
         texCoord.set(aTx, aTy, 0.0);
+        invalidateRenderData();
     }
 
     /**
@@ -198,6 +261,7 @@ public class JVertex {
      */
     public void setColor(final JColorf aColor) {
         color.copyFrom(aColor);
+        invalidateRenderData();
     }
 
     /**
@@ -210,6 +274,7 @@ public class JVertex {
     public void setColor(final float aRed, final float aGreen,
             final float aBlue, final float aAlpha) {
         color.set(aRed, aGreen, aBlue, aAlpha);
+        invalidateRenderData();
     }
 
     /**
@@ -225,8 +290,56 @@ public class JVertex {
     and global rotation matrix of the parent object.
      */
     public void computeGlobalPosition(final JVector3d aGlobalPos, final JMatrix3d aGlobalRot) {
-        aGlobalRot.mulr(localPosition, globalPosition);
-        globalPosition.add(aGlobalPos);
+        computeGlobalPosition(aGlobalPos, aGlobalRot, -1);
+    }
+
+    /**
+     *Compute the global position of vertex given the global position
+    and global rotation matrix of the parent object, and record the frame
+    stamp of the parent.
+     */
+    public void computeGlobalPosition(final JVector3d aGlobalPos, final JMatrix3d aGlobalRot,
+            final int aStamp) {
+        updateGlobalPosition(aGlobalPos, aGlobalRot, aStamp);
+    }
+
+    private JVector3d updateGlobalPosition(final JVector3d aGlobalPos, final JMatrix3d aGlobalRot,
+            final int aStamp) {
+        JVector3d position = globalPosition;
+        if (position == null) {
+            position = new JVector3d();
+        }
+        JMaths.jTransform(aGlobalPos, aGlobalRot, localPosition, position);
+        globalPosition = position;
+        GLOBAL_POSITION_STAMP.lazySet(this, aStamp);
+        return (position);
+    }
+
+    /**
+     * Mark this vertex as modified in the single precision copy drawn by the
+    parent mesh. The setters call it; vectors modified through the getters
+    must be invalidated with JMesh.invalidateRenderData().
+     */
+    private void invalidateRenderData() {
+        if (parentMesh != null) {
+            parentMesh.invalidateRenderData(index, 1);
+        }
+    }
+
+    /**
+     * Read the mesh that owns this vertex, or null.
+     */
+    public JMesh getParent() {
+        return (parentMesh);
+    }
+
+    /**
+     * Set the mesh that owns this vertex; its frame is used to compute the
+    global position.
+     */
+    public void setParent(JMesh aParent) {
+        parentMesh = aParent;
+        GLOBAL_POSITION_STAMP.lazySet(this, -1);
     }
 
     public int getIndex() {
@@ -271,6 +384,8 @@ public class JVertex {
      */
     public void setLocalPosition(JVector3d mLocalPos) {
         this.localPosition.copyFrom(mLocalPos);
+        globalPositionStamp = -1;
+        invalidateRenderData();
     }
 
     /**
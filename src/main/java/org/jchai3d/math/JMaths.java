@@ -46,176 +46,231 @@ public class JMaths {
     }
 
     /**
-     * Compute absolute value
+     * Compute absolute value.
      *
-     * @param <T>
      * @param a_value
      * @return
      */
-    public static <T extends Number> T jAbs(final T a_value) {
-        return (T) new Double(Math.abs(a_value.doubleValue()));
+    public static double jAbs(final double a_value) {
+        return (Math.abs(a_value));
+    }
+
+    public static float jAbs(final float a_value) {
+        return (Math.abs(a_value));
+    }
+
+    public static int jAbs(final int a_value) {
+        return (Math.abs(a_value));
     }
 
     /**
-     * Compute maximum between two values
-     * @param <T>
+     * Compute maximum between two values.
+     *
      * @param a_value1
      * @param a_value2
      * @return
      */
-    public static <T extends Number> T jMax(final T a_value1, final T a_value2) {
-        return (T) new Double(a_value1.doubleValue() >= a_value2.doubleValue() ? a_value1.doubleValue() : a_value2.doubleValue());
+    public static double jMax(final double a_value1, final double a_value2) {
+        return (a_value1 >= a_value2 ? a_value1 : a_value2);
+    }
+
+    public static float jMax(final float a_value1, final float a_value2) {
+        return (a_value1 >= a_value2 ? a_value1 : a_value2);
+    }
+
+    public static int jMax(final int a_value1, final int a_value2) {
+        return (a_value1 >= a_value2 ? a_value1 : a_value2);
     }
 
     /**
      * Compute minimum between two values.
      *
-     * @param <T>
      * @param a_value1
      * @param a_value2
      * @return
      */
-    public static <T extends Number> T jMin(final T a_value1, final T a_value2) {
-        return (T) new Double(a_value1.doubleValue() <= a_value2.doubleValue() ? a_value1.doubleValue() : a_value2.doubleValue());
+    public static double jMin(final double a_value1, final double a_value2) {
+        return (a_value1 <= a_value2 ? a_value1 : a_value2);
+    }
+
+    public static float jMin(final float a_value1, final float a_value2) {
+        return (a_value1 <= a_value2 ? a_value1 : a_value2);
+    }
+
+    public static int jMin(final int a_value1, final int a_value2) {
+        return (a_value1 <= a_value2 ? a_value1 : a_value2);
     }
 
     /**
      * Compute maximum of 3 values.
      *
-     * @param <T>
      * @param a_value1
      * @param a_value2
      * @param a_value3
      * @return
      */
-    public static <T extends Number> T jMax3(final T a_value1, final T a_value2, final T a_value3) {
+    public static double jMax3(final double a_value1, final double a_value2, final double a_value3) {
+        return (jMax(a_value1, jMax(a_value2, a_value3)));
+    }
+
+    public static float jMax3(final float a_value1, final float a_value2, final float a_value3) {
+        return (jMax(a_value1, jMax(a_value2, a_value3)));
+    }
+
+    public static int jMax3(final int a_value1, final int a_value2, final int a_value3) {
         return (jMax(a_value1, jMax(a_value2, a_value3)));
     }
 
     /**
-     * Return minimum of 3 values
+     * Return minimum of 3 values.
      *
-     * @param <T>
      * @param a_value1
      * @param a_value2
      * @param a_value3
      * @return
      */
-    public static <T extends Number> T jMin3(final T a_value1, final T a_value2, final T a_value3) {
+    public static double jMin3(final double a_value1, final double a_value2, final double a_value3) {
+        return (jMin(a_value1, jMin(a_value2, a_value3)));
+    }
+
+    public static float jMin3(final float a_value1, final float a_value2, final float a_value3) {
+        return (jMin(a_value1, jMin(a_value2, a_value3)));
+    }
+
+    public static int jMin3(final int a_value1, final int a_value2, final int a_value3) {
         return (jMin(a_value1, jMin(a_value2, a_value3)));
     }
 
     /**
-     * Compute maximum of absolute values of 2 numbers.
+     * Return the value with the largest absolute value of 2 numbers.
      *
-     * @param <T>
      * @param a_value1
      * @param a_value2
      * @return
      */
-    public static <T extends Number> T jMaxAbs(final T a_value1, final T a_value2) {
-        return (jAbs(a_value1).doubleValue() >= jAbs(a_value2).doubleValue() ? a_value1 : a_value2);
+    public static double jMaxAbs(final double a_value1, final double a_value2) {
+        return (jAbs(a_value1) >= jAbs(a_value2) ? a_value1 : a_value2);
+    }
+
+    public static float jMaxAbs(final float a_value1, final float a_value2) {
+        return (jAbs(a_value1) >= jAbs(a_value2) ? a_value1 : a_value2);
+    }
+
+    public static int jMaxAbs(final int a_value1, final int a_value2) {
+        return (jAbs(a_value1) >= jAbs(a_value2) ? a_value1 : a_value2);
     }
 
     /**
-     * Compute minimum of absolute values of 2 values.
+     * Return the value with the smallest absolute value of 2 numbers.
      *
-     * @param <T>
      * @param a_value1
      * @param a_value2
      * @return
      */
-    public static <T extends Number> T jMinAbs(final T a_value1, final T a_value2) {
-        return jAbs(a_value1.doubleValue() <= jAbs(a_value2).doubleValue() ? a_value1 : a_value2);
+    public static double jMinAbs(final double a_value1, final double a_value2) {
+        return (jAbs(a_value1) <= jAbs(a_value2) ? a_value1 : a_value2);
+    }
+
+    public static float jMinAbs(final float a_value1, final float a_value2) {
+        return (jAbs(a_value1) <= jAbs(a_value2) ? a_value1 : a_value2);
+    }
+
+    public static int jMinAbs(final int a_value1, final int a_value2) {
+        return (jAbs(a_value1) <= jAbs(a_value2) ? a_value1 : a_value2);
     }
 
     /**
-     * Compute maximum of absolute values of 3 values.
+     * Return the value with the largest absolute value of 3 numbers.
      *
-     * @param <T>
      * @param a_value1
      * @param a_value2
      * @param a_value3
      * @return
      */
-    public static <T extends Number> T jMax3Abs(final T a_value1, final T a_value2, final T a_value3) {
-        return jMaxAbs(a_value1, jMaxAbs(a_value2, a_value3));
+    public static double jMax3Abs(final double a_value1, final double a_value2, final double a_value3) {
+        return (jMaxAbs(a_value1, jMaxAbs(a_value2, a_value3)));
+    }
+
+    public static float jMax3Abs(final float a_value1, final float a_value2, final float a_value3) {
+        return (jMaxAbs(a_value1, jMaxAbs(a_value2, a_value3)));
+    }
+
+    public static int jMax3Abs(final int a_value1, final int a_value2, final int a_value3) {
+        return (jMaxAbs(a_value1, jMaxAbs(a_value2, a_value3)));
     }
 
     /**
-     * Compute minimum of absolute values of 3 values.
+     * Return the value with the smallest absolute value of 3 numbers.
      *
-     * @param <T>
      * @param a_value1
      * @param a_value2
      * @param a_value3
      * @return
      */
-    public static <T extends Number> T jMin3Abs(final T a_value1, final T a_value2, final T a_value3) {
-        return jMinAbs(a_value1, jMinAbs(a_value2, a_value3));
+    public static double jMin3Abs(final double a_value1, final double a_value2, final double a_value3) {
+        return (jMinAbs(a_value1, jMinAbs(a_value2, a_value3)));
     }
 
-    /**
-     * Swap two elements.
-     * @param <T>
-     * @param a_value1
-     * @param a_value2
-     */
-    public static <T extends Number> void jSwap(T a_value1, T a_value2) {
-        T value = a_value1;
-        a_value1 = a_value2;
-        a_value2 = value;
+    public static float jMin3Abs(final float a_value1, final float a_value2, final float a_value3) {
+        return (jMinAbs(a_value1, jMinAbs(a_value2, a_value3)));
+    }
+
+    public static int jMin3Abs(final int a_value1, final int a_value2, final int a_value3) {
+        return (jMinAbs(a_value1, jMinAbs(a_value2, a_value3)));
     }
 
     /**
-     * Linear interpolation from \e value0 (when a=0) to \e value1 (when a=1).
+     * Linear interpolation from \e value1 (when a=0) to \e value2 (when a=1).
      *
-     * @param <T>
      * @param a_level
      * @param a_value1
      * @param a_value2
      * @return
      */
-    public static <T extends Number> T jLerp(final double a_level, final T a_value1, final T a_value2) {
-        return (T) new Double((a_value2.doubleValue() * a_level + a_value1.doubleValue() * (1 - a_level)));
+    public static double jLerp(final double a_level, final double a_value1, final double a_value2) {
+        return (a_value2 * a_level + a_value1 * (1 - a_level));
+    }
+
+    public static float jLerp(final float a_level, final float a_value1, final float a_value2) {
+        return (a_value2 * a_level + a_value1 * (1 - a_level));
     }
 
     /**
      * Clamp the input to the specified range.
      *
-     * @param <T>
      * @param a_value
      * @param a_low
      * @param a_high
      * @return
      */
-    public static <T extends Number> T jClamp(final T a_value, final T a_low, final T a_high) {
-        /*return (T) new Double((a_value.doubleValue() < a_low.doubleValue() ? a_low.doubleValue()
-        : a_value.doubleValue() > a_high.doubleValue() ? a_high.doubleValue()
-        : a_value.doubleValue()));
-         *
-         */
-
-        if (a_value instanceof Float) {
-            return (T) new Float((a_value.floatValue() < a_low.floatValue() ? a_low.floatValue()
-                    : a_value.floatValue() > a_high.floatValue() ? a_high.floatValue()
-                    : a_value.floatValue()));
-        } else {
-            return (T) new Double((a_value.doubleValue() < a_low.doubleValue() ? a_low.doubleValue()
-                    : a_value.doubleValue() > a_high.doubleValue() ? a_high.doubleValue()
-                    : a_value.doubleValue()));
-        }
+    public static double jClamp(final double a_value, final double a_low, final double a_high) {
+        return (a_value < a_low ? a_low : a_value > a_high ? a_high : a_value);
+    }
+
+    public static float jClamp(final float a_value, final float a_low, final float a_high) {
+        return (a_value < a_low ? a_low : a_value > a_high ? a_high : a_value);
+    }
+
+    public static int jClamp(final int a_value, final int a_low, final int a_high) {
+        return (a_value < a_low ? a_low : a_value > a_high ? a_high : a_value);
     }
 
     /**
      * Clamp the input to the range 0 - \e infinity.
      *
-     * @param <T>
      * @param a_value
      * @return
      */
-    public static <T extends Number> T jClamp0(T a_value) {
-        return (T) jMax(0, a_value);
+    public static double jClamp0(final double a_value) {
+        return (a_value > 0.0 ? a_value : 0.0);
+    }
+
+    public static float jClamp0(final float a_value) {
+        return (a_value > 0.0f ? a_value : 0.0f);
+    }
+
+    public static int jClamp0(final int a_value) {
+        return (a_value > 0 ? a_value : 0);
     }
 
     /**
@@ -224,22 +279,28 @@ public class JMaths {
      * @param a_value
      * @return
      */
-    public static double jClamp01(double a_value) {
+    public static double jClamp01(final double a_value) {
         return (jClamp(a_value, 0.0, 1.0));
     }
 
+    public static float jClamp01(final float a_value) {
+        return (jClamp(a_value, 0.0f, 1.0f));
+    }
+
     /**
      * Check whether \e value is in the range of [low, high].
      *
-     * @param <T>
-     * @param <V>
      * @param a_value
      * @param a_low
      * @param a_high
      * @return
      */
-    public static <T extends Number, V extends Number> boolean jContains(final T a_value, final V a_low, final V a_high) {
-        return ((a_value.doubleValue() >= a_low.doubleValue()) && (a_value.doubleValue() <= a_high.doubleValue()));
+    public static boolean jContains(final double a_value, final double a_low, final double a_high) {
+        return ((a_value >= a_low) && (a_value <= a_high));
+    }
+
+    public static boolean jContains(final int a_value, final int a_low, final int a_high) {
+        return ((a_value >= a_low) && (a_value <= a_high));
     }
 
     /**
@@ -474,6 +535,143 @@ public class JMaths {
         return (a_point1.distancesq(a_point2));
     }
 
+    /**
+     * Compute \e Result = \e Vector1 + \e Value * \e Vector2, without allocating.
+     * The result may be one of the inputs.
+     *
+     * @param a_vector1
+     * @param a_value
+     * @param a_vector2
+     * @param a_result
+     */
+    public static void jAddScaled(final JVector3d a_vector1, final double a_value,
+            final JVector3d a_vector2, JVector3d a_result) {
+        a_result.x = a_vector1.x + a_value * a_vector2.x;
+        a_result.y = a_vector1.y + a_value * a_vector2.y;
+        a_result.z = a_vector1.z + a_value * a_vector2.z;
+    }
+
+    /**
+     * Linear interpolation from \e vector1 (when a=0) to \e vector2 (when a=1),
+     * without allocating. The result may be one of the inputs.
+     *
+     * @param a_level
+     * @param a_vector1
+     * @param a_vector2
+     * @param a_result
+     */
+    public static void jLerp(final double a_level, final JVector3d a_vector1,
+            final JVector3d a_vector2, JVector3d a_result) {
+        double b = 1 - a_level;
+        a_result.x = a_vector2.x * a_level + a_vector1.x * b;
+        a_result.y = a_vector2.y * a_level + a_vector1.y * b;
+        a_result.z = a_vector2.z * a_level + a_vector1.z * b;
+    }
+
+    /**
+     * Compute the component-wise minimum of two vectors, without allocating.
+     * The result may be one of the inputs.
+     *
+     * @param a_vector1
+     * @param a_vector2
+     * @param a_result
+     */
+    public static void jMin(final JVector3d a_vector1, final JVector3d a_vector2, JVector3d a_result) {
+        a_result.x = jMin(a_vector1.x, a_vector2.x);
+        a_result.y = jMin(a_vector1.y, a_vector2.y);
+        a_result.z = jMin(a_vector1.z, a_vector2.z);
+    }
+
+    /**
+     * Compute the component-wise maximum of two vectors, without allocating.
+     * The result may be one of the inputs.
+     *
+     * @param a_vector1
+     * @param a_vector2
+     * @param a_result
+     */
+    public static void jMax(final JVector3d a_vector1, final JVector3d a_vector2, JVector3d a_result) {
+        a_result.x = jMax(a_vector1.x, a_vector2.x);
+        a_result.y = jMax(a_vector1.y, a_vector2.y);
+        a_result.z = jMax(a_vector1.z, a_vector2.z);
+    }
+
+    /**
+     * Clamp each component of a vector to a box, without allocating. The
+     * result may be one of the inputs.
+     *
+     * @param a_vector
+     * @param a_low
+     * @param a_high
+     * @param a_result
+     */
+    public static void jClamp(final JVector3d a_vector, final JVector3d a_low,
+            final JVector3d a_high, JVector3d a_result) {
+        a_result.x = jClamp(a_vector.x, a_low.x, a_high.x);
+        a_result.y = jClamp(a_vector.y, a_low.y, a_high.y);
+        a_result.z = jClamp(a_vector.z, a_low.z, a_high.z);
+    }
+
+    /**
+     * Transform a point from a local frame to its parent frame, without
+     * allocating: \e Result = \e Position + \e Rotation * \e Point. The result
+     * may be the input point.
+     *
+     * @param a_position position of the local frame.
+     * @param a_rotation rotation of the local frame.
+     * @param a_point point in the local frame.
+     * @param a_result point in the parent frame.
+     */
+    public static void jTransform(final JVector3d a_position, final JMatrix3d a_rotation,
+            final JVector3d a_point, JVector3d a_result) {
+        final JMatrix3d m = a_rotation;
+        double x = a_point.x;
+        double y = a_point.y;
+        double z = a_point.z;
+        a_result.x = a_position.x + m.m00 * x + m.m01 * y + m.m02 * z;
+        a_result.y = a_position.y + m.m10 * x + m.m11 * y + m.m12 * z;
+        a_result.z = a_position.z + m.m20 * x + m.m21 * y + m.m22 * z;
+    }
+
+    /**
+     * Transform a point from a parent frame to a local frame, without
+     * allocating: \e Result = transpose(\e Rotation) * (\e Point - \e Position).
+     * The result may be the input point.
+     *
+     * @param a_position position of the local frame.
+     * @param a_rotation rotation of the local frame.
+     * @param a_point point in the parent frame.
+     * @param a_result point in the local frame.
+     */
+    public static void jInverseTransform(final JVector3d a_position, final JMatrix3d a_rotation,
+            final JVector3d a_point, JVector3d a_result) {
+        final JMatrix3d m = a_rotation;
+        double x = a_point.x - a_position.x;
+        double y = a_point.y - a_position.y;
+        double z = a_point.z - a_position.z;
+        a_result.x = m.m00 * x + m.m10 * y + m.m20 * z;
+        a_result.y = m.m01 * x + m.m11 * y + m.m21 * z;
+        a_result.z = m.m02 * x + m.m12 * y + m.m22 * z;
+    }
+
+    /**
+     * Rotate a vector by the transpose of a rotation, without allocating.
+     * The result may be the input vector.
+     *
+     * @param a_rotation
+     * @param a_vector
+     * @param a_result
+     */
+    public static void jTransMul(final JMatrix3d a_rotation, final JVector3d a_vector, JVector3d a_result) {
+        final JMatrix3d m = a_rotation;
+        double x = a_vector.x;
+        double y = a_vector.y;
+        double z = a_vector.z;
+        a_result.x = m.m00 * x + m.m10 * y + m.m20 * z;
+        a_result.y = m.m01 * x + m.m11 * y + m.m21 * z;
+        a_result.z = m.m02 * x + m.m12 * y + m.m22 * z;
+    }
+
 
     public static boolean jEqualPoints(final JVector3d v1,
             final JVector3d v2) {
@@ -793,6 +991,104 @@ public class JMaths {
         }
     }
 
+    /**
+     * Compute the point of a triangle closest to a point ("Real-Time
+     * Collision Detection", C. Ericson, 5.1.5). Does not allocate.
+     *
+     * @param aPoint the point.
+     * @param aVertex0 first vertex of the triangle.
+     * @param aVertex1 second vertex of the triangle.
+     * @param aVertex2 third vertex of the triangle.
+     * @param aResult resulting closest point.
+     * @return the square distance between the point and the triangle.
+     */
+    public static double jClosestPointOnTriangle(final JVector3d aPoint,
+            final JVector3d aVertex0, final JVector3d aVertex1,
+            final JVector3d aVertex2, JVector3d aResult) {
+        return (jClosestPointOnTriangle(aPoint.x, aPoint.y, aPoint.z,
+                aVertex0, aVertex1, aVertex2, aResult));
+    }
+
+    /**
+     * Compute the point of a triangle closest to a point given by its
+     * coordinates. Does not allocate.
+     *
+     * @return the square distance between the point and the triangle.
+     */
+    public static double jClosestPointOnTriangle(double aX, double aY, double aZ,
+            final JVector3d aVertex0, final JVector3d aVertex1,
+            final JVector3d aVertex2, JVector3d aResult) {
+        double abx = aVertex1.x - aVertex0.x, aby = aVertex1.y - aVertex0.y, abz = aVertex1.z - aVertex0.z;
+        double acx = aVertex2.x - aVertex0.x, acy = aVertex2.y - aVertex0.y, acz = aVertex2.z - aVertex0.z;
+        double apx = aX - aVertex0.x, apy = aY - aVertex0.y, apz = aZ - aVertex0.z;
+
+        // vertex region of vertex 0
+        double d1 = abx * apx + aby * apy + abz * apz;
+        double d2 = acx * apx + acy * apy + acz * apz;
+        if ((d1 <= 0.0) && (d2 <= 0.0)) {
+            aResult.copyFrom(aVertex0);
+            return (aResult.distancesq(aX, aY, aZ));
+        }
+
+        // vertex region of vertex 1
+        double bpx = aX - aVertex1.x, bpy = aY - aVertex1.y, bpz = aZ - aVertex1.z;
+        double d3 = abx * bpx + aby * bpy + abz * bpz;
+        double d4 = acx * bpx + acy * bpy + acz * bpz;
+        if ((d3 >= 0.0) && (d4 <= d3)) {
+            aResult.copyFrom(aVertex1);
+            return (aResult.distancesq(aX, aY, aZ));
+        }
+
+        // edge region of edge 01
+        double vc = d1 * d4 - d3 * d2;
+        if ((vc <= 0.0) && (d1 >= 0.0) && (d3 <= 0.0)) {
+            double v = d1 / (d1 - d3);
+            aResult.set(aVertex0.x + v * abx, aVertex0.y + v * aby, aVertex0.z + v * abz);
+            return (aResult.distancesq(aX, aY, aZ));
+        }
+
+        // vertex region of vertex 2
+        double cpx = aX - aVertex2.x, cpy = aY - aVertex2.y, cpz = aZ - aVertex2.z;
+        double d5 = abx * cpx + aby * cpy + abz * cpz;
+        double d6 = acx * cpx + acy * cpy + acz * cpz;
+        if ((d6 >= 0.0) && (d5 <= d6)) {
+            aResult.copyFrom(aVertex2);
+            return (aResult.distancesq(aX, aY, aZ));
+        }
+
+        // edge region of edge 02
+        double vb = d5 * d2 - d1 * d6;
+        if ((vb <= 0.0) && (d2 >= 0.0) && (d6 <= 0.0)) {
+            double w = d2 / (d2 - d6);
+            aResult.set(aVertex0.x + w * acx, aVertex0.y + w * acy, aVertex0.z + w * acz);
+            return (aResult.distancesq(aX, aY, aZ));
+        }
+
+        // edge region of edge 12
+        double va = d3 * d6 - d5 * d4;
+        if ((va <= 0.0) && ((d4 - d3) >= 0.0) && ((d5 - d6) >= 0.0)) {
+            double w = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+            aResult.set(aVertex1.x + w * (aVertex2.x - aVertex1.x),
+                    aVertex1.y + w * (aVertex2.y - aVertex1.y),
+                    aVertex1.z + w * (aVertex2.z - aVertex1.z));
+            return (aResult.distancesq(aX, aY, aZ));
+        }
+
+        // face region
+        double denom = va + vb + vc;
+        if (denom <= 0.0) {
+            // degenerate triangle
+            aResult.copyFrom(aVertex0);
+            return (aResult.distancesq(aX, aY, aZ));
+        }
+        double v = vb / denom;
+        double w = vc / denom;
+        aResult.set(aVertex0.x + abx * v + acx * w,
+                aVertex0.y + aby * v + acy * w,
+                aVertex0.z + abz * v + acz * w);
+        return (aResult.distancesq(aX, aY, aZ));
+    }
+
     /**
      * Project a vector \e V0 onto a second vector \e V1.
      * @param aVector0
@@ -919,8 +1215,11 @@ public class JMaths {
 
         // two intersection points are located along segment AB
         if (valid_u0 && valid_u1) {
+            // point 0 is the one nearest to segment point A
             if (u0 > u1) {
-                jSwap(u0, u1);
+                double tmp = u0;
+                u0 = u1;
+                u1 = tmp;
             }
 
             // compute point 0
@@ -1020,7 +1319,9 @@ public class JMaths {
 
             // reorder solutions
             if (u0 > u1) {
-                jSwap(u0, u1);
+                double tmp = u0;
+                u0 = u1;
+                u1 = tmp;
             }
 
             boolean valid_u0 = true;
@@ -1042,8 +1343,8 @@ public class JMaths {
             JVector3d cylinderDirNeg = jNegate(cylinderDir);
 
             if (valid_u0) {
-                segmentDir.operatorMul(u0);
-                P0 = aSegmentPointA.operatorAdd(segmentDir);
+                segmentDir.mulr(u0, P0);
+                P0.add(aSegmentPointA);
                 double cosAngleA = jCosAngle(cylinderDir, jSub(P0, aCylinderPointA));
                 double cosAngleB = jCosAngle(cylinderDirNeg, jSub(P0, aCylinderPointB));
 
@@ -1053,8 +1354,8 @@ public class JMaths {
             }
 
             if (valid_u1) {
-                segmentDir.operatorMul(u1);
-                P1 = aSegmentPointA.operatorAdd(segmentDir);
+                segmentDir.mulr(u1, P1);
+                P1.add(aSegmentPointA);
                 double cosAngleA = jCosAngle(cylinderDir, jSub(P1, aCylinderPointA));
                 double cosAngleB = jCosAngle(cylinderDirNeg, jSub(P1, aCylinderPointB));
 
@@ -20,24 +20,79 @@ package org.jchai3d.math;
 import org.jchai3d.extras.JGlobals;
 
 /**
+ * JMatrix3d is a 3x3 matrix, stored row by row in nine fields (\e mij is
+ * the element of row \e i and column \e j) so that a matrix is a single
+ * object and its elements are read without indirection.
  *
  * @author jairo
  */
 public class JMatrix3d {
 
-    public double[][] m;
+    public double m00, m01, m02;
+    public double m10, m11, m12;
+    public double m20, m21, m22;
 
     /**
      * Constructor of cMatrix3d.
      */
     public JMatrix3d() {
-        m = new double[3][3];
     }
-    
+
+
     public JMatrix3d(JMatrix3d o) {
         copyFrom(o);
     }
 
+    /**
+     * Read the element of a row and a column.
+     *
+     * @param a_row
+     * @param a_col
+     * @return
+     */
+    public final double get(final int a_row, final int a_col) {
+        if ((a_col < 0) || (a_col > 2)) {
+            throw new IndexOutOfBoundsException("(" + a_row + ", " + a_col + ")");
+        }
+        switch (3 * a_row + a_col) {
+            case 0: return (m00);
+            case 1: return (m01);
+            case 2: return (m02);
+            case 3: return (m10);
+            case 4: return (m11);
+            case 5: return (m12);
+            case 6: return (m20);
+            case 7: return (m21);
+            case 8: return (m22);
+            default: throw new IndexOutOfBoundsException("(" + a_row + ", " + a_col + ")");
+        }
+    }
+
+    /**
+     * Set the element of a row and a column.
+     *
+     * @param a_row
+     * @param a_col
+     * @param a_value
+     */
+    public final void set(final int a_row, final int a_col, final double a_value) {
+        if ((a_col < 0) || (a_col > 2)) {
+            throw new IndexOutOfBoundsException("(" + a_row + ", " + a_col + ")");
+        }
+        switch (3 * a_row + a_col) {
+            case 0: m00 = a_value; break;
+            case 1: m01 = a_value; break;
+            case 2: m02 = a_value; break;
+            case 3: m10 = a_value; break;
+            case 4: m11 = a_value; break;
+            case 5: m12 = a_value; break;
+            case 6: m20 = a_value; break;
+            case 7: m21 = a_value; break;
+            case 8: m22 = a_value; break;
+            default: throw new IndexOutOfBoundsException("(" + a_row + ", " + a_col + ")");
+        }
+    }
+
     /**
      * Initialize a matrix with a scalar which is copied to each cell of
     the matrix.
@@ -45,15 +100,15 @@ public class JMatrix3d {
      * @param a_value
      */
     public void set(final double a_value) {
-        m[0][0] = a_value;
-        m[0][1] = a_value;
-        m[0][2] = a_value;
-        m[1][0] = a_value;
-        m[1][1] = a_value;
-        m[1][2] = a_value;
-        m[2][0] = a_value;
-        m[2][1] = a_value;
-        m[2][2] = a_value;
+        m00 = a_value;
+        m01 = a_value;
+        m02 = a_value;
+        m10 = a_value;
+        m11 = a_value;
+        m12 = a_value;
+        m20 = a_value;
+        m21 = a_value;
+        m22 = a_value;
 
     }
 
@@ -73,15 +128,15 @@ public class JMatrix3d {
     public void set(final double a_m00, final double a_m01, final double a_m02,
             final double a_m10, final double a_m11, final double a_m12,
             final double a_m20, final double a_m21, final double a_m22) {
-        m[0][0] = a_m00;
-        m[0][1] = a_m01;
-        m[0][2] = a_m02;
-        m[1][0] = a_m10;
-        m[1][1] = a_m11;
-        m[1][2] = a_m12;
-        m[2][0] = a_m20;
-        m[2][1] = a_m21;
-        m[2][2] = a_m22;
+        m00 = a_m00;
+        m01 = a_m01;
+        m02 = a_m02;
+        m10 = a_m10;
+        m11 = a_m11;
+        m12 = a_m12;
+        m20 = a_m20;
+        m21 = a_m21;
+        m22 = a_m22;
 
     }
 
@@ -95,15 +150,15 @@ public class JMatrix3d {
      */
     public void setCol(final JVector3d a_vectCol0, final JVector3d a_vectCol1,
             final JVector3d a_vectCol2) {
-        m[0][0] = a_vectCol0.getX();
-        m[0][1] = a_vectCol1.getX();
-        m[0][2] = a_vectCol2.getX();
-        m[1][0] = a_vectCol0.getY();
-        m[1][1] = a_vectCol1.getY();
-        m[1][2] = a_vectCol2.getY();
-        m[2][0] = a_vectCol0.getZ();
-        m[2][1] = a_vectCol1.getZ();
-        m[2][2] = a_vectCol2.getZ();
+        m00 = a_vectCol0.getX();
+        m01 = a_vectCol1.getX();
+        m02 = a_vectCol2.getX();
+        m10 = a_vectCol0.getY();
+        m11 = a_vectCol1.getY();
+        m12 = a_vectCol2.getY();
+        m20 = a_vectCol0.getZ();
+        m21 = a_vectCol1.getZ();
+        m22 = a_vectCol2.getZ();
 
     }
 
@@ -113,9 +168,9 @@ public class JMatrix3d {
      * @param a_vectCol
      */
     public void setCol0(final JVector3d a_vectCol) {
-        m[0][0] = a_vectCol.getX();
-        m[1][0] = a_vectCol.getY();
-        m[2][0] = a_vectCol.getZ();
+        m00 = a_vectCol.getX();
+        m10 = a_vectCol.getY();
+        m20 = a_vectCol.getZ();
 
 
 
@@ -127,9 +182,9 @@ public class JMatrix3d {
      * @param a_vectCol
      */
     public void setCol1(final JVector3d a_vectCol) {
-        m[0][1] = a_vectCol.getX();
-        m[1][1] = a_vectCol.getY();
-        m[2][1] = a_vectCol.getZ();
+        m01 = a_vectCol.getX();
+        m11 = a_vectCol.getY();
+        m21 = a_vectCol.getZ();
 
 
 
@@ -141,9 +196,9 @@ public class JMatrix3d {
      * @param a_vectCol
      */
     public void setCol2(final JVector3d a_vectCol) {
-        m[0][2] = a_vectCol.getX();
-        m[1][2] = a_vectCol.getY();
-        m[2][2] = a_vectCol.getZ();
+        m02 = a_vectCol.getX();
+        m12 = a_vectCol.getY();
+        m22 = a_vectCol.getZ();
 
 
 
@@ -156,9 +211,9 @@ public class JMatrix3d {
      */
     public final JVector3d getCol0() {
         JVector3d result = new JVector3d();
-        result.setX(m[0][0]);
-        result.setY(m[1][0]);
-        result.setZ(m[2][0]);
+        result.setX(m00);
+        result.setY(m10);
+        result.setZ(m20);
 
 
 
@@ -172,9 +227,9 @@ public class JMatrix3d {
      */
     public final JVector3d getCol1() {
         JVector3d result = new JVector3d();
-        result.setX(m[0][1]);
-        result.setY(m[1][1]);
-        result.setZ(m[2][1]);
+        result.setX(m01);
+        result.setY(m11);
+        result.setZ(m21);
 
 
 
@@ -188,9 +243,9 @@ public class JMatrix3d {
      */
     public final JVector3d getCol2() {
         JVector3d result = new JVector3d();
-        result.setX(m[0][2]);
-        result.setY(m[1][2]);
-        result.setZ(m[2][2]);
+        result.setX(m02);
+        result.setY(m12);
+        result.setZ(m22);
 
 
 
@@ -205,9 +260,9 @@ public class JMatrix3d {
      */
     public final JVector3d getRow(final int index) {
         JVector3d result = new JVector3d();
-        result.setX(m[index][0]);
-        result.setY(m[index][1]);
-        result.setZ(m[index][2]);
+        result.setX(get(index, 0));
+        result.setY(get(index, 1));
+        result.setZ(get(index, 2));
 
 
 
@@ -220,15 +275,15 @@ public class JMatrix3d {
      * @param a_destination
      */
     public final void copyTo(JMatrix3d a_destination) {
-        a_destination.m[0][0] = m[0][0];
-        a_destination.m[0][1] = m[0][1];
-        a_destination.m[0][2] = m[0][2];
-        a_destination.m[1][0] = m[1][0];
-        a_destination.m[1][1] = m[1][1];
-        a_destination.m[1][2] = m[1][2];
-        a_destination.m[2][0] = m[2][0];
-        a_destination.m[2][1] = m[2][1];
-        a_destination.m[2][2] = m[2][2];
+        a_destination.m00 = m00;
+        a_destination.m01 = m01;
+        a_destination.m02 = m02;
+        a_destination.m10 = m10;
+        a_destination.m11 = m11;
+        a_destination.m12 = m12;
+        a_destination.m20 = m20;
+        a_destination.m21 = m21;
+        a_destination.m22 = m22;
 
     }
 
@@ -238,15 +293,15 @@ public class JMatrix3d {
      * @param a_source
      */
     public void copyFrom(final JMatrix3d a_source) {
-        m[0][0] = a_source.m[0][0];
-        m[0][1] = a_source.m[0][1];
-        m[0][2] = a_source.m[0][2];
-        m[1][0] = a_source.m[1][0];
-        m[1][1] = a_source.m[1][1];
-        m[1][2] = a_source.m[1][2];
-        m[2][0] = a_source.m[2][0];
-        m[2][1] = a_source.m[2][1];
-        m[2][2] = a_source.m[2][2];
+        m00 = a_source.m00;
+        m01 = a_source.m01;
+        m02 = a_source.m02;
+        m10 = a_source.m10;
+        m11 = a_source.m11;
+        m12 = a_source.m12;
+        m20 = a_source.m20;
+        m21 = a_source.m21;
+        m22 = a_source.m22;
 
     }
 
@@ -254,15 +309,15 @@ public class JMatrix3d {
      * Set the identity matrix.
      */
     public void identity() {
-        m[0][0] = 1.0;
-        m[0][1] = 0.0;
-        m[0][2] = 0.0;
-        m[1][0] = 0.0;
-        m[1][1] = 1.0;
-        m[1][2] = 0.0;
-        m[2][0] = 0.0;
-        m[2][1] = 0.0;
-        m[2][2] = 1.0;
+        m00 = 1.0;
+        m01 = 0.0;
+        m02 = 0.0;
+        m10 = 0.0;
+        m11 = 1.0;
+        m12 = 0.0;
+        m20 = 0.0;
+        m21 = 0.0;
+        m22 = 1.0;
 
     }
 
@@ -273,26 +328,26 @@ public class JMatrix3d {
      */
     public void mul(final JMatrix3d a_matrix) {
         // compute multiplication between both matrices
-        double m00 = m[0][0] * a_matrix.m[0][0] + m[0][1] * a_matrix.m[1][0] + m[0][2] * a_matrix.m[2][0];
-        double m01 = m[0][0] * a_matrix.m[0][1] + m[0][1] * a_matrix.m[1][1] + m[0][2] * a_matrix.m[2][1];
-        double m02 = m[0][0] * a_matrix.m[0][2] + m[0][1] * a_matrix.m[1][2] + m[0][2] * a_matrix.m[2][2];
-        double m10 = m[1][0] * a_matrix.m[0][0] + m[1][1] * a_matrix.m[1][0] + m[1][2] * a_matrix.m[2][0];
-        double m11 = m[1][0] * a_matrix.m[0][1] + m[1][1] * a_matrix.m[1][1] + m[1][2] * a_matrix.m[2][1];
-        double m12 = m[1][0] * a_matrix.m[0][2] + m[1][1] * a_matrix.m[1][2] + m[1][2] * a_matrix.m[2][2];
-        double m20 = m[2][0] * a_matrix.m[0][0] + m[2][1] * a_matrix.m[1][0] + m[2][2] * a_matrix.m[2][0];
-        double m21 = m[2][0] * a_matrix.m[0][1] + m[2][1] * a_matrix.m[1][1] + m[2][2] * a_matrix.m[2][1];
-        double m22 = m[2][0] * a_matrix.m[0][2] + m[2][1] * a_matrix.m[1][2] + m[2][2] * a_matrix.m[2][2];
+        double t00 = m00 * a_matrix.m00 + m01 * a_matrix.m10 + m02 * a_matrix.m20;
+        double t01 = m00 * a_matrix.m01 + m01 * a_matrix.m11 + m02 * a_matrix.m21;
+        double t02 = m00 * a_matrix.m02 + m01 * a_matrix.m12 + m02 * a_matrix.m22;
+        double t10 = m10 * a_matrix.m00 + m11 * a_matrix.m10 + m12 * a_matrix.m20;
+        double t11 = m10 * a_matrix.m01 + m11 * a_matrix.m11 + m12 * a_matrix.m21;
+        double t12 = m10 * a_matrix.m02 + m11 * a_matrix.m12 + m12 * a_matrix.m22;
+        double t20 = m20 * a_matrix.m00 + m21 * a_matrix.m10 + m22 * a_matrix.m20;
+        double t21 = m20 * a_matrix.m01 + m21 * a_matrix.m11 + m22 * a_matrix.m21;
+        double t22 = m20 * a_matrix.m02 + m21 * a_matrix.m12 + m22 * a_matrix.m22;
 
         // return values to current matrix
-        m[0][0] = m00;
-        m[0][1] = m01;
-        m[0][2] = m02;
-        m[1][0] = m10;
-        m[1][1] = m11;
-        m[1][2] = m12;
-        m[2][0] = m20;
-        m[2][1] = m21;
-        m[2][2] = m22;
+        m00 = t00;
+        m01 = t01;
+        m02 = t02;
+        m10 = t10;
+        m11 = t11;
+        m12 = t12;
+        m20 = t20;
+        m21 = t21;
+        m22 = t22;
 
     }
 
@@ -305,15 +360,15 @@ public class JMatrix3d {
      */
     public final void mulr(final JMatrix3d a_matrix, JMatrix3d a_result) {
         // compute multiplication between both matrices
-        a_result.m[0][0] = m[0][0] * a_matrix.m[0][0] + m[0][1] * a_matrix.m[1][0] + m[0][2] * a_matrix.m[2][0];
-        a_result.m[0][1] = m[0][0] * a_matrix.m[0][1] + m[0][1] * a_matrix.m[1][1] + m[0][2] * a_matrix.m[2][1];
-        a_result.m[0][2] = m[0][0] * a_matrix.m[0][2] + m[0][1] * a_matrix.m[1][2] + m[0][2] * a_matrix.m[2][2];
-        a_result.m[1][0] = m[1][0] * a_matrix.m[0][0] + m[1][1] * a_matrix.m[1][0] + m[1][2] * a_matrix.m[2][0];
-        a_result.m[1][1] = m[1][0] * a_matrix.m[0][1] + m[1][1] * a_matrix.m[1][1] + m[1][2] * a_matrix.m[2][1];
-        a_result.m[1][2] = m[1][0] * a_matrix.m[0][2] + m[1][1] * a_matrix.m[1][2] + m[1][2] * a_matrix.m[2][2];
-        a_result.m[2][0] = m[2][0] * a_matrix.m[0][0] + m[2][1] * a_matrix.m[1][0] + m[2][2] * a_matrix.m[2][0];
-        a_result.m[2][1] = m[2][0] * a_matrix.m[0][1] + m[2][1] * a_matrix.m[1][1] + m[2][2] * a_matrix.m[2][1];
-        a_result.m[2][2] = m[2][0] * a_matrix.m[0][2] + m[2][1] * a_matrix.m[1][2] + m[2][2] * a_matrix.m[2][2];
+        a_result.m00 = m00 * a_matrix.m00 + m01 * a_matrix.m10 + m02 * a_matrix.m20;
+        a_result.m01 = m00 * a_matrix.m01 + m01 * a_matrix.m11 + m02 * a_matrix.m21;
+        a_result.m02 = m00 * a_matrix.m02 + m01 * a_matrix.m12 + m02 * a_matrix.m22;
+        a_result.m10 = m10 * a_matrix.m00 + m11 * a_matrix.m10 + m12 * a_matrix.m20;
+        a_result.m11 = m10 * a_matrix.m01 + m11 * a_matrix.m11 + m12 * a_matrix.m21;
+        a_result.m12 = m10 * a_matrix.m02 + m11 * a_matrix.m12 + m12 * a_matrix.m22;
+        a_result.m20 = m20 * a_matrix.m00 + m21 * a_matrix.m10 + m22 * a_matrix.m20;
+        a_result.m21 = m20 * a_matrix.m01 + m21 * a_matrix.m11 + m22 * a_matrix.m21;
+        a_result.m22 = m20 * a_matrix.m02 + m21 * a_matrix.m12 + m22 * a_matrix.m22;
     }
 
     /**
@@ -324,9 +379,9 @@ public class JMatrix3d {
      */
     public final void mul(JVector3d a_vector) {
         // compute multiplication
-        double x = m[0][0] * a_vector.getX() + m[0][1] * a_vector.getY() + m[0][2] * a_vector.getZ();
-        double y = m[1][0] * a_vector.getX() + m[1][1] * a_vector.getY() + m[1][2] * a_vector.getZ();
-        double z = m[2][0] * a_vector.getX() + m[2][1] * a_vector.getY() + m[2][2] * a_vector.getZ();
+        double x = m00 * a_vector.getX() + m01 * a_vector.getY() + m02 * a_vector.getZ();
+        double y = m10 * a_vector.getX() + m11 * a_vector.getY() + m12 * a_vector.getZ();
+        double z = m20 * a_vector.getX() + m21 * a_vector.getY() + m22 * a_vector.getZ();
 
         // store result
         a_vector.setX(x);
@@ -344,9 +399,9 @@ public class JMatrix3d {
      */
     public final void mulr(final JVector3d a_vector, JVector3d a_result) {
         // compute multiplication
-        a_result.setX(m[0][0] * a_vector.getX() + m[0][1] * a_vector.getY() + m[0][2] * a_vector.getZ());
-        a_result.setY(m[1][0] * a_vector.getX() + m[1][1] * a_vector.getY() + m[1][2] * a_vector.getZ());
-        a_result.setZ(m[2][0] * a_vector.getX() + m[2][1] * a_vector.getY() + m[2][2] * a_vector.getZ());
+        a_result.setX(m00 * a_vector.getX() + m01 * a_vector.getY() + m02 * a_vector.getZ());
+        a_result.setY(m10 * a_vector.getX() + m11 * a_vector.getY() + m12 * a_vector.getZ());
+        a_result.setZ(m20 * a_vector.getX() + m21 * a_vector.getY() + m22 * a_vector.getZ());
     }
 
     /**
@@ -355,12 +410,12 @@ public class JMatrix3d {
      * @return
      */
     public final double det() {
-        return (+m[0][0] * m[1][1] * m[2][2]
-                + m[0][1] * m[1][2] * m[2][0]
-                + m[0][2] * m[1][0] * m[2][1]
-                - m[2][0] * m[1][1] * m[0][2]
-                - m[2][1] * m[1][2] * m[0][0]
-                - m[2][2] * m[1][0] * m[0][1]);
+        return (+m00 * m11 * m22
+                + m01 * m12 * m20
+                + m02 * m10 * m21
+                - m20 * m11 * m02
+                - m21 * m12 * m00
+                - m22 * m10 * m01);
     }
 
     /**
@@ -368,15 +423,15 @@ public class JMatrix3d {
      */
     public void trans() {
         double t;
-        t = m[0][1];
-        m[0][1] = m[1][0];
-        m[1][0] = t;
-        t = m[0][2];
-        m[0][2] = m[2][0];
-        m[2][0] = t;
-        t = m[1][2];
-        m[1][2] = m[2][1];
-        m[2][1] = t;
+        t = m01;
+        m01 = m10;
+        m10 = t;
+        t = m02;
+        m02 = m20;
+        m20 = t;
+        t = m12;
+        m12 = m21;
+        m21 = t;
     }
 
     /**
@@ -387,17 +442,17 @@ public class JMatrix3d {
      * @param a_result
      */
     public final void transr(JMatrix3d a_result) {
-        a_result.m[0][0] = m[0][0];
-        a_result.m[0][1] = m[1][0];
-        a_result.m[0][2] = m[2][0];
+        a_result.m00 = m00;
+        a_result.m01 = m10;
+        a_result.m02 = m20;
 
-        a_result.m[1][0] = m[0][1];
-        a_result.m[1][1] = m[1][1];
-        a_result.m[1][2] = m[2][1];
+        a_result.m10 = m01;
+        a_result.m11 = m11;
+        a_result.m12 = m21;
 
-        a_result.m[2][0] = m[0][2];
-        a_result.m[2][1] = m[1][2];
-        a_result.m[2][2] = m[2][2];
+        a_result.m20 = m02;
+        a_result.m21 = m12;
+        a_result.m22 = m22;
     }
 
     /**
@@ -408,12 +463,12 @@ public class JMatrix3d {
      */
     public boolean invert() {
         // compute determinant
-        double det = (+m[0][0] * m[1][1] * m[2][2]
-                + m[0][1] * m[1][2] * m[2][0]
-                + m[0][2] * m[1][0] * m[2][1]
-                - m[2][0] * m[1][1] * m[0][2]
-                - m[2][1] * m[1][2] * m[0][0]
-                - m[2][2] * m[1][0] * m[0][1]);
+        double det = (+m00 * m11 * m22
+                + m01 * m12 * m20
+                + m02 * m10 * m21
+                - m20 * m11 * m02
+                - m21 * m12 * m00
+                - m22 * m10 * m01);
 
         // check if determinant null
         if ((det < JConstants.CHAI_TINY) && (det > -JConstants.CHAI_TINY)) {
@@ -422,28 +477,28 @@ public class JMatrix3d {
         } else {
 
             // compute inverted matrix
-            double m00 = (m[1][1] * m[2][2] - m[2][1] * m[1][2]) / det;
-            double m01 = -(m[0][1] * m[2][2] - m[2][1] * m[0][2]) / det;
-            double m02 = (m[0][1] * m[1][2] - m[1][1] * m[0][2]) / det;
+            double t00 = (m11 * m22 - m21 * m12) / det;
+            double t01 = -(m01 * m22 - m21 * m02) / det;
+            double t02 = (m01 * m12 - m11 * m02) / det;
 
-            double m10 = -(m[1][0] * m[2][2] - m[2][0] * m[1][2]) / det;
-            double m11 = (m[0][0] * m[2][2] - m[2][0] * m[0][2]) / det;
-            double m12 = -(m[0][0] * m[1][2] - m[1][0] * m[0][2]) / det;
+            double t10 = -(m10 * m22 - m20 * m12) / det;
+            double t11 = (m00 * m22 - m20 * m02) / det;
+            double t12 = -(m00 * m12 - m10 * m02) / det;
 
-            double m20 = (m[1][0] * m[2][1] - m[2][0] * m[1][1]) / det;
-            double m21 = -(m[0][0] * m[2][1] - m[2][0] * m[0][1]) / det;
-            double m22 = (m[0][0] * m[1][1] - m[1][0] * m[0][1]) / det;
+            double t20 = (m10 * m21 - m20 * m11) / det;
+            double t21 = -(m00 * m21 - m20 * m01) / det;
+            double t22 = (m00 * m11 - m10 * m01) / det;
 
             // return values to current matrix
-            m[0][0] = m00;
-            m[0][1] = m01;
-            m[0][2] = m02;
-            m[1][0] = m10;
-            m[1][1] = m11;
-            m[1][2] = m12;
-            m[2][0] = m20;
-            m[2][1] = m21;
-            m[2][2] = m22;
+            m00 = t00;
+            m01 = t01;
+            m02 = t02;
+            m10 = t10;
+            m11 = t11;
+            m12 = t12;
+            m20 = t20;
+            m21 = t21;
+            m22 = t22;
 
             // return success
             return (true);
@@ -474,12 +529,12 @@ public class JMatrix3d {
      */
     public final boolean invertr(JMatrix3d a_result) {
         // compute determinant
-        double det = (+m[0][0] * m[1][1] * m[2][2]
-                + m[0][1] * m[1][2] * m[2][0]
-                + m[0][2] * m[1][0] * m[2][1]
-                - m[2][0] * m[1][1] * m[0][2]
-                - m[2][1] * m[1][2] * m[0][0]
-                - m[2][2] * m[1][0] * m[0][1]);
+        double det = (+m00 * m11 * m22
+                + m01 * m12 * m20
+                + m02 * m10 * m21
+                - m20 * m11 * m02
+                - m21 * m12 * m00
+                - m22 * m10 * m01);
 
         // check if determinant null.
         if ((det < JConstants.CHAI_TINY) && (det > -JConstants.CHAI_TINY)) {
@@ -488,17 +543,17 @@ public class JMatrix3d {
         } else {
 
             // compute inverted matrix
-            a_result.m[0][0] = (m[1][1] * m[2][2] - m[2][1] * m[1][2]) / det;
-            a_result.m[0][1] = -(m[0][1] * m[2][2] - m[2][1] * m[0][2]) / det;
-            a_result.m[0][2] = (m[0][1] * m[1][2] - m[1][1] * m[0][2]) / det;
+            a_result.m00 = (m11 * m22 - m21 * m12) / det;
+            a_result.m01 = -(m01 * m22 - m21 * m02) / det;
+            a_result.m02 = (m01 * m12 - m11 * m02) / det;
 
-            a_result.m[1][0] = -(m[1][0] * m[2][2] - m[2][0] * m[1][2]) / det;
-            a_result.m[1][1] = (m[0][0] * m[2][2] - m[2][0] * m[0][2]) / det;
-            a_result.m[1][2] = -(m[0][0] * m[1][2] - m[1][0] * m[0][2]) / det;
+            a_result.m10 = -(m10 * m22 - m20 * m12) / det;
+            a_result.m11 = (m00 * m22 - m20 * m02) / det;
+            a_result.m12 = -(m00 * m12 - m10 * m02) / det;
 
-            a_result.m[2][0] = (m[1][0] * m[2][1] - m[2][0] * m[1][1]) / det;
-            a_result.m[2][1] = -(m[0][0] * m[2][1] - m[2][0] * m[0][1]) / det;
-            a_result.m[2][2] = (m[0][0] * m[1][1] - m[1][0] * m[0][1]) / det;
+            a_result.m20 = (m10 * m21 - m20 * m11) / det;
+            a_result.m21 = -(m00 * m21 - m20 * m01) / det;
+            a_result.m22 = (m00 * m11 - m10 * m01) / det;
 
             // return success
             return (true);
@@ -533,15 +588,15 @@ public class JMatrix3d {
         double s = Math.sin(a_angleRad);
         double v = 1 - c;
 
-        m[0][0] = x * x * v + c;
-        m[0][1] = x * y * v - z * s;
-        m[0][2] = x * z * v + y * s;
-        m[1][0] = x * y * v + z * s;
-        m[1][1] = y * y * v + c;
-        m[1][2] = y * z * v - x * s;
-        m[2][0] = x * z * v - y * s;
-        m[2][1] = y * z * v + x * s;
-        m[2][2] = z * z * v + c;
+        m00 = x * x * v + c;
+        m01 = x * y * v - z * s;
+        m02 = x * z * v + y * s;
+        m10 = x * y * v + z * s;
+        m11 = y * y * v + c;
+        m12 = y * z * v - x * s;
+        m20 = x * z * v - y * s;
+        m21 = y * z * v + x * s;
+        m22 = z * z * v + c;
 
         // return success
         return (true);
@@ -574,37 +629,37 @@ public class JMatrix3d {
         double s = Math.sin(a_angleRad);
         double v = 1 - c;
 
-        double m00 = x * x * v + c;
-        double m01 = x * y * v - z * s;
-        double m02 = x * z * v + y * s;
-        double m10 = x * y * v + z * s;
-        double m11 = y * y * v + c;
-        double m12 = y * z * v - x * s;
-        double m20 = x * z * v - y * s;
-        double m21 = y * z * v + x * s;
-        double m22 = z * z * v + c;
+        double t00 = x * x * v + c;
+        double t01 = x * y * v - z * s;
+        double t02 = x * z * v + y * s;
+        double t10 = x * y * v + z * s;
+        double t11 = y * y * v + c;
+        double t12 = y * z * v - x * s;
+        double t20 = x * z * v - y * s;
+        double t21 = y * z * v + x * s;
+        double t22 = z * z * v + c;
 
         // compute multiplication between both matrices
-        double tm00 = m00 * m[0][0] + m01 * m[1][0] + m02 * m[2][0];
-        double tm01 = m00 * m[0][1] + m01 * m[1][1] + m02 * m[2][1];
-        double tm02 = m00 * m[0][2] + m01 * m[1][2] + m02 * m[2][2];
-        double tm10 = m10 * m[0][0] + m11 * m[1][0] + m12 * m[2][0];
-        double tm11 = m10 * m[0][1] + m11 * m[1][1] + m12 * m[2][1];
-        double tm12 = m10 * m[0][2] + m11 * m[1][2] + m12 * m[2][2];
-        double tm20 = m20 * m[0][0] + m21 * m[1][0] + m22 * m[2][0];
-        double tm21 = m20 * m[0][1] + m21 * m[1][1] + m22 * m[2][1];
-        double tm22 = m20 * m[0][2] + m21 * m[1][2] + m22 * m[2][2];
+        double tm00 = t00 * m00 + t01 * m10 + t02 * m20;
+        double tm01 = t00 * m01 + t01 * m11 + t02 * m21;
+        double tm02 = t00 * m02 + t01 * m12 + t02 * m22;
+        double tm10 = t10 * m00 + t11 * m10 + t12 * m20;
+        double tm11 = t10 * m01 + t11 * m11 + t12 * m21;
+        double tm12 = t10 * m02 + t11 * m12 + t12 * m22;
+        double tm20 = t20 * m00 + t21 * m10 + t22 * m20;
+        double tm21 = t20 * m01 + t21 * m11 + t22 * m21;
+        double tm22 = t20 * m02 + t21 * m12 + t22 * m22;
 
         // store new values to current matrix
-        m[0][0] = tm00;
-        m[0][1] = tm01;
-        m[0][2] = tm02;
-        m[1][0] = tm10;
-        m[1][1] = tm11;
-        m[1][2] = tm12;
-        m[2][0] = tm20;
-        m[2][1] = tm21;
-        m[2][2] = tm22;
+        m00 = tm00;
+        m01 = tm01;
+        m02 = tm02;
+        m10 = tm10;
+        m11 = tm11;
+        m12 = tm12;
+        m20 = tm20;
+        m21 = tm21;
+        m22 = tm22;
 
         // return success
         return (true);
@@ -640,26 +695,26 @@ public class JMatrix3d {
         double s = Math.sin(a_angleRad);
         double v = 1 - c;
 
-        double m00 = x * x * v + c;
-        double m01 = x * y * v - z * s;
-        double m02 = x * z * v + y * s;
-        double m10 = x * y * v + z * s;
-        double m11 = y * y * v + c;
-        double m12 = y * z * v - x * s;
-        double m20 = x * z * v - y * s;
-        double m21 = y * z * v + x * s;
-        double m22 = z * z * v + c;
+        double t00 = x * x * v + c;
+        double t01 = x * y * v - z * s;
+        double t02 = x * z * v + y * s;
+        double t10 = x * y * v + z * s;
+        double t11 = y * y * v + c;
+        double t12 = y * z * v - x * s;
+        double t20 = x * z * v - y * s;
+        double t21 = y * z * v + x * s;
+        double t22 = z * z * v + c;
 
         // compute multiplication between both matrices
-        a_result.m[0][0] = m00 * m[0][0] + m01 * m[1][0] + m02 * m[2][0];
-        a_result.m[0][1] = m00 * m[0][1] + m01 * m[1][1] + m02 * m[2][1];
-        a_result.m[0][2] = m00 * m[0][2] + m01 * m[1][2] + m02 * m[2][2];
-        a_result.m[1][0] = m10 * m[0][0] + m11 * m[1][0] + m12 * m[2][0];
-        a_result.m[1][1] = m10 * m[0][1] + m11 * m[1][1] + m12 * m[2][1];
-        a_result.m[1][2] = m10 * m[0][2] + m11 * m[1][2] + m12 * m[2][2];
-        a_result.m[2][0] = m20 * m[0][0] + m21 * m[1][0] + m22 * m[2][0];
-        a_result.m[2][1] = m20 * m[0][1] + m21 * m[1][1] + m22 * m[2][1];
-        a_result.m[2][2] = m20 * m[0][2] + m21 * m[1][2] + m22 * m[2][2];
+        a_result.m00 = t00 * m00 + t01 * m10 + t02 * m20;
+        a_result.m01 = t00 * m01 + t01 * m11 + t02 * m21;
+        a_result.m02 = t00 * m02 + t01 * m12 + t02 * m22;
+        a_result.m10 = t10 * m00 + t11 * m10 + t12 * m20;
+        a_result.m11 = t10 * m01 + t11 * m11 + t12 * m21;
+        a_result.m12 = t10 * m02 + t11 * m12 + t12 * m22;
+        a_result.m20 = t20 * m00 + t21 * m10 + t22 * m20;
+        a_result.m21 = t20 * m01 + t21 * m11 + t22 * m21;
+        a_result.m22 = t20 * m02 + t21 * m12 + t22 * m22;
 
         // return success
         return (true);
@@ -677,7 +732,7 @@ public class JMatrix3d {
         for (int i = 0; i < 3; i++) {
             a_string.concat("( ");
             for (int j = 0; j < 3; j++) {
-                JString.jStr(a_string, m[j][i], a_precision);
+                JString.jStr(a_string, get(j, i), a_precision);
                 if (j < 2) {
                     a_string.concat(", ");
 
@@ -719,15 +774,9 @@ public class JMatrix3d {
      * @return
      */
     public final boolean equals(JMatrix3d a_matrix) {
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if (a_matrix.m[i][j] != m[i][j]) {
-                    return (false);
-                }
-            }
-        }
-
-        return (true);
+        return ((a_matrix.m00 == m00) && (a_matrix.m01 == m01) && (a_matrix.m02 == m02)
+                && (a_matrix.m10 == m10) && (a_matrix.m11 == m11) && (a_matrix.m12 == m12)
+                && (a_matrix.m20 == m20) && (a_matrix.m21 == m21) && (a_matrix.m22 == m22));
     }
 
     /**
@@ -739,13 +788,13 @@ public class JMatrix3d {
      */
     public boolean toAngleAxis(double a_angle, JVector3d a_axis) {
         final double epsilon = 0.01;
-        if ((m[0][1] - m[1][0] < epsilon) && (m[0][1] - m[1][0] > -epsilon)
-                && (m[0][2] - m[2][0] < epsilon) && (m[0][2] - m[2][0] > -epsilon)
-                && (m[1][2] - m[2][1] < epsilon) && (m[1][2] - m[2][1] > -epsilon)) {
+        if ((m01 - m10 < epsilon) && (m01 - m10 > -epsilon)
+                && (m02 - m20 < epsilon) && (m02 - m20 > -epsilon)
+                && (m12 - m21 < epsilon) && (m12 - m21 > -epsilon)) {
             // rotation of 0 or pi
-            if ((m[0][1] + m[1][0] < epsilon) && (m[0][1] + m[1][0] > -epsilon)
-                    && (m[0][2] + m[2][0] < epsilon) && (m[0][2] + m[2][0] > -epsilon)
-                    && (m[1][2] + m[2][1] < epsilon) && (m[1][2] + m[2][1] > -epsilon)) {
+            if ((m01 + m10 < epsilon) && (m01 + m10 > -epsilon)
+                    && (m02 + m20 < epsilon) && (m02 + m20 > -epsilon)
+                    && (m12 + m21 < epsilon) && (m12 + m21 > -epsilon)) {
                 // Matrix is identity matrix
                 a_angle = 0;
                 // axis is arbitrary
@@ -756,7 +805,7 @@ public class JMatrix3d {
                 // angle is pi
                 a_angle = JConstants.CHAI_PI;
 
-                a_axis.setX((m[0][0] + 1.0) / 2.0);
+                a_axis.setX((m00 + 1.0) / 2.0);
 
                 if (a_axis.getX() > 0) {
                     a_axis.setX(Math.sqrt(a_axis.getX()));
@@ -767,7 +816,7 @@ public class JMatrix3d {
                 }
 
 
-                a_axis.setY((m[1][1] + 1.0) / 2.0);
+                a_axis.setY((m11 + 1.0) / 2.0);
                 if (a_axis.getY() > 0) {
                     a_axis.setY(Math.sqrt(a_axis.getY()));
                 } else {
@@ -776,7 +825,7 @@ public class JMatrix3d {
                     return false;
                 }
 
-                a_axis.setZ((m[2][2] + 1.0) / 2.0);
+                a_axis.setZ((m22 + 1.0) / 2.0);
                 if (a_axis.getZ() > 0) {
                     a_axis.setZ(Math.sqrt(a_axis.getZ()));
                 } else {
@@ -788,9 +837,9 @@ public class JMatrix3d {
                 boolean xIsZero = (a_axis.getX() < epsilon && a_axis.getX() > -epsilon);
                 boolean yIsZero = (a_axis.getY() < epsilon && a_axis.getY() > -epsilon);
                 boolean zIsZero = (a_axis.getZ() < epsilon && a_axis.getZ() > -epsilon);
-                boolean xyIsPositive = (m[0][1] > 0.0);
-                boolean xzIsPositive = (m[0][2] > 0.0);
-                boolean yzIsPositive = (m[1][2] > 0.0);
+                boolean xyIsPositive = (m01 > 0.0);
+                boolean xzIsPositive = (m02 > 0.0);
+                boolean yzIsPositive = (m12 > 0.0);
                 if (xIsZero && !yIsZero && !zIsZero) {
 
                     if (!yzIsPositive) {
@@ -813,14 +862,14 @@ public class JMatrix3d {
 
             }
         } else {
-            double sinthetamag = Math.sqrt((m[2][1] - m[1][2]) * (m[2][1] - m[1][2])
-                    + (m[0][2] - m[2][0]) * (m[0][2] - m[2][0])
-                    + (m[1][0] - m[0][1]) * (m[1][0] - m[0][1]));
+            double sinthetamag = Math.sqrt((m21 - m12) * (m21 - m12)
+                    + (m02 - m20) * (m02 - m20)
+                    + (m10 - m01) * (m10 - m01));
 
-            a_angle = Math.acos((m[0][0] + m[1][1] + m[2][2] - 1.0) / 2.0);
-            a_axis.setX((m[2][1] - m[1][2]) / sinthetamag);
-            a_axis.setY((m[0][2] - m[2][0]) / sinthetamag);
-            a_axis.setZ((m[1][0] - m[0][1]) / sinthetamag);
+            a_angle = Math.acos((m00 + m11 + m22 - 1.0) / 2.0);
+            a_axis.setX((m21 - m12) / sinthetamag);
+            a_axis.setY((m02 - m20) / sinthetamag);
+            a_axis.setZ((m10 - m01) / sinthetamag);
 
         }
         return true;
@@ -832,7 +881,7 @@ public class JMatrix3d {
         for (int i = 0; i < 3; i++) {
             s += "[";
             for (int j = 0; j < 3; j++) {
-                s += m[i][j];
+                s += get(i, j);
                 if (j < 2) {
                     s += ",";
                 }
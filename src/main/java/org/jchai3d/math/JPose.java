@@ -0,0 +1,344 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.math;
+
+/**
+ * JPose describes a position and an orientation with a translation and a
+ * unit quaternion, in seven doubles instead of the twelve of a JVector3d and
+ * a JMatrix3d. Poses can be composed, inverted and interpolated without
+ * allocating, and are converted to matrices only where a JMatrix3d is needed.
+ *
+ * A point p is transformed as R(q) p + t, so that a pose set from a position
+ * and a rotation matrix behaves like the local frame of a JGenericObject.
+ *
+ * Unless stated otherwise, the arguments of an operation may be the pose
+ * itself.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JPose {
+
+    //-----------------------------------------------------------------------
+    // MEMBERS:
+    //-----------------------------------------------------------------------
+    /**
+     * Rotation, as a unit quaternion.
+     */
+    public double qw, qx, qy, qz;
+    /**
+     * Translation.
+     */
+    public double px, py, pz;
+
+    //-----------------------------------------------------------------------
+    // CONSTRUCTOR & DESTRUCTOR:
+    //-----------------------------------------------------------------------
+    /**
+     * Constructor of JPose; the pose is the identity.
+     */
+    public JPose() {
+        identity();
+    }
+
+    /**
+     * Constructor of JPose.
+     */
+    public JPose(final JVector3d a_position, final JMatrix3d a_rotation) {
+        set(a_position, a_rotation);
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS:
+    //-----------------------------------------------------------------------
+    /**
+     * Set the pose to the identity.
+     */
+    public final void identity() {
+        qw = 1.0;
+        qx = 0.0;
+        qy = 0.0;
+        qz = 0.0;
+        px = 0.0;
+        py = 0.0;
+        pz = 0.0;
+    }
+
+    /**
+     * Copy another pose.
+     */
+    public final void copyFrom(final JPose a_source) {
+        qw = a_source.qw;
+        qx = a_source.qx;
+        qy = a_source.qy;
+        qz = a_source.qz;
+        px = a_source.px;
+        py = a_source.py;
+        pz = a_source.pz;
+    }
+
+    /**
+     * Set the pose from a position and a rotation matrix.
+     */
+    public final void set(final JVector3d a_position, final JMatrix3d a_rotation) {
+        setPosition(a_position);
+        setRotation(a_rotation);
+    }
+
+    /**
+     * Set the translation.
+     */
+    public final void setPosition(final JVector3d a_position) {
+        px = a_position.x;
+        py = a_position.y;
+        pz = a_position.z;
+    }
+
+    /**
+     * Set the rotation from a rotation matrix.
+     */
+    public final void setRotation(final JMatrix3d a_rotation) {
+        final JMatrix3d m = a_rotation;
+        double trace = m.m00 + m.m11 + m.m22;
+
+        if (trace > 0.0) {
+            double s = 0.5 / Math.sqrt(trace + 1.0);
+            qw = 0.25 / s;
+            qx = (m.m21 - m.m12) * s;
+            qy = (m.m02 - m.m20) * s;
+            qz = (m.m10 - m.m01) * s;
+        } else if ((m.m00 > m.m11) && (m.m00 > m.m22)) {
+            double s = 2.0 * Math.sqrt(1.0 + m.m00 - m.m11 - m.m22);
+            qw = (m.m21 - m.m12) / s;
+            qx = 0.25 * s;
+            qy = (m.m01 + m.m10) / s;
+            qz = (m.m02 + m.m20) / s;
+        } else if (m.m11 > m.m22) {
+            double s = 2.0 * Math.sqrt(1.0 + m.m11 - m.m00 - m.m22);
+            qw = (m.m02 - m.m20) / s;
+            qx = (m.m01 + m.m10) / s;
+            qy = 0.25 * s;
+            qz = (m.m12 + m.m21) / s;
+        } else {
+            double s = 2.0 * Math.sqrt(1.0 + m.m22 - m.m00 - m.m11);
+            qw = (m.m10 - m.m01) / s;
+            qx = (m.m02 + m.m20) / s;
+            qy = (m.m12 + m.m21) / s;
+            qz = 0.25 * s;
+        }
+        normalize();
+    }
+
+    /**
+     * Read the translation.
+     */
+    public final void getPosition(JVector3d a_result) {
+        a_result.x = px;
+        a_result.y = py;
+        a_result.z = pz;
+    }
+
+    /**
+     * Read the rotation as a rotation matrix.
+     */
+    public final void getRotation(JMatrix3d a_result) {
+        double x2 = 2.0 * qx * qx;
+        double y2 = 2.0 * qy * qy;
+        double z2 = 2.0 * qz * qz;
+        double xy = 2.0 * qx * qy;
+        double wz = 2.0 * qw * qz;
+        double xz = 2.0 * qx * qz;
+        double wy = 2.0 * qw * qy;
+        double yz = 2.0 * qy * qz;
+        double wx = 2.0 * qw * qx;
+
+        a_result.set(1.0 - y2 - z2, xy - wz, xz + wy,
+                xy + wz, 1.0 - x2 - z2, yz - wx,
+                xz - wy, yz + wx, 1.0 - x2 - y2);
+    }
+
+    /**
+     * Rescale the quaternion to unit length; rounding errors accumulate
+     * when poses are composed many times.
+     */
+    public final void normalize() {
+        double lengthSq = qw * qw + qx * qx + qy * qy + qz * qz;
+        if (lengthSq > 0.0) {
+            double s = 1.0 / Math.sqrt(lengthSq);
+            qw *= s;
+            qx *= s;
+            qy *= s;
+            qz *= s;
+        } else {
+            qw = 1.0;
+        }
+    }
+
+    /**
+     * Compose this pose with another one: this = this * a_pose. The result
+     * maps a point of the frame of \e a_pose as a_pose, then this pose would.
+     */
+    public final void mul(final JPose a_pose) {
+        mulr(a_pose, this);
+    }
+
+    /**
+     * Compose this pose with another one and store the result in \e a_result.
+     */
+    public final void mulr(final JPose a_pose, JPose a_result) {
+        double w = qw * a_pose.qw - qx * a_pose.qx - qy * a_pose.qy - qz * a_pose.qz;
+        double x = qw * a_pose.qx + qx * a_pose.qw + qy * a_pose.qz - qz * a_pose.qy;
+        double y = qw * a_pose.qy - qx * a_pose.qz + qy * a_pose.qw + qz * a_pose.qx;
+        double z = qw * a_pose.qz + qx * a_pose.qy - qy * a_pose.qx + qz * a_pose.qw;
+
+        // translation: R(q) p' + p
+        double vx = a_pose.px, vy = a_pose.py, vz = a_pose.pz;
+        double tx = 2.0 * (qy * vz - qz * vy);
+        double ty = 2.0 * (qz * vx - qx * vz);
+        double tz = 2.0 * (qx * vy - qy * vx);
+        double nx = vx + qw * tx + (qy * tz - qz * ty) + px;
+        double ny = vy + qw * ty + (qz * tx - qx * tz) + py;
+        double nz = vz + qw * tz + (qx * ty - qy * tx) + pz;
+
+        a_result.qw = w;
+        a_result.qx = x;
+        a_result.qy = y;
+        a_result.qz = z;
+        a_result.px = nx;
+        a_result.py = ny;
+        a_result.pz = nz;
+    }
+
+    /**
+     * Invert this pose.
+     */
+    public final void invert() {
+        qx = -qx;
+        qy = -qy;
+        qz = -qz;
+
+        // translation: -R(q)^T p
+        double vx = -px, vy = -py, vz = -pz;
+        double tx = 2.0 * (qy * vz - qz * vy);
+        double ty = 2.0 * (qz * vx - qx * vz);
+        double tz = 2.0 * (qx * vy - qy * vx);
+        px = vx + qw * tx + (qy * tz - qz * ty);
+        py = vy + qw * ty + (qz * tx - qx * tz);
+        pz = vz + qw * tz + (qx * ty - qy * tx);
+    }
+
+    /**
+     * Transform a point from the frame of this pose: a_result = R(q) a_point
+     * + t. \e a_result may be \e a_point.
+     */
+    public final void transform(final JVector3d a_point, JVector3d a_result) {
+        rotate(a_point, a_result);
+        a_result.x += px;
+        a_result.y += py;
+        a_result.z += pz;
+    }
+
+    /**
+     * Rotate a vector: a_result = R(q) a_vector. \e a_result may be
+     * \e a_vector.
+     */
+    public final void rotate(final JVector3d a_vector, JVector3d a_result) {
+        double vx = a_vector.x, vy = a_vector.y, vz = a_vector.z;
+        double tx = 2.0 * (qy * vz - qz * vy);
+        double ty = 2.0 * (qz * vx - qx * vz);
+        double tz = 2.0 * (qx * vy - qy * vx);
+        a_result.x = vx + qw * tx + (qy * tz - qz * ty);
+        a_result.y = vy + qw * ty + (qz * tx - qx * tz);
+        a_result.z = vz + qw * tz + (qx * ty - qy * tx);
+    }
+
+    /**
+     * Interpolate between two poses and store the result here: the
+     * translation is interpolated linearly and the rotation along the
+     * shortest arc. Levels outside [0, 1] extrapolate the motion from
+     * \e a_pose1 to \e a_pose2.
+     *
+     * @param a_level 0 for \e a_pose1, 1 for \e a_pose2.
+     * @param a_pose1 first pose.
+     * @param a_pose2 second pose.
+     */
+    public final void slerp(final double a_level, final JPose a_pose1, final JPose a_pose2) {
+        double w2 = a_pose2.qw, x2 = a_pose2.qx, y2 = a_pose2.qy, z2 = a_pose2.qz;
+        double cos = a_pose1.qw * w2 + a_pose1.qx * x2 + a_pose1.qy * y2 + a_pose1.qz * z2;
+
+        // q and -q are the same rotation; take the shortest arc
+        if (cos < 0.0) {
+            cos = -cos;
+            w2 = -w2;
+            x2 = -x2;
+            y2 = -y2;
+            z2 = -z2;
+        }
+
+        // half angle between the rotations; the sine is taken from the
+        // relative rotation, which is accurate for the small angles between
+        // successive haptic samples
+        double dx = a_pose1.qw * x2 - a_pose1.qx * w2 - a_pose1.qy * z2 + a_pose1.qz * y2;
+        double dy = a_pose1.qw * y2 + a_pose1.qx * z2 - a_pose1.qy * w2 - a_pose1.qz * x2;
+        double dz = a_pose1.qw * z2 - a_pose1.qx * y2 + a_pose1.qy * x2 - a_pose1.qz * w2;
+        double sin = Math.sqrt(dx * dx + dy * dy + dz * dz);
+
+        double ratio1, ratio2;
+        if (sin < 1e-12) {
+            // same rotation
+            ratio1 = 1.0 - a_level;
+            ratio2 = a_level;
+        } else {
+            double theta = Math.atan2(sin, cos);
+            sin = Math.sin(theta);
+            ratio1 = Math.sin((1.0 - a_level) * theta) / sin;
+            ratio2 = Math.sin(a_level * theta) / sin;
+        }
+
+        double t1 = 1.0 - a_level;
+        px = t1 * a_pose1.px + a_level * a_pose2.px;
+        py = t1 * a_pose1.py + a_level * a_pose2.py;
+        pz = t1 * a_pose1.pz + a_level * a_pose2.pz;
+
+        qw = ratio1 * a_pose1.qw + ratio2 * w2;
+        qx = ratio1 * a_pose1.qx + ratio2 * x2;
+        qy = ratio1 * a_pose1.qy + ratio2 * y2;
+        qz = ratio1 * a_pose1.qz + ratio2 * z2;
+        normalize();
+    }
+
+    /**
+     * Read the angle of the rotation from this pose to another one [rad].
+     */
+    public final double angleTo(final JPose a_pose) {
+        double cos = Math.abs(qw * a_pose.qw + qx * a_pose.qx + qy * a_pose.qy + qz * a_pose.qz);
+        return (2.0 * Math.acos(Math.min(1.0, cos)));
+    }
+
+    /**
+     * Read the distance between the translations of this pose and another
+     * one.
+     */
+    public final double distanceTo(final JPose a_pose) {
+        double dx = px - a_pose.px, dy = py - a_pose.py, dz = pz - a_pose.pz;
+        return (Math.sqrt(dx * dx + dy * dy + dz * dz));
+    }
+
+    @Override
+    public String toString() {
+        return ("(" + px + ", " + py + ", " + pz + ") [" + qw + ", " + qx + ", " + qy + ", " + qz + "]");
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.math;
+
+/**
+ * JPoseHistory keeps the last poses of an object with their time stamps, so
+ * that a thread running at another rate can read the pose at any time. The
+ * haptic thread typically adds a pose at each update, and the graphics
+ * thread reads the pose at the time the frame will be displayed: poses
+ * between two samples are interpolated, and poses after the last sample are
+ * extrapolated from the last two samples, up to a maximum time.
+ *
+ * Samples are kept in a ring of primitive arrays: adding and reading poses
+ * does not allocate. All methods may be called from different threads.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JPoseHistory {
+
+    /**
+     * Number of doubles of a pose.
+     */
+    private static final int POSE_SIZE = 7;
+    /**
+     * Time stamps of the samples [ns].
+     */
+    private final long[] times;
+    /**
+     * Poses of the samples, as (qw, qx, qy, qz, px, py, pz).
+     */
+    private final double[] poses;
+    /**
+     * Index of the last sample.
+     */
+    private int last;
+    /**
+     * Number of samples.
+     */
+    private int numSamples;
+    /**
+     * Maximum time a pose is extrapolated after the last sample [ns].
+     */
+    private long maxExtrapolationTime;
+    /**
+     * Temporary poses.
+     */
+    private final JPose pose1, pose2;
+
+    /**
+     * Constructor of JPoseHistory.
+     *
+     * @param a_capacity number of samples kept.
+     */
+    public JPoseHistory(final int a_capacity) {
+        if (a_capacity < 2) {
+            throw new IllegalArgumentException("A pose history needs at least two samples.");
+        }
+        times = new long[a_capacity];
+        poses = new double[POSE_SIZE * a_capacity];
+        last = -1;
+        numSamples = 0;
+        maxExtrapolationTime = 20000000L;
+        pose1 = new JPose();
+        pose2 = new JPose();
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS:
+    //-----------------------------------------------------------------------
+    /**
+     * Add a sample. Samples older than the last one are ignored, and a
+     * sample with the time of the last one replaces it.
+     *
+     * @param a_time time stamp [ns], e.g. from System.nanoTime().
+     * @param a_pose pose at this time.
+     */
+    public synchronized void add(final long a_time, final JPose a_pose) {
+        int index = nextIndex(a_time);
+        if (index < 0) {
+            return;
+        }
+        int k = POSE_SIZE * index;
+        poses[k] = a_pose.qw;
+        poses[k + 1] = a_pose.qx;
+        poses[k + 2] = a_pose.qy;
+        poses[k + 3] = a_pose.qz;
+        poses[k + 4] = a_pose.px;
+        poses[k + 5] = a_pose.py;
+        poses[k + 6] = a_pose.pz;
+    }
+
+    /**
+     * Add a sample given by a position and a rotation matrix.
+     */
+    public synchronized void add(final long a_time, final JVector3d a_position, final JMatrix3d a_rotation) {
+        pose1.set(a_position, a_rotation);
+        add(a_time, pose1);
+    }
+
+    /**
+     * Compute the pose at a given time.
+     *
+     * @param a_time time [ns], on the clock of the samples.
+     * @param a_result pose at this time.
+     * @return false if there is no sample yet.
+     */
+    public synchronized boolean getPose(final long a_time, JPose a_result) {
+        if (numSamples == 0) {
+            return (false);
+        }
+
+        int capacity = times.length;
+
+        // after the last sample: extrapolate from the last two samples
+        if ((a_time >= times[last]) || (numSamples == 1)) {
+            load(last, a_result);
+            if ((numSamples > 1) && (a_time > times[last])) {
+                int previous = (last + capacity - 1) % capacity;
+                long time = Math.min(a_time, times[last] + maxExtrapolationTime);
+                load(previous, pose1);
+                load(last, pose2);
+                a_result.slerp((double) (time - times[previous]) / (times[last] - times[previous]),
+                        pose1, pose2);
+            }
+            return (true);
+        }
+
+        // find the samples around the time, starting from the most recent
+        int next = last;
+        for (int n = 1; n < numSamples; n++) {
+            int index = (next + capacity - 1) % capacity;
+            if (times[index] <= a_time) {
+                load(index, pose1);
+                load(next, pose2);
+                a_result.slerp((double) (a_time - times[index]) / (times[next] - times[index]),
+                        pose1, pose2);
+                return (true);
+            }
+            next = index;
+        }
+
+        // before the first sample
+        load(next, a_result);
+        return (true);
+    }
+
+    /**
+     * Read the last sample.
+     *
+     * @return false if there is no sample yet.
+     */
+    public synchronized boolean getLastPose(JPose a_result) {
+        if (numSamples == 0) {
+            return (false);
+        }
+        load(last, a_result);
+        return (true);
+    }
+
+    /**
+     * Read the time stamp of the last sample [ns], or Long.MIN_VALUE if there
+     * is no sample yet.
+     */
+    public synchronized long getLastTime() {
+        return (numSamples == 0 ? Long.MIN_VALUE : times[last]);
+    }
+
+    /**
+     * Read the number of samples.
+     */
+    public synchronized int getNumSamples() {
+        return (numSamples);
+    }
+
+    /**
+     * Read the maximum number of samples.
+     */
+    public int getCapacity() {
+        return (times.length);
+    }
+
+    /**
+     * Remove all samples.
+     */
+    public synchronized void clear() {
+        last = -1;
+        numSamples = 0;
+    }
+
+    /**
+     * Read the maximum time a pose is extrapolated after the last sample [ns].
+     */
+    public synchronized long getMaxExtrapolationTime() {
+        return (maxExtrapolationTime);
+    }
+
+    /**
+     * Set the maximum time a pose is extrapolated after the last sample [ns];
+     * 0 holds the last pose.
+     */
+    public synchronized void setMaxExtrapolationTime(final long a_time) {
+        maxExtrapolationTime = Math.max(0L, a_time);
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS - INTERNAL:
+    //-----------------------------------------------------------------------
+    /**
+     * Select the slot of a new sample, or return -1 if the sample is older
+     * than the last one.
+     */
+    private int nextIndex(final long a_time) {
+        if (numSamples > 0) {
+            if (a_time < times[last]) {
+                return (-1);
+            }
+            if (a_time == times[last]) {
+                return (last);
+            }
+        }
+        last = (last + 1) % times.length;
+        times[last] = a_time;
+        numSamples = Math.min(numSamples + 1, times.length);
+        return (last);
+    }
+
+    private void load(final int a_index, JPose a_result) {
+        int k = POSE_SIZE * a_index;
+        a_result.qw = poses[k];
+        a_result.qx = poses[k + 1];
+        a_result.qy = poses[k + 2];
+        a_result.qz = poses[k + 3];
+        a_result.px = poses[k + 4];
+        a_result.py = poses[k + 5];
+        a_result.pz = poses[k + 6];
+    }
+}
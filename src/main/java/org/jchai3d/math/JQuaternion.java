@@ -128,15 +128,15 @@ class JQuaternion {
         double yz = 2.0 * y * z;
         double wx = 2.0 * w * x;
 
-        a_mat.m[0][0] = 1.0 - y2 - z2;
-        a_mat.m[0][1] = xy - wz;
-        a_mat.m[0][2] = xz + wy;
-        a_mat.m[1][0] = xy + wz;
-        a_mat.m[1][1] = 1.0 - x2 - z2;
-        a_mat.m[1][2] = yz - wx;
-        a_mat.m[2][0] = xz - wy;
-        a_mat.m[2][1] = yz + wx;
-        a_mat.m[2][2] = 1.0 - x2 - y2;
+        a_mat.m00 = 1.0 - y2 - z2;
+        a_mat.m01 = xy - wz;
+        a_mat.m02 = xz + wy;
+        a_mat.m10 = xy + wz;
+        a_mat.m11 = 1.0 - x2 - z2;
+        a_mat.m12 = yz - wx;
+        a_mat.m20 = xz - wy;
+        a_mat.m21 = yz + wx;
+        a_mat.m22 = 1.0 - x2 - y2;
     }
 
     //---------------------------------------------------------------
@@ -147,35 +147,35 @@ class JQuaternion {
      */
     //---------------------------------------------------------------
     public void fromRotMat(JMatrix3d a_mat) {
-        double trace = 1.0 + a_mat.m[0][0] + a_mat.m[1][1] + a_mat.m[2][2];
+        double trace = 1.0 + a_mat.m00 + a_mat.m11 + a_mat.m22;
 
         if (trace > 0.00000001) {
             double s = 2.0 * Math.sqrt(trace);
-            x = (a_mat.m[2][1] - a_mat.m[1][2]) / s;
-            y = (a_mat.m[0][2] - a_mat.m[2][0]) / s;
-            z = (a_mat.m[1][0] - a_mat.m[0][1]) / s;
+            x = (a_mat.m21 - a_mat.m12) / s;
+            y = (a_mat.m02 - a_mat.m20) / s;
+            z = (a_mat.m10 - a_mat.m01) / s;
             w = 0.25 * s;
-        } else if ((a_mat.m[0][0] > a_mat.m[1][1]) && (a_mat.m[0][0] > a_mat.m[2][2])) {
+        } else if ((a_mat.m00 > a_mat.m11) && (a_mat.m00 > a_mat.m22)) {
             // column 1 has largest diagonal
-            double s = 2.0 * Math.sqrt(1.0 + a_mat.m[0][0] - a_mat.m[1][1] - a_mat.m[2][2]);
+            double s = 2.0 * Math.sqrt(1.0 + a_mat.m00 - a_mat.m11 - a_mat.m22);
             x = 0.25 * s;
-            y = (a_mat.m[1][0] + a_mat.m[0][1]) / s;
-            z = (a_mat.m[0][2] + a_mat.m[2][0]) / s;
-            w = (a_mat.m[2][1] - a_mat.m[1][2]) / s;
-        } else if (a_mat.m[1][1] > a_mat.m[2][2]) {
+            y = (a_mat.m10 + a_mat.m01) / s;
+            z = (a_mat.m02 + a_mat.m20) / s;
+            w = (a_mat.m21 - a_mat.m12) / s;
+        } else if (a_mat.m11 > a_mat.m22) {
             // column 2 has largest diagonal
-            double s = 2.0 * Math.sqrt(1.0 + a_mat.m[1][1] - a_mat.m[0][0] - a_mat.m[2][2]);
-            x = (a_mat.m[1][0] + a_mat.m[0][1]) / s;
+            double s = 2.0 * Math.sqrt(1.0 + a_mat.m11 - a_mat.m00 - a_mat.m22);
+            x = (a_mat.m10 + a_mat.m01) / s;
             y = 0.25 * s;
-            z = (a_mat.m[2][1] + a_mat.m[1][2]) / s;
-            w = (a_mat.m[0][2] - a_mat.m[2][0]) / s;
+            z = (a_mat.m21 + a_mat.m12) / s;
+            w = (a_mat.m02 - a_mat.m20) / s;
         } else {
             // column 3 has largest diagonal
-            double s = 2.0 * Math.sqrt(1.0 + a_mat.m[2][2] - a_mat.m[0][0] - a_mat.m[1][1]);
-            x = (a_mat.m[0][2] + a_mat.m[2][0]) / s;
-            y = (a_mat.m[2][1] + a_mat.m[1][2]) / s;
+            double s = 2.0 * Math.sqrt(1.0 + a_mat.m22 - a_mat.m00 - a_mat.m11);
+            x = (a_mat.m02 + a_mat.m20) / s;
+            y = (a_mat.m21 + a_mat.m12) / s;
             z = 0.25 * s;
-            w = (a_mat.m[1][0] - a_mat.m[0][1]) / s;
+            w = (a_mat.m10 - a_mat.m01) / s;
         }
     }
 
@@ -558,6 +558,22 @@ public class JVector3d implements Cloneable {
         return (dx * dx + dy * dy + dz * dz);
     }
 
+    /**
+     * Compute the square distance between the current point and an external
+     * point given by its coordinates.
+     *
+     * @param a_x
+     * @param a_y
+     * @param a_z
+     * @return
+     */
+    public final double distancesq(double a_x, double a_y, double a_z) {
+        double dx = x - a_x;
+        double dy = y - a_y;
+        double dz = z - a_z;
+        return (dx * dx + dy * dy + dz * dz);
+    }
+
     /**
      * Test whether the current vector and an external vector are equal.
      *
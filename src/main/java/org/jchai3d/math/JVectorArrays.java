@@ -0,0 +1,400 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.math;
+
+/**
+ * JVectorArrays applies the operations of JMaths to many vectors at once.
+ * The vectors are packed in primitive arrays as (x0, y0, z0, x1, y1, z1...),
+ * and every method works on the range of vectors [\e first, \e first +
+ * \e count), so that large arrays may be split in chunks. The loops are
+ * kept free of calls and allocations, so that they are limited by memory
+ * bandwidth rather than by the cost of handling one JVector3d at a time.
+ *
+ * Unless stated otherwise, the result array may be the input array.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public final class JVectorArrays {
+
+    private JVectorArrays() {
+    }
+
+    //-----------------------------------------------------------------------
+    // PACKING:
+    //-----------------------------------------------------------------------
+    /**
+     * Copy vectors into a packed array.
+     *
+     * @param a_vectors
+     * @param a_result
+     * @param a_first
+     * @param a_count
+     */
+    public static void jPack(final JVector3d[] a_vectors, double[] a_result,
+            final int a_first, final int a_count) {
+        int end = a_first + a_count;
+        for (int i = a_first, k = 3 * a_first; i < end; i++, k += 3) {
+            JVector3d v = a_vectors[i];
+            a_result[k] = v.x;
+            a_result[k + 1] = v.y;
+            a_result[k + 2] = v.z;
+        }
+    }
+
+    /**
+     * Copy a packed array back into vectors.
+     *
+     * @param a_values
+     * @param a_vectors
+     * @param a_first
+     * @param a_count
+     */
+    public static void jUnpack(final double[] a_values, JVector3d[] a_vectors,
+            final int a_first, final int a_count) {
+        int end = a_first + a_count;
+        for (int i = a_first, k = 3 * a_first; i < end; i++, k += 3) {
+            JVector3d v = a_vectors[i];
+            v.x = a_values[k];
+            v.y = a_values[k + 1];
+            v.z = a_values[k + 2];
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    // ARITHMETIC:
+    //-----------------------------------------------------------------------
+    /**
+     * Add a constant vector to each vector.
+     *
+     * @param a_values
+     * @param a_x
+     * @param a_y
+     * @param a_z
+     * @param a_first
+     * @param a_count
+     */
+    public static void jTranslate(double[] a_values, final double a_x, final double a_y,
+            final double a_z, final int a_first, final int a_count) {
+        int end = 3 * (a_first + a_count);
+        for (int k = 3 * a_first; k < end; k += 3) {
+            a_values[k] += a_x;
+            a_values[k + 1] += a_y;
+            a_values[k + 2] += a_z;
+        }
+    }
+
+    /**
+     * Multiply each vector component by component by a constant vector.
+     *
+     * @param a_values
+     * @param a_x
+     * @param a_y
+     * @param a_z
+     * @param a_first
+     * @param a_count
+     */
+    public static void jScale(double[] a_values, final double a_x, final double a_y,
+            final double a_z, final int a_first, final int a_count) {
+        int end = 3 * (a_first + a_count);
+        for (int k = 3 * a_first; k < end; k += 3) {
+            a_values[k] *= a_x;
+            a_values[k + 1] *= a_y;
+            a_values[k + 2] *= a_z;
+        }
+    }
+
+    /**
+     * Add a scaled vector of a second array to each vector:
+     * \e Values[i] += \e Scale * \e Directions[i].
+     *
+     * @param a_values
+     * @param a_scale
+     * @param a_directions
+     * @param a_first
+     * @param a_count
+     */
+    public static void jAddScaled(double[] a_values, final double a_scale,
+            final double[] a_directions, final int a_first, final int a_count) {
+        int end = 3 * (a_first + a_count);
+        for (int k = 3 * a_first; k < end; k++) {
+            a_values[k] += a_scale * a_directions[k];
+        }
+    }
+
+    /**
+     * Compute the cross product of the vectors of two arrays.
+     * The result must not be one of the inputs.
+     *
+     * @param a_vectors1
+     * @param a_vectors2
+     * @param a_result
+     * @param a_first
+     * @param a_count
+     */
+    public static void jCross(final double[] a_vectors1, final double[] a_vectors2,
+            double[] a_result, final int a_first, final int a_count) {
+        int end = 3 * (a_first + a_count);
+        for (int k = 3 * a_first; k < end; k += 3) {
+            double ax = a_vectors1[k], ay = a_vectors1[k + 1], az = a_vectors1[k + 2];
+            double bx = a_vectors2[k], by = a_vectors2[k + 1], bz = a_vectors2[k + 2];
+            a_result[k] = ay * bz - az * by;
+            a_result[k + 1] = az * bx - ax * bz;
+            a_result[k + 2] = ax * by - ay * bx;
+        }
+    }
+
+    /**
+     * Normalize each vector. Vectors whose square length is not greater than
+     * \e MinLengthSq are left unchanged.
+     *
+     * @param a_values
+     * @param a_minLengthSq
+     * @param a_first
+     * @param a_count
+     */
+    public static void jNormalize(double[] a_values, final double a_minLengthSq,
+            final int a_first, final int a_count) {
+        int end = 3 * (a_first + a_count);
+        for (int k = 3 * a_first; k < end; k += 3) {
+            double x = a_values[k], y = a_values[k + 1], z = a_values[k + 2];
+            double lengthSq = x * x + y * y + z * z;
+            if (lengthSq > a_minLengthSq) {
+                double s = 1.0 / Math.sqrt(lengthSq);
+                a_values[k] = s * x;
+                a_values[k + 1] = s * y;
+                a_values[k + 2] = s * z;
+            }
+        }
+    }
+
+    public static void jNormalize(float[] a_values, final float a_minLengthSq,
+            final int a_first, final int a_count) {
+        int end = 3 * (a_first + a_count);
+        for (int k = 3 * a_first; k < end; k += 3) {
+            float x = a_values[k], y = a_values[k + 1], z = a_values[k + 2];
+            float lengthSq = x * x + y * y + z * z;
+            if (lengthSq > a_minLengthSq) {
+                float s = (float) (1.0 / Math.sqrt(lengthSq));
+                a_values[k] = s * x;
+                a_values[k + 1] = s * y;
+                a_values[k + 2] = s * z;
+            }
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    // TRANSFORMATIONS:
+    //-----------------------------------------------------------------------
+    /**
+     * Rotate each vector: \e Result[i] = \e Rotation * \e Values[i].
+     *
+     * @param a_rotation
+     * @param a_values
+     * @param a_result
+     * @param a_first
+     * @param a_count
+     */
+    public static void jRotate(final JMatrix3d a_rotation, final double[] a_values,
+            double[] a_result, final int a_first, final int a_count) {
+        final double m00 = a_rotation.m00, m01 = a_rotation.m01, m02 = a_rotation.m02;
+        final double m10 = a_rotation.m10, m11 = a_rotation.m11, m12 = a_rotation.m12;
+        final double m20 = a_rotation.m20, m21 = a_rotation.m21, m22 = a_rotation.m22;
+        int end = 3 * (a_first + a_count);
+        for (int k = 3 * a_first; k < end; k += 3) {
+            double x = a_values[k], y = a_values[k + 1], z = a_values[k + 2];
+            a_result[k] = m00 * x + m01 * y + m02 * z;
+            a_result[k + 1] = m10 * x + m11 * y + m12 * z;
+            a_result[k + 2] = m20 * x + m21 * y + m22 * z;
+        }
+    }
+
+    /**
+     * Transform each point from a local frame to its parent frame:
+     * \e Result[i] = \e Position + \e Rotation * \e Values[i].
+     *
+     * @param a_position
+     * @param a_rotation
+     * @param a_values
+     * @param a_result
+     * @param a_first
+     * @param a_count
+     */
+    public static void jTransform(final JVector3d a_position, final JMatrix3d a_rotation,
+            final double[] a_values, double[] a_result, final int a_first, final int a_count) {
+        final double px = a_position.x, py = a_position.y, pz = a_position.z;
+        final double m00 = a_rotation.m00, m01 = a_rotation.m01, m02 = a_rotation.m02;
+        final double m10 = a_rotation.m10, m11 = a_rotation.m11, m12 = a_rotation.m12;
+        final double m20 = a_rotation.m20, m21 = a_rotation.m21, m22 = a_rotation.m22;
+        int end = 3 * (a_first + a_count);
+        for (int k = 3 * a_first; k < end; k += 3) {
+            double x = a_values[k], y = a_values[k + 1], z = a_values[k + 2];
+            a_result[k] = px + m00 * x + m01 * y + m02 * z;
+            a_result[k + 1] = py + m10 * x + m11 * y + m12 * z;
+            a_result[k + 2] = pz + m20 * x + m21 * y + m22 * z;
+        }
+    }
+
+    /**
+     * Transform each point from a local frame to its parent frame, storing
+     * the result in single precision.
+     *
+     * @param a_position
+     * @param a_rotation
+     * @param a_values
+     * @param a_result
+     * @param a_first
+     * @param a_count
+     */
+    public static void jTransform(final JVector3d a_position, final JMatrix3d a_rotation,
+            final double[] a_values, float[] a_result, final int a_first, final int a_count) {
+        final double px = a_position.x, py = a_position.y, pz = a_position.z;
+        final double m00 = a_rotation.m00, m01 = a_rotation.m01, m02 = a_rotation.m02;
+        final double m10 = a_rotation.m10, m11 = a_rotation.m11, m12 = a_rotation.m12;
+        final double m20 = a_rotation.m20, m21 = a_rotation.m21, m22 = a_rotation.m22;
+        int end = 3 * (a_first + a_count);
+        for (int k = 3 * a_first; k < end; k += 3) {
+            double x = a_values[k], y = a_values[k + 1], z = a_values[k + 2];
+            a_result[k] = (float) (px + m00 * x + m01 * y + m02 * z);
+            a_result[k + 1] = (float) (py + m10 * x + m11 * y + m12 * z);
+            a_result[k + 2] = (float) (pz + m20 * x + m21 * y + m22 * z);
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    // REDUCTIONS:
+    //-----------------------------------------------------------------------
+    /**
+     * Compute the axis aligned bounds of the vectors. The bounds are left
+     * unchanged if the range is empty.
+     *
+     * @param a_values
+     * @param a_first
+     * @param a_count
+     * @param a_min
+     * @param a_max
+     */
+    public static void jBounds(final double[] a_values, final int a_first, final int a_count,
+            JVector3d a_min, JVector3d a_max) {
+        if (a_count <= 0) {
+            return;
+        }
+        int k = 3 * a_first;
+        double minX = a_values[k], minY = a_values[k + 1], minZ = a_values[k + 2];
+        double maxX = minX, maxY = minY, maxZ = minZ;
+        int end = 3 * (a_first + a_count);
+        for (k += 3; k < end; k += 3) {
+            double x = a_values[k], y = a_values[k + 1], z = a_values[k + 2];
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+        }
+        a_min.set(minX, minY, minZ);
+        a_max.set(maxX, maxY, maxZ);
+    }
+
+    public static void jBounds(final float[] a_values, final int a_first, final int a_count,
+            JVector3d a_min, JVector3d a_max) {
+        if (a_count <= 0) {
+            return;
+        }
+        int k = 3 * a_first;
+        float minX = a_values[k], minY = a_values[k + 1], minZ = a_values[k + 2];
+        float maxX = minX, maxY = minY, maxZ = minZ;
+        int end = 3 * (a_first + a_count);
+        for (k += 3; k < end; k += 3) {
+            float x = a_values[k], y = a_values[k + 1], z = a_values[k + 2];
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+        }
+        a_min.set(minX, minY, minZ);
+        a_max.set(maxX, maxY, maxZ);
+    }
+
+    /**
+     * Compute the largest square length of the vectors, or 0 if the range
+     * is empty.
+     *
+     * @param a_values
+     * @param a_first
+     * @param a_count
+     * @return
+     */
+    public static double jMaxLengthSq(final double[] a_values, final int a_first, final int a_count) {
+        double result = 0.0;
+        int end = 3 * (a_first + a_count);
+        for (int k = 3 * a_first; k < end; k += 3) {
+            double x = a_values[k], y = a_values[k + 1], z = a_values[k + 2];
+            result = Math.max(result, x * x + y * y + z * z);
+        }
+        return (result);
+    }
+
+    //-----------------------------------------------------------------------
+    // TRIANGLES:
+    //-----------------------------------------------------------------------
+    /**
+     * Compute the unit normal of triangles given by the indices of their
+     * vertices (three per triangle) in a packed array of positions. The
+     * normal is the cross product of two edges, whose length is twice the
+     * area of the triangle; when that length is not greater than
+     * \e MinLength, the normal is set to zero.
+     *
+     * @param a_positions packed vertex positions.
+     * @param a_indices vertex indices, three per triangle.
+     * @param a_result packed triangle normals.
+     * @param a_minLength minimum length of the cross product of the edges,
+     * i.e. twice the minimum area.
+     * @param a_first first triangle.
+     * @param a_count number of triangles.
+     */
+    public static void jTriangleNormals(final double[] a_positions, final int[] a_indices,
+            double[] a_result, final double a_minLength, final int a_first, final int a_count) {
+        int end = 3 * (a_first + a_count);
+        for (int k = 3 * a_first; k < end; k += 3) {
+            int i0 = 3 * a_indices[k];
+            int i1 = 3 * a_indices[k + 1];
+            int i2 = 3 * a_indices[k + 2];
+            double ax = a_positions[i1] - a_positions[i0];
+            double ay = a_positions[i1 + 1] - a_positions[i0 + 1];
+            double az = a_positions[i1 + 2] - a_positions[i0 + 2];
+            double bx = a_positions[i2] - a_positions[i0];
+            double by = a_positions[i2 + 1] - a_positions[i0 + 1];
+            double bz = a_positions[i2 + 2] - a_positions[i0 + 2];
+            double nx = ay * bz - az * by;
+            double ny = az * bx - ax * bz;
+            double nz = ax * by - ay * bx;
+            double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+            if (length > a_minLength) {
+                double s = 1.0 / length;
+                a_result[k] = s * nx;
+                a_result[k + 1] = s * ny;
+                a_result[k + 2] = s * nz;
+            } else {
+                a_result[k] = 0.0;
+                a_result[k + 1] = 0.0;
+                a_result[k + 2] = 0.0;
+            }
+        }
+    }
+}
@@ -5,7 +5,10 @@
 package org.jchai3d.math.geom;
 
 import org.jchai3d.graphics.JColorf;
+import org.jchai3d.math.JMaths;
+import org.jchai3d.math.JMatrix3d;
 import org.jchai3d.math.JVector3d;
+import org.jchai3d.math.JVectorArrays;
 import org.jchai3d.math.TexCoord2d;
 import org.jchai3d.math.TexCoord3d;
 import org.jchai3d.math.TexCoord4d;
@@ -401,4 +404,54 @@ public class GeometryArray extends Geometry {
         this.texCoords4D = coords;
         this.texCoord4DIndex = coords!= null ? coords.length - 1: -1;
     }
+
+    /**
+     * Returns the points packed in a single array (x0, y0, z0, x1...).
+     */
+    public double[] getPointsAsArray() {
+        double[] result = new double[3 * points.length];
+        JVectorArrays.jPack(points, result, 0, points.length);
+        return result;
+    }
+
+    /**
+     * Returns the normals packed in a single array (x0, y0, z0, x1...).
+     */
+    public double[] getNormalsAsArray() {
+        double[] result = new double[3 * normals.length];
+        JVectorArrays.jPack(normals, result, 0, normals.length);
+        return result;
+    }
+
+    /**
+     * Moves all points from a local frame to its parent frame, and rotates
+     * the normals accordingly.
+     */
+    public void transform(JVector3d position, JMatrix3d rotation) {
+        for (int i = 0; i < points.length; i++) {
+            JMaths.jTransform(position, rotation, points[i], points[i]);
+        }
+
+        if (normals != null) {
+            for (int i = 0; i < normals.length; i++) {
+                rotation.mul(normals[i]);
+            }
+        }
+    }
+
+    /**
+     * Computes the axis aligned bounds of the points. The bounds are left
+     * unchanged if there are no points.
+     */
+    public void computeBounds(JVector3d min, JVector3d max) {
+        if (points.length == 0) {
+            return;
+        }
+        min.copyFrom(points[0]);
+        max.copyFrom(points[0]);
+        for (int i = 1; i < points.length; i++) {
+            JMaths.jMin(min, points[i], min);
+            JMaths.jMax(max, points[i], max);
+        }
+    }
 }
@@ -212,7 +212,7 @@ public class JCamera extends JGenericObject {
         aCollisionRecorder.clear();
 
         // update my m_globalPos and m_globalRot variables
-        parentWorld.computeGlobalPositions(true, new JVector3d(0.0, 0.0, 0.0), JMaths.jIdentity3d());
+        parentWorld.computeGlobalPositions(true);
 
         // make sure we have a legitimate field of view
         if (Math.abs(fieldOfViewAngle) < 0.001f) {
@@ -303,6 +303,7 @@ public class JCamera extends JGenericObject {
 
         //setRotation(localRot);
         localRotation.copyFrom(localRot);
+        invalidateGlobalPositions();
 
         // return success
         return (true);
@@ -742,6 +743,7 @@ public class JCamera extends JGenericObject {
         gl.glEnable(GL2.GL_DEPTH_TEST);
 
         // optionally perform multiple rendering passes for transparency
+        parentWorld.renderingCamera = this;
         if (multipassTransparencyEnabled) {
             parentWorld.renderSceneGraph(JChaiRenderMode.CHAI_RENDER_MODE_NON_TRANSPARENT_ONLY);
             parentWorld.renderSceneGraph(JChaiRenderMode.CHAI_RENDER_MODE_TRANSPARENT_BACK_ONLY);
@@ -749,6 +751,7 @@ public class JCamera extends JGenericObject {
         } else {
             parentWorld.renderSceneGraph(JChaiRenderMode.CHAI_RENDER_MODE_RENDER_ALL);
         }
+        parentWorld.renderingCamera = null;
 
         // render the 'front' 2d object layer; it will set up its own
         // projection matrix
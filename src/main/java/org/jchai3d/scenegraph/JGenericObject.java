@@ -19,6 +19,7 @@ import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import com.jogamp.opengl.GL;
 import com.jogamp.opengl.GL2;
 import com.jogamp.opengl.GLContext;
@@ -33,6 +34,8 @@ import org.jchai3d.forces.JInteractionSettings;
 import org.jchai3d.graphics.*;
 import org.jchai3d.math.JMaths;
 import org.jchai3d.math.JMatrix3d;
+import org.jchai3d.math.JPose;
+import org.jchai3d.math.JPoseHistory;
 import org.jchai3d.math.JVector3d;
 
 /**
@@ -159,6 +162,14 @@ public class JGenericObject extends JGenericType {
      * A previous rotation; exact interpretation up to user.
      */
     protected JMatrix3d previousGlobalRotation;
+    /**
+     * Time stamped local poses published by another thread, or null.
+     */
+    protected JPoseHistory poseHistory;
+    /**
+     * Pose read from the history.
+     */
+    private JPose historyPose;
     /**
      * Minimum position of boundary box.
      */
@@ -167,6 +178,62 @@ public class JGenericObject extends JGenericType {
      * Maximum position of boundary box.
      */
     protected JVector3d boundaryBoxMax;
+    /**
+     * Distance beyond the boundary box within which the effects of this
+     * object or of its children can produce a force. Updated by
+     * computeBoundaryBox().
+     */
+    protected double interactionRadius;
+    /**
+     * If true, this object or one of its descendants has effects but no
+     * valid boundary box to bound their reach, so the subtree is never
+     * pruned. Updated with interactionRadius.
+     */
+    protected boolean interactionUnbounded;
+    /**
+     * Incremental update of the global positions (see
+     * CHAI_INCREMENTAL_GLOBAL_POSITIONS): the local position, rotation or
+     * geometry of this object changed since its last update.
+     */
+    protected boolean transformDirty;
+    /**
+     * The global position of this object changed during its last update, so
+     * the previous position must be reset at the next one.
+     */
+    protected boolean motionPending;
+    /**
+     * The frame of this object changed during an update of the frames only,
+     * so the global positions of its members (e.g. vertices) are out of date.
+     */
+    protected boolean globalPositionsStale;
+    /**
+     * Some descendants need an update, or their global positions are out of
+     * date.
+     */
+    protected boolean childrenDirty;
+    protected boolean childrenStale;
+    /**
+     * Number of objects and vertices updated by the last call to
+     * computeGlobalPositions() that reached this object, for this object and
+     * its descendants.
+     */
+    protected int numUpdatedNodes;
+    protected int numUpdatedVertices;
+    /**
+     * Motion of this object between its previous and current global poses,
+     * expressed in its local frame: a point \e p of the current frame was at
+     * \e motionRotation * \e p + \e motionTranslation in the previous one
+     * (see adjustCollisionSegment()). Computed by
+     * computeGlobalPositionsAndMotion(), or on the first collision query
+     * after an update.
+     */
+    protected JMatrix3d motionRotation;
+    protected JVector3d motionTranslation;
+    /**
+     * Is the motion up to date? Did the object move?
+     */
+    protected boolean motionValid;
+    protected boolean motionIdentity;
     /**
      * Size of graphical representation of frame (X-Y-Z).
      */
@@ -253,6 +320,12 @@ public class JGenericObject extends JGenericType {
      * non-transparent rendering; you can't cull front-faces.
      */
     protected boolean cullingEnabled;
+    /**
+     * Incremented by the setters of the texture and of the rendering options
+     * (material, texture mapping, vertex colors, transparency, culling and
+     * display lists).
+     */
+    protected int renderSettingsVersion;
     //-----------------------------------------------------------------------
     // MEMBERS - COLLISION DETECTION:
     //-----------------------------------------------------------------------
@@ -267,6 +340,20 @@ public class JGenericObject extends JGenericType {
      * OpenGL matrix describing my position and orientation transformation.
      */
     protected JMatrixGL frameGL;
+    /**
+     * Batches rendering this subtree while it is frozen, or null.
+     */
+    protected JStaticBatch staticBatch;
+    /**
+     * If \b true, this object is rendered by the batches of a frozen
+     * ancestor (or of itself).
+     */
+    protected boolean renderedByBatch;
+    /**
+     * If \b true, this object and all its children are rendered by the
+     * batches of a frozen ancestor.
+     */
+    protected boolean subtreeRenderedByBatch;
     /**
      * transparency level
      */
@@ -280,6 +367,21 @@ public class JGenericObject extends JGenericType {
      * 'real' bounding box
      */
     public static double BOUNDARY_BOX_EPSILON = 1e-15;
+    /**
+     * If true, computeGlobalPositions() only visits the subtrees in which an
+     * object was moved with setPosition(), setRotation(), translate() or
+     * rotate() since the last update, instead of the whole scene graph.
+     * Changes made directly on the vectors and matrices returned by
+     * getPosition() and getRotation() must then be followed by a call to
+     * invalidateGlobalPositions(); the library itself only moves objects
+     * through these methods, and vertices read with getGlobalPosition() are
+     * brought up to date when they are read. It is disabled by default
+     * because the getters return the pose by reference and existing
+     * applications edit it in place: such edits would silently stop being
+     * propagated. Enable it once the application moves its objects through
+     * the setters or invalidates them.
+     */
+    public static boolean CHAI_INCREMENTAL_GLOBAL_POSITIONS = false;
     //-----------------------------------------------------------------------
     // CONSTRUCTOR & DESTRUCTOR:
     //-----------------------------------------------------------------------
@@ -368,6 +470,15 @@ public class JGenericObject extends JGenericType {
 
         previousGlobalRotation = new JMatrix3d();
         previousGlobalRotation.identity();
+
+        // global position never computed
+        transformDirty = true;
+
+        motionRotation = new JMatrix3d();
+        motionRotation.identity();
+        motionTranslation = new JVector3d();
+        motionValid = true;
+        motionIdentity = true;
     }
 
     //-----------------------------------------------------------------------
@@ -378,6 +489,7 @@ public class JGenericObject extends JGenericType {
      */
     public void setPosition(final JVector3d aPos) {
         localPosition.copyFrom(aPos);
+        invalidateGlobalPositions();
     }
 
     /**
@@ -385,6 +497,7 @@ public class JGenericObject extends JGenericType {
      */
     public void setPosition(final double aX, final double aY, final double aZ) {
         localPosition.set(aX, aY, aZ);
+        invalidateGlobalPositions();
     }
 
     /**
@@ -406,6 +519,7 @@ public class JGenericObject extends JGenericType {
      */
     public void setRotation(final JMatrix3d aRot) {
         localRotation.copyFrom(aRot);
+        invalidateGlobalPositions();
     }
 
     /**
@@ -429,8 +543,8 @@ public class JGenericObject extends JGenericType {
      */
     public void translate(final JVector3d aTranslation) {
         // apply the translation to this object
-        JVector3d newPosition = JMaths.jAdd(localPosition, aTranslation);
-        localPosition.copyFrom(newPosition);
+        localPosition.add(aTranslation);
+        invalidateGlobalPositions();
     }
 
     /**
@@ -441,7 +555,8 @@ public class JGenericObject extends JGenericType {
      * @param aZ
      */
     public void translate(final double aX, final double aY, final double aZ) {
-        translate(new JVector3d(aX, aY, aZ));
+        localPosition.add(aX, aY, aZ);
+        invalidateGlobalPositions();
     }
 
     /**
@@ -469,6 +584,59 @@ public class JGenericObject extends JGenericType {
         setRotation(newRot);
     }
 
+    /**
+     * Set the history through which the local pose of this object is
+     * published by another thread (see publishPose()), or null.
+     */
+    public void setPoseHistory(JPoseHistory aHistory) {
+        poseHistory = aHistory;
+        if ((aHistory != null) && (historyPose == null)) {
+            historyPose = new JPose();
+        }
+    }
+
+    /**
+     * Read the pose history of this object, or null.
+     */
+    public final JPoseHistory getPoseHistory() {
+        return (poseHistory);
+    }
+
+    /**
+     * Add a local pose to the pose history of this object, without modifying
+     * the object. Typically called by the haptic or simulation thread that
+     * moves the object, while the graphics thread reads the poses with
+     * updatePoseFromHistory().
+     *
+     * @param aTime time stamp of the pose [ns], e.g. from System.nanoTime().
+     * @param aPos local position.
+     * @param aRot local rotation.
+     */
+    public void publishPose(final long aTime, final JVector3d aPos, final JMatrix3d aRot) {
+        if (poseHistory != null) {
+            poseHistory.add(aTime, aPos, aRot);
+        }
+    }
+
+    /**
+     * Set the local pose of this object to the pose of its history at a
+     * given time, interpolated between samples or extrapolated after the
+     * last one. The graphics thread calls it with the time at which the
+     * frame will be displayed.
+     *
+     * @param aTime time [ns], on the clock of the published poses.
+     * @return false if there is no pose history or no pose yet.
+     */
+    public boolean updatePoseFromHistory(final long aTime) {
+        if ((poseHistory == null) || !poseHistory.getPose(aTime, historyPose)) {
+            return (false);
+        }
+        historyPose.getPosition(localPosition);
+        historyPose.getRotation(localRotation);
+        invalidateGlobalPositions();
+        return (true);
+    }
+
     //-----------------------------------------------------------------------
     // METHODS - GLOBAL / LOCAL POSITIONS:
     //-----------------------------------------------------------------------
@@ -489,39 +657,43 @@ public class JGenericObject extends JGenericType {
     public void computeGlobalPositions(final boolean aFrameOnly,
             final JVector3d aGlobalPos,
             final JMatrix3d aGlobalRot) {
-        // check if node is a ghost. If yes, then ignore call
-        if (ghost) {
-            return;
-        }
-
-        // current values become previous values
-        previousGlobalPosition.copyFrom(globalPosition);
-        previousGlobalRotation.copyFrom(globalRotation);
-
-        // update global position ArrayList and global rotation matrix
-        if (aGlobalPos != null) {
-            //globalPosition.copyfrom(JMaths.jAdd(aGlobalPos, JMaths.jMul(aGlobalRot, localPosition)));
-            globalPosition.copyFrom(JMaths.jAdd(aGlobalPos, JMaths.jMul(aGlobalRot, localPosition)));
-        }
-        if (aGlobalRot != null) {
-            globalRotation.copyFrom(JMaths.jMul(aGlobalRot, localRotation));
-        }
-
-        // update any positions within the current object that need to be
-        // updated (e.g. vertex positions)
-        updateGlobalPositions(aFrameOnly);
-
-
-        // propagate this method to my children
-        for (int i = 0; i < childrens.size(); i++) {
-            childrens.get(i).computeGlobalPositions(aFrameOnly, globalPosition, globalRotation);
-        }
+        // the frame of the parent is not known to be unchanged
+        computeGlobalPositions(aFrameOnly, aGlobalPos, aGlobalRot, true, false);
+        invalidateAncestors();
     }
 
     public void computeGlobalPositions(final boolean aFrameOnly) {
         JMatrix3d rot = new JMatrix3d();
         rot.identity();
-        computeGlobalPositions(aFrameOnly, new JVector3d(), rot);
+        computeGlobalPositions(aFrameOnly, new JVector3d(), rot, parent != null, false);
+        invalidateAncestors();
+    }
+
+    /**
+     * Mark the global positions of this object and of its children as out of
+     * date. Called by the methods that move the object; call it after
+     * modifying the local position, rotation or geometry of the object
+     * directly when CHAI_INCREMENTAL_GLOBAL_POSITIONS is enabled.
+     */
+    public void invalidateGlobalPositions() {
+        transformDirty = true;
+        invalidateAncestors();
+    }
+
+    /**
+     * Read the number of objects (this one and its descendants) whose global
+     * position was recomputed by the last call to computeGlobalPositions().
+     */
+    public int getNumUpdatedNodes() {
+        return (numUpdatedNodes);
+    }
+
+    /**
+     * Read the number of vertices whose global position was recomputed by the
+     * last call to computeGlobalPositions().
+     */
+    public int getNumUpdatedVertices() {
+        return (numUpdatedVertices);
     }
 
     public ArrayList<JGenericObject> getChildrens() {
@@ -562,23 +734,47 @@ public class JGenericObject extends JGenericType {
         // update values
         globalPosition.copyFrom(globalPos);
         globalRotation.copyFrom(globalRot);
+        motionValid = false;
 
         // update any positions within the current object that need to be
         // updated (e.g. vertex positions)
         updateGlobalPositions(aFrameOnly);
     }
 
+    /**
+     * Same as computeGlobalPositionsAndMotion(false): the global positions
+     * of the vertices are also computed, as by computeGlobalPositions(false).
+     */
     public void computeGlobalPositionsAndMotion() {
-        computeGlobalPositionsAndMotion(true, new JVector3d(), JMaths.jIdentity3d());
+        computeGlobalPositionsAndMotion(false);
+    }
+
+    /**
+     * Compute the global position and rotation with relative motion of this
+     * object and its children, this object being the root of the scene
+     * graph. If \e aFrameOnly is true, the global positions of the vertices
+     * are not computed.
+     */
+    public void computeGlobalPositionsAndMotion(final boolean aFrameOnly) {
+        JMatrix3d rot = new JMatrix3d();
+        rot.identity();
+        computeGlobalPositions(aFrameOnly, new JVector3d(), rot, parent != null, true);
+        invalidateAncestors();
     }
 
     /**
      * Compute the global position and rotation with relative motion of this
-     * object and its children.
+     * object and its children. Same as computeGlobalPositions(), but the
+     * motion of each object since the previous update is also computed, once,
+     * instead of at the first collision query that adjusts for the motion of
+     * the objects (see JCollisionSettings.setAdjustObjectMotion()). Call it
+     * from the loop that moves the objects, before the haptic queries.
      */
     public void computeGlobalPositionsAndMotion(final boolean aFrameOnly,
             final JVector3d aGlobalPos,
             final JMatrix3d aGlobalRot) {
+        computeGlobalPositions(aFrameOnly, aGlobalPos, aGlobalRot, true, true);
+        invalidateAncestors();
     }
 
     //-----------------------------------------------------------------------
@@ -598,14 +794,21 @@ public class JGenericObject extends JGenericType {
             return (new JVector3d(0, 0, 0));
         }
 
-        JMatrix3d localRotTrans = new JMatrix3d();
-        localRotation.transr(localRotTrans);
+        // skip this subtree if the tool is out of reach of all its effects
+        if (aInteractionSettings.isBoundaryPruningEnabled()
+                && !isInInteractionRangeOfParent(aToolPos)) {
+            aInteractions.incrementNumPrunedObjects();
+            return (new JVector3d(0, 0, 0));
+        }
+        aInteractions.incrementNumVisitedObjects();
 
         // compute local position of tool and velocity ArrayList
-        JVector3d toolPosLocal = JMaths.jMul(localRotTrans, JMaths.jSub(aToolPos, localPosition));
+        JVector3d toolPosLocal = new JVector3d();
+        JMaths.jInverseTransform(localPosition, localRotation, aToolPos, toolPosLocal);
 
         // compute interaction between tool and current object
-        JVector3d toolVelLocal = JMaths.jMul(localRotTrans, aToolVel);
+        JVector3d toolVelLocal = new JVector3d();
+        JMaths.jTransMul(localRotation, aToolVel, toolVelLocal);
 
         // compute local interaction with current object
         computeLocalInteraction(toolPosLocal,
@@ -623,24 +826,22 @@ public class JGenericObject extends JGenericType {
                 if (nextEffect.isEnabled()) {
                     JVector3d force = new JVector3d(0, 0, 0);
 
-                    interactionEvent = interactionEvent
-                            || nextEffect.computeForce(toolPosLocal,
+                    interactionEvent = nextEffect.computeForce(toolPosLocal,
                             toolVelLocal,
                             a_IDN,
-                            force);
+                            force) || interactionEvent;
                     localForce.add(force);
                 }
             }
 
             // report any interaction
             if (interactionEvent) {
-                JInteractionEvent newInteractionEvent = new JInteractionEvent();
+                JInteractionEvent newInteractionEvent = aInteractions.addEvent();
                 newInteractionEvent.setObject(this);
                 newInteractionEvent.setInside(interactionInside);
                 newInteractionEvent.setLocalPosition(toolPosLocal);
                 newInteractionEvent.setLocalSurfacePosition(interactionProjectedPoint);
                 newInteractionEvent.setLocalForce(localForce);
-                aInteractions.add(newInteractionEvent);
             }
 
             // compute any other force interactions
@@ -672,6 +873,251 @@ public class JGenericObject extends JGenericType {
         return (m_globalForce);
     }
 
+    /**
+     * Descend through child objects to compute interactions for several tool
+     * points at once, sharing a single traversal of the scene. Forces are
+     * expressed in the frame of the parent and added to \e aForces.
+     *
+     * @param aToolPos positions of the points in the frame of the parent.
+     * @param aToolVel velocities of the points in the frame of the parent.
+     * @param aIDN identification number of each point.
+     * @param aNumPoints number of points.
+     * @param aForces resulting forces, accumulated.
+     */
+    public void computeInteractions(final JVector3d[] aToolPos,
+            final JVector3d[] aToolVel,
+            final int[] aIDN,
+            final int aNumPoints,
+            JVector3d[] aForces,
+            JInteractionRecorder aInteractions,
+            JInteractionSettings aInteractionSettings) {
+        // check if node is a ghost. If yes, then ignore call
+        if (ghost) {
+            return;
+        }
+
+        // skip this subtree if all points are out of reach of its effects
+        boolean[] inRange = new boolean[aNumPoints];
+        boolean anyInRange = false;
+        boolean pruning = aInteractionSettings.isBoundaryPruningEnabled();
+        for (int i = 0; i < aNumPoints; i++) {
+            inRange[i] = !pruning || isInInteractionRangeOfParent(aToolPos[i]);
+            anyInRange = anyInRange || inRange[i];
+        }
+        if (!anyInRange) {
+            aInteractions.incrementNumPrunedObjects();
+            return;
+        }
+        aInteractions.incrementNumVisitedObjects();
+
+        // compute local position and velocity of each point
+        JVector3d[] toolPosLocal = new JVector3d[aNumPoints];
+        JVector3d[] toolVelLocal = new JVector3d[aNumPoints];
+        for (int i = 0; i < aNumPoints; i++) {
+            toolPosLocal[i] = new JVector3d();
+            JMaths.jInverseTransform(localPosition, localRotation, aToolPos[i], toolPosLocal[i]);
+
+            toolVelLocal[i] = new JVector3d();
+            JMaths.jTransMul(localRotation, aToolVel[i], toolVelLocal[i]);
+        }
+
+        JVector3d[] localForces = new JVector3d[aNumPoints];
+        for (int i = 0; i < aNumPoints; i++) {
+            localForces[i] = new JVector3d(0, 0, 0);
+        }
+
+        if (hapticEnabled) {
+            JVector3d force = new JVector3d();
+
+            for (int i = 0; i < aNumPoints; i++) {
+                if (!inRange[i]) {
+                    continue;
+                }
+
+                // compute local interaction with current object
+                computeLocalInteraction(toolPosLocal[i], toolVelLocal[i], aIDN[i]);
+
+                // compute each force effect
+                boolean interactionEvent = false;
+                for (JGenericEffect nextEffect : effects) {
+                    if (nextEffect.isEnabled()) {
+                        force.zero();
+                        interactionEvent = nextEffect.computeForce(toolPosLocal[i],
+                                toolVelLocal[i],
+                                aIDN[i],
+                                force) || interactionEvent;
+                        localForces[i].add(force);
+                    }
+                }
+
+                // report any interaction
+                if (interactionEvent) {
+                    JInteractionEvent newInteractionEvent = aInteractions.addEvent();
+                    newInteractionEvent.setObject(this);
+                    newInteractionEvent.setInside(interactionInside);
+                    newInteractionEvent.setLocalPosition(toolPosLocal[i]);
+                    newInteractionEvent.setLocalSurfacePosition(interactionProjectedPoint);
+                    newInteractionEvent.setLocalForce(localForces[i]);
+                }
+
+                // compute any other force interactions
+                localForces[i].add(computeOtherInteractions(toolPosLocal[i],
+                        toolVelLocal[i],
+                        aIDN[i],
+                        aInteractions,
+                        aInteractionSettings));
+            }
+        }
+
+        // descend through the children
+        for (int i = 0; i < childrens.size(); i++) {
+            childrens.get(i).computeInteractions(toolPosLocal,
+                    toolVelLocal,
+                    aIDN,
+                    aNumPoints,
+                    localForces,
+                    aInteractions,
+                    aInteractionSettings);
+        }
+
+        // convert the reaction forces into my parent coordinates
+        JVector3d globalForce = new JVector3d();
+        for (int i = 0; i < aNumPoints; i++) {
+            localRotation.mulr(localForces[i], globalForce);
+            aForces[i].add(globalForce);
+        }
+    }
+
+    /**
+     * Check if the boundary box of this object, at its current or previous
+     * global pose, overlaps a box given in global coordinates. Objects
+     * without a valid boundary box always overlap.
+     */
+    public boolean isInCollisionRange(final JVector3d aGlobalMin, final JVector3d aGlobalMax) {
+        if (boundaryBoxMax.distance(boundaryBoxMin) <= BOUNDARY_BOX_EPSILON) {
+            return (true);
+        }
+
+        return (boxOverlaps(globalPosition, globalRotation, aGlobalMin, aGlobalMax)
+                || boxOverlaps(previousGlobalPosition, previousGlobalRotation, aGlobalMin, aGlobalMax));
+    }
+
+    /**
+     * Check if the boundary box placed at a global pose overlaps a box given
+     * in global coordinates.
+     */
+    private boolean boxOverlaps(final JVector3d aPos, final JMatrix3d aRot,
+            final JVector3d aGlobalMin, final JVector3d aGlobalMax) {
+        // center and half extents of the box in local coordinates
+        double cx = 0.5 * (boundaryBoxMin.x + boundaryBoxMax.x);
+        double cy = 0.5 * (boundaryBoxMin.y + boundaryBoxMax.y);
+        double cz = 0.5 * (boundaryBoxMin.z + boundaryBoxMax.z);
+        double ex = 0.5 * (boundaryBoxMax.x - boundaryBoxMin.x);
+        double ey = 0.5 * (boundaryBoxMax.y - boundaryBoxMin.y);
+        double ez = 0.5 * (boundaryBoxMax.z - boundaryBoxMin.z);
+
+        // axis aligned bounds of the transformed box
+        return (slabOverlaps(aPos.x, aRot.m00, aRot.m01, aRot.m02, cx, cy, cz, ex, ey, ez,
+                aGlobalMin.x, aGlobalMax.x)
+                && slabOverlaps(aPos.y, aRot.m10, aRot.m11, aRot.m12, cx, cy, cz, ex, ey, ez,
+                aGlobalMin.y, aGlobalMax.y)
+                && slabOverlaps(aPos.z, aRot.m20, aRot.m21, aRot.m22, cx, cy, cz, ex, ey, ez,
+                aGlobalMin.z, aGlobalMax.z));
+    }
+
+    /**
+     * Check if the extent of a transformed box along one world axis, given
+     * by a row of the rotation, overlaps an interval.
+     */
+    private static boolean slabOverlaps(double aPos, double aR0, double aR1, double aR2,
+            double aCx, double aCy, double aCz, double aEx, double aEy, double aEz,
+            double aMin, double aMax) {
+        double center = aPos + aR0 * aCx + aR1 * aCy + aR2 * aCz;
+        double extent = Math.abs(aR0) * aEx + Math.abs(aR1) * aEy + Math.abs(aR2) * aEz;
+        return ((center + extent >= aMin) && (center - extent <= aMax));
+    }
+
+    /**
+     * Check if a tool position, expressed in the local frame of this object,
+     * lies in the boundary box expanded by the interaction radius. Objects
+     * without a valid boundary box, or with descendants whose effects are
+     * not bounded by a box, are always in range.
+     */
+    public boolean isInInteractionRange(final JVector3d aToolPosLocal) {
+        return (isInInteractionRange(aToolPosLocal.x, aToolPosLocal.y, aToolPosLocal.z));
+    }
+
+    /**
+     * Check if a tool position, expressed in the frame of the parent of this
+     * object, is in range; the position is transformed without allocating.
+     */
+    private boolean isInInteractionRangeOfParent(final JVector3d aToolPos) {
+        final JMatrix3d m = localRotation;
+        double x = aToolPos.x - localPosition.x;
+        double y = aToolPos.y - localPosition.y;
+        double z = aToolPos.z - localPosition.z;
+        return (isInInteractionRange(m.m00 * x + m.m10 * y + m.m20 * z,
+                m.m01 * x + m.m11 * y + m.m21 * z,
+                m.m02 * x + m.m12 * y + m.m22 * z));
+    }
+
+    private boolean isInInteractionRange(final double aX, final double aY, final double aZ) {
+        if (interactionUnbounded
+                || (boundaryBoxMax.distance(boundaryBoxMin) <= BOUNDARY_BOX_EPSILON)) {
+            return (true);
+        }
+
+        double radius = getInteractionRadius();
+        return ((aX >= boundaryBoxMin.x - radius) && (aX <= boundaryBoxMax.x + radius)
+                && (aY >= boundaryBoxMin.y - radius) && (aY <= boundaryBoxMax.y + radius)
+                && (aZ >= boundaryBoxMin.z - radius) && (aZ <= boundaryBoxMax.z + radius));
+    }
+
+    /**
+     * Read the distance beyond the boundary box within which this object or
+     * its children can produce a force. The reach of the effects of this
+     * object is read from the effects themselves; that of the children is
+     * updated by computeBoundaryBox() and when effects are added.
+     */
+    public double getInteractionRadius() {
+        return (Math.max(interactionRadius, computeEffectsRadius()));
+    }
+
+    /**
+     * Compute the reach of the effects of this object.
+     */
+    private double computeEffectsRadius() {
+        double radius = 0.0;
+        for (int i = 0; i < effects.size(); i++) {
+            radius = Math.max(radius, effects.get(i).getInfluenceRadius());
+        }
+        return (radius);
+    }
+
+    /**
+     * Update the reach of the effects of this subtree and of its ancestors,
+     * from the values of the children.
+     */
+    protected void updateInteractionRadius() {
+        double radius = computeEffectsRadius();
+        boolean unbounded = !effects.isEmpty() && !hasValidBoundaryBox();
+        for (int i = 0; i < childrens.size(); i++) {
+            JGenericObject child = childrens.get(i);
+            radius = Math.max(radius, child.interactionRadius);
+            unbounded = unbounded || child.interactionUnbounded;
+        }
+        interactionRadius = radius;
+        interactionUnbounded = unbounded;
+
+        if (parent != null) {
+            parent.updateInteractionRadius();
+        }
+    }
+
+    private boolean hasValidBoundaryBox() {
+        return (boundaryBoxMax.distance(boundaryBoxMin) > BOUNDARY_BOX_EPSILON);
+    }
+
     /**
      * Adds a haptic effect to the current object
      *
@@ -683,6 +1129,9 @@ public class JGenericObject extends JGenericType {
 
         // add this child to my list of children
         effects.add(aEffect);
+
+        // the effect may reach further than the previous ones
+        updateInteractionRadius();
     }
 
     //-----------------------------------------------------------------------
@@ -752,15 +1201,37 @@ public class JGenericObject extends JGenericType {
      * @param aAffectChildren
      */
     public void setVisible(final boolean aShow, final boolean aAffectChildren) {
+        // the batches of a frozen subtree only hold its visible meshes
+        if (updateVisible(aShow, aAffectChildren)) {
+            JGenericObject frozen = this;
+            while ((frozen != null) && (frozen.staticBatch == null)) {
+                frozen = frozen.parent;
+            }
+            if (frozen != null) {
+                frozen.rebuildStaticBatch();
+            }
+        }
+    }
+
+    /**
+     * Show or hide this object and optionally its children.
+     *
+     * @return true if an object rendered by batches changed.
+     */
+    private boolean updateVisible(final boolean aShow, final boolean aAffectChildren) {
         // update current object
+        boolean changed = renderedByBatch && (visible != aShow);
         visible = aShow;
 
         // update children
         if (aAffectChildren) {
             for (int i = 0; i < childrens.size(); i++) {
-                childrens.get(i).setVisible(aShow, true);
+                if (childrens.get(i).updateVisible(aShow, true)) {
+                    changed = true;
+                }
             }
         }
+        return (changed);
     }
 
     /**
@@ -1007,6 +1478,11 @@ public class JGenericObject extends JGenericType {
         // to do their business in this method, then call the cGenericObject version
         // to propagate the call through the scene graph
 
+        // the batches of a frozen subtree have their own display lists
+        if (staticBatch != null) {
+            staticBatch.onDisplayReset();
+        }
+
         // update children
         if (aAffectChildren) {
             for (int i = 0; i < childrens.size(); i++) {
@@ -1054,6 +1530,9 @@ public class JGenericObject extends JGenericType {
         // to do their business in this method, then call the cGenericObject version
         // to propagate the call through the scene graph
 
+        // the subtree may be modified, so its batches are dropped
+        unfreeze();
+
         // update children
         if (aAffectChildren) {
             for (int i = 0; i < childrens.size(); i++) {
@@ -1066,6 +1545,57 @@ public class JGenericObject extends JGenericType {
         render(JChaiRenderMode.CHAI_RENDER_MODE_RENDER_ALL);
     }
 
+    /**
+     * Finalize this object and its children, and render them with a few
+     * merged batches instead of one draw per object: the meshes of the
+     * subtree are transformed into the frame of this object and merged by
+     * material (see JStaticBatch). The subtree must not be modified or moved
+     * relatively to this object until unfreeze() is called; this object
+     * itself may still move. Collision detection and haptics keep using the
+     * original objects.
+     *
+     * Hidden meshes are left out of the batches; showing or hiding an object
+     * of the subtree builds them again. Hiding this object hides the whole
+     * subtree.
+     */
+    public void freeze() {
+        unfreeze();
+        finalizeObject(true);
+        staticBatch = new JStaticBatch(this);
+    }
+
+    /**
+     * Build the batches of this frozen subtree again.
+     */
+    private void rebuildStaticBatch() {
+        staticBatch.release();
+        staticBatch = new JStaticBatch(this);
+    }
+
+    /**
+     * Render the objects of this subtree individually again.
+     */
+    public void unfreeze() {
+        if (staticBatch != null) {
+            staticBatch.release();
+            staticBatch = null;
+        }
+    }
+
+    /**
+     * Is this subtree frozen?
+     */
+    public boolean isFrozen() {
+        return (staticBatch != null);
+    }
+
+    /**
+     * Read the batches of this subtree, or null if it is not frozen.
+     */
+    public JStaticBatch getStaticBatch() {
+        return (staticBatch);
+    }
+
     /**
      * Render the entire scene graph, starting from this object.
      */
@@ -1074,6 +1604,11 @@ public class JGenericObject extends JGenericType {
         // Initialize rendering
         //-----------------------------------------------------------------------
 
+        // drawn by the batches of a frozen ancestor
+        if (subtreeRenderedByBatch) {
+            return;
+        }
+
         GL2 gl = GLContext.getCurrent().getGL().getGL2();
         // rotate the current reference frame to match this object's
         // reference frame
@@ -1155,7 +1690,7 @@ public class JGenericObject extends JGenericType {
         //-----------------------------------------------------------------------
         // Render graphical representation of object
         //-----------------------------------------------------------------------
-        if (visible) {
+        if (visible && !renderedByBatch) {
             // set polygon and face mode
             gl.glPolygonMode(GL2.GL_FRONT_AND_BACK, triangleMode);
 
@@ -1222,6 +1757,11 @@ public class JGenericObject extends JGenericType {
             }
         }
 
+        // render batches of a frozen subtree
+        if (visible && (staticBatch != null)) {
+            staticBatch.render(aRenderMode);
+        }
+
         // render children
         for (int i = 0; i < childrens.size(); i++) {
             childrens.get(i).renderSceneGraph(aRenderMode);
@@ -1361,6 +1901,7 @@ public class JGenericObject extends JGenericType {
     public void setTransparencyEnabled(final boolean aUseTransparency, final boolean aAffectChildren) {
         // update changes to object
         transparencyEnabled = aUseTransparency;
+        renderSettingsVersion++;
 
         // propagate changes to my children
         if (aAffectChildren) {
@@ -1423,6 +1964,7 @@ public class JGenericObject extends JGenericType {
     public void setCullingEnabled(final boolean aUseCulling, final boolean aAffectChildren) {
         // apply changes to this object
         cullingEnabled = aUseCulling;
+        renderSettingsVersion++;
 
         // propagate changes to children
         if (aAffectChildren) {
@@ -1456,6 +1998,7 @@ public class JGenericObject extends JGenericType {
     public void setVertexColorsEnabled(final boolean aUseColors, final boolean aAffectChildren) {
         // update changes to object
         vertexColorsEnabled = aUseColors;
+        renderSettingsVersion++;
 
         // update changes to children
         if (aAffectChildren) {
@@ -1487,6 +2030,7 @@ public class JGenericObject extends JGenericType {
     public void setMaterialEnabled(final boolean aUseMaterial, final boolean aAffectChildren) {
         // update changes to object
         materialEnabled = aUseMaterial;
+        renderSettingsVersion++;
 
         // propagate changes to my children
         if (aAffectChildren) {
@@ -1517,6 +2061,7 @@ public class JGenericObject extends JGenericType {
      */
     public void setTextureMappingEnabled(final boolean aUseTexture, final boolean aAffectChildren) {
         textureMappingEnabled = aUseTexture;
+        renderSettingsVersion++;
 
         // propagate changes to children
         if (aAffectChildren) {
@@ -1546,6 +2091,7 @@ public class JGenericObject extends JGenericType {
      */
     public void setTexture(JTexture2D aTexture, final boolean aAffectChildren) {
         this.texture = aTexture;
+        renderSettingsVersion++;
         // propagate changes to children
         if (aAffectChildren) {
             for (int i = 0; i < childrens.size(); i++) {
@@ -1609,15 +2155,25 @@ public class JGenericObject extends JGenericType {
         // compute the bounding box of this object
         updateBoundaryBox();
 
+        // compute the reach of the effects of this object
+        interactionRadius = computeEffectsRadius();
+        interactionUnbounded = !effects.isEmpty() && !hasValidBoundaryBox();
+
         if (aIncludeChildren == false) {
             return;
         }
+        interactionUnbounded = false;
 
 
         // compute the bounding box of all my children
         for (JGenericObject children : childrens) {
             children.computeBoundaryBox(aIncludeChildren);
 
+            // the reach of my children's effects is also mine; a child
+            // whose effects are not bounded by a box can not be pruned
+            interactionRadius = Math.max(interactionRadius, children.getInteractionRadius());
+            interactionUnbounded = interactionUnbounded || children.interactionUnbounded;
+
             // see if this child has a _valid_ boundary box
             boolean childBoxValid = (JMaths.jAbs(JMaths.jDistance(children.getBoundaryBoxMax(),
                     children.getBoundaryBoxMin()))
@@ -1678,16 +2234,15 @@ public class JGenericObject extends JGenericType {
                 boundaryBoxMax.copyFrom(childBoxMax);
             } else {
                 // compute new boundary
-                boundaryBoxMin.setX(JMaths.jMin(boundaryBoxMin.getX(), childBoxMin.getX()));
-                boundaryBoxMin.setY(JMaths.jMin(boundaryBoxMin.getY(), childBoxMin.getY()));
-                boundaryBoxMin.setZ(JMaths.jMin(boundaryBoxMin.getZ(), childBoxMin.getZ()));
-
-                // compute new boundary
-                boundaryBoxMax.setX(JMaths.jMax(boundaryBoxMax.getX(), childBoxMax.getX()));
-                boundaryBoxMax.setY(JMaths.jMax(boundaryBoxMax.getY(), childBoxMax.getY()));
-                boundaryBoxMax.setZ(JMaths.jMax(boundaryBoxMax.getZ(), childBoxMax.getZ()));
+                JMaths.jMin(boundaryBoxMin, childBoxMin, boundaryBoxMin);
+                JMaths.jMax(boundaryBoxMax, childBoxMax, boundaryBoxMax);
             }
         }
+
+        // effects without any box to bound them
+        if (!effects.isEmpty() && !hasValidBoundaryBox()) {
+            interactionUnbounded = true;
+        }
     }
 
     //-----------------------------------------------------------------------
@@ -1801,19 +2356,112 @@ public class JGenericObject extends JGenericType {
         // temp variable
         boolean hit = false;
 
-        // get the transpose of the local rotation matrix
-        JMatrix3d transLocalRot = new JMatrix3d();
-        localRotation.transr(transLocalRot);
-
         // convert first endpoint of the segment into local coordinate frame
-        JVector3d localSegmentPointA = new JVector3d(aSegmentPointA);
-        localSegmentPointA.sub(localPosition);
-        transLocalRot.mul(localSegmentPointA);
+        JVector3d localSegmentPointA = new JVector3d();
+        JMaths.jInverseTransform(localPosition, localRotation, aSegmentPointA, localSegmentPointA);
 
         // convert second endpoint of the segment into local coordinate frame
-        JVector3d localSegmentPointB = new JVector3d(aSegmentPointB);
-        localSegmentPointB.sub(localPosition);
-        transLocalRot.mul(localSegmentPointB);
+        JVector3d localSegmentPointB = new JVector3d();
+        JMaths.jInverseTransform(localPosition, localRotation, aSegmentPointB, localSegmentPointB);
+
+        // check for a collision with this object
+        hit = computeObjectCollisionDetection(localSegmentPointA,
+                localSegmentPointB,
+                aRecorder,
+                aSettings);
+
+        // check for collisions with all children of this object
+        for (int i = 0; i < childrens.size(); i++) {
+            // call this child's collision detection function to see if it (or any
+            // of its descendants) are intersected by the segment
+            boolean hitChild = childrens.get(i).computeCollisionDetection(localSegmentPointA,
+                    localSegmentPointB,
+                    aRecorder,
+                    aSettings);
+
+            // update if a hit ocured
+            hit = hit || hitChild;
+        }
+
+
+        // return whether there was a collision between the segment and this world
+        return (hit);
+    }
+
+    /**
+     * Compute collision detection with this object only (not its children),
+     * for a segment given in global coordinates. Global positions must be up
+     * to date. Used by algorithms that select once the objects to test for
+     * several queries.
+     */
+    public boolean computeCollisionDetectionGlobal(JVector3d aGlobalSegmentPointA,
+            JVector3d aGlobalSegmentPointB,
+            JCollisionRecorder aRecorder,
+            JCollisionSettings aSettings) {
+        // check if node is a ghost. If yes, then ignore call
+        if (ghost) {
+            return (false);
+        }
+
+        // convert the segment into local coordinate frame
+        JVector3d localSegmentPointA = new JVector3d();
+        JMaths.jInverseTransform(globalPosition, globalRotation, aGlobalSegmentPointA, localSegmentPointA);
+
+        JVector3d localSegmentPointB = new JVector3d();
+        JMaths.jInverseTransform(globalPosition, globalRotation, aGlobalSegmentPointB, localSegmentPointB);
+
+        return (computeObjectCollisionDetection(localSegmentPointA,
+                localSegmentPointB,
+                aRecorder,
+                aSettings));
+    }
+
+    /**
+     * Collect the triangles that lie within \e aRadius of a point given in
+     * global coordinates, in this object and optionally in its children.
+     * Global positions must be up to date. Objects are selected by the
+     * collision settings, as for collision detection.
+     *
+     * @return the number of triangles added to \e aResult.
+     */
+    public int computeNearbyTriangles(JVector3d aGlobalPoint,
+            double aRadius,
+            List<JTriangle> aResult,
+            JCollisionSettings aSettings,
+            boolean aAffectChildren) {
+        // check if node is a ghost. If yes, then ignore call
+        if (ghost) {
+            return (0);
+        }
+
+        int count = 0;
+        if ((collisionDetector != null)
+                && (!aSettings.isCheckVisibleObjectsOnly() || visible)
+                && (!aSettings.isCheckHapticObjectsOnly() || hapticEnabled)) {
+            JVector3d localPoint = new JVector3d();
+            JMaths.jInverseTransform(globalPosition, globalRotation, aGlobalPoint, localPoint);
+            count += collisionDetector.computeNearbyTriangles(localPoint, aRadius, aResult);
+        }
+
+        if (aAffectChildren) {
+            for (int i = 0; i < childrens.size(); i++) {
+                count += childrens.get(i).computeNearbyTriangles(aGlobalPoint,
+                        aRadius, aResult, aSettings, true);
+            }
+        }
+        return (count);
+    }
+
+    /**
+     * Compute collision detection with this object only, for a segment given
+     * in local coordinates.
+     */
+    protected boolean computeObjectCollisionDetection(JVector3d localSegmentPointA,
+            JVector3d localSegmentPointB,
+            JCollisionRecorder aRecorder,
+            JCollisionSettings aSettings) {
+        // temp variable
+        boolean hit = false;
 
         // check for a collision with this object if:
         // (1) it has a collision detector
@@ -1848,26 +2496,13 @@ public class JGenericObject extends JGenericType {
         // compute any other collisions. This is a virtual function that can be extended for
         // classes that may contain other objects (sibbling) for wich collision detection may
         // need to be computed.
-        hit = hit || computeOtherCollisionDetection(localSegmentPointA,
+        if (computeOtherCollisionDetection(localSegmentPointA,
                 localSegmentPointB,
                 aRecorder,
-                aSettings);
-
-        // check for collisions with all children of this object
-        for (int i = 0; i < childrens.size(); i++) {
-            // call this child's collision detection function to see if it (or any
-            // of its descendants) are intersected by the segment
-            boolean hitChild = childrens.get(i).computeCollisionDetection(localSegmentPointA,
-                    localSegmentPointB,
-                    aRecorder,
-                    aSettings);
-
-            // update if a hit ocured
-            hit = hit || hitChild;
+                aSettings)) {
+            hit = true;
         }
 
-
-        // return whether there was a collision between the segment and this world
         return (hit);
     }
 
@@ -1881,17 +2516,18 @@ public class JGenericObject extends JGenericType {
      */
     public void adjustCollisionSegment(final JVector3d aSegmentPointA,
             JVector3d aSegmentPointAadjusted) {
-        // convert point from local to global coordinates by using
-        // the previous object position and orientation
-        JVector3d point = JMaths.jAdd(globalPosition, JMaths.jMul(globalRotation, aSegmentPointA));
-        
-        // compute the new position of the point based on
-        // the new object position and orientation
-        aSegmentPointAadjusted.copyFrom(
-                JMaths.jMul(
-                    JMaths.jTrans(previousGlobalRotation),
-                    JMaths.jSub(point, previousGlobalPosition)));
-        
+        // the motion is computed once per update
+        if (!motionValid) {
+            computeMotion();
+        }
+
+        // place the point where it was relative to the object at the
+        // previous update
+        if (motionIdentity) {
+            aSegmentPointAadjusted.copyFrom(aSegmentPointA);
+        } else {
+            JMaths.jTransform(motionTranslation, motionRotation, aSegmentPointA, aSegmentPointAadjusted);
+        }
     }
 
     //-----------------------------------------------------------------------
@@ -1934,6 +2570,9 @@ public class JGenericObject extends JGenericType {
 
             // add this child to my list of children
             childrens.add(aObject);
+
+            // its global position depends on its new parent
+            aObject.invalidateGlobalPositions();
         }
     }
 
@@ -2011,6 +2650,7 @@ public class JGenericObject extends JGenericType {
 
         // if operation succeeds, delete the object
         if (result) {
+            aObject.releaseSharedResources();
             aObject = null;
         }
 
@@ -2030,10 +2670,25 @@ public class JGenericObject extends JGenericType {
      * Delete and clear all objects from my list of children.
      */
     public void deleteAllChildren() {
+        for (int i = 0; i < childrens.size(); i++) {
+            childrens.get(i).releaseSharedResources();
+        }
+
         // clear my list of children
         childrens.clear();
     }
 
+    /**
+     * Release the references this object and its children hold on shared
+     * resources, such as the textures of the world texture cache. Called
+     * when the object is deleted.
+     */
+    protected void releaseSharedResources() {
+        for (int i = 0; i < childrens.size(); i++) {
+            childrens.get(i).releaseSharedResources();
+        }
+    }
+
     /**
      * Return the number of children on my list of children.
      */
@@ -2107,7 +2762,13 @@ public class JGenericObject extends JGenericType {
      * @param aGhostStatus
      */
     public void setGhost(boolean aGhostStatus) {
+        boolean wasGhost = ghost;
         ghost = aGhostStatus;
+
+        // ghosts are not updated
+        if (wasGhost && !ghost) {
+            invalidateGlobalPositions();
+        }
     }
 
     /**
@@ -2348,6 +3009,157 @@ public class JGenericObject extends JGenericType {
     public void updateGlobalPositions(boolean aFrameOnly) {
     }
 
+    /**
+     * Make the current global position and rotation the previous ones, when
+     * the object did not move since its last update.
+     */
+    protected void resetMotion() {
+        previousGlobalPosition.copyFrom(globalPosition);
+        previousGlobalRotation.copyFrom(globalRotation);
+        motionPending = false;
+
+        motionRotation.identity();
+        motionTranslation.zero();
+        motionValid = true;
+        motionIdentity = true;
+    }
+
+    /**
+     * Compute the motion of this object between its previous and current
+     * global poses.
+     */
+    protected void computeMotion() {
+        motionIdentity = globalPosition.equals(previousGlobalPosition)
+                && globalRotation.equals(previousGlobalRotation);
+
+        if (motionIdentity) {
+            motionRotation.identity();
+            motionTranslation.zero();
+        } else {
+            // transpose(previous rotation) * current rotation
+            JMatrix3d p = previousGlobalRotation;
+            JMatrix3d c = globalRotation;
+            motionRotation.set(
+                    p.m00 * c.m00 + p.m10 * c.m10 + p.m20 * c.m20,
+                    p.m00 * c.m01 + p.m10 * c.m11 + p.m20 * c.m21,
+                    p.m00 * c.m02 + p.m10 * c.m12 + p.m20 * c.m22,
+                    p.m01 * c.m00 + p.m11 * c.m10 + p.m21 * c.m20,
+                    p.m01 * c.m01 + p.m11 * c.m11 + p.m21 * c.m21,
+                    p.m01 * c.m02 + p.m11 * c.m12 + p.m21 * c.m22,
+                    p.m02 * c.m00 + p.m12 * c.m10 + p.m22 * c.m20,
+                    p.m02 * c.m01 + p.m12 * c.m11 + p.m22 * c.m21,
+                    p.m02 * c.m02 + p.m12 * c.m12 + p.m22 * c.m22);
+
+            // current origin in the previous frame
+            JMaths.jInverseTransform(previousGlobalPosition, previousGlobalRotation,
+                    globalPosition, motionTranslation);
+        }
+        motionValid = true;
+    }
+
+    /**
+     * Compute the global position and rotation of this object and of its
+     * children. Unless CHAI_INCREMENTAL_GLOBAL_POSITIONS is disabled, objects
+     * whose parent did not move and which were not invalidated are skipped.
+     *
+     * @param aParentMoved true if the frame of the parent may have changed
+     * since the last update.
+     * @param aComputeMotion true to compute the motion of the objects.
+     */
+    private void computeGlobalPositions(final boolean aFrameOnly,
+            final JVector3d aGlobalPos,
+            final JMatrix3d aGlobalRot,
+            final boolean aParentMoved,
+            final boolean aComputeMotion) {
+        // check if node is a ghost. If yes, then ignore call
+        if (ghost) {
+            return;
+        }
+
+        numUpdatedNodes = 0;
+        numUpdatedVertices = 0;
+
+        boolean update = aParentMoved || transformDirty || !CHAI_INCREMENTAL_GLOBAL_POSITIONS;
+        if (update) {
+            // current values become previous values
+            previousGlobalPosition.copyFrom(globalPosition);
+            previousGlobalRotation.copyFrom(globalRotation);
+
+            // update global position ArrayList and global rotation matrix
+            if (aGlobalPos != null) {
+                JMaths.jTransform(aGlobalPos, aGlobalRot, localPosition, globalPosition);
+            }
+            if (aGlobalRot != null) {
+                aGlobalRot.mulr(localRotation, globalRotation);
+            }
+            transformDirty = false;
+            motionPending = true;
+            globalPositionsStale = aFrameOnly;
+            numUpdatedNodes++;
+
+            if (aComputeMotion) {
+                computeMotion();
+            } else {
+                motionValid = false;
+            }
+
+            // update any positions within the current object that need to be
+            // updated (e.g. vertex positions)
+            updateGlobalPositions(aFrameOnly);
+        } else {
+            if (motionPending) {
+                resetMotion();
+            }
+            if (!aFrameOnly && globalPositionsStale) {
+                globalPositionsStale = false;
+                updateGlobalPositions(false);
+            }
+        }
+
+        // propagate this method to the children that need it
+        if (update || childrenDirty || (!aFrameOnly && childrenStale)) {
+            childrenDirty = false;
+            childrenStale = false;
+            for (int i = 0; i < childrens.size(); i++) {
+                JGenericObject child = childrens.get(i);
+                if (update || child.needsUpdate(aFrameOnly)) {
+                    child.computeGlobalPositions(aFrameOnly, globalPosition, globalRotation, update,
+                            aComputeMotion);
+                    numUpdatedNodes += child.numUpdatedNodes;
+                    numUpdatedVertices += child.numUpdatedVertices;
+                }
+                if (!child.ghost) {
+                    childrenDirty |= child.needsUpdate(true);
+                    childrenStale |= child.globalPositionsStale || child.childrenStale;
+                }
+            }
+        }
+    }
+
+    /**
+     * Check whether an update must visit this object.
+     */
+    private boolean needsUpdate(final boolean aFrameOnly) {
+        return (transformDirty || motionPending || childrenDirty
+                || (!aFrameOnly && (globalPositionsStale || childrenStale)));
+    }
+
+    /**
+     * Make sure that the updates started from the ancestors of this object
+     * reach it when it needs one.
+     */
+    private void invalidateAncestors() {
+        boolean dirty = needsUpdate(true);
+        boolean stale = globalPositionsStale || childrenStale;
+        if (!dirty && !stale) {
+            return;
+        }
+        for (JGenericObject node = parent; node != null; node = node.parent) {
+            node.childrenDirty |= dirty;
+            node.childrenStale |= stale;
+        }
+    }
+
     /**
      * Update the bounding box of this object, based on object-specific data
      * (e.g. triangle positions).
@@ -198,6 +198,7 @@ public class JLight extends JGenericObject {
          * update rotation matrix
          */
         localRotation.setCol(c0, c1, c2);
+        invalidateGlobalPositions();
     }
 
     public void setParentWorld(JWorld world) {
@@ -264,7 +265,7 @@ public class JLight extends JGenericObject {
      * Set my quadratic attenuation parameter.
      */
     public void setQuadraticAttenuation(final float aValue) {
-        quadraticAttenuation = ((float) JMaths.jClamp(aValue, 0.0f, 1.0f));
+        quadraticAttenuation = JMaths.jClamp(aValue, 0.0f, 1.0f);
     }
 
     /**
@@ -22,20 +22,27 @@ import java.net.URISyntaxException;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashSet;
 import com.jogamp.opengl.GL;
 import com.jogamp.opengl.GL2;
 import com.jogamp.opengl.GLContext;
 import org.jchai3d.collisions.JCollisionBrute;
+import org.jchai3d.collisions.JCollisionDistanceField;
+import org.jchai3d.collisions.JCollisionEvent;
+import org.jchai3d.collisions.JCollisionRecorder;
+import org.jchai3d.collisions.JDistanceField;
 import org.jchai3d.collisions.spheres.JCollisionSpheres;
 import org.jchai3d.collisions.aabb.JCollisionAABB;
+import org.jchai3d.effects.JGenericEffect;
 import org.jchai3d.files.JMeshLoader;
 import org.jchai3d.graphics.JColorf;
+import org.jchai3d.graphics.JTexture2D;
 import org.jchai3d.graphics.JTriangle;
 import org.jchai3d.graphics.JVertex;
 import org.jchai3d.math.JConstants;
 import org.jchai3d.math.JMaths;
 import org.jchai3d.math.JVector3d;
+import org.jchai3d.math.JVectorArrays;
 
 /**
  *
@@ -100,6 +107,96 @@ public class JMesh extends JGenericObject {
      * List of free slots in the triangle array.
      */
     protected ArrayList<Integer> freeTriangles;
+    /**
+     * Simplified versions of this mesh, from the finest to the coarsest.
+     */
+    protected ArrayList<JMesh> levelsOfDetail;
+    /**
+     * Distance to the camera beyond which each level of detail is rendered.
+     */
+    protected ArrayList<Double> levelOfDetailDistances;
+    /**
+     * Level of detail used during the last rendering pass (0 is this mesh).
+     */
+    protected int currentLevelOfDetail;
+    /**
+     * Coarse mesh used for collision detection instead of this mesh.
+     */
+    protected JMesh hapticProxy;
+    /**
+     * Triangle connectivity, built by createAdjacency() or
+     * createTriangleNeighborList().
+     */
+    protected JMeshAdjacency adjacency;
+    /**
+     * Closest point queries made for the effects; also keeps the closest
+     * triangle from one haptic update to the next.
+     */
+    protected JCollisionRecorder interactionRecorder;
+    /**
+     * If true, the global positions of the vertices are only computed when
+     * they are read with getVertexGlobalPosition() or
+     * JVertex.getGlobalPosition().
+     */
+    protected boolean lazyGlobalPositions;
+    /**
+     * Incremented each time the global frame of the mesh is updated; a
+     * vertex global position is up to date if it carries the same stamp.
+     */
+    protected int globalPositionsStamp;
+    /**
+     * Single precision copy of the vertices rendered with vertex arrays, or
+     * null.
+     */
+    protected JMeshRenderData renderData;
+    /**
+     * Estimated memory of a vertex and of a triangle in double precision,
+     * including their slot in the lists, on a 64-bit JVM with compressed
+     * references [bytes]. A vertex holds three JVector3d and a JColorf.
+     */
+    private static final int VERTEX_MEMORY_SIZE = 228;
+    private static final int GLOBAL_POSITION_MEMORY_SIZE = 40;
+    private static final int TRIANGLE_MEMORY_SIZE = 52;
+    /**
+     * Value of renderSettingsVersion when the rendering settings were last
+     * copied to the levels of detail.
+     */
+    private int levelOfDetailSettingsVersion;
+    /**
+     * Center of the boundary box in world coordinates, computed when
+     * selecting the level of detail.
+     */
+    private final JVector3d levelOfDetailCenter = new JVector3d();
+    /**
+     * If true, the bulk operations propagated to the children of a mesh
+     * (computeAllNormals, reverseAllNormals, setVertexColor,
+     * setTransparencyLevel and computeBoundaryBox) process the meshes of the
+     * subtree on a pool of threads, and split the meshes larger than
+     * CHAI_PARALLEL_MESH_GRAIN in ranges of vertices or triangles. The
+     * results are identical to those of the sequential operations.
+     */
+    public static boolean CHAI_PARALLEL_MESH_OPERATIONS = false;
+    /**
+     * Number of vertices or triangles given to a task by the parallel
+     * operations.
+     */
+    public static int CHAI_PARALLEL_MESH_GRAIN = 16384;
+    /**
+     * Set while the per-vertex part of the operation in progress was already
+     * done on this mesh by a parallel pass.
+     */
+    private boolean vertexPassDone;
+    /**
+     * Unit triangle normals, kept between the two passes of
+     * computeAllNormals().
+     */
+    private double[] triangleNormals;
+    /**
+     * Triangles of each vertex, built while the normals are computed (see
+     * computeVertexTriangleLists()).
+     */
+    private int[] normalOffsets;
+    private int[] normalTriangles;
 
     /**
      * 
@@ -153,6 +250,17 @@ public class JMesh extends JGenericObject {
         vertices = new ArrayList<JVertex>();
         freeTriangles = new ArrayList<Integer>();
         freeVertices = new ArrayList<Integer>();
+
+        // no level of detail and no haptic proxy by default
+        levelsOfDetail = new ArrayList<JMesh>();
+        levelOfDetailDistances = new ArrayList<Double>();
+        currentLevelOfDetail = 0;
+        hapticProxy = null;
+
+        interactionRecorder = new JCollisionRecorder();
+
+        lazyGlobalPositions = false;
+        globalPositionsStamp = 0;
     }
 
     /**
@@ -200,8 +308,11 @@ public class JMesh extends JGenericObject {
             index = vertices.size();
             JVertex newVertex = new JVertex(aX, aY, aZ);
             newVertex.setIndex(index);
+            newVertex.setParent(this);
             vertices.add(newVertex);
         }
+        invalidateGlobalPositions();
+        invalidateRenderData(index, 1);
 
         // return the index at which I inserted this vertex in my vertex array
         return index;
@@ -232,7 +343,11 @@ public class JMesh extends JGenericObject {
      * @param vertex
      */
     public void addVertex(JVertex vertex) {
+        vertex.setIndex(vertices.size());
+        vertex.setParent(this);
         vertices.add(vertex);
+        invalidateGlobalPositions();
+        invalidateRenderData(vertices.size() - 1, 1);
     }
 
     /**
@@ -429,6 +544,7 @@ public class JMesh extends JGenericObject {
         vertices.get(aIndexVertex1).setTriangleCount(vertices.get(aIndexVertex1).getTriangleCount() + 1);
         vertices.get(aIndexVertex2).setAllocated(true);
         vertices.get(aIndexVertex2).setTriangleCount(vertices.get(aIndexVertex2).getTriangleCount() + 1);
+        invalidateRenderTopology();
 
         // return the index at which I inserted this triangl in my triangl array
         return (index);
@@ -477,6 +593,7 @@ public class JMesh extends JGenericObject {
 
         // add triangl to free list
         getFreeTriangles().add(aIndex);
+        invalidateRenderTopology();
 
         // return success
         return (true);
@@ -579,7 +696,10 @@ public class JMesh extends JGenericObject {
     }
 
     /**
-     * Clear all triangls and vertices of mesh.
+     * Clear all triangls and vertices of mesh. The texture is kept, so that
+     * the mesh can be filled again; a texture of the world texture cache is
+     * released when the mesh is deleted (see JGenericObject.deleteChild())
+     * or given another texture.
      */
     public void clear() {
         // clear all triangls
@@ -587,7 +707,32 @@ public class JMesh extends JGenericObject {
 
         // clear all vertices
         vertices.clear();
+        invalidateRenderData();
+    }
+
+    /**
+     * Set my texture, possibly recursively affecting children. Textures of
+     * the world texture cache are referenced as long as the mesh uses them.
+     */
+    @Override
+    public void setTexture(JTexture2D aTexture, final boolean aAffectChildren) {
+        if ((aTexture != texture) && (parentWorld != null)) {
+            parentWorld.retainTexture(aTexture);
+            parentWorld.releaseTexture(texture);
+        }
+        super.setTexture(aTexture, aAffectChildren);
+    }
 
+    /**
+     * Release the cached texture of the mesh, and those of its children.
+     */
+    @Override
+    protected void releaseSharedResources() {
+        if ((parentWorld != null) && parentWorld.releaseTexture(texture)) {
+            texture = null;
+            renderSettingsVersion++;
+        }
+        super.releaseSharedResources();
     }
 
     /**
@@ -600,10 +745,37 @@ public class JMesh extends JGenericObject {
     public void setTransparencyLevel(final float aLevel,
             final boolean aApplyToTextures,
             final boolean aAffectChildren) {
+        // set the vertex colors of the whole subtree in parallel, then the
+        // materials
+        if (CHAI_PARALLEL_MESH_OPERATIONS && aAffectChildren && !vertexPassDone) {
+            ArrayList<JMesh> meshes = new ArrayList<JMesh>();
+            collectSubtreeMeshes(this, false, meshes);
+            new JParallelMeshOperation() {
+
+                void run(JMesh aMesh, int aFirst, int aLast) {
+                    for (int i = aFirst; i < aLast; i++) {
+                        aMesh.vertices.get(i).getColor().setA(aLevel);
+                    }
+                }
+            }.run(meshes);
+            invalidateRenderData(meshes);
+
+            setVertexPassDone(meshes, true);
+            try {
+                setTransparencyLevel(aLevel, aApplyToTextures, true);
+            } finally {
+                setVertexPassDone(meshes, false);
+            }
+            return;
+        }
+
         // if the transparency level is equal to 1.0, then do not apply transparency
         // otherwise enable it.
 
         super.setTransparencyLevel(aLevel, aApplyToTextures, aAffectChildren);
+        if (vertexPassDone) {
+            return;
+        }
 
         // convert transparency level to cColorb format
         //byte level = (byte) (255.0f * aLevel);
@@ -613,6 +785,7 @@ public class JMesh extends JGenericObject {
         for (int i = 0; i < numItems; i++) {
             vertices.get(i).getColor().setA(aLevel);
         }
+        invalidateRenderData();
     }
 
     /**
@@ -620,12 +793,28 @@ public class JMesh extends JGenericObject {
      */
     public void setVertexColor(final JColorf aColor, final boolean aAffectChildren) {
 
+        if (CHAI_PARALLEL_MESH_OPERATIONS) {
+            ArrayList<JMesh> meshes = new ArrayList<JMesh>();
+            collectMeshes(aAffectChildren, meshes);
+            new JParallelMeshOperation() {
+
+                void run(JMesh aMesh, int aFirst, int aLast) {
+                    for (int i = aFirst; i < aLast; i++) {
+                        aMesh.vertices.get(i).setColor(aColor);
+                    }
+                }
+            }.run(meshes);
+            invalidateRenderData(meshes);
+            return;
+        }
+
         // apply color to all vertex colors
         int i, numItems;
         numItems = getVertices().size();
         for (i = 0; i < numItems; i++) {
             vertices.get(i).setColor(aColor);
         }
+        invalidateRenderData();
 
         // update changes to children
         if (aAffectChildren) {
@@ -633,9 +822,8 @@ public class JMesh extends JGenericObject {
             for (i = 0; i < numItems; i++) {
                 JGenericObject nextObject = getChildrens().get(i);
 
-                JMesh nextMesh = (JMesh) (nextObject);
-                if (nextMesh != null) {
-                    nextMesh.setVertexColor(aColor, aAffectChildren);
+                if (nextObject instanceof JMesh) {
+                    ((JMesh) nextObject).setVertexColor(aColor, aAffectChildren);
                 }
             }
         }
@@ -721,6 +909,7 @@ public class JMesh extends JGenericObject {
             GLContext.getCurrent().getGL().getGL2().glDeleteLists(displayList, 1);
             displayList = -1;
         }
+        invalidateRenderData();
 
         // Propagate the operation to my children
         if (aAffectChildren) {
@@ -737,6 +926,73 @@ public class JMesh extends JGenericObject {
         }
     }
 
+    /**
+     * Mark all vertices and triangles as modified, so that the single
+     * precision copy drawn by renderMesh() is converted again before the
+     * next rendering. The operations of JMesh and the setters of JVertex
+     * call it themselves; call it after modifying the vectors returned by
+     * the getters of a vertex directly.
+     */
+    public void invalidateRenderData() {
+        if (renderData != null) {
+            renderData.invalidate();
+        }
+    }
+
+    /**
+     * Mark a range of vertices as modified; only those are converted again
+     * before the next rendering. Deformable meshes call it with the vertices
+     * they move at each update.
+     */
+    public void invalidateRenderData(final int aFirst, final int aCount) {
+        if (renderData != null) {
+            renderData.invalidateVertices(aFirst, aCount);
+        }
+    }
+
+    /**
+     * Read the single precision copy of the vertices, or null if the mesh
+     * was not rendered yet.
+     */
+    public JMeshRenderData getRenderData() {
+        return (renderData);
+    }
+
+    /**
+     * Estimate the memory used by the double precision vertices and
+     * triangles of this mesh [bytes].
+     */
+    public long getGeometryMemorySize(final boolean aAffectChildren) {
+        int vertexSize = VERTEX_MEMORY_SIZE + (lazyGlobalPositions ? 0 : GLOBAL_POSITION_MEMORY_SIZE);
+        long size = (long) vertexSize * vertices.size() + (long) TRIANGLE_MEMORY_SIZE * triangles.size();
+
+        if (aAffectChildren) {
+            for (int i = 0; i < childrens.size(); i++) {
+                if (childrens.get(i) instanceof JMesh) {
+                    size += ((JMesh) childrens.get(i)).getGeometryMemorySize(true);
+                }
+            }
+        }
+        return (size);
+    }
+
+    /**
+     * Read the memory used by the single precision copies of the vertices
+     * of this mesh [bytes].
+     */
+    public long getRenderMemorySize(final boolean aAffectChildren) {
+        long size = (renderData != null) ? renderData.getMemorySize() : 0;
+
+        if (aAffectChildren) {
+            for (int i = 0; i < childrens.size(); i++) {
+                if (childrens.get(i) instanceof JMesh) {
+                    size += ((JMesh) childrens.get(i)).getRenderMemorySize(true);
+                }
+            }
+        }
+        return (size);
+    }
+
     /**
      * Enable or disable the rendering of vertex normals, optionally propagating
      * the operation to my children.
@@ -819,12 +1075,12 @@ public class JMesh extends JGenericObject {
         }
 
         // create AABB collision detector
-        collisionDetector = new JCollisionBrute(triangles);
+        collisionDetector = new JCollisionBrute(getCollisionMesh().triangles);
         collisionDetector.initialize(0.0);
 
         // create neighbor lists
         if (aUseNeighbors) {
-            createTriangleNeighborList(false);
+            getCollisionMesh().createTriangleNeighborList(false);
         }
 
         // update children if required
@@ -848,12 +1104,12 @@ public class JMesh extends JGenericObject {
     public void createAABBCollisionDetector(double aRadius, boolean aAffectChildren, boolean aUseNeighbors) {
 
         // create AABB collision detector
-        collisionDetector = new JCollisionAABB(triangles, aUseNeighbors);
+        collisionDetector = new JCollisionAABB(getCollisionMesh().triangles, aUseNeighbors);
         collisionDetector.initialize(aRadius);
 
         // create neighbor lists
         if (aUseNeighbors) {
-            createTriangleNeighborList(false);
+            getCollisionMesh().createTriangleNeighborList(false);
         }
 
         // update children if required
@@ -884,15 +1140,17 @@ public class JMesh extends JGenericObject {
             collisionDetector = null;
         }
 
-        // create sphere tree collision detector
-        collisionDetector = new JCollisionSpheres(triangles, aUseNeighbors);
-        collisionDetector.initialize(aRadius);
-
-        // create list of neighbors
+        // create list of neighbors, shared with the tree
+        JCollisionSpheres spheres = new JCollisionSpheres(getCollisionMesh().triangles, aUseNeighbors);
         if (aUseNeighbors) {
-            createTriangleNeighborList(false);
+            getCollisionMesh().createTriangleNeighborList(false);
+            spheres.setAdjacency(getCollisionMesh().adjacency);
         }
 
+        // create sphere tree collision detector
+        collisionDetector = spheres;
+        collisionDetector.initialize(aRadius);
+
         // update children if required
         if (aAffectChildren) {
             for (int i = 0; i < childrens.size(); i++) {
@@ -907,60 +1165,220 @@ public class JMesh extends JGenericObject {
     }
 
     /**
-     * Create a lists for neighbor triangls for each triangl of the mesh.
+     * Add a signed distance field to the collision detector of this mesh
+     * (an AABB tree is created if the mesh has none). The field answers the
+     * potential field interactions of the mesh and rejects the collision
+     * queries far from the surface; the others are still answered by the
+     * exact detector. The mesh should be closed and static: the field is
+     * dropped when the collision detector is rebuilt after a modification.
+     * Call this method after setting up the collision detector.
+     *
+     * @param aCellSize distance between two grid points of the field.
+     * @param aBandWidth distance to the surface up to which the field is
+     * exact; should cover the range of the effects of the mesh.
+     * @param aCacheDirectory directory where fields are cached, or null.
+     * @param aBackground build the field on a background thread? Queries
+     * are exact until it is available.
      */
-    public void createTriangleNeighborList(boolean aAffectChildren) {
-        ArrayList<JTriangle> sort0 = new ArrayList<JTriangle>();
-        int i;
-        int n = triangles.size();
+    public void createDistanceField(double aCellSize, double aBandWidth,
+            File aCacheDirectory, boolean aBackground) {
+        createDistanceField(aCellSize, aBandWidth, aCacheDirectory, aBackground, false);
+    }
+
+    /**
+     * Add a signed distance field to the collision detector of this mesh
+     * and, optionally, to those of its children (see the method above).
+     * Meshes without triangles, such as the root of a model loaded as a
+     * group of meshes, get no field: each child has its own.
+     *
+     * @throws IllegalArgumentException if the cell size is not positive or
+     * the band width is negative.
+     */
+    public void createDistanceField(double aCellSize, double aBandWidth,
+            File aCacheDirectory, boolean aBackground, boolean aAffectChildren) {
+        JDistanceField.checkParameters(aCellSize, aBandWidth);
+
+        ArrayList<JTriangle> meshTriangles = getCollisionMesh().triangles;
+        if (hasAllocatedTriangle(meshTriangles)) {
+            addDistanceField(meshTriangles, aCellSize, aBandWidth, aCacheDirectory, aBackground);
+        }
 
-        for (i = 0; i < n; i++) {
-            sort0.add(triangles.get(i));
+        // update children if required
+        if (aAffectChildren) {
+            for (int i = 0; i < childrens.size(); i++) {
+                if (childrens.get(i) instanceof JMesh) {
+                    ((JMesh) childrens.get(i)).createDistanceField(aCellSize, aBandWidth,
+                            aCacheDirectory, aBackground, true);
+                }
+            }
         }
+    }
 
-        ArrayList<JTriangle> sort1 = new ArrayList<JTriangle>(sort0);
-        ArrayList<JTriangle> sort2 = new ArrayList<JTriangle>(sort1);
+    private static boolean hasAllocatedTriangle(ArrayList<JTriangle> aTriangles) {
+        for (int i = 0; i < aTriangles.size(); i++) {
+            if (aTriangles.get(i).isAllocated()) {
+                return (true);
+            }
+        }
+        return (false);
+    }
 
-        // Sort each list by the appropriate vertex index
-        Collections.sort(sort0, triangleSort0());
-        Collections.sort(sort1, triangleSort1());
-        Collections.sort(sort2, triangleSort2());
+    private void addDistanceField(ArrayList<JTriangle> meshTriangles, double aCellSize,
+            double aBandWidth, File aCacheDirectory, boolean aBackground) {
+        if (collisionDetector == null) {
+            createAABBCollisionDetector(0.0, false, false);
+        }
 
-        // Create neighbors for each triangle
-        for (i = 0; i < n; i++) {
-            // Clear the neighbor array
-            triangles.get(i).neighbors.clear();
-            // Include each triangle as its own neighbor
-            triangles.get(i).neighbors.add(triangles.get(i));
+        JCollisionDistanceField detector;
+        if (collisionDetector instanceof JCollisionDistanceField) {
+            detector = (JCollisionDistanceField) collisionDetector;
+            detector.setDistanceField(null);
+        } else {
+            detector = new JCollisionDistanceField(meshTriangles, collisionDetector, null);
+            collisionDetector = detector;
+        }
+
+        if (aBackground) {
+            JDistanceField.loadOrBuildInBackground(meshTriangles, aCellSize, aBandWidth,
+                    aCacheDirectory, detector);
+        } else {
+            detector.setDistanceField(JDistanceField.loadOrBuild(meshTriangles,
+                    aCellSize, aBandWidth, aCacheDirectory));
+        }
+    }
+
+    /**
+     * Read the distance field of this mesh, or null if there is none or if
+     * it is still being built.
+     */
+    public JDistanceField getDistanceField() {
+        if (collisionDetector instanceof JCollisionDistanceField) {
+            return (((JCollisionDistanceField) collisionDetector).getDistanceField());
+        }
+        return (null);
+    }
+
+    /**
+     * Project the tool on the surface of the mesh. With a distance field,
+     * the projection is read from the field in constant time, and refined
+     * with a closest point query of the collision detector near the surface.
+     * Without a field, the collision detector is queried if the mesh has
+     * effects; the side of the tool is then given by the normal of the
+     * closest triangle. The query is bounded by the reach of the effects
+     * outside the boundary box (see getInteractionRadius()); if the tool is
+     * further from the surface, it is outside and is not projected.
+     * Otherwise the mesh has no surface limits (see
+     * JGenericObject.computeLocalInteraction()).
+     */
+    @Override
+    public void computeLocalInteraction(final JVector3d aToolPos,
+            final JVector3d aToolVel,
+            final int aIDN) {
+        JDistanceField field = getDistanceField();
+        JCollisionEvent closest = interactionRecorder.getNearestCollision();
+
+        if (field != null) {
+            // move the tool against the gradient of the field, by the distance
+            double distance = field.computeGradient(aToolPos, interactionProjectedPoint);
+            interactionProjectedPoint.mul(-distance);
+            interactionProjectedPoint.add(aToolPos);
+            interactionInside = (distance <= 0.0);
+
+            // near the surface, the exact closest point is worth its cost
+            // the surface is within the error of the field
+            if ((Math.abs(distance) <= 2.0 * field.getMaxError())
+                    && collisionDetector.computeClosestPoint(aToolPos,
+                    Math.abs(distance) + field.getMaxError(), interactionRecorder)) {
+                interactionProjectedPoint.copyFrom(closest.getLocalPosition());
+            }
+            return;
+        }
+
+        if ((collisionDetector != null) && hasEnabledEffects()) {
+            double maxDistance = getInteractionQueryDistance(aToolPos);
+
+            if (collisionDetector.computeClosestPoint(aToolPos, maxDistance, interactionRecorder)) {
+                JVector3d point = closest.getLocalPosition();
+                JVector3d normal = closest.getLocalNormal();
+                interactionProjectedPoint.copyFrom(point);
+                interactionInside = ((aToolPos.x - point.x) * normal.x
+                        + (aToolPos.y - point.y) * normal.y
+                        + (aToolPos.z - point.z) * normal.z <= 0.0);
+            } else {
+                interactionProjectedPoint.copyFrom(aToolPos);
+                interactionInside = false;
+            }
+            return;
+        }
+
+        super.computeLocalInteraction(aToolPos, aToolVel, aIDN);
+    }
+
+    /**
+     * Compute the distance within which the surface must be searched for
+     * the effects of the mesh. A tool inside the mesh lies in its boundary
+     * box, and may be as far from the surface as the diagonal of the box.
+     * Without a valid box, the whole mesh is searched.
+     */
+    private double getInteractionQueryDistance(final JVector3d aToolPos) {
+        double diagonal = boundaryBoxMax.distance(boundaryBoxMin);
+        if (diagonal <= BOUNDARY_BOX_EPSILON) {
+            return (Double.MAX_VALUE);
         }
 
-        // Find pairs of triangles for which vertex #0 of one is shared with
-        // vertex #0 of the other...
-        findNeighbors(sort0, sort0, 0, 0);
+        if ((aToolPos.x >= boundaryBoxMin.x) && (aToolPos.x <= boundaryBoxMax.x)
+                && (aToolPos.y >= boundaryBoxMin.y) && (aToolPos.y <= boundaryBoxMax.y)
+                && (aToolPos.z >= boundaryBoxMin.z) && (aToolPos.z <= boundaryBoxMax.z)) {
+            return (getInteractionRadius() + diagonal);
+        }
+        return (getInteractionRadius());
+    }
 
-        // Find pairs of triangles for which vertex #0 of one is shared with
-        // vertex #1 of the other...
-        findNeighbors(sort0, sort1, 0, 1);
+    /**
+     * Check whether at least one effect of this mesh is enabled.
+     */
+    private boolean hasEnabledEffects() {
+        for (int i = 0; i < effects.size(); i++) {
+            JGenericEffect effect = effects.get(i);
+            if (effect.isEnabled()) {
+                return (true);
+            }
+        }
+        return (false);
+    }
 
-        // Find pairs of triangles for which vertex #0 of one is shared with
-        // vertex #2 of the other...
-        findNeighbors(sort0, sort2, 0, 2);
+    /**
+     * Create a lists for neighbor triangls for each triangl of the mesh.
+     * Neighbors are the triangles sharing a vertex position with a triangl
+     * (the triangl itself comes first). Connectivity is computed in linear
+     * time by createAdjacency(); on large meshes, both the connectivity and
+     * the lists are built by several threads.
+     */
+    public void createTriangleNeighborList(boolean aAffectChildren) {
+        createAdjacency(true);
 
-        // Find pairs of triangles for which vertex #1 of one is shared with
-        // vertex #1 of the other...
-        findNeighbors(sort1, sort1, 1, 1);
+        // fill the neighbor list of each triangle
+        if (triangles.size() >= JMeshAdjacency.CHAI_ADJACENCY_PARALLEL_THRESHOLD) {
+            ArrayList<JMesh> meshes = new ArrayList<JMesh>();
+            meshes.add(this);
+            new JParallelMeshOperation() {
 
-        // Find pairs of triangles for which vertex #1 of one is shared with
-        // vertex #2 of the other...
-        findNeighbors(sort1, sort2, 1, 2);
+                @Override
+                int getSize(JMesh aMesh) {
+                    return (aMesh.triangles.size());
+                }
 
-        // Find pairs of triangles for which vertex #2 of one is shared with
-        // vertex #2 of the other...
-        findNeighbors(sort2, sort2, 2, 2);
+                void run(JMesh aMesh, int aFirst, int aLast) {
+                    aMesh.fillTriangleNeighborLists(aFirst, aLast);
+                }
+            }.run(meshes);
+        } else {
+            fillTriangleNeighborLists(0, triangles.size());
+        }
 
         // update children if required
         if (aAffectChildren) {
-            for (i = 0; i < childrens.size(); i++) {
+            for (int i = 0; i < childrens.size(); i++) {
 
                 JMesh nextMesh = (JMesh) childrens.get(i);
                 if (nextMesh != null) {
@@ -972,165 +1390,131 @@ public class JMesh extends JGenericObject {
     }
 
     /**
-     * Search for triangl neighbors.
-     */
-    public void findNeighbors(ArrayList<JTriangle> search1, ArrayList<JTriangle> search2, final int v1, final int v2) {
-        int i = 0;
-        int j = 0;
-
-        // In this loop, we want to find triangles from search1 that have vertex #v1
-        // (v1 = 0, 1, or 2) equal to vertex #v2 (v2 = 0, 1, or 2) of a triangle from
-        // search2.  Since both lists are sorted, we use a merge join.
-        // If the x coordinate of vertex #v1 of triangle #i in search1 is the same as
-        // the x-coordinate of vertex #v2 of triangle #j in search2 (matching x-
-        // coordinates is a necessary but not sufficient condition that the vertices
-        // are shared)...
-        while ((i < search1.size()) && (j < search2.size())) {
-            if (Math.abs((search1).get(i).getVertex(v1).getPosition().getX()
-                    - (search2).get(j).getVertex(v2).getPosition().getX()) < 0.0000001) {
-                // Keep matching triangles from search1 with triangle #j in search2 as
-                // long as the specified vertices' x-coordinates are shared.
-                while ((i < search1.size())
-                        && (Math.abs((search1).get(i).getVertex(v1).getPosition().getX()
-                        - (search2).get(j).getVertex(v2).getPosition().getX()) < 0.0000001)) {
-                    int jj = j;
-
-                    // Keep matching triangles from search2 with triangle #i in search1 as
-                    // long as the specified vertices' x-coordinates are shared.
-                    while ((jj < search2.size())
-                            && (Math.abs((search1).get(i).getVertex(v1).getPosition().getX()
-                            - (search2).get(jj).getVertex(v2).getPosition().getX()) < 0.0000001)) {
-                        // If vertex #v1 of triangle #i in search1 is in fact equal (in x, y, and
-                        // z coordinates) to vertex #v2 of triangle #jj in search2, we have
-                        // found a pair of neighbors.
-                        if (((search1).get(i) != (search2).get(jj))
-                                && (JMaths.jEqualPoints((search1).get(i).getVertex(v1).getPosition(), (search2).get(jj).getVertex(v2).getPosition()))) {
-                            boolean found = false;
-                            int ii;
-
-                            // Check if triangle #jj from search2 has already been inserted into
-                            // the neighbors list for triangle #i from search1.
-                            for (ii = 0; (!found) && (ii < (search1).get(i).getNeighbors().size()); ii++) {
-                                if ((((search1).get(i).getNeighbors())).get(ii) == (search2).get(jj)) {
-                                    found = true;
-                                }
-                            }
-
-                            // If not, add it now.
-                            if (!found) {
-                                (search1).get(i).getNeighbors().add((search2).get(jj));
-                            }
-
-                            // Check if triangle #i from search1 has already been inserted into
-                            // the neighbors list for triangle #jj from search2.
-                            found = false;
-                            for (ii = 0; (!found) && (ii < (search2).get(jj).getNeighbors().size()); ii++) {
-                                if ((((search2).get(jj).getNeighbors())).get(ii) == (search1).get(i)) {
-                                    found = true;
-                                }
-                            }
-
-                            // If not, add it now.
-                            if (!found) {
-                                (search2).get(jj).getNeighbors().add((search1).get(i));
-                            }
-                        }
-                        jj++;
-                    }
-                    i++;
-                }
-            } // Since this is a merge join, we increment the counter for the search2 to
-            // "catch up to" search1 if the x-coordiante of vertex #v2 of triangle #j
-            // from search2 is smaller than that of vertex #v1 of triangle #i from search1...
-            else if ((search1).get(i).getVertex(v1).getPosition().getX()
-                    > (search2).get(j).getVertex(v2).getPosition().getX()) {
-                j++;
-            } // And vice versa.
-            else if ((search1).get(i).getVertex(v1).getPosition().getX()
-                    < (search2).get(j).getVertex(v2).getPosition().getX()) {
-                i++;
+     * Fill the neighbor lists of the triangles [aFirst, aLast) from the
+     * connectivity.
+     */
+    private void fillTriangleNeighborLists(int aFirst, int aLast) {
+        for (int i = aFirst; i < aLast; i++) {
+            JTriangle triangle = triangles.get(i);
+            triangle.neighbors.clear();
+
+            // Include each triangle as its own neighbor
+            triangle.neighbors.add(triangle);
+
+            int numNeighbors = adjacency.getNumNeighbors(i);
+            triangle.neighbors.ensureCapacity(numNeighbors + 1);
+            for (int j = 0; j < numNeighbors; j++) {
+                triangle.neighbors.add(triangles.get(adjacency.getNeighbor(i, j)));
             }
         }
     }
 
+    /**
+     * Build the connectivity of the triangles of this mesh (children are
+     * ignored) in primitive arrays: triangles around each vertex, triangle
+     * across each edge, and triangles sharing a vertex (see JMeshAdjacency).
+     *
+     * @param aParallel if true, large meshes are processed by several threads.
+     * @return the new connectivity, also available from getAdjacency().
+     */
+    public JMeshAdjacency createAdjacency(final boolean aParallel) {
+        adjacency = JMeshAdjacency.build(triangles, aParallel);
+        return (adjacency);
+    }
+
+    /**
+     * @return the connectivity of the triangles, or null if not built
+     */
+    public JMeshAdjacency getAdjacency() {
+        return (adjacency);
+    }
+
     /**
      * Compute all triangl normals, optionally propagating the operation to my children.
+     * The normal of a vertex is the normalized sum of the unit normals of its
+     * triangles, summed in the order of the triangles.
      */
     public void computeAllNormals(final boolean aAffectChildren) {
-        int nvertices = getVertices().size();
-        int ntriangls = triangles.size();
+        if (CHAI_PARALLEL_MESH_OPERATIONS) {
+            ArrayList<JMesh> meshes = new ArrayList<JMesh>();
+            collectMeshes(aAffectChildren, meshes);
+            computeAllNormals(meshes);
+            return;
+        }
+
+        // If we have triangles, compute normals for all triangles
+        int ntriangles = triangles.size();
+        if (ntriangles != 0) {
+            triangleNormals = new double[3 * ntriangles];
+            computeTriangleNormals(triangleNormals, 0, ntriangles);
+            computeVertexNormals(triangleNormals, 0, vertices.size());
+            triangleNormals = null;
+            invalidateRenderData();
+        }
 
+        // optionally propagate changes to children
+        if (aAffectChildren) {
+            int i, numItems;
+            numItems = getChildrens().size();
+            for (i = 0; i < numItems; i++) {
+                JGenericObject nextObject = getChildrens().get(i);
 
-        // If we have vertices and we have triangls, compute normals
-        // for all triangls
-        if (ntriangls != 0 && ntriangls != 0) {
+                // check if nextobject is a mesh. if yes, apply changes
+                if (nextObject instanceof JMesh) {
+                    ((JMesh) nextObject).computeAllNormals(aAffectChildren);
+                }
+            }
+        }
+    }
 
-            // used to grab positions of vertices
-            ArrayList<JVertex> vertexVector = pVertices();
-            // set all normals to zero
-            for (int i = 0; i < nvertices; i++) {
-                vertexVector.get(i).setNormal(0, 0, 0);
+    /**
+     * Compute the normals of a list of meshes in parallel: first the unit
+     * normals of the triangles, split in ranges of triangles, then the
+     * normals of the vertices, split in ranges of vertices. The vertices of
+     * a mesh split in several ranges gather their own triangles, in order,
+     * so that the sums do not depend on the number of threads.
+     */
+    private static void computeAllNormals(ArrayList<JMesh> aMeshes) {
+        ArrayList<JMesh> meshes = new ArrayList<JMesh>();
+        for (JMesh mesh : aMeshes) {
+            if (!mesh.triangles.isEmpty()) {
+                mesh.triangleNormals = new double[3 * mesh.triangles.size()];
+                meshes.add(mesh);
             }
+        }
 
+        try {
+            new JParallelMeshOperation() {
 
-            // compute normals for all triangls.
-            for (int i = 0; i < ntriangls; i++) {
-
-                // compute normal ArrayList
-                JVector3d normal = new JVector3d(),
-                        v01 = new JVector3d(),
-                        v02 = new JVector3d();
-
-                JVector3d vertex0 = vertexVector.get(triangles.get(i).getIndexVertex0()).getPosition();
-                JVector3d vertex1 = vertexVector.get(triangles.get(i).getIndexVertex1()).getPosition();
-                JVector3d vertex2 = vertexVector.get(triangles.get(i).getIndexVertex2()).getPosition();
-
-                vertex1.subr(vertex0, v01);
-                vertex2.subr(vertex0, v02);
-                v01.crossr(v02, normal);
-                double length = normal.length();
-                if (length > 0.0000001) {
-                    normal.div(length);
-                    vertexVector.get(triangles.get(i).getIndexVertex0()).getNormal().add(normal);
-                    vertexVector.get(triangles.get(i).getIndexVertex1()).getNormal().add(normal);
-                    vertexVector.get(triangles.get(i).getIndexVertex2()).getNormal().add(normal);
-                    vertexVector.get(triangles.get(i).getIndexVertex0()).setTriangleCount(vertexVector.get(triangles.get(i).getIndexVertex0()).getTriangleCount() + 1);
-                    vertexVector.get(triangles.get(i).getIndexVertex1()).setTriangleCount(vertexVector.get(triangles.get(i).getIndexVertex1()).getTriangleCount() + 1);
-                    vertexVector.get(triangles.get(i).getIndexVertex2()).setTriangleCount(vertexVector.get(triangles.get(i).getIndexVertex2()).getTriangleCount() + 1);
+                @Override
+                int getSize(JMesh aMesh) {
+                    return (aMesh.triangles.size());
                 }
-            }
 
+                void run(JMesh aMesh, int aFirst, int aLast) {
+                    aMesh.computeTriangleNormals(aMesh.triangleNormals, aFirst, aLast);
+                }
+            }.run(meshes);
 
-            // optionally propagate changes to children
-            if (aAffectChildren) {
-                int i, numItems;
-                numItems = getChildrens().size();
-                for (i = 0; i < numItems; i++) {
-                    JGenericObject nextObject = getChildrens().get(i);
-
-                    // check if nextobject is a mesh. if yes, apply changes
-                    JMesh nextMesh = (JMesh) (nextObject);
-                    if (nextMesh != null) {
-                        nextMesh.computeAllNormals(aAffectChildren);
-                    }
+            for (JMesh mesh : meshes) {
+                if (mesh.vertices.size() > CHAI_PARALLEL_MESH_GRAIN) {
+                    mesh.computeVertexTriangleLists();
                 }
             }
 
-            if (nvertices == 0) {
-                return;
-            }
+            new JParallelMeshOperation() {
 
-            // normalize all normals (After_ doing child-normal computations, in case
-            // I share vertices with my children)
-            for (int i = 0; i < vertexVector.size(); i++) {
-                /*
-                 * if (curv.mNTriangles) { curv.mNormal /=
-                 * (double)(curv.mNTriangles); }
-                 */
-                if (vertexVector.get(i).getNormal().lengthsq() > JConstants.CHAI_SMALL) {
-                    vertexVector.get(i).getNormal().normalize();
+                void run(JMesh aMesh, int aFirst, int aLast) {
+                    aMesh.computeVertexNormals(aMesh.triangleNormals, aFirst, aLast);
                 }
+            }.run(meshes);
+        } finally {
+            for (JMesh mesh : meshes) {
+                mesh.triangleNormals = null;
+                mesh.normalOffsets = null;
+                mesh.normalTriangles = null;
             }
+            invalidateRenderData(meshes);
         }
     }
 
@@ -1142,8 +1526,15 @@ public class JMesh extends JGenericObject {
         // update this object
         int vertexcount = vertices.size();
         for (int i = 0; i < vertexcount; i++) {
-            vertices.get(i).getLocalPosition().add(JMaths.jMul(aExtrudeDistance, localPosition));
+            JVertex vertex = vertices.get(i);
+            JVector3d position = vertex.getLocalPosition();
+            JVector3d normal = vertex.getNormal();
+            position.x += aExtrudeDistance * normal.x;
+            position.y += aExtrudeDistance * normal.y;
+            position.z += aExtrudeDistance * normal.z;
         }
+        invalidateGlobalPositions();
+        invalidateRenderData();
 
         // This is an O(N) operation, as is the extrusion, so it seems okay to call
         // this by default...
@@ -1154,9 +1545,8 @@ public class JMesh extends JGenericObject {
             for (int i = 0; i < getChildrens().size(); i++) {
                 JGenericObject nextObject = getChildrens().get(i);
 
-                JMesh nextMesh = (JMesh) (nextObject);
-                if (nextMesh != null) {
-                    nextMesh.extrude(aExtrudeDistance, aAffectChildren, aUpdateCollisionDetector);
+                if (nextObject instanceof JMesh) {
+                    ((JMesh) nextObject).extrude(aExtrudeDistance, aAffectChildren, aUpdateCollisionDetector);
                 }
             }
         }
@@ -1177,10 +1567,15 @@ public class JMesh extends JGenericObject {
 
         // update this object
         int vertexcount = vertices.size();
-
+        double ox = aOffset.x, oy = aOffset.y, oz = aOffset.z;
         for (int i = 0; i < vertexcount; i++) {
-            vertices.get(i).getLocalPosition().add(aOffset);
+            JVector3d position = vertices.get(i).getLocalPosition();
+            position.x += ox;
+            position.y += oy;
+            position.z += oz;
         }
+        invalidateGlobalPositions();
+        invalidateRenderData();
 
         boundaryBoxMin.add(aOffset);
         boundaryBoxMax.add(aOffset);
@@ -1207,14 +1602,26 @@ public class JMesh extends JGenericObject {
      */
     @Override
     public void scaleObject(final JVector3d aScaleFactors) {
-        int i, numItems;
-        numItems = vertices.size();
+        int numItems = vertices.size();
+        double sx = aScaleFactors.x, sy = aScaleFactors.y, sz = aScaleFactors.z;
 
-        for (i = 0; i < numItems; i++) {
-            vertices.get(i).getLocalPosition().elementMul(aScaleFactors);
-            vertices.get(i).getNormal().elementMul(aScaleFactors);
-            vertices.get(i).getNormal().normalize();
+        for (int i = 0; i < numItems; i++) {
+            JVertex vertex = vertices.get(i);
+            JVector3d position = vertex.getLocalPosition();
+            position.x *= sx;
+            position.y *= sy;
+            position.z *= sz;
+
+            JVector3d normal = vertex.getNormal();
+            double nx = sx * normal.x, ny = sy * normal.y, nz = sz * normal.z;
+            double lengthSq = nx * nx + ny * ny + nz * nz;
+            if (lengthSq > 0.0) {
+                double s = 1.0 / Math.sqrt(lengthSq);
+                normal.set(s * nx, s * ny, s * nz);
+            }
         }
+        invalidateGlobalPositions();
+        invalidateRenderData();
 
         boundaryBoxMax.elementMul(aScaleFactors);
         boundaryBoxMin.elementMul(aScaleFactors);
@@ -1346,139 +1753,25 @@ public class JMesh extends JGenericObject {
         }
 
 
+        // bring the single precision copy of the vertices up to date; it is
+        // the only geometry sent to OpenGL, whatever the rendering path
+        if (renderData == null) {
+            renderData = new JMeshRenderData();
+        }
+        renderData.update(this);
+        boolean useTexCoords = (texture != null) && textureMappingEnabled;
+
         /////////////////////////////////////////////////////////////////////////
         // RENDER TRIANGLES WITH VERTEX ARRAYS
         /////////////////////////////////////////////////////////////////////////
         if (vertexArrayEnabled) {
-            // specify pointers
-            //gl.glVertexP
-
-            // variables
-            int i;
-            int numItems = triangles.size();
-
-            // begin rendering triangls
-            gl.glBegin(GL2.GL_TRIANGLES);
-
-            // render all active triangls
-            for (i = 0; i < numItems; i++) {
-                boolean allocated = triangles.get(i).isAllocated();
-                if (allocated) {
-                    int index0 = triangles.get(i).getIndexVertex0();
-                    int index1 = triangles.get(i).getIndexVertex1();
-                    int index2 = triangles.get(i).getIndexVertex2();
-                    gl.glArrayElement(index0);
-                    gl.glArrayElement(index1);
-                    gl.glArrayElement(index2);
-                }
-            }
-
-            // finalize rendering list of triangls
-            gl.glEnd();
+            // draw all triangles in one call
+            renderData.render(gl, useTexCoords, vertexColorsEnabled);
         } /////////////////////////////////////////////////////////////////////////
         // RENDER TRIANGLES USING CLASSIC OPENGL COMMANDS
         /////////////////////////////////////////////////////////////////////////
         else {
-            // variables
-            int i;
-            int numItems = triangles.size();
-
-            // begin rendering triangls
-            gl.glBegin(GL2.GL_TRIANGLES);
-
-            // render all active triangles
-            if ((!textureMappingEnabled) && (!vertexColorsEnabled)) {
-                for (i = 0; i < numItems; i++) {
-                    // get pointers to vertices
-                    JVertex v0 = triangles.get(i).getVertex0();
-                    JVertex v1 = triangles.get(i).getVertex1();
-                    JVertex v2 = triangles.get(i).getVertex2();
-
-                    // render vertex 0
-                    gl.glNormal3d(v0.getNormal().getX(), v0.getNormal().getY(), v0.getNormal().getZ());
-                    gl.glVertex3d(v0.getLocalPosition().getX(), v0.getLocalPosition().getY(), v0.getLocalPosition().getZ());
-
-                    // render vertex 1
-                    gl.glNormal3d(v1.getNormal().getX(), v1.getNormal().getY(), v1.getNormal().getZ());
-                    gl.glVertex3d(v1.getLocalPosition().getX(), v1.getLocalPosition().getY(), v1.getLocalPosition().getZ());
-
-                    // render vertex 2
-                    gl.glNormal3d(v2.getNormal().getX(), v2.getNormal().getY(), v2.getNormal().getZ());
-                    gl.glVertex3d(v2.getLocalPosition().getX(), v2.getLocalPosition().getY(), v2.getLocalPosition().getZ());
-                }
-            } else if ((textureMappingEnabled) && (!vertexColorsEnabled)) {
-                for (i = 0; i < numItems; i++) {
-                    // get pointers to vertices
-                    JVertex v0 = triangles.get(i).getVertex0();
-                    JVertex v1 = triangles.get(i).getVertex1();
-                    JVertex v2 = triangles.get(i).getVertex2();
-
-                    // render vertex 0
-                    gl.glNormal3d(v0.getNormal().getX(), v0.getNormal().getY(), v0.getNormal().getZ());
-                    gl.glTexCoord2d(v0.getTexCoord().getX(), v0.getTexCoord().getY());
-                    gl.glVertex3d(v0.getLocalPosition().getX(), v0.getLocalPosition().getY(), v0.getLocalPosition().getZ());
-
-                    // render vertex 1
-                    gl.glNormal3d(v1.getNormal().getX(), v1.getNormal().getY(), v1.getNormal().getZ());
-                    gl.glTexCoord2d(v1.getTexCoord().getX(), v1.getTexCoord().getY());
-                    gl.glVertex3d(v1.getLocalPosition().getX(), v1.getLocalPosition().getY(), v1.getLocalPosition().getZ());
-
-                    // render vertex 2
-                    gl.glNormal3d(v2.getNormal().getX(), v2.getNormal().getY(), v2.getNormal().getZ());
-                    gl.glTexCoord2d(v2.getTexCoord().getX(), v2.getTexCoord().getY());
-                    gl.glVertex3d(v2.getLocalPosition().getX(), v2.getLocalPosition().getY(), v2.getLocalPosition().getZ());
-                }
-            } else if ((!textureMappingEnabled) && (vertexColorsEnabled)) {
-                for (i = 0; i < numItems; i++) {
-                    // get pointers to vertices
-                    JVertex v0 = triangles.get(i).getVertex0();
-                    JVertex v1 = triangles.get(i).getVertex1();
-                    JVertex v2 = triangles.get(i).getVertex2();
-
-                    // render vertex 0
-                    gl.glNormal3d(v0.getNormal().getX(), v0.getNormal().getY(), v0.getNormal().getZ());
-                    gl.glColor4fv(FloatBuffer.wrap(v0.getColor().getComponents()));
-                    gl.glVertex3d(v0.getLocalPosition().getX(), v0.getLocalPosition().getY(), v0.getLocalPosition().getZ());
-
-                    // render vertex 1
-                    gl.glNormal3d(v1.getNormal().getX(), v1.getNormal().getY(), v1.getNormal().getZ());
-                    gl.glColor4fv(FloatBuffer.wrap(v1.getColor().getComponents()));
-                    gl.glVertex3d(v1.getLocalPosition().getX(), v1.getLocalPosition().getY(), v1.getLocalPosition().getZ());
-
-                    // render vertex 2
-                    gl.glNormal3d(v2.getNormal().getX(), v2.getNormal().getY(), v2.getNormal().getZ());
-                    gl.glColor4fv(FloatBuffer.wrap(v2.getColor().getComponents()));
-                    gl.glVertex3d(v2.getLocalPosition().getX(), v2.getLocalPosition().getY(), v2.getLocalPosition().getZ());
-
-                }
-            } else if ((textureMappingEnabled) && (vertexColorsEnabled)) {
-                for (i = 0; i < numItems; i++) {
-                    // get pointers to vertices
-                    JVertex v0 = triangles.get(i).getVertex0();
-                    JVertex v1 = triangles.get(i).getVertex1();
-                    JVertex v2 = triangles.get(i).getVertex2();
-
-                    gl.glNormal3d(v0.getNormal().getX(), v0.getNormal().getY(), v0.getNormal().getZ());
-                    gl.glColor4fv(FloatBuffer.wrap(v0.getColor().getComponents()));
-                    gl.glTexCoord2d(v0.getTexCoord().getX(), v0.getTexCoord().getY());
-                    gl.glVertex3d(v0.getLocalPosition().getX(), v0.getLocalPosition().getY(), v0.getLocalPosition().getZ());
-
-                    // render vertex 1
-                    gl.glNormal3d(v1.getNormal().getX(), v1.getNormal().getY(), v1.getNormal().getZ());
-                    gl.glColor4fv(FloatBuffer.wrap(v1.getColor().getComponents()));
-                    gl.glTexCoord2d(v1.getTexCoord().getX(), v1.getTexCoord().getY());
-                    gl.glVertex3d(v1.getLocalPosition().getX(), v1.getLocalPosition().getY(), v1.getLocalPosition().getZ());
-
-                    // render vertex 2
-                    gl.glNormal3d(v2.getNormal().getX(), v2.getNormal().getY(), v2.getNormal().getZ());
-                    gl.glColor4fv(FloatBuffer.wrap(v1.getColor().getComponents()));
-                    gl.glTexCoord2d(v2.getTexCoord().getX(), v2.getTexCoord().getY());
-                    gl.glVertex3d(v2.getLocalPosition().getX(), v2.getLocalPosition().getY(), v2.getLocalPosition().getZ());
-                }
-            }
-
-            // finalize rendering list of triangls
-            gl.glEnd();
+            renderData.renderImmediate(gl, useTexCoords, vertexColorsEnabled);
         }
 
         //-----------------------------------------------------------------------
@@ -1576,6 +1869,21 @@ public class JMesh extends JGenericObject {
      */
     public void reverseAllNormals(final boolean aAffectChildren) {
 
+        if (CHAI_PARALLEL_MESH_OPERATIONS) {
+            ArrayList<JMesh> meshes = new ArrayList<JMesh>();
+            collectMeshes(aAffectChildren, meshes);
+            new JParallelMeshOperation() {
+
+                void run(JMesh aMesh, int aFirst, int aLast) {
+                    for (int i = aFirst; i < aLast; i++) {
+                        aMesh.vertices.get(i).getNormal().mul(-1.0);
+                    }
+                }
+            }.run(meshes);
+            invalidateRenderData(meshes);
+            return;
+        }
+
         // reverse normals for this object
         if (getVertices().size() > 0) {
             ArrayList<JVertex> vertexVector = pVertices();
@@ -1583,6 +1891,7 @@ public class JMesh extends JGenericObject {
             for (int i = 0; i < vertexVector.size(); i++) {
                 vertexVector.get(i).getNormal().mul(-1.0);
             }
+            invalidateRenderData();
         }
 
         // propagate changes to my children
@@ -1590,28 +1899,33 @@ public class JMesh extends JGenericObject {
             for (int i = 0; i < getChildrens().size(); i++) {
                 JGenericObject nextObject = getChildrens().get(i);
 
-                JMesh nextMesh = (JMesh) nextObject;
-                if (nextMesh != null) {
-                    nextMesh.reverseAllNormals(true);
+                if (nextObject instanceof JMesh) {
+                    ((JMesh) nextObject).reverseAllNormals(true);
                 }
             }
         }
     }
 
     /**
-     * Remove redundant triangls from this model.
+     * Remove redundant triangls from this model: free slots, degenerated
+     * triangles and duplicated triangles (same vertices, same winding).
+     * Remaining triangles are re-indexed.
      */
     public void removeRedundantTriangles(final boolean aAffectChildren) {
 
-        // remove redundant triangles from this mesh
-
-        // move everything from a ArrayList into a set, sorted by triangles,
-        // and remove degenerate triangles.
-        ArrayList<JTriangle> sortedTris = new ArrayList();
+        // keep the first occurrence of each triangle, using a hash set
+        // keyed by vertex indices
+        ArrayList<JTriangle> keptTris = new ArrayList<JTriangle>(triangles.size());
+        HashSet<TriangleKey> known = new HashSet<TriangleKey>(2 * triangles.size());
         int ntris = triangles.size();
         for (int i = 0; i < ntris; i++) {
             JTriangle t = triangles.get(i);
 
+            // Remove free slots
+            if (!t.isAllocated()) {
+                continue;
+            }
+
             // Remove degenerate triangles
             if (t.getIndexVertex0() == t.getIndexVertex1()
                     || t.getIndexVertex0() == t.getIndexVertex2()
@@ -1619,22 +1933,20 @@ public class JMesh extends JGenericObject {
                 continue;
             }
 
-            // Put this triangle in the sorted list
-            sortedTris.add(t);
+            // Remove duplicated triangles
+            if (!known.add(new TriangleKey(t.getIndexVertex0(), t.getIndexVertex1(), t.getIndexVertex2()))) {
+                continue;
+            }
+
+            t.setIndex(keptTris.size());
+            keptTris.add(t);
         }
 
-        // clear the ArrayList
+        // move everything back to the triangle list
         triangles.clear();
-
-        // move everything back from the set to the ArrayList
-        ntris = sortedTris.size();
-
-        for (int i = 0; i < ntris; i++) {
-            triangles.add(sortedTris.get(i));
-        }
-
-        // clear the set before recursing
-        sortedTris.clear();
+        triangles.addAll(keptTris);
+        freeTriangles.clear();
+        invalidateRenderTopology();
 
         // propagate changes to my children
         if (aAffectChildren == false) {
@@ -1650,6 +1962,38 @@ public class JMesh extends JGenericObject {
         }
     }
 
+    /**
+     * Merge vertices closer than \e aEpsilon in linear time (see
+     * JVertexWelder), then remove the triangles made degenerated or
+     * duplicated. Welding shrinks meshes loaded with one vertex per triangle
+     * corner and lets createTriangleNeighborList() find real adjacency.
+     * Collision detectors must be created after welding.
+     *
+     * @param aEpsilon distance under which vertices are merged.
+     * @param aMatchNormals if true, vertices with different normals are kept.
+     * @param aMatchTexCoords if true, vertices with different texture
+     * coordinates are kept.
+     * @param aAffectChildren if true, children meshes are welded too.
+     * @return the number of vertices removed.
+     */
+    public int weldVertices(final double aEpsilon, final boolean aMatchNormals,
+            final boolean aMatchTexCoords, final boolean aAffectChildren) {
+        int removed = JVertexWelder.weld(this, aEpsilon, aMatchNormals, aMatchTexCoords);
+
+        // vertex indices changed
+        invalidateTopology();
+
+        if (aAffectChildren) {
+            for (int i = 0; i < childrens.size(); i++) {
+                if (childrens.get(i) instanceof JMesh) {
+                    removed += ((JMesh) childrens.get(i)).weldVertices(aEpsilon,
+                            aMatchNormals, aMatchTexCoords, true);
+                }
+            }
+        }
+        return (removed);
+    }
+
     /**
      * Render the mesh itself.
      */
@@ -1677,8 +2021,225 @@ public class JMesh extends JGenericObject {
             return;
         }
 
-        // render triangle mesh
-        renderMesh(aRenderMode);
+        // render triangle mesh, or a simplified version if far enough
+        currentLevelOfDetail = selectLevelOfDetail();
+        if (currentLevelOfDetail == 0) {
+            renderMesh(aRenderMode);
+        } else {
+            updateLevelOfDetailSettings();
+            levelsOfDetail.get(currentLevelOfDetail - 1).renderMesh(aRenderMode);
+        }
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS - LEVEL OF DETAIL:
+    //-----------------------------------------------------------------------
+    /**
+     * Build simplified versions of this mesh with the quadric error metric
+     * (see JMeshSimplifier). Level \e i keeps \e aTriangleRatios[i] of the
+     * triangles of this mesh and is rendered when the mesh is farther than
+     * \e aDistances[i] from the camera. Previous levels are discarded.
+     *
+     * @param aTriangleRatios decreasing ratios in ]0, 1[.
+     * @param aDistances increasing camera distances, one per ratio.
+     * @param aAffectChildren if true, children meshes get their own levels.
+     */
+    public void createLevelsOfDetail(final double[] aTriangleRatios, final double[] aDistances,
+            final boolean aAffectChildren) {
+        levelsOfDetail.clear();
+        levelOfDetailDistances.clear();
+
+        int numTriangles = getNumTriangles(false);
+        if (numTriangles > 0) {
+            JMesh source = this;
+            for (int i = 0; i < aTriangleRatios.length; i++) {
+                // each level is simplified from the previous one
+                int target = (int) (aTriangleRatios[i] * numTriangles);
+                source = JMeshSimplifier.simplify(source, target);
+                addLevelOfDetail(source, aDistances[i]);
+            }
+        }
+
+        // update children if required
+        if (aAffectChildren) {
+            for (int i = 0; i < childrens.size(); i++) {
+                if (childrens.get(i) instanceof JMesh) {
+                    ((JMesh) childrens.get(i)).createLevelsOfDetail(aTriangleRatios, aDistances, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Add a level of detail, rendered instead of this mesh when the mesh is
+     * farther than \e aDistance from the camera. Levels must be added from
+     * the finest to the coarsest.
+     */
+    public void addLevelOfDetail(JMesh aMesh, final double aDistance) {
+        aMesh.parent = this;
+        aMesh.copyRenderSettings(this);
+        levelsOfDetail.add(aMesh);
+        levelOfDetailDistances.add(aDistance);
+    }
+
+    /**
+     * Remove all levels of detail.
+     */
+    public void clearLevelsOfDetail(final boolean aAffectChildren) {
+        levelsOfDetail.clear();
+        levelOfDetailDistances.clear();
+        currentLevelOfDetail = 0;
+
+        if (aAffectChildren) {
+            for (int i = 0; i < childrens.size(); i++) {
+                if (childrens.get(i) instanceof JMesh) {
+                    ((JMesh) childrens.get(i)).clearLevelsOfDetail(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the number of levels of detail (this mesh excluded)
+     */
+    public int getNumLevelsOfDetail() {
+        return (levelsOfDetail.size());
+    }
+
+    /**
+     * @return the level of detail \e aIndex (0 is the finest simplified mesh)
+     */
+    public JMesh getLevelOfDetail(int aIndex) {
+        return (levelsOfDetail.get(aIndex));
+    }
+
+    /**
+     * @return the level rendered during the last pass (0 is this mesh)
+     */
+    public int getCurrentLevelOfDetail() {
+        return (currentLevelOfDetail);
+    }
+
+    /**
+     * Build a coarse copy of this mesh used by collision detection (and thus
+     * by haptic rendering) instead of this mesh. Rendering is not affected.
+     * The collision detector must be created after the proxy.
+     *
+     * @param aTriangleRatio ratio of triangles kept in ]0, 1].
+     * @param aAffectChildren if true, children meshes get their own proxy.
+     */
+    public void createHapticProxy(final double aTriangleRatio, final boolean aAffectChildren) {
+        if (getNumTriangles(false) > 0) {
+            int target = (int) (aTriangleRatio * getNumTriangles(false));
+            setHapticProxy(JMeshSimplifier.simplify(this, target));
+        }
+
+        if (aAffectChildren) {
+            for (int i = 0; i < childrens.size(); i++) {
+                if (childrens.get(i) instanceof JMesh) {
+                    ((JMesh) childrens.get(i)).createHapticProxy(aTriangleRatio, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Set the mesh used by collision detection instead of this mesh, or null
+     * to collide with this mesh. The proxy is expressed in the local frame of
+     * this mesh; collision events report the proxy, whose parent is this mesh.
+     */
+    public void setHapticProxy(JMesh aProxy) {
+        hapticProxy = aProxy;
+        if (hapticProxy != null) {
+            hapticProxy.parent = this;
+            hapticProxy.computeGlobalPositions(false, globalPosition, globalRotation);
+        }
+    }
+
+    /**
+     * @return the haptic proxy of this mesh, or null
+     */
+    public JMesh getHapticProxy() {
+        return (hapticProxy);
+    }
+
+    /**
+     * Mesh whose triangles are used for collision detection.
+     */
+    protected JMesh getCollisionMesh() {
+        return (hapticProxy != null ? hapticProxy : this);
+    }
+
+    /**
+     * Select the level of detail from the distance between the camera
+     * rendering the world and the center of the boundary box, both in world
+     * coordinates. The finest level is used outside of a camera rendering
+     * pass.
+     */
+    protected int selectLevelOfDetail() {
+        if (levelsOfDetail.isEmpty()) {
+            return (0);
+        }
+
+        JCamera camera = findRenderingCamera();
+        if (camera == null) {
+            return (0);
+        }
+
+        levelOfDetailCenter.set(0.5 * (boundaryBoxMin.x + boundaryBoxMax.x),
+                0.5 * (boundaryBoxMin.y + boundaryBoxMax.y),
+                0.5 * (boundaryBoxMin.z + boundaryBoxMax.z));
+        JMaths.jTransform(globalPosition, globalRotation, levelOfDetailCenter, levelOfDetailCenter);
+        double distance = camera.getGlobalPosition().distance(levelOfDetailCenter);
+
+        int level = 0;
+        for (int i = 0; i < levelOfDetailDistances.size(); i++) {
+            if (distance >= levelOfDetailDistances.get(i)) {
+                level = i + 1;
+            }
+        }
+        return (level);
+    }
+
+    /**
+     * Copy the rendering settings to the levels of detail if they changed
+     * since the last copy.
+     */
+    protected void updateLevelOfDetailSettings() {
+        if (levelOfDetailSettingsVersion != renderSettingsVersion) {
+            for (int i = 0; i < levelsOfDetail.size(); i++) {
+                levelsOfDetail.get(i).copyRenderSettings(this);
+            }
+            levelOfDetailSettingsVersion = renderSettingsVersion;
+        }
+    }
+
+    /**
+     * Find the camera rendering the world of this mesh, or null.
+     */
+    private JCamera findRenderingCamera() {
+        JWorld world = parentWorld;
+        for (JGenericObject object = parent; (world == null) && (object != null); object = object.parent) {
+            if (object instanceof JWorld) {
+                world = (JWorld) object;
+            }
+        }
+        return (world != null ? world.getRenderingCamera() : null);
+    }
+
+    /**
+     * Use the rendering settings of another mesh (material, texture and
+     * rendering options).
+     */
+    protected void copyRenderSettings(JMesh aMesh) {
+        material = aMesh.material;
+        texture = aMesh.texture;
+        materialEnabled = aMesh.materialEnabled;
+        textureMappingEnabled = aMesh.textureMappingEnabled;
+        vertexColorsEnabled = aMesh.vertexColorsEnabled;
+        transparencyEnabled = aMesh.transparencyEnabled;
+        cullingEnabled = aMesh.cullingEnabled;
+        displayListEnabled = aMesh.displayListEnabled;
     }
 
     /**
@@ -1779,15 +2340,352 @@ public class JMesh extends JGenericObject {
      */
     @Override
     public void updateGlobalPositions(final boolean aFrameOnly) {
-        if (aFrameOnly) {
+        // the haptic proxy shares the frame of this mesh
+        if (hapticProxy != null) {
+            hapticProxy.computeGlobalPositions(aFrameOnly, globalPosition, globalRotation);
+        }
+
+        // the vertices computed before this call are out of date
+        globalPositionsStamp++;
+
+        if (aFrameOnly || lazyGlobalPositions) {
             return;
         }
 
         int i, numVertices;
         numVertices = getVertices().size();
         for (i = 0; i < numVertices; i++) {
-            vertices.get(i).computeGlobalPosition(globalPosition, globalRotation);
+            vertices.get(i).computeGlobalPosition(globalPosition, globalRotation, globalPositionsStamp);
         }
+        numUpdatedVertices += numVertices;
+    }
+
+    /**
+     * Read the global position of a vertex, computing it if the mesh moved
+     * since it was last computed (see JVertex.getGlobalPosition()). The
+     * result is valid in both the eager and the lazy modes, as long as the
+     * frame of the mesh is up to date.
+     */
+    public JVector3d getVertexGlobalPosition(final int aIndex) {
+        return (vertices.get(aIndex).getGlobalPosition());
+    }
+
+    /**
+     * Compute the global position of a vertex without storing it.
+     */
+    public void computeVertexGlobalPosition(final int aIndex, JVector3d aResult) {
+        JMaths.jTransform(globalPosition, globalRotation, vertices.get(aIndex).getLocalPosition(), aResult);
+    }
+
+    /**
+     * Compute the global positions of the vertices lazily, when they are
+     * read with getVertexGlobalPosition() or JVertex.getGlobalPosition(),
+     * instead of at each call to
+     * computeGlobalPositions(false). The copies of the global positions
+     * already stored are released.
+     */
+    public void setLazyGlobalPositions(final boolean aLazy, final boolean aAffectChildren) {
+        if (aLazy && !lazyGlobalPositions) {
+            for (int i = 0; i < vertices.size(); i++) {
+                vertices.get(i).releaseGlobalPosition();
+            }
+        } else if (!aLazy && lazyGlobalPositions) {
+            // the next update must compute all vertices
+            invalidateGlobalPositions();
+        }
+        lazyGlobalPositions = aLazy;
+
+        if (hapticProxy != null) {
+            hapticProxy.setLazyGlobalPositions(aLazy, false);
+        }
+
+        // propagate changes to children
+        if (aAffectChildren) {
+            for (int i = 0; i < childrens.size(); i++) {
+                JGenericObject nextObject = childrens.get(i);
+                if (nextObject instanceof JMesh) {
+                    ((JMesh) nextObject).setLazyGlobalPositions(aLazy, aAffectChildren);
+                }
+            }
+        }
+    }
+
+    /**
+     * Are the global positions of the vertices computed lazily?
+     */
+    public boolean isLazyGlobalPositions() {
+        return (lazyGlobalPositions);
+    }
+
+    /**
+     * Read the frame stamp of the mesh (see getVertexGlobalPosition()).
+     */
+    public int getGlobalPositionsStamp() {
+        return (globalPositionsStamp);
+    }
+
+    /**
+     * The haptic proxy moves with this mesh.
+     */
+    @Override
+    protected void resetMotion() {
+        super.resetMotion();
+        if (hapticProxy != null) {
+            hapticProxy.resetMotion();
+        }
+    }
+
+    /**
+     * Compute the unit normals of the triangles [aFirst, aLast), packed in
+     * an array. The normal of a degenerate triangle is set to zero.
+     */
+    private void computeTriangleNormals(double[] aNormals, final int aFirst, final int aLast) {
+        for (int i = aFirst; i < aLast; i++) {
+            JTriangle triangle = triangles.get(i);
+            JVector3d p0 = vertices.get(triangle.getIndexVertex0()).getLocalPosition();
+            JVector3d p1 = vertices.get(triangle.getIndexVertex1()).getLocalPosition();
+            JVector3d p2 = vertices.get(triangle.getIndexVertex2()).getLocalPosition();
+
+            double ax = p1.x - p0.x, ay = p1.y - p0.y, az = p1.z - p0.z;
+            double bx = p2.x - p0.x, by = p2.y - p0.y, bz = p2.z - p0.z;
+            double nx = ay * bz - az * by;
+            double ny = az * bx - ax * bz;
+            double nz = ax * by - ay * bx;
+            double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+
+            int k = 3 * i;
+            if (length > 0.0000001) {
+                aNormals[k] = nx / length;
+                aNormals[k + 1] = ny / length;
+                aNormals[k + 2] = nz / length;
+            } else {
+                aNormals[k] = 0.0;
+                aNormals[k + 1] = 0.0;
+                aNormals[k + 2] = 0.0;
+            }
+        }
+    }
+
+    /**
+     * Build the lists of triangles using each vertex (counting sort), in the
+     * order of the triangles: the triangles of vertex v are
+     * normalTriangles[normalOffsets[v]] to
+     * normalTriangles[normalOffsets[v + 1] - 1]. A triangle using a vertex
+     * twice is listed twice. Vertices are not merged by position, as in
+     * JMeshAdjacency, so that vertices split along a seam keep their own
+     * normals.
+     */
+    private void computeVertexTriangleLists() {
+        int nvertices = vertices.size();
+        int ntriangles = triangles.size();
+        normalOffsets = new int[nvertices + 1];
+        for (int i = 0; i < ntriangles; i++) {
+            JTriangle triangle = triangles.get(i);
+            countVertexTriangle(triangle.getIndexVertex0());
+            countVertexTriangle(triangle.getIndexVertex1());
+            countVertexTriangle(triangle.getIndexVertex2());
+        }
+        for (int v = 0; v < nvertices; v++) {
+            normalOffsets[v + 1] += normalOffsets[v];
+        }
+
+        normalTriangles = new int[normalOffsets[nvertices]];
+        int[] fill = new int[nvertices];
+        for (int i = 0; i < ntriangles; i++) {
+            JTriangle triangle = triangles.get(i);
+            addVertexTriangle(triangle.getIndexVertex0(), i, fill);
+            addVertexTriangle(triangle.getIndexVertex1(), i, fill);
+            addVertexTriangle(triangle.getIndexVertex2(), i, fill);
+        }
+    }
+
+    private void countVertexTriangle(final int aIndex) {
+        if ((aIndex >= 0) && (aIndex < vertices.size())) {
+            normalOffsets[aIndex + 1]++;
+        }
+    }
+
+    private void addVertexTriangle(final int aIndex, final int aTriangle, int[] aFill) {
+        if ((aIndex >= 0) && (aIndex < vertices.size())) {
+            normalTriangles[normalOffsets[aIndex] + aFill[aIndex]++] = aTriangle;
+        }
+    }
+
+    /**
+     * Compute the normals of the vertices [aFirst, aLast) from the unit
+     * normals of their triangles, and count the triangles of each vertex.
+     * Without triangle lists (see computeVertexTriangleLists()), the normals
+     * of the triangles are added to their vertices, which is only linear for
+     * a single range of vertices.
+     */
+    private void computeVertexNormals(final double[] aTriangleNormals, final int aFirst, final int aLast) {
+        double[] normals = new double[3 * (aLast - aFirst)];
+
+        if (normalOffsets == null) {
+            int ntriangles = triangles.size();
+            for (int i = 0, k = 0; i < ntriangles; i++, k += 3) {
+                double nx = aTriangleNormals[k];
+                double ny = aTriangleNormals[k + 1];
+                double nz = aTriangleNormals[k + 2];
+                if ((nx == 0.0) && (ny == 0.0) && (nz == 0.0)) {
+                    continue;
+                }
+                JTriangle triangle = triangles.get(i);
+                addVertexNormal(triangle.getIndexVertex0(), nx, ny, nz, aFirst, aLast, normals);
+                addVertexNormal(triangle.getIndexVertex1(), nx, ny, nz, aFirst, aLast, normals);
+                addVertexNormal(triangle.getIndexVertex2(), nx, ny, nz, aFirst, aLast, normals);
+            }
+            setVertexNormals(normals, aFirst, aLast);
+            return;
+        }
+
+        for (int v = aFirst, k = 0; v < aLast; v++, k += 3) {
+            int count = 0;
+            for (int j = normalOffsets[v]; j < normalOffsets[v + 1]; j++) {
+                int t = 3 * normalTriangles[j];
+                double nx = aTriangleNormals[t];
+                double ny = aTriangleNormals[t + 1];
+                double nz = aTriangleNormals[t + 2];
+                if ((nx == 0.0) && (ny == 0.0) && (nz == 0.0)) {
+                    continue;
+                }
+                normals[k] += nx;
+                normals[k + 1] += ny;
+                normals[k + 2] += nz;
+                count++;
+            }
+            if (count > 0) {
+                JVertex vertex = vertices.get(v);
+                vertex.setTriangleCount(vertex.getTriangleCount() + count);
+            }
+        }
+        setVertexNormals(normals, aFirst, aLast);
+    }
+
+    private void addVertexNormal(final int aIndex, final double aX, final double aY, final double aZ,
+            final int aFirst, final int aLast, double[] aNormals) {
+        if ((aIndex < aFirst) || (aIndex >= aLast)) {
+            return;
+        }
+        int k = 3 * (aIndex - aFirst);
+        aNormals[k] += aX;
+        aNormals[k + 1] += aY;
+        aNormals[k + 2] += aZ;
+        JVertex vertex = vertices.get(aIndex);
+        vertex.setTriangleCount(vertex.getTriangleCount() + 1);
+    }
+
+    /**
+     * Normalize the summed normals of the vertices [aFirst, aLast) and store
+     * them in the vertices.
+     */
+    private void setVertexNormals(double[] aNormals, final int aFirst, final int aLast) {
+        JVectorArrays.jNormalize(aNormals, JConstants.CHAI_SMALL, 0, aLast - aFirst);
+        for (int i = aFirst, k = 0; i < aLast; i++, k += 3) {
+            vertices.get(i).getNormal().set(aNormals[k], aNormals[k + 1], aNormals[k + 2]);
+        }
+    }
+
+    /**
+     * Collect this mesh and, optionally, the meshes reached by propagating
+     * an operation to its mesh children, as the sequential operations do.
+     */
+    private void collectMeshes(final boolean aAffectChildren, ArrayList<JMesh> aMeshes) {
+        aMeshes.add(this);
+        if (aAffectChildren) {
+            for (int i = 0; i < getNumChildren(); i++) {
+                if (getChild(i) instanceof JMesh) {
+                    ((JMesh) getChild(i)).collectMeshes(true, aMeshes);
+                }
+            }
+        }
+    }
+
+    /**
+     * Collect the meshes of the subtree of an object, ghosts excepted if
+     * required.
+     */
+    private static void collectSubtreeMeshes(JGenericObject aObject, final boolean aSkipGhosts,
+            ArrayList<JMesh> aMeshes) {
+        if (aSkipGhosts && aObject.isGhost()) {
+            return;
+        }
+        if (aObject instanceof JMesh) {
+            aMeshes.add((JMesh) aObject);
+        }
+        for (int i = 0; i < aObject.getNumChildren(); i++) {
+            collectSubtreeMeshes(aObject.getChild(i), aSkipGhosts, aMeshes);
+        }
+    }
+
+    private void invalidateRenderTopology() {
+        if (renderData != null) {
+            renderData.invalidateTopology();
+        }
+    }
+
+    /**
+     * Mark everything derived from the vertex indices as out of date, after
+     * an operation that renumbers the vertices: the display list, the single
+     * precision copy, the global positions and the connectivity, which is
+     * built again by createAdjacency() or createTriangleNeighborList().
+     */
+    private void invalidateTopology() {
+        invalidateDisplayList(false);
+        invalidateRenderData();
+        invalidateGlobalPositions();
+        adjacency = null;
+    }
+
+    private static void invalidateRenderData(ArrayList<JMesh> aMeshes) {
+        for (JMesh mesh : aMeshes) {
+            mesh.invalidateRenderData();
+        }
+    }
+
+    private static void setVertexPassDone(ArrayList<JMesh> aMeshes, final boolean aDone) {
+        for (JMesh mesh : aMeshes) {
+            mesh.vertexPassDone = aDone;
+        }
+    }
+
+    /**
+     * Re-compute the boundary boxes of this mesh and, optionally, of its
+     * children. In parallel mode the boxes of all meshes of the subtree are
+     * computed by the worker threads before being merged.
+     */
+    @Override
+    public void computeBoundaryBox(final boolean aIncludeChildren) {
+        if (CHAI_PARALLEL_MESH_OPERATIONS && aIncludeChildren && !vertexPassDone && !isGhost()) {
+            ArrayList<JMesh> meshes = new ArrayList<JMesh>();
+            collectSubtreeMeshes(this, true, meshes);
+            new JParallelMeshOperation() {
+
+                @Override
+                int getSize(JMesh aMesh) {
+                    return (aMesh.triangles.size());
+                }
+
+                @Override
+                int getMaxRanges() {
+                    return (1);
+                }
+
+                void run(JMesh aMesh, int aFirst, int aLast) {
+                    aMesh.updateBoundaryBox();
+                }
+            }.run(meshes);
+
+            setVertexPassDone(meshes, true);
+            try {
+                super.computeBoundaryBox(true);
+            } finally {
+                setVertexPassDone(meshes, false);
+            }
+            return;
+        }
+
+        super.computeBoundaryBox(aIncludeChildren);
     }
 
     /**
@@ -1795,6 +2693,10 @@ public class JMesh extends JGenericObject {
      */
     @Override
     public void updateBoundaryBox() {
+        // already computed by a parallel computeBoundaryBox()
+        if (vertexPassDone) {
+            return;
+        }
 
         if (triangles.isEmpty()) {
             boundaryBoxMin.zero();
@@ -1949,6 +2851,7 @@ public class JMesh extends JGenericObject {
      */
     public void setDisplayListEnabled(boolean useDisplayList, boolean affectChildren) {
         this.displayListEnabled = useDisplayList;
+        renderSettingsVersion++;
         if (affectChildren) {
             for (JGenericObject child : childrens) {
                 if (child instanceof JMesh) {
@@ -2012,6 +2915,12 @@ public class JMesh extends JGenericObject {
      */
     public void setVertices(ArrayList<JVertex> vertices) {
         this.vertices = vertices;
+        for (int i = 0; i < vertices.size(); i++) {
+            vertices.get(i).setIndex(i);
+            vertices.get(i).setParent(this);
+        }
+        invalidateGlobalPositions();
+        invalidateRenderData();
     }
 
     /**
@@ -2047,6 +2956,7 @@ public class JMesh extends JGenericObject {
                 t.setParent(this);
                 this.triangles.add(t);
             }
+            invalidateRenderTopology();
         }
     }
 
@@ -2063,67 +2973,43 @@ public class JMesh extends JGenericObject {
     public void setFreeTriangles(ArrayList<Integer> freeTriangles) {
         this.freeTriangles = freeTriangles;
     }
-
-    /**
-     *
-     * @return
-     */
-    private static Comparator<JTriangle> triangleSort0() {
-        return new TriangleSort(0);
-    }
-
-    /**
-     *
-     * @return
-     */
-    private static Comparator<JTriangle> triangleSort1() {
-        return new TriangleSort(1);
-    }
-
-    /**
-     *
-     * @return
-     */
-    private static Comparator<JTriangle> triangleSort2() {
-        return new TriangleSort(2);
-    }
 }
 
 /**
- *
- * On CHAI3D original code, there is a function that compares two triangles.
- *
- * In JCHAI3D, we need to create a comparator to do this job.
- *
- * The compare method compare two triangles and verify if the x coordinates of
- * t1 is less, equals or greater then t2.
- *
- * @author Marcos da Silva Ramos
+ * Vertex indices of a triangle, rotated so that the smallest index comes
+ * first (the winding is kept).
  */
-class TriangleSort implements Comparator<JTriangle> {
-
-    /**
-     * The vertex to be compared
-     */
-    int vertex;
+class TriangleKey {
+
+    private final int a, b, c;
+
+    public TriangleKey(int aIndex0, int aIndex1, int aIndex2) {
+        if (aIndex0 < aIndex1 && aIndex0 < aIndex2) {
+            a = aIndex0;
+            b = aIndex1;
+            c = aIndex2;
+        } else if (aIndex1 < aIndex2) {
+            a = aIndex1;
+            b = aIndex2;
+            c = aIndex0;
+        } else {
+            a = aIndex2;
+            b = aIndex0;
+            c = aIndex1;
+        }
+    }
 
-    /**
-     *
-     * @param vertex
-     */
-    public TriangleSort(int vertex) {
-        this.vertex = vertex;
+    @Override
+    public boolean equals(Object aOther) {
+        if (!(aOther instanceof TriangleKey)) {
+            return (false);
+        }
+        TriangleKey key = (TriangleKey) aOther;
+        return (a == key.a && b == key.b && c == key.c);
     }
 
-    /**
-     * Compare the x component of the given vertices from two triangles.
-     *
-     * @param t1 the first triangle
-     * @param t2 the second triangle
-     * @return positive value, t1.vertex.x < t2.vertex.x; zero, if t1.vertex.x
-     * == t2.vertex.x; negative value if t1.vertex.x > t2.vertex.x
-     */
-    public int compare(JTriangle t1, JTriangle t2) {
-        return (int) (t2.getVertex(vertex).getPosition().x - t1.getVertex(vertex).getPosition().x);
+    @Override
+    public int hashCode() {
+        return ((a * 31 + b) * 31 + c);
     }
 }
@@ -0,0 +1,413 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.scenegraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.jchai3d.extras.JWorkerThreads;
+import org.jchai3d.graphics.JTriangle;
+import org.jchai3d.graphics.JVertex;
+import org.jchai3d.math.JConstants;
+
+/**
+ * JMeshAdjacency stores the connectivity of a triangle list in primitive
+ * arrays (compressed sparse rows), built in linear time with hash tables:
+ *
+ * - for each vertex, the triangles using it;
+ * - for each triangle edge, the triangle on the other side (half-edge twin);
+ * - for each triangle, the triangles sharing at least one vertex with it.
+ *
+ * Vertices are identified by position: corners closer than
+ * CHAI_ADJACENCY_EPSILON are the same vertex, as in the sorted search this
+ * structure replaced, so meshes loaded with one vertex per triangle corner
+ * are connected as well. Corners are matched in linear time on the grid of
+ * JVertexWelder; an epsilon of 0 matches exact positions only (-0.0 and 0.0
+ * are equal). Triangle numbers are positions in
+ * the triangle list the structure was built from; free slots have no
+ * neighbors.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMeshAdjacency {
+
+    /**
+     * Meshes with fewer triangles are processed by the calling thread.
+     */
+    public static int CHAI_ADJACENCY_PARALLEL_THRESHOLD = 50000;
+    /**
+     * Distance under which two triangle corners are the same vertex.
+     */
+    public static double CHAI_ADJACENCY_EPSILON = JConstants.CHAI_SMALL;
+    /**
+     * Number of triangles.
+     */
+    protected int numTriangles;
+    /**
+     * Number of distinct vertex positions.
+     */
+    protected int numVertices;
+    /**
+     * Position number of each triangle corner (3 per triangle, -1 for free
+     * slots).
+     */
+    protected int[] triangleVertices;
+    /**
+     * Triangles around each vertex: triangles vertexTriangles[vertexOffsets[v]]
+     * to vertexTriangles[vertexOffsets[v + 1] - 1].
+     */
+    protected int[] vertexOffsets;
+    protected int[] vertexTriangles;
+    /**
+     * Triangle across edge k (corner k to corner k + 1) of each triangle, or
+     * -1 on borders.
+     */
+    protected int[] edgeNeighbors;
+    /**
+     * Triangles sharing a vertex with each triangle (itself excluded):
+     * neighbors[neighborOffsets[t]] to neighbors[neighborOffsets[t + 1] - 1].
+     */
+    protected int[] neighborOffsets;
+    protected int[] neighbors;
+
+    /**
+     * Build the adjacency of a triangle list.
+     *
+     * @param aTriangles triangles of a mesh.
+     * @param aParallel if true, neighbor lists of large meshes are built by
+     * several threads.
+     */
+    public static JMeshAdjacency build(ArrayList<JTriangle> aTriangles, boolean aParallel) {
+        JMeshAdjacency adjacency = new JMeshAdjacency();
+        adjacency.numTriangles = aTriangles.size();
+        adjacency.computeVertices(aTriangles, CHAI_ADJACENCY_EPSILON);
+        adjacency.computeVertexTriangles();
+        adjacency.computeEdgeNeighbors();
+        adjacency.computeNeighbors(aParallel && aTriangles.size() >= CHAI_ADJACENCY_PARALLEL_THRESHOLD);
+        return (adjacency);
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS:
+    //-----------------------------------------------------------------------
+    /**
+     * @return the number of triangles
+     */
+    public int getNumTriangles() {
+        return (numTriangles);
+    }
+
+    /**
+     * @return the number of distinct vertex positions
+     */
+    public int getNumVertices() {
+        return (numVertices);
+    }
+
+    /**
+     * Number of triangles sharing a vertex with a triangle.
+     */
+    public int getNumNeighbors(int aTriangle) {
+        return (neighborOffsets[aTriangle + 1] - neighborOffsets[aTriangle]);
+    }
+
+    /**
+     * Triangle \e aIndex among those sharing a vertex with a triangle.
+     */
+    public int getNeighbor(int aTriangle, int aIndex) {
+        return (neighbors[neighborOffsets[aTriangle] + aIndex]);
+    }
+
+    /**
+     * Triangle across an edge of a triangle.
+     *
+     * @param aTriangle triangle number.
+     * @param aEdge 0 (vertex 0 to 1), 1 (vertex 1 to 2) or 2 (vertex 2 to 0).
+     * @return the triangle number, or -1 for a border edge.
+     */
+    public int getEdgeNeighbor(int aTriangle, int aEdge) {
+        return (edgeNeighbors[3 * aTriangle + aEdge]);
+    }
+
+    /**
+     * Check if an edge of a triangle lies on a border of the mesh.
+     */
+    public boolean isBorderEdge(int aTriangle, int aEdge) {
+        return (edgeNeighbors[3 * aTriangle + aEdge] == -1);
+    }
+
+    /**
+     * Position number of a corner of a triangle.
+     */
+    public int getTriangleVertex(int aTriangle, int aCorner) {
+        return (triangleVertices[3 * aTriangle + aCorner]);
+    }
+
+    /**
+     * @return the offsets of the neighbor lists (numTriangles + 1 entries)
+     */
+    public int[] getNeighborOffsets() {
+        return (neighborOffsets);
+    }
+
+    /**
+     * @return the neighbor lists of all triangles, one after the other
+     */
+    public int[] getNeighbors() {
+        return (neighbors);
+    }
+
+    /**
+     * @return the offsets of the vertex triangle lists (numVertices + 1
+     * entries)
+     */
+    public int[] getVertexOffsets() {
+        return (vertexOffsets);
+    }
+
+    /**
+     * @return the triangle lists of all vertices, one after the other
+     */
+    public int[] getVertexTriangles() {
+        return (vertexTriangles);
+    }
+
+    /**
+     * @return the edge neighbors (3 per triangle, -1 on borders)
+     */
+    public int[] getEdgeNeighbors() {
+        return (edgeNeighbors);
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS - INTERNAL:
+    //-----------------------------------------------------------------------
+    /**
+     * Number the distinct vertex positions used by the triangles. Corners
+     * closer than aEpsilon get the same number (see
+     * JVertexWelder.computeRemap()).
+     */
+    private void computeVertices(ArrayList<JTriangle> aTriangles, double aEpsilon) {
+        triangleVertices = new int[3 * numTriangles];
+
+        // corners of the allocated triangles
+        ArrayList<JVertex> corners = new ArrayList<JVertex>(3 * numTriangles);
+        for (int t = 0; t < numTriangles; t++) {
+            JTriangle triangle = aTriangles.get(t);
+            if (triangle.isAllocated()) {
+                corners.add(triangle.getVertex(0));
+                corners.add(triangle.getVertex(1));
+                corners.add(triangle.getVertex(2));
+            }
+        }
+        if (corners.isEmpty()) {
+            Arrays.fill(triangleVertices, -1);
+            return;
+        }
+
+        // each corner is mapped to the first corner it matches, which is
+        // numbered before it
+        int[] remap = JVertexWelder.computeRemap(corners, aEpsilon, false, false);
+        int[] ids = new int[corners.size()];
+        int corner = 0;
+        for (int t = 0; t < numTriangles; t++) {
+            if (!aTriangles.get(t).isAllocated()) {
+                triangleVertices[3 * t] = -1;
+                triangleVertices[3 * t + 1] = -1;
+                triangleVertices[3 * t + 2] = -1;
+                continue;
+            }
+            for (int k = 0; k < 3; k++, corner++) {
+                if (remap[corner] == corner) {
+                    ids[corner] = numVertices++;
+                }
+                triangleVertices[3 * t + k] = ids[remap[corner]];
+            }
+        }
+    }
+
+    /**
+     * Build the triangle lists of the vertices (counting sort).
+     */
+    private void computeVertexTriangles() {
+        vertexOffsets = new int[numVertices + 1];
+        for (int i = 0; i < triangleVertices.length; i++) {
+            if (triangleVertices[i] != -1) {
+                vertexOffsets[triangleVertices[i] + 1]++;
+            }
+        }
+        for (int v = 0; v < numVertices; v++) {
+            vertexOffsets[v + 1] += vertexOffsets[v];
+        }
+
+        vertexTriangles = new int[vertexOffsets[numVertices]];
+        int[] fill = new int[numVertices];
+        for (int i = 0; i < triangleVertices.length; i++) {
+            int v = triangleVertices[i];
+            if (v != -1) {
+                vertexTriangles[vertexOffsets[v] + fill[v]++] = i / 3;
+            }
+        }
+    }
+
+    /**
+     * Pair the half-edges of the triangles through a hash table keyed by
+     * the positions of their endpoints. Edges shared by more than two
+     * triangles only connect the first two.
+     */
+    private void computeEdgeNeighbors() {
+        edgeNeighbors = new int[3 * numTriangles];
+
+        int capacity = Integer.highestOneBit(Math.max(4, 3 * numTriangles)) * 2;
+        int mask = capacity - 1;
+        long[] keys = new long[capacity];
+        int[] halfEdges = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            halfEdges[i] = -1;
+        }
+
+        for (int e = 0; e < 3 * numTriangles; e++) {
+            edgeNeighbors[e] = -1;
+            int t = e / 3;
+            int v0 = triangleVertices[e];
+            int v1 = triangleVertices[3 * t + (e + 1) % 3];
+            if (v0 == -1 || v0 == v1) {
+                continue;
+            }
+
+            long key = ((long) Math.min(v0, v1) << 32) | Math.max(v0, v1);
+            int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+            while (halfEdges[slot] != -1 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+
+            if (halfEdges[slot] == -1) {
+                // first half-edge
+                keys[slot] = key;
+                halfEdges[slot] = e;
+            } else if (halfEdges[slot] >= 0) {
+                // twin found
+                int twin = halfEdges[slot];
+                edgeNeighbors[e] = twin / 3;
+                edgeNeighbors[twin] = t;
+                halfEdges[slot] = -2;
+            }
+        }
+    }
+
+    /**
+     * Build the lists of triangles sharing a vertex: a counting pass, a
+     * prefix sum, then a filling pass. Both passes treat triangles
+     * independently and may be split between threads.
+     */
+    private void computeNeighbors(boolean aParallel) {
+        neighborOffsets = new int[numTriangles + 1];
+
+        if (!aParallel) {
+            collectNeighbors(0, numTriangles, false);
+            prefixSum();
+            neighbors = new int[neighborOffsets[numTriangles]];
+            collectNeighbors(0, numTriangles, true);
+            return;
+        }
+
+        int numThreads = JWorkerThreads.getNumThreads();
+        runChunks(numThreads, false);
+        prefixSum();
+        neighbors = new int[neighborOffsets[numTriangles]];
+        runChunks(numThreads, true);
+    }
+
+    /**
+     * Run a pass of computeNeighbors() on chunks of triangles.
+     */
+    private void runChunks(int aNumChunks, final boolean aFill) {
+        ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+        int chunk = (numTriangles + aNumChunks - 1) / aNumChunks;
+
+        for (int start = 0; start < numTriangles; start += chunk) {
+            final int first = start;
+            final int last = Math.min(numTriangles, start + chunk);
+            tasks.add(new Runnable() {
+
+                public void run() {
+                    collectNeighbors(first, last, aFill);
+                }
+            });
+        }
+        JWorkerThreads.runAll(tasks);
+    }
+
+    /**
+     * Count (first pass) or store (second pass) the neighbors of a range of
+     * triangles. Counts are stored in neighborOffsets[t + 1].
+     */
+    private void collectNeighbors(int aFirst, int aLast, boolean aFill) {
+        int[] found = new int[64];
+
+        for (int t = aFirst; t < aLast; t++) {
+            int count = 0;
+
+            for (int k = 0; k < 3; k++) {
+                int v = triangleVertices[3 * t + k];
+                if (v == -1) {
+                    break;
+                }
+
+                for (int i = vertexOffsets[v]; i < vertexOffsets[v + 1]; i++) {
+                    int n = vertexTriangles[i];
+                    if (n == t) {
+                        continue;
+                    }
+
+                    // triangles sharing two vertices appear twice
+                    boolean known = false;
+                    for (int j = 0; j < count; j++) {
+                        if (found[j] == n) {
+                            known = true;
+                            break;
+                        }
+                    }
+                    if (known) {
+                        continue;
+                    }
+
+                    if (count == found.length) {
+                        int[] grown = new int[2 * count];
+                        System.arraycopy(found, 0, grown, 0, count);
+                        found = grown;
+                    }
+                    found[count++] = n;
+                }
+            }
+
+            if (aFill) {
+                System.arraycopy(found, 0, neighbors, neighborOffsets[t], count);
+            } else {
+                neighborOffsets[t + 1] = count;
+            }
+        }
+    }
+
+    /**
+     * Turn the neighbor counts into offsets.
+     */
+    private void prefixSum() {
+        for (int t = 0; t < numTriangles; t++) {
+            neighborOffsets[t + 1] += neighborOffsets[t];
+        }
+    }
+}
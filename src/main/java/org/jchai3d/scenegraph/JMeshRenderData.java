@@ -0,0 +1,296 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.scenegraph;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import com.jogamp.opengl.GL;
+import com.jogamp.opengl.GL2;
+import org.jchai3d.graphics.JTriangle;
+import org.jchai3d.graphics.JVertex;
+
+/**
+ * JMeshRenderData is a single precision copy of the data a mesh sends to
+ * OpenGL: positions, normals, texture coordinates and colors packed in
+ * direct float buffers, and the vertex indices of the allocated triangles.
+ * The vertices and triangles of the mesh stay in double precision for
+ * collision detection and haptics; this copy is only read by the graphics
+ * thread, and is the only geometry it sends to OpenGL: with vertex arrays in
+ * a single call, or with immediate mode calls when vertex arrays are
+ * disabled or a display list is compiled. The copy therefore adds to the
+ * memory of the double precision data rather than replacing it: 48 bytes per
+ * vertex and 12 per triangle, plus up to half as much again of headroom
+ * after the buffers grow.
+ *
+ * The copy is updated incrementally: the mesh, and the setters of its
+ * vertices, mark the ranges of vertices they modify (see
+ * JMesh.invalidateRenderData()), and only those are
+ * converted again before the next rendering. Buffers grow with the mesh and
+ * are reused.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMeshRenderData {
+
+    /**
+     * Packed vertex data.
+     */
+    protected FloatBuffer positions;
+    protected FloatBuffer normals;
+    protected FloatBuffer texCoords;
+    protected FloatBuffer colors;
+    /**
+     * Vertex indices of the allocated triangles.
+     */
+    protected IntBuffer indices;
+    /**
+     * Number of vertices and of indices in the buffers.
+     */
+    protected int numVertices;
+    protected int numIndices;
+    /**
+     * Range of vertices to convert again [first, last).
+     */
+    protected int dirtyFirst;
+    protected int dirtyLast;
+    /**
+     * Must the indices be rebuilt?
+     */
+    protected boolean topologyDirty;
+    /**
+     * Number of vertices converted since creation.
+     */
+    protected long numUpdatedVertices;
+
+    /**
+     * Constructor of JMeshRenderData. The buffers are filled by the first
+     * call to update().
+     */
+    public JMeshRenderData() {
+        numVertices = 0;
+        numIndices = 0;
+        dirtyFirst = 0;
+        dirtyLast = Integer.MAX_VALUE;
+        topologyDirty = true;
+        numUpdatedVertices = 0;
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS:
+    //-----------------------------------------------------------------------
+    /**
+     * Mark all vertices and triangles as modified.
+     */
+    public void invalidate() {
+        dirtyFirst = 0;
+        dirtyLast = Integer.MAX_VALUE;
+        topologyDirty = true;
+    }
+
+    /**
+     * Mark a range of vertices as modified.
+     */
+    public void invalidateVertices(final int aFirst, final int aCount) {
+        if (aCount <= 0) {
+            return;
+        }
+        if (dirtyFirst >= dirtyLast) {
+            dirtyFirst = aFirst;
+            dirtyLast = aFirst + aCount;
+        } else {
+            dirtyFirst = Math.min(dirtyFirst, aFirst);
+            dirtyLast = Math.max(dirtyLast, aFirst + aCount);
+        }
+    }
+
+    /**
+     * Mark the triangles as modified.
+     */
+    public void invalidateTopology() {
+        topologyDirty = true;
+    }
+
+    /**
+     * Bring the buffers up to date with a mesh.
+     */
+    public void update(JMesh aMesh) {
+        int count = aMesh.vertices.size();
+
+        // new vertices are converted, and all of them if the buffers grow
+        if (count > numVertices) {
+            if ((positions == null) || (count > positions.capacity() / 3)) {
+                allocateVertices(count + count / 2);
+                invalidateVertices(0, count);
+            } else {
+                invalidateVertices(numVertices, count - numVertices);
+            }
+        }
+        numVertices = count;
+
+        int last = Math.min(dirtyLast, count);
+        for (int i = dirtyFirst; i < last; i++) {
+            JVertex vertex = aMesh.vertices.get(i);
+            int k = 3 * i;
+            positions.put(k, (float) vertex.getLocalPosition().x);
+            positions.put(k + 1, (float) vertex.getLocalPosition().y);
+            positions.put(k + 2, (float) vertex.getLocalPosition().z);
+            normals.put(k, (float) vertex.getNormal().x);
+            normals.put(k + 1, (float) vertex.getNormal().y);
+            normals.put(k + 2, (float) vertex.getNormal().z);
+            texCoords.put(2 * i, (float) vertex.getTexCoord().x);
+            texCoords.put(2 * i + 1, (float) vertex.getTexCoord().y);
+            float[] color = vertex.getColor().getComponents();
+            colors.put(4 * i, color[0]);
+            colors.put(4 * i + 1, color[1]);
+            colors.put(4 * i + 2, color[2]);
+            colors.put(4 * i + 3, color[3]);
+        }
+        if (last > dirtyFirst) {
+            numUpdatedVertices += last - dirtyFirst;
+        }
+        dirtyFirst = 0;
+        dirtyLast = 0;
+
+        if (topologyDirty) {
+            updateIndices(aMesh);
+            topologyDirty = false;
+        }
+    }
+
+    /**
+     * Draw the triangles. The vertex and normal arrays must be enabled, as
+     * well as the color and texture coordinate arrays if they are used.
+     *
+     * @param aGL OpenGL context.
+     * @param aTexCoords send the texture coordinates?
+     * @param aColors send the vertex colors?
+     */
+    public void render(GL2 aGL, final boolean aTexCoords, final boolean aColors) {
+        if (numIndices == 0) {
+            return;
+        }
+        aGL.glVertexPointer(3, GL.GL_FLOAT, 0, positions);
+        aGL.glNormalPointer(GL.GL_FLOAT, 0, normals);
+        if (aTexCoords) {
+            aGL.glTexCoordPointer(2, GL.GL_FLOAT, 0, texCoords);
+        }
+        if (aColors) {
+            aGL.glColorPointer(4, GL.GL_FLOAT, 0, colors);
+        }
+        aGL.glDrawElements(GL.GL_TRIANGLES, numIndices, GL.GL_UNSIGNED_INT, indices);
+    }
+
+    /**
+     * Draw the triangles with immediate mode calls, from the same data as
+     * render().
+     *
+     * @param aGL OpenGL context.
+     * @param aTexCoords send the texture coordinates?
+     * @param aColors send the vertex colors?
+     */
+    public void renderImmediate(GL2 aGL, final boolean aTexCoords, final boolean aColors) {
+        if (numIndices == 0) {
+            return;
+        }
+        aGL.glBegin(GL.GL_TRIANGLES);
+        for (int k = 0; k < numIndices; k++) {
+            int i = indices.get(k);
+            aGL.glNormal3f(normals.get(3 * i), normals.get(3 * i + 1), normals.get(3 * i + 2));
+            if (aTexCoords) {
+                aGL.glTexCoord2f(texCoords.get(2 * i), texCoords.get(2 * i + 1));
+            }
+            if (aColors) {
+                aGL.glColor4f(colors.get(4 * i), colors.get(4 * i + 1),
+                        colors.get(4 * i + 2), colors.get(4 * i + 3));
+            }
+            aGL.glVertex3f(positions.get(3 * i), positions.get(3 * i + 1), positions.get(3 * i + 2));
+        }
+        aGL.glEnd();
+    }
+
+    /**
+     * Read the size of the buffers [bytes].
+     */
+    public long getMemorySize() {
+        long size = 0;
+        if (positions != null) {
+            size += 4L * (positions.capacity() + normals.capacity()
+                    + texCoords.capacity() + colors.capacity());
+        }
+        if (indices != null) {
+            size += 4L * indices.capacity();
+        }
+        return (size);
+    }
+
+    /**
+     * Read the number of vertices converted since creation.
+     */
+    public long getNumUpdatedVertices() {
+        return (numUpdatedVertices);
+    }
+
+    /**
+     * Read the number of indices drawn.
+     */
+    public int getNumIndices() {
+        return (numIndices);
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS - INTERNAL:
+    //-----------------------------------------------------------------------
+    private void allocateVertices(final int aCapacity) {
+        positions = newFloatBuffer(3 * aCapacity);
+        normals = newFloatBuffer(3 * aCapacity);
+        texCoords = newFloatBuffer(2 * aCapacity);
+        colors = newFloatBuffer(4 * aCapacity);
+    }
+
+    private void updateIndices(JMesh aMesh) {
+        int count = 0;
+        int numTriangles = aMesh.triangles.size();
+        for (int i = 0; i < numTriangles; i++) {
+            if (aMesh.triangles.get(i).isAllocated()) {
+                count += 3;
+            }
+        }
+
+        if ((indices == null) || (indices.capacity() < count)) {
+            indices = ByteBuffer.allocateDirect(4 * (count + count / 2))
+                    .order(ByteOrder.nativeOrder()).asIntBuffer();
+        }
+
+        int k = 0;
+        for (int i = 0; i < numTriangles; i++) {
+            JTriangle triangle = aMesh.triangles.get(i);
+            if (triangle.isAllocated()) {
+                indices.put(k, triangle.getIndexVertex0());
+                indices.put(k + 1, triangle.getIndexVertex1());
+                indices.put(k + 2, triangle.getIndexVertex2());
+                k += 3;
+            }
+        }
+        numIndices = count;
+    }
+
+    private static FloatBuffer newFloatBuffer(final int aSize) {
+        return (ByteBuffer.allocateDirect(4 * aSize).order(ByteOrder.nativeOrder()).asFloatBuffer());
+    }
+}
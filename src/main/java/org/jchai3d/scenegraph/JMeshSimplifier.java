@@ -0,0 +1,568 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.scenegraph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import org.jchai3d.graphics.JTriangle;
+import org.jchai3d.graphics.JVertex;
+import org.jchai3d.math.JVector3d;
+
+/**
+ * JMeshSimplifier reduces the number of triangles of a mesh by edge
+ * collapses ordered with the quadric error metric (Garland and Heckbert).
+ * Vertices sharing the same position, normal and texture coordinates are
+ * merged before simplification (see JVertexWelder) so that meshes loaded
+ * with one vertex per triangle corner can be collapsed. Vertices sharing a
+ * position but not their attributes lie on a crease or a texture seam; they
+ * are never moved, so both sides of the seam stay joined. Open borders are
+ * preserved by penalty planes. Texture coordinates and colors of a collapsed
+ * vertex are taken from the surviving endpoint; normals are recomputed on
+ * the simplified mesh.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMeshSimplifier {
+
+    /**
+     * Weight of the planes preserving open borders.
+     */
+    public static double CHAI_SIMPLIFIER_BORDER_WEIGHT = 1000.0;
+
+    /**
+     * Vertex positions (x, y, z per vertex).
+     */
+    private double[] positions;
+    /**
+     * Error quadrics (10 coefficients per vertex).
+     */
+    private double[] quadrics;
+    /**
+     * Source vertex providing the attributes of each vertex.
+     */
+    private int[] sources;
+    /**
+     * Vertices on a crease or a texture seam, which keep their position.
+     */
+    private boolean[] lockedVertices;
+    /**
+     * Collapsed vertices.
+     */
+    private boolean[] removedVertices;
+    /**
+     * Incremented each time a vertex moves; invalidates queued collapses.
+     */
+    private int[] stamps;
+    /**
+     * Triangle vertex indices (3 per triangle).
+     */
+    private int[] indices;
+    /**
+     * Degenerated triangles.
+     */
+    private boolean[] removedTriangles;
+    /**
+     * Triangles around each vertex (may contain removed triangles).
+     */
+    private int[][] vertexTriangles;
+    private int[] vertexTriangleCount;
+    /**
+     * Number of triangles left.
+     */
+    private int numTriangles;
+    /**
+     * Candidate collapses.
+     */
+    private PriorityQueue<JEdgeCollapse> queue;
+    /**
+     * Scratch marks used when collecting the neighbors of a vertex.
+     */
+    private int[] marks;
+    private int mark;
+
+    /**
+     * Build a simplified copy of a mesh (children are ignored). The new mesh
+     * is not attached to the scene graph.
+     *
+     * @param aMesh source mesh.
+     * @param aTargetTriangles number of triangles to reach.
+     * @return the simplified mesh.
+     */
+    public static JMesh simplify(JMesh aMesh, int aTargetTriangles) {
+        JMeshSimplifier simplifier = new JMeshSimplifier();
+        simplifier.load(aMesh);
+        simplifier.collapse(Math.max(1, aTargetTriangles));
+        return (simplifier.createMesh(aMesh));
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS - INTERNAL:
+    //-----------------------------------------------------------------------
+    /**
+     * Merge vertices by position and attributes, and compute the initial
+     * quadrics.
+     */
+    private void load(JMesh aMesh) {
+        ArrayList<JVertex> meshVertices = aMesh.getVertices();
+        ArrayList<JTriangle> meshTriangles = aMesh.getTriangles();
+
+        // merge vertices sharing the same position and attributes; a vertex
+        // always matches one of the vertices before it
+        int[] welded = JVertexWelder.computeRemap(meshVertices, 0.0, true, true);
+        int[] coincident = JVertexWelder.computeRemap(meshVertices, 0.0, false, false);
+        int[] remap = new int[meshVertices.size()];
+        int[] numAttributes = new int[meshVertices.size()];
+        double[] tmpPositions = new double[3 * meshVertices.size()];
+        int[] tmpSources = new int[meshVertices.size()];
+        int numVertices = 0;
+
+        for (int i = 0; i < meshVertices.size(); i++) {
+            if (welded[i] != i) {
+                remap[i] = remap[welded[i]];
+                continue;
+            }
+            JVector3d position = meshVertices.get(i).getLocalPosition();
+            int index = numVertices++;
+            tmpPositions[3 * index] = position.x;
+            tmpPositions[3 * index + 1] = position.y;
+            tmpPositions[3 * index + 2] = position.z;
+            tmpSources[index] = i;
+            numAttributes[coincident[i]]++;
+            remap[i] = index;
+        }
+
+        positions = tmpPositions;
+        sources = tmpSources;
+        quadrics = new double[10 * numVertices];
+        lockedVertices = new boolean[numVertices];
+        for (int i = 0; i < numVertices; i++) {
+            lockedVertices[i] = (numAttributes[coincident[sources[i]]] > 1);
+        }
+        removedVertices = new boolean[numVertices];
+        stamps = new int[numVertices];
+        marks = new int[numVertices];
+        vertexTriangles = new int[numVertices][];
+        vertexTriangleCount = new int[numVertices];
+
+        // copy allocated, non degenerated triangles
+        int[] tmpIndices = new int[3 * meshTriangles.size()];
+        numTriangles = 0;
+        for (int i = 0; i < meshTriangles.size(); i++) {
+            JTriangle triangle = meshTriangles.get(i);
+            if (!triangle.isAllocated()) {
+                continue;
+            }
+            int i0 = remap[triangle.getIndexVertex0()];
+            int i1 = remap[triangle.getIndexVertex1()];
+            int i2 = remap[triangle.getIndexVertex2()];
+            if (i0 == i1 || i0 == i2 || i1 == i2) {
+                continue;
+            }
+            tmpIndices[3 * numTriangles] = i0;
+            tmpIndices[3 * numTriangles + 1] = i1;
+            tmpIndices[3 * numTriangles + 2] = i2;
+            numTriangles++;
+        }
+        indices = tmpIndices;
+        removedTriangles = new boolean[numTriangles];
+
+        // triangles around each vertex
+        for (int t = 0; t < numTriangles; t++) {
+            for (int k = 0; k < 3; k++) {
+                addVertexTriangle(indices[3 * t + k], t);
+            }
+        }
+
+        // face quadrics, weighted by area
+        double[] plane = new double[4];
+        for (int t = 0; t < numTriangles; t++) {
+            double area = computePlane(t, plane);
+            for (int k = 0; k < 3; k++) {
+                addPlane(indices[3 * t + k], plane, area);
+            }
+        }
+
+        // count triangles sharing each edge
+        HashMap<Long, int[]> edges = new HashMap<Long, int[]>();
+        for (int t = 0; t < numTriangles; t++) {
+            for (int k = 0; k < 3; k++) {
+                int a = indices[3 * t + k];
+                int b = indices[3 * t + (k + 1) % 3];
+                Long key = edgeKey(a, b, numVertices);
+                int[] entry = edges.get(key);
+                if (entry == null) {
+                    edges.put(key, new int[]{1, t, a, b});
+                } else {
+                    entry[0]++;
+                }
+            }
+        }
+
+        // penalty planes along open borders, and initial candidates
+        queue = new PriorityQueue<JEdgeCollapse>(Math.max(11, edges.size()));
+        for (int[] entry : edges.values()) {
+            if (entry[0] == 1) {
+                addBorderPlane(entry[1], entry[2], entry[3]);
+            }
+        }
+        for (int[] entry : edges.values()) {
+            pushCollapse(entry[2], entry[3]);
+        }
+    }
+
+    /**
+     * Collapse edges, cheapest first, until the target is reached.
+     */
+    private void collapse(int aTargetTriangles) {
+        while (numTriangles > aTargetTriangles && !queue.isEmpty()) {
+            JEdgeCollapse c = queue.poll();
+
+            // skip outdated candidates
+            if (removedVertices[c.v0] || removedVertices[c.v1]
+                    || stamps[c.v0] != c.stamp0 || stamps[c.v1] != c.stamp1) {
+                continue;
+            }
+
+            // reject collapses folding triangles over
+            if (flips(c.v0, c.v1, c) || flips(c.v1, c.v0, c)) {
+                continue;
+            }
+
+            // move v0 and merge quadrics
+            positions[3 * c.v0] = c.x;
+            positions[3 * c.v0 + 1] = c.y;
+            positions[3 * c.v0 + 2] = c.z;
+            for (int k = 0; k < 10; k++) {
+                quadrics[10 * c.v0 + k] += quadrics[10 * c.v1 + k];
+            }
+            removedVertices[c.v1] = true;
+            stamps[c.v0]++;
+
+            // move triangles of v1 to v0, removing those sharing the edge
+            for (int i = 0; i < vertexTriangleCount[c.v1]; i++) {
+                int t = vertexTriangles[c.v1][i];
+                if (removedTriangles[t]) {
+                    continue;
+                }
+                boolean shared = false;
+                for (int k = 0; k < 3; k++) {
+                    if (indices[3 * t + k] == c.v0) {
+                        shared = true;
+                    }
+                }
+                if (shared) {
+                    removedTriangles[t] = true;
+                    numTriangles--;
+                } else {
+                    for (int k = 0; k < 3; k++) {
+                        if (indices[3 * t + k] == c.v1) {
+                            indices[3 * t + k] = c.v0;
+                        }
+                    }
+                    addVertexTriangle(c.v0, t);
+                }
+            }
+
+            // new candidates around v0
+            mark++;
+            marks[c.v0] = mark;
+            for (int i = 0; i < vertexTriangleCount[c.v0]; i++) {
+                int t = vertexTriangles[c.v0][i];
+                if (removedTriangles[t]) {
+                    continue;
+                }
+                for (int k = 0; k < 3; k++) {
+                    int u = indices[3 * t + k];
+                    if (marks[u] != mark) {
+                        marks[u] = mark;
+                        pushCollapse(c.v0, u);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Check if moving vertex aMoved to the collapse target flips one of
+     * its triangles not shared with aOther.
+     */
+    private boolean flips(int aMoved, int aOther, JEdgeCollapse c) {
+        for (int i = 0; i < vertexTriangleCount[aMoved]; i++) {
+            int t = vertexTriangles[aMoved][i];
+            if (removedTriangles[t]) {
+                continue;
+            }
+
+            int i0 = indices[3 * t];
+            int i1 = indices[3 * t + 1];
+            int i2 = indices[3 * t + 2];
+            if (i0 == aOther || i1 == aOther || i2 == aOther) {
+                continue;
+            }
+
+            // normal before collapse
+            double[] p = positions;
+            double ax = p[3 * i1] - p[3 * i0], ay = p[3 * i1 + 1] - p[3 * i0 + 1], az = p[3 * i1 + 2] - p[3 * i0 + 2];
+            double bx = p[3 * i2] - p[3 * i0], by = p[3 * i2 + 1] - p[3 * i0 + 1], bz = p[3 * i2 + 2] - p[3 * i0 + 2];
+            double nx = ay * bz - az * by, ny = az * bx - ax * bz, nz = ax * by - ay * bx;
+
+            // normal after collapse
+            double x0 = (i0 == aMoved) ? c.x : p[3 * i0], y0 = (i0 == aMoved) ? c.y : p[3 * i0 + 1], z0 = (i0 == aMoved) ? c.z : p[3 * i0 + 2];
+            double x1 = (i1 == aMoved) ? c.x : p[3 * i1], y1 = (i1 == aMoved) ? c.y : p[3 * i1 + 1], z1 = (i1 == aMoved) ? c.z : p[3 * i1 + 2];
+            double x2 = (i2 == aMoved) ? c.x : p[3 * i2], y2 = (i2 == aMoved) ? c.y : p[3 * i2 + 1], z2 = (i2 == aMoved) ? c.z : p[3 * i2 + 2];
+            ax = x1 - x0;
+            ay = y1 - y0;
+            az = z1 - z0;
+            bx = x2 - x0;
+            by = y2 - y0;
+            bz = z2 - z0;
+            double mx = ay * bz - az * by, my = az * bx - ax * bz, mz = ax * by - ay * bx;
+
+            if (nx * mx + ny * my + nz * mz <= 0.0) {
+                return (true);
+            }
+        }
+        return (false);
+    }
+
+    /**
+     * Queue the collapse of an edge, at the position minimizing the error.
+     * An edge with a locked endpoint collapses onto it; an edge with two
+     * locked endpoints is not collapsed.
+     */
+    private void pushCollapse(int aV0, int aV1) {
+        if ((aV0 == aV1) || (lockedVertices[aV0] && lockedVertices[aV1])) {
+            return;
+        }
+
+        // the first endpoint is kept
+        if (lockedVertices[aV1]) {
+            int v = aV0;
+            aV0 = aV1;
+            aV1 = v;
+        }
+
+        double[] q = new double[10];
+        for (int k = 0; k < 10; k++) {
+            q[k] = quadrics[10 * aV0 + k] + quadrics[10 * aV1 + k];
+        }
+
+        JEdgeCollapse c = new JEdgeCollapse();
+        c.v0 = aV0;
+        c.v1 = aV1;
+        c.stamp0 = stamps[aV0];
+        c.stamp1 = stamps[aV1];
+
+        // solve for the optimal position
+        double a = q[0], b = q[1], cc = q[2], e = q[4], f = q[5], h = q[7];
+        double det = a * (e * h - f * f) - b * (b * h - f * cc) + cc * (b * f - e * cc);
+        if (lockedVertices[aV0]) {
+            double[] p = positions;
+            c.set(p[3 * aV0], p[3 * aV0 + 1], p[3 * aV0 + 2],
+                    evaluate(q, p[3 * aV0], p[3 * aV0 + 1], p[3 * aV0 + 2]));
+        } else if (Math.abs(det) > 1e-12) {
+            double d0 = -q[3], d1 = -q[6], d2 = -q[8];
+            c.x = (d0 * (e * h - f * f) - b * (d1 * h - f * d2) + cc * (d1 * f - e * d2)) / det;
+            c.y = (a * (d1 * h - f * d2) - d0 * (b * h - f * cc) + cc * (b * d2 - d1 * cc)) / det;
+            c.z = (a * (e * d2 - d1 * f) - b * (b * d2 - d1 * cc) + d0 * (b * f - e * cc)) / det;
+            c.cost = evaluate(q, c.x, c.y, c.z);
+        } else {
+            // singular system: best of the endpoints and the midpoint
+            double[] p = positions;
+            double mx = 0.5 * (p[3 * aV0] + p[3 * aV1]);
+            double my = 0.5 * (p[3 * aV0 + 1] + p[3 * aV1 + 1]);
+            double mz = 0.5 * (p[3 * aV0 + 2] + p[3 * aV1 + 2]);
+            double cost0 = evaluate(q, p[3 * aV0], p[3 * aV0 + 1], p[3 * aV0 + 2]);
+            double cost1 = evaluate(q, p[3 * aV1], p[3 * aV1 + 1], p[3 * aV1 + 2]);
+            double costM = evaluate(q, mx, my, mz);
+            if (cost0 <= cost1 && cost0 <= costM) {
+                c.set(p[3 * aV0], p[3 * aV0 + 1], p[3 * aV0 + 2], cost0);
+            } else if (cost1 <= costM) {
+                c.set(p[3 * aV1], p[3 * aV1 + 1], p[3 * aV1 + 2], cost1);
+            } else {
+                c.set(mx, my, mz, costM);
+            }
+        }
+
+        queue.add(c);
+    }
+
+    /**
+     * Error of a position for a quadric.
+     */
+    private static double evaluate(double[] q, double x, double y, double z) {
+        return (q[0] * x * x + 2 * q[1] * x * y + 2 * q[2] * x * z + 2 * q[3] * x
+                + q[4] * y * y + 2 * q[5] * y * z + 2 * q[6] * y
+                + q[7] * z * z + 2 * q[8] * z + q[9]);
+    }
+
+    /**
+     * Compute the normalized plane of a triangle.
+     *
+     * @return the area of the triangle.
+     */
+    private double computePlane(int aTriangle, double[] aPlane) {
+        double[] p = positions;
+        int i0 = indices[3 * aTriangle], i1 = indices[3 * aTriangle + 1], i2 = indices[3 * aTriangle + 2];
+        double ax = p[3 * i1] - p[3 * i0], ay = p[3 * i1 + 1] - p[3 * i0 + 1], az = p[3 * i1 + 2] - p[3 * i0 + 2];
+        double bx = p[3 * i2] - p[3 * i0], by = p[3 * i2 + 1] - p[3 * i0 + 1], bz = p[3 * i2 + 2] - p[3 * i0 + 2];
+        double nx = ay * bz - az * by, ny = az * bx - ax * bz, nz = ax * by - ay * bx;
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (length < 1e-20) {
+            aPlane[0] = aPlane[1] = aPlane[2] = aPlane[3] = 0;
+            return (0);
+        }
+        aPlane[0] = nx / length;
+        aPlane[1] = ny / length;
+        aPlane[2] = nz / length;
+        aPlane[3] = -(aPlane[0] * p[3 * i0] + aPlane[1] * p[3 * i0 + 1] + aPlane[2] * p[3 * i0 + 2]);
+        return (0.5 * length);
+    }
+
+    /**
+     * Add a plane perpendicular to a triangle along one of its open edges.
+     */
+    private void addBorderPlane(int aTriangle, int aV0, int aV1) {
+        double[] face = new double[4];
+        computePlane(aTriangle, face);
+
+        double[] p = positions;
+        double ex = p[3 * aV1] - p[3 * aV0], ey = p[3 * aV1 + 1] - p[3 * aV0 + 1], ez = p[3 * aV1 + 2] - p[3 * aV0 + 2];
+        double nx = ey * face[2] - ez * face[1], ny = ez * face[0] - ex * face[2], nz = ex * face[1] - ey * face[0];
+        double length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+        if (length < 1e-20) {
+            return;
+        }
+
+        double[] plane = new double[]{nx / length, ny / length, nz / length, 0};
+        plane[3] = -(plane[0] * p[3 * aV0] + plane[1] * p[3 * aV0 + 1] + plane[2] * p[3 * aV0 + 2]);
+
+        double weight = CHAI_SIMPLIFIER_BORDER_WEIGHT * (ex * ex + ey * ey + ez * ez);
+        addPlane(aV0, plane, weight);
+        addPlane(aV1, plane, weight);
+    }
+
+    /**
+     * Accumulate a weighted plane into the quadric of a vertex.
+     */
+    private void addPlane(int aVertex, double[] aPlane, double aWeight) {
+        double a = aPlane[0], b = aPlane[1], c = aPlane[2], d = aPlane[3];
+        int o = 10 * aVertex;
+        quadrics[o] += aWeight * a * a;
+        quadrics[o + 1] += aWeight * a * b;
+        quadrics[o + 2] += aWeight * a * c;
+        quadrics[o + 3] += aWeight * a * d;
+        quadrics[o + 4] += aWeight * b * b;
+        quadrics[o + 5] += aWeight * b * c;
+        quadrics[o + 6] += aWeight * b * d;
+        quadrics[o + 7] += aWeight * c * c;
+        quadrics[o + 8] += aWeight * c * d;
+        quadrics[o + 9] += aWeight * d * d;
+    }
+
+    /**
+     * Register a triangle around a vertex.
+     */
+    private void addVertexTriangle(int aVertex, int aTriangle) {
+        int[] list = vertexTriangles[aVertex];
+        int count = vertexTriangleCount[aVertex];
+        if (list == null) {
+            list = new int[6];
+            vertexTriangles[aVertex] = list;
+        } else if (count == list.length) {
+            int[] grown = new int[2 * count];
+            System.arraycopy(list, 0, grown, 0, count);
+            list = grown;
+            vertexTriangles[aVertex] = list;
+        }
+        list[count] = aTriangle;
+        vertexTriangleCount[aVertex] = count + 1;
+    }
+
+    /**
+     * Key of an undirected edge.
+     */
+    private static Long edgeKey(int aV0, int aV1, int aNumVertices) {
+        int a = Math.min(aV0, aV1);
+        int b = Math.max(aV0, aV1);
+        return ((long) a * aNumVertices + b);
+    }
+
+    /**
+     * Build the simplified mesh, sharing the rendering properties of the
+     * source mesh.
+     */
+    private JMesh createMesh(JMesh aSource) {
+        JMesh mesh = aSource.createMesh();
+        ArrayList<JVertex> sourceVertices = aSource.getVertices();
+
+        int[] remap = new int[removedVertices.length];
+        for (int i = 0; i < remap.length; i++) {
+            remap[i] = -1;
+        }
+
+        for (int t = 0; t < removedTriangles.length; t++) {
+            if (removedTriangles[t]) {
+                continue;
+            }
+
+            int[] newIndices = new int[3];
+            for (int k = 0; k < 3; k++) {
+                int v = indices[3 * t + k];
+                if (remap[v] == -1) {
+                    remap[v] = mesh.newVertex(positions[3 * v], positions[3 * v + 1], positions[3 * v + 2]);
+                    JVertex source = sourceVertices.get(sources[v]);
+                    JVertex vertex = mesh.getVertex(remap[v], false);
+                    vertex.setTexCoord(source.getTexCoord());
+                    vertex.setColor(source.getColor());
+                }
+                newIndices[k] = remap[v];
+            }
+            mesh.newTriangle(newIndices[0], newIndices[1], newIndices[2]);
+        }
+
+        mesh.computeAllNormals(false);
+        mesh.material = aSource.material;
+        mesh.texture = aSource.texture;
+        mesh.computeBoundaryBox(false);
+        return (mesh);
+    }
+}
+
+/**
+ * A candidate edge collapse of JMeshSimplifier.
+ */
+class JEdgeCollapse implements Comparable<JEdgeCollapse> {
+
+    int v0, v1;
+    int stamp0, stamp1;
+    double x, y, z;
+    double cost;
+
+    void set(double aX, double aY, double aZ, double aCost) {
+        x = aX;
+        y = aY;
+        z = aZ;
+        cost = aCost;
+    }
+
+    public int compareTo(JEdgeCollapse aOther) {
+        return (Double.compare(cost, aOther.cost));
+    }
+}
+
@@ -0,0 +1,123 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.scenegraph;
+
+import java.util.ArrayList;
+import org.jchai3d.extras.JWorkerThreads;
+
+/**
+ * JParallelMeshOperation applies an operation to ranges of items (vertices
+ * or triangles) of a list of meshes, on a pool of worker threads. Meshes
+ * larger than JMesh.CHAI_PARALLEL_MESH_GRAIN are split in ranges, and small
+ * meshes are grouped so that each task has about the same amount of work.
+ * Ranges never overlap, and the call returns once all of them are done.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+abstract class JParallelMeshOperation {
+
+    /**
+     * Read the number of items of a mesh the operation works on; by
+     * default, its vertices.
+     */
+    int getSize(JMesh aMesh) {
+        return (aMesh.vertices.size());
+    }
+
+    /**
+     * Apply the operation to the items [aFirst, aLast) of a mesh.
+     */
+    abstract void run(JMesh aMesh, int aFirst, int aLast);
+
+    /**
+     * Read the maximum number of ranges a single mesh may be split in.
+     */
+    int getMaxRanges() {
+        return (Integer.MAX_VALUE);
+    }
+
+    /**
+     * Apply the operation to all items of the meshes. A mesh without items
+     * is given a single empty range.
+     */
+    final void run(ArrayList<JMesh> aMeshes) {
+        int grain = Math.max(1, JMesh.CHAI_PARALLEL_MESH_GRAIN);
+
+        // split the meshes in tasks of about one grain each
+        ArrayList<ArrayList<Range>> tasks = new ArrayList<ArrayList<Range>>();
+        ArrayList<Range> task = new ArrayList<Range>();
+        int taskSize = 0;
+        for (JMesh mesh : aMeshes) {
+            int size = getSize(mesh);
+            int numRanges = Math.max(1, Math.min((size + grain - 1) / grain, getMaxRanges()));
+            for (int r = 0; r < numRanges; r++) {
+                int first = (int) ((long) size * r / numRanges);
+                int last = (int) ((long) size * (r + 1) / numRanges);
+                task.add(new Range(mesh, first, last));
+                taskSize += Math.max(1, last - first);
+                if (taskSize >= grain) {
+                    tasks.add(task);
+                    task = new ArrayList<Range>();
+                    taskSize = 0;
+                }
+            }
+        }
+        if (!task.isEmpty()) {
+            tasks.add(task);
+        }
+
+        // a single task is run by the calling thread
+        if (tasks.size() <= 1) {
+            for (ArrayList<Range> ranges : tasks) {
+                runRanges(ranges);
+            }
+            return;
+        }
+
+        ArrayList<Runnable> runnables = new ArrayList<Runnable>();
+        for (final ArrayList<Range> ranges : tasks) {
+            runnables.add(new Runnable() {
+
+                public void run() {
+                    runRanges(ranges);
+                }
+            });
+        }
+        JWorkerThreads.runAll(runnables);
+    }
+
+    private void runRanges(ArrayList<Range> aRanges) {
+        for (Range range : aRanges) {
+            run(range.mesh, range.first, range.last);
+        }
+    }
+
+    /**
+     * Range of items of a mesh.
+     */
+    private static final class Range {
+
+        private final JMesh mesh;
+        private final int first, last;
+
+        private Range(JMesh aMesh, int aFirst, int aLast) {
+            mesh = aMesh;
+            first = aFirst;
+            last = aLast;
+        }
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.scenegraph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.jchai3d.graphics.JMaterial;
+import org.jchai3d.graphics.JTriangle;
+import org.jchai3d.graphics.JVertex;
+import org.jchai3d.math.JMatrix3d;
+import org.jchai3d.math.JVector3d;
+
+/**
+ * JStaticBatch renders a frozen subtree of the scene graph (see
+ * JGenericObject.freeze()). The triangles of all meshes of the subtree are
+ * transformed into the frame of the frozen object and merged into one mesh
+ * per set of render settings (material, texture and rendering flags), so
+ * that the subtree is drawn with a few batches instead of one matrix push
+ * and one draw per object.
+ *
+ * The original objects stay in the scene graph: collision detection, haptic
+ * rendering and picking keep working on them. Each triangle of a batch also
+ * maps back to the triangle of the original mesh it was copied from.
+ *
+ * Only visible meshes are merged; the frozen object builds its batches again
+ * when an object of the subtree is shown or hidden (see
+ * JGenericObject.setVisible()).
+ *
+ * Objects are only merged when their rendering is fully described by their
+ * triangles: plain JMesh objects without levels of detail or visible normals,
+ * and plain grouping JGenericObject nodes. All other objects (shapes, lights,
+ * labels...) keep being rendered individually.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JStaticBatch {
+
+    /**
+     * Frozen object, in whose frame the batches are expressed.
+     */
+    protected JGenericObject root;
+    /**
+     * Merged meshes, one per set of render settings.
+     */
+    protected ArrayList<JMesh> batches;
+    /**
+     * Original meshes of each batch, in the order they were merged.
+     */
+    protected ArrayList<ArrayList<Segment>> segments;
+    /**
+     * Objects whose rendering is replaced by the batches.
+     */
+    protected ArrayList<JGenericObject> coveredObjects;
+    /**
+     * Number of meshes merged into the batches.
+     */
+    protected int numMergedMeshes;
+
+    /**
+     * Constructor of JStaticBatch. Builds the batches of a subtree; the
+     * objects of the subtree are not rendered individually until release()
+     * is called.
+     *
+     * @param aRoot root of the frozen subtree.
+     */
+    public JStaticBatch(JGenericObject aRoot) {
+        root = aRoot;
+        batches = new ArrayList<JMesh>();
+        segments = new ArrayList<ArrayList<Segment>>();
+        coveredObjects = new ArrayList<JGenericObject>();
+        numMergedMeshes = 0;
+
+        JMatrix3d rotation = new JMatrix3d();
+        rotation.identity();
+        add(aRoot, new JVector3d(), rotation, true);
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS:
+    //-----------------------------------------------------------------------
+    /**
+     * Render the batches. Called by the frozen object, in its own frame.
+     */
+    public void render(final JChaiRenderMode aRenderMode) {
+        for (int i = 0; i < batches.size(); i++) {
+            batches.get(i).renderSceneGraph(aRenderMode);
+        }
+    }
+
+    /**
+     * Re-initialize the display lists and textures of the batches after the
+     * OpenGL context was reset.
+     */
+    public void onDisplayReset() {
+        for (int i = 0; i < batches.size(); i++) {
+            batches.get(i).onDisplayReset(false);
+        }
+    }
+
+    /**
+     * Give the rendering of the subtree back to its objects, and release the
+     * cached textures referenced by the batches.
+     */
+    public void release() {
+        for (JGenericObject object : coveredObjects) {
+            object.renderedByBatch = false;
+            object.subtreeRenderedByBatch = false;
+        }
+        coveredObjects.clear();
+        for (int i = 0; i < batches.size(); i++) {
+            batches.get(i).releaseSharedResources();
+        }
+    }
+
+    /**
+     * Read the frozen object.
+     */
+    public JGenericObject getRoot() {
+        return (root);
+    }
+
+    /**
+     * Read the number of batches.
+     */
+    public int getNumBatches() {
+        return (batches.size());
+    }
+
+    /**
+     * Read a batch.
+     */
+    public JMesh getBatch(int aIndex) {
+        return (batches.get(aIndex));
+    }
+
+    /**
+     * Read the number of meshes merged into the batches.
+     */
+    public int getNumMergedMeshes() {
+        return (numMergedMeshes);
+    }
+
+    /**
+     * Read the number of objects whose rendering is replaced by the batches.
+     */
+    public int getNumCoveredObjects() {
+        return (coveredObjects.size());
+    }
+
+    /**
+     * Read the original triangle a triangle of a batch was copied from.
+     *
+     * @param aBatch index of the batch.
+     * @param aTriangle index of the triangle in the batch.
+     * @return the original triangle; its parent is the original mesh.
+     */
+    public JTriangle getSourceTriangle(int aBatch, int aTriangle) {
+        ArrayList<Segment> list = segments.get(aBatch);
+
+        // segments are sorted by their first triangle
+        int lo = 0, hi = list.size() - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            if (list.get(mid).first <= aTriangle) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+
+        Segment segment = list.get(lo);
+        return (segment.mesh.triangles.get(segment.triangles[aTriangle - segment.first]));
+    }
+
+    /**
+     * Read the original triangle a triangle of a batch was copied from, or
+     * null if the triangle does not belong to one of the batches.
+     */
+    public JTriangle getSourceTriangle(JTriangle aBatchTriangle) {
+        int batch = batches.indexOf(aBatchTriangle.getParent());
+        if (batch < 0) {
+            return (null);
+        }
+        return (getSourceTriangle(batch, aBatchTriangle.getIndex()));
+    }
+
+    /**
+     * Read the original mesh a triangle of a batch was copied from.
+     */
+    public JMesh getSourceMesh(int aBatch, int aTriangle) {
+        return (getSourceTriangle(aBatch, aTriangle).getParent());
+    }
+
+    //-----------------------------------------------------------------------
+    // METHODS - INTERNAL:
+    //-----------------------------------------------------------------------
+    /**
+     * Merge an object and its children, given the position and orientation
+     * of the object in the frame of the root.
+     *
+     * @return true if the batches replace the rendering of the whole subtree.
+     */
+    private boolean add(JGenericObject aObject, JVector3d aPos, JMatrix3d aRot, boolean aIsRoot) {
+        boolean covered = (aObject.getClass() == JGenericObject.class) || isMergeable(aObject);
+
+        if (covered && aObject.visible && (aObject instanceof JMesh)) {
+            merge((JMesh) aObject, aPos, aRot);
+        }
+
+        boolean subtreeCovered = covered
+                && !aObject.frameVisible && !aObject.boxVisible
+                && !aObject.treeVisible && !aObject.collisionTreeVisible;
+
+        for (int i = 0; i < aObject.childrens.size(); i++) {
+            JGenericObject child = aObject.childrens.get(i);
+
+            // a frozen subtree inside this one is merged again
+            child.unfreeze();
+
+            JVector3d pos = new JVector3d();
+            JMatrix3d rot = new JMatrix3d();
+            aRot.mulr(child.localPosition, pos);
+            pos.add(aPos);
+            aRot.mulr(child.localRotation, rot);
+
+            if (!add(child, pos, rot, false)) {
+                subtreeCovered = false;
+            }
+        }
+
+        if (covered) {
+            aObject.renderedByBatch = true;
+            aObject.subtreeRenderedByBatch = subtreeCovered && !aIsRoot;
+            coveredObjects.add(aObject);
+        }
+        return (subtreeCovered);
+    }
+
+    /**
+     * Check whether the rendering of an object is fully described by its
+     * triangles and render settings.
+     */
+    private static boolean isMergeable(JGenericObject aObject) {
+        if (aObject.getClass() != JMesh.class) {
+            return (false);
+        }
+        JMesh mesh = (JMesh) aObject;
+        return (mesh.levelsOfDetail.isEmpty() && !mesh.normalsVisible);
+    }
+
+    /**
+     * Copy the allocated triangles of a mesh into the batch of its render
+     * settings.
+     */
+    private void merge(JMesh aMesh, JVector3d aPos, JMatrix3d aRot) {
+        int numTriangles = 0;
+        for (int i = 0; i < aMesh.triangles.size(); i++) {
+            if (aMesh.triangles.get(i).isAllocated()) {
+                numTriangles++;
+            }
+        }
+        if (numTriangles == 0) {
+            return;
+        }
+
+        int index = findBatch(aMesh);
+        JMesh batch = batches.get(index);
+        numMergedMeshes++;
+
+        // vertices, in the frame of the root
+        int base = batch.vertices.size();
+        JVector3d position = new JVector3d();
+        JVector3d normal = new JVector3d();
+        for (int i = 0; i < aMesh.vertices.size(); i++) {
+            JVertex source = aMesh.vertices.get(i);
+            aRot.mulr(source.getLocalPosition(), position);
+            position.add(aPos);
+            aRot.mulr(source.getNormal(), normal);
+
+            JVertex vertex = batch.vertices.get(batch.newVertex(position));
+            vertex.setNormal(normal);
+            vertex.setTexCoord(source.getTexCoord());
+            vertex.setColor(source.getColor());
+        }
+
+        // triangles, with their index in the original mesh
+        Segment segment = new Segment(aMesh, batch.triangles.size(), new int[numTriangles]);
+        int n = 0;
+        for (int i = 0; i < aMesh.triangles.size(); i++) {
+            JTriangle triangle = aMesh.triangles.get(i);
+            if (triangle.isAllocated()) {
+                batch.newTriangle(base + triangle.getIndexVertex0(),
+                        base + triangle.getIndexVertex1(),
+                        base + triangle.getIndexVertex2());
+                segment.triangles[n++] = i;
+            }
+        }
+        segments.get(index).add(segment);
+    }
+
+    /**
+     * Find the batch of the render settings of a mesh, or create it.
+     */
+    private int findBatch(JMesh aMesh) {
+        for (int i = 0; i < batches.size(); i++) {
+            if (hasSameRenderSettings(batches.get(i), aMesh)) {
+                return (i);
+            }
+        }
+
+        JMesh batch = new JMesh(aMesh.parentWorld);
+        batch.copyRenderSettings(aMesh);
+        if (batch.parentWorld != null) {
+            // the batch holds its own reference to a cached texture
+            batch.parentWorld.retainTexture(batch.texture);
+        }
+        batch.triangleMode = aMesh.triangleMode;
+        batch.vertexArrayEnabled = aMesh.vertexArrayEnabled;
+        batch.setParent(root);
+        batches.add(batch);
+        segments.add(new ArrayList<Segment>());
+        return (batches.size() - 1);
+    }
+
+    private static boolean hasSameRenderSettings(JMesh aMesh1, JMesh aMesh2) {
+        return ((aMesh1.materialEnabled == aMesh2.materialEnabled)
+                && (aMesh1.textureMappingEnabled == aMesh2.textureMappingEnabled)
+                && (aMesh1.vertexColorsEnabled == aMesh2.vertexColorsEnabled)
+                && (aMesh1.transparencyEnabled == aMesh2.transparencyEnabled)
+                && (aMesh1.cullingEnabled == aMesh2.cullingEnabled)
+                && (aMesh1.displayListEnabled == aMesh2.displayListEnabled)
+                && (aMesh1.vertexArrayEnabled == aMesh2.vertexArrayEnabled)
+                && (aMesh1.triangleMode == aMesh2.triangleMode)
+                && (!aMesh1.textureMappingEnabled || (aMesh1.texture == aMesh2.texture))
+                && (!aMesh1.materialEnabled || hasSameMaterial(aMesh1.material, aMesh2.material)));
+    }
+
+    /**
+     * Compare the rendered properties of two materials; loaders often create
+     * one material per group even when they are equal.
+     */
+    private static boolean hasSameMaterial(JMaterial aMaterial1, JMaterial aMaterial2) {
+        if (aMaterial1 == aMaterial2) {
+            return (true);
+        }
+        if ((aMaterial1 == null) || (aMaterial2 == null)) {
+            return (false);
+        }
+        return ((aMaterial1.getShininess() == aMaterial2.getShininess())
+                && Arrays.equals(aMaterial1.getAmbient().getComponents(), aMaterial2.getAmbient().getComponents())
+                && Arrays.equals(aMaterial1.getDiffuse().getComponents(), aMaterial2.getDiffuse().getComponents())
+                && Arrays.equals(aMaterial1.getSpecular().getComponents(), aMaterial2.getSpecular().getComponents())
+                && Arrays.equals(aMaterial1.getEmission().getComponents(), aMaterial2.getEmission().getComponents()));
+    }
+
+    /**
+     * Triangles of a batch copied from an original mesh.
+     */
+    protected static final class Segment {
+
+        private final JMesh mesh;
+        private final int first;
+        private final int[] triangles;
+
+        private Segment(JMesh aMesh, int aFirst, int[] aTriangles) {
+            mesh = aMesh;
+            first = aFirst;
+            triangles = aTriangles;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.scenegraph;
+
+import java.util.ArrayList;
+import org.jchai3d.graphics.JTriangle;
+import org.jchai3d.graphics.JVertex;
+import org.jchai3d.math.JVector3d;
+
+/**
+ * JVertexWelder merges the vertices of a mesh that lie within a distance
+ * \e epsilon of each other, in linear time. Vertices are hashed into a grid
+ * of cells at least \e epsilon wide, laid over the bounding box of the mesh;
+ * each vertex is only compared with the vertices already kept in the 27
+ * surrounding cells. With an epsilon of 0, vertices are hashed on the exact
+ * bits of their coordinates instead. Merging can optionally require
+ * matching normals and texture coordinates, so that creases and texture
+ * seams are preserved.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JVertexWelder {
+
+    /**
+     * Minimum cosine between two normals of merged vertices.
+     */
+    public static double CHAI_WELD_NORMAL_TOLERANCE = 0.9999;
+    /**
+     * Maximum distance between two texture coordinates of merged vertices.
+     */
+    public static double CHAI_WELD_TEXCOORD_TOLERANCE = 1e-6;
+    /**
+     * Sentinel of empty slots in the cell table.
+     */
+    private static final long EMPTY = Long.MIN_VALUE;
+    /**
+     * Maximum number of cells along an axis of the bounding box.
+     */
+    private static final double CELLS = (1 << 20);
+
+    /**
+     * Merge the vertices of a mesh (children are ignored). Triangles are
+     * remapped to the kept vertices, the vertex list is compacted and
+     * triangles that became degenerated or duplicated are removed. Collision
+     * detectors and neighbor lists must be rebuilt afterwards.
+     *
+     * @param aMesh mesh to weld.
+     * @param aEpsilon distance under which two vertices are merged (0 for
+     * exact matches only).
+     * @param aMatchNormals if true, vertices with different normals are kept.
+     * @param aMatchTexCoords if true, vertices with different texture
+     * coordinates are kept.
+     * @return the number of vertices removed.
+     */
+    public static int weld(JMesh aMesh, double aEpsilon, boolean aMatchNormals, boolean aMatchTexCoords) {
+        ArrayList<JVertex> vertices = aMesh.getVertices();
+        int numVertices = vertices.size();
+        if (numVertices == 0) {
+            return (0);
+        }
+
+        int[] remap = computeRemap(vertices, aEpsilon, aMatchNormals, aMatchTexCoords);
+
+        // compact vertex list
+        ArrayList<JVertex> kept = new ArrayList<JVertex>(numVertices);
+        int[] newIndex = new int[numVertices];
+        for (int i = 0; i < numVertices; i++) {
+            if (remap[i] == i) {
+                JVertex vertex = vertices.get(i);
+                newIndex[i] = kept.size();
+                vertex.setIndex(kept.size());
+                vertex.setTriangleCount(0);
+                kept.add(vertex);
+            }
+        }
+        int removed = numVertices - kept.size();
+
+        vertices.clear();
+        vertices.addAll(kept);
+        aMesh.getFreeVertices().clear();
+
+        // remap triangles
+        ArrayList<JTriangle> triangles = aMesh.getTriangles();
+        for (int i = 0; i < triangles.size(); i++) {
+            JTriangle triangle = triangles.get(i);
+            triangle.setVertices(newIndex[remap[triangle.getIndexVertex0()]],
+                    newIndex[remap[triangle.getIndexVertex1()]],
+                    newIndex[remap[triangle.getIndexVertex2()]]);
+        }
+
+        // drop triangles made degenerated or duplicated by the merge
+        aMesh.removeRedundantTriangles(false);
+
+        // update triangle counts
+        for (int i = 0; i < triangles.size(); i++) {
+            JTriangle triangle = triangles.get(i);
+            incrementTriangleCount(vertices.get(triangle.getIndexVertex0()));
+            incrementTriangleCount(vertices.get(triangle.getIndexVertex1()));
+            incrementTriangleCount(vertices.get(triangle.getIndexVertex2()));
+        }
+
+        return (removed);
+    }
+
+    /**
+     * Find the vertices to merge, without modifying them. Each vertex is
+     * mapped to the first vertex it matches, and kept vertices to
+     * themselves.
+     *
+     * @param aVertices vertices to weld.
+     * @param aEpsilon distance under which two vertices are merged (0 for
+     * exact matches only).
+     * @param aMatchNormals if true, vertices with different normals are kept.
+     * @param aMatchTexCoords if true, vertices with different texture
+     * coordinates are kept.
+     * @return the index of the kept vertex of each vertex.
+     */
+    static int[] computeRemap(ArrayList<JVertex> aVertices, double aEpsilon,
+            boolean aMatchNormals, boolean aMatchTexCoords) {
+        int numVertices = aVertices.size();
+        double epsilonSq = aEpsilon * aEpsilon;
+        boolean exact = !(aEpsilon > 0);
+
+        // grid over the bounding box, with at most CELLS cells per axis so
+        // that the cell coordinates of a vertex and its neighbors pack into
+        // a key without aliasing
+        double minX = 0, minY = 0, minZ = 0, cellSize = 1;
+        if (!exact) {
+            JVector3d p = aVertices.get(0).getLocalPosition();
+            minX = p.x;
+            minY = p.y;
+            minZ = p.z;
+            double maxX = p.x, maxY = p.y, maxZ = p.z;
+            for (int i = 1; i < numVertices; i++) {
+                p = aVertices.get(i).getLocalPosition();
+                minX = Math.min(minX, p.x);
+                minY = Math.min(minY, p.y);
+                minZ = Math.min(minZ, p.z);
+                maxX = Math.max(maxX, p.x);
+                maxY = Math.max(maxY, p.y);
+                maxZ = Math.max(maxZ, p.z);
+            }
+            double extent = Math.max(maxX - minX, Math.max(maxY - minY, maxZ - minZ));
+            cellSize = Math.max(aEpsilon, extent / CELLS);
+        }
+
+        // open addressing table of cells: key -> first kept vertex in cell
+        int capacity = Integer.highestOneBit(Math.max(4, 2 * numVertices)) * 2;
+        long[] keys = new long[capacity];
+        int[] heads = new int[capacity];
+        for (int i = 0; i < capacity; i++) {
+            keys[i] = EMPTY;
+        }
+
+        // kept vertices of a cell are chained through next[]
+        int[] next = new int[numVertices];
+        int[] remap = new int[numVertices];
+
+        // exact matches only need to look in their own cell
+        int range = exact ? 0 : 1;
+
+        for (int i = 0; i < numVertices; i++) {
+            JVector3d p = aVertices.get(i).getLocalPosition();
+            long cx = 0, cy = 0, cz = 0, key;
+            if (exact) {
+                key = exactKey(p);
+            } else {
+                cx = (long) Math.floor((p.x - minX) / cellSize);
+                cy = (long) Math.floor((p.y - minY) / cellSize);
+                cz = (long) Math.floor((p.z - minZ) / cellSize);
+                key = cellKey(cx, cy, cz);
+            }
+
+            // search the surrounding cells for a matching kept vertex
+            int match = -1;
+            for (int dx = -range; dx <= range && match == -1; dx++) {
+                for (int dy = -range; dy <= range && match == -1; dy++) {
+                    for (int dz = -range; dz <= range && match == -1; dz++) {
+                        long neighbor = exact ? key : cellKey(cx + dx, cy + dy, cz + dz);
+                        int slot = findSlot(keys, neighbor);
+                        if (keys[slot] == EMPTY) {
+                            continue;
+                        }
+                        for (int j = heads[slot]; j != -1; j = next[j]) {
+                            if (matches(aVertices.get(i), aVertices.get(j), epsilonSq,
+                                    aMatchNormals, aMatchTexCoords)) {
+                                match = j;
+                                break;
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (match != -1) {
+                remap[i] = match;
+                continue;
+            }
+
+            // keep this vertex and insert it in its cell
+            remap[i] = i;
+            int slot = findSlot(keys, key);
+            if (keys[slot] == EMPTY) {
+                keys[slot] = key;
+                next[i] = -1;
+            } else {
+                next[i] = heads[slot];
+            }
+            heads[slot] = i;
+        }
+
+        return (remap);
+    }
+
+    /**
+     * Check if a vertex can be merged into a kept vertex.
+     */
+    private static boolean matches(JVertex aVertex, JVertex aKept, double aEpsilonSq,
+            boolean aMatchNormals, boolean aMatchTexCoords) {
+
+        if (aVertex.getLocalPosition().distancesq(aKept.getLocalPosition()) > aEpsilonSq) {
+            return (false);
+        }
+
+        if (aMatchTexCoords
+                && aVertex.getTexCoord().distancesq(aKept.getTexCoord())
+                > CHAI_WELD_TEXCOORD_TOLERANCE * CHAI_WELD_TEXCOORD_TOLERANCE) {
+            return (false);
+        }
+
+        if (aMatchNormals) {
+            JVector3d n0 = aVertex.getNormal();
+            JVector3d n1 = aKept.getNormal();
+            double l0 = n0.lengthsq();
+            double l1 = n1.lengthsq();
+
+            // normals not computed yet match each other
+            if (l0 == 0.0 || l1 == 0.0) {
+                return (l0 == l1);
+            }
+            double cos = n0.dot(n1) / Math.sqrt(l0 * l1);
+            if (cos < CHAI_WELD_NORMAL_TOLERANCE) {
+                return (false);
+            }
+        }
+
+        return (true);
+    }
+
+    private static void incrementTriangleCount(JVertex aVertex) {
+        aVertex.setAllocated(true);
+        aVertex.setTriangleCount(aVertex.getTriangleCount() + 1);
+    }
+
+    /**
+     * Pack the coordinates of a cell into a key (21 bits per axis). Cell
+     * coordinates range from -1 to CELLS + 1, so keys never alias.
+     */
+    private static long cellKey(long aX, long aY, long aZ) {
+        return (((aX + 1) << 42) | ((aY + 1) << 21) | (aZ + 1));
+    }
+
+    /**
+     * Hash the exact coordinates of a position into a key. Different
+     * positions may share a key; they are told apart by matches().
+     */
+    private static long exactKey(JVector3d aPos) {
+        // adding 0 turns -0 into +0, which is the same position
+        long h = Double.doubleToLongBits(aPos.x + 0.0);
+        h = h * 0x9E3779B97F4A7C15L + Double.doubleToLongBits(aPos.y + 0.0);
+        h = h * 0x9E3779B97F4A7C15L + Double.doubleToLongBits(aPos.z + 0.0);
+        return (h == EMPTY ? 0 : h);
+    }
+
+    /**
+     * Find the slot of a key, or the empty slot where it would be inserted.
+     */
+    private static int findSlot(long[] aKeys, long aKey) {
+        int mask = aKeys.length - 1;
+        long h = aKey * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h >>> 32) & mask;
+        while (aKeys[slot] != EMPTY && aKeys[slot] != aKey) {
+            slot = (slot + 1) & mask;
+        }
+        return (slot);
+    }
+}
@@ -15,6 +15,8 @@
  */
 package org.jchai3d.scenegraph;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import com.jogamp.opengl.GL;
@@ -24,6 +26,7 @@ import org.jchai3d.collisions.JCollisionRecorder;
 import org.jchai3d.collisions.JCollisionSettings;
 import org.jchai3d.graphics.JColorf;
 import org.jchai3d.graphics.JTexture2D;
+import org.jchai3d.graphics.JTextureCache;
 import org.jchai3d.math.JVector3d;
 
 /**
@@ -44,6 +47,11 @@ public class JWorld extends JGenericObject {
      * List of textures.
      */
     protected ArrayList<JTexture2D> textures;
+    /**
+     * Cache of textures loaded from image files, shared by all objects of
+     * this world.
+     */
+    protected JTextureCache textureCache;
     /**
      * List of light sources.
      */
@@ -63,6 +71,11 @@ public class JWorld extends JGenericObject {
      * "global" coordinates.
      */
     public double worldModelView[] = new double[16];
+    /**
+     * Camera rendering this world, or null outside of JCamera.renderView().
+     * Meshes read its position to select their level of detail.
+     */
+    protected JCamera renderingCamera;
     /**
      * The maximum number of lights that we expect OpenGL to support
      */
@@ -80,6 +93,8 @@ public class JWorld extends JGenericObject {
 
         textures = new ArrayList<JTexture2D>();
 
+        textureCache = new JTextureCache();
+
         lights = new ArrayList<JLight>();
     }
 
@@ -240,6 +255,56 @@ public class JWorld extends JGenericObject {
         return (newTexture);
     }
 
+    /**
+     * Get a texture for an image file through the world texture cache. If the
+     * same image (same path or same content) is already loaded, the existing
+     * texture is shared. Call {@link #releaseTexture(JTexture2D)} when the
+     * texture is no longer used.
+     *
+     * @param aFile image file
+     * @return the texture, or null if the file does not exist
+     */
+    public JTexture2D newTexture(File aFile) throws IOException {
+        return (textureCache.acquire(aFile));
+    }
+
+    /**
+     * Release a texture obtained with {@link #newTexture(File)}. Unreferenced
+     * textures are evicted by the cache once its memory budget is exceeded.
+     *
+     * @param aTexture
+     * @return false if the texture does not come from the texture cache
+     */
+    public boolean releaseTexture(JTexture2D aTexture) {
+        return (textureCache.release(aTexture));
+    }
+
+    /**
+     * Add a reference to a texture of the texture cache, to be balanced by a
+     * call to {@link #releaseTexture(JTexture2D)}.
+     *
+     * @param aTexture
+     * @return false if the texture does not come from the texture cache
+     */
+    public boolean retainTexture(JTexture2D aTexture) {
+        return (textureCache.retain(aTexture));
+    }
+
+    /**
+     * @return the texture cache of this world
+     */
+    public JTextureCache getTextureCache() {
+        return (textureCache);
+    }
+
+    /**
+     * Get the camera rendering this world, or null if the world is not being
+     * rendered.
+     */
+    public JCamera getRenderingCamera() {
+        return (renderingCamera);
+    }
+
     /**
      * Get a pointer to a texture by passing an index into my texture list.
      * public JTexture2D getTexture(int aIndex) { return textures.get(aIndex); }
@@ -310,6 +375,9 @@ public class JWorld extends JGenericObject {
 
         // clear textures list
         textures.clear();
+
+        // drop cached textures no object uses any more
+        textureCache.purge();
     }
 
     /**
@@ -338,11 +406,12 @@ public class JWorld extends JGenericObject {
 
         // check for collisions with all children of this world
         for (JGenericObject children : childrens) {
-            hit = hit || children.computeCollisionDetection(tSegmentPointA,
+            if (children.computeCollisionDetection(tSegmentPointA,
                     tSegmentPointB,
                     aRecorder,
-                    aSettings);
-            continue;
+                    aSettings)) {
+                hit = true;
+            }
         }
 
         // return whether there was a collision between the segment and this world
@@ -363,6 +432,9 @@ public class JWorld extends JGenericObject {
         gl.glEnable(GL2.GL_COLOR_MATERIAL);
         gl.glColorMaterial(GL2.GL_FRONT_AND_BACK, GL2.GL_AMBIENT_AND_DIFFUSE);
 
+        // free graphics memory of textures evicted from the cache
+        textureCache.deletePendingTextures();
+
         // Back up the "global" modelview matrix for future reference
         gl.glGetDoublev(GL2.GL_MODELVIEW_MATRIX, worldModelView, 0);
 
@@ -17,17 +17,22 @@
 package org.jchai3d.tools;
 
 import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.locks.LockSupport;
 import com.jogamp.opengl.GL;
 import com.jogamp.opengl.GL2;
 import com.jogamp.opengl.GLContext;
 import org.jchai3d.devices.JGenericHapticDevice;
 import org.jchai3d.forces.JInteractionEvent;
+import org.jchai3d.forces.JLocalContactModel;
 import org.jchai3d.forces.JPotentialFieldForceAlgo;
 import org.jchai3d.forces.JProxyPointForceAlgo;
 import org.jchai3d.graphics.JColorf;
 import org.jchai3d.graphics.JMaterial;
 import org.jchai3d.math.JMaths;
 import org.jchai3d.math.JMatrix3d;
+import org.jchai3d.math.JPose;
+import org.jchai3d.math.JPoseHistory;
 import org.jchai3d.math.JVector3d;
 import org.jchai3d.scenegraph.*;
 
@@ -132,6 +137,21 @@ public class JGeneric3dofPointer extends JGenericTool {
      * Orientation of wrist in global coordinates of device.
      */
     protected JMatrix3d deviceGlobalRotation;
+    /**
+     * Time stamped local poses of the device, added by updatePose().
+     */
+    protected JPoseHistory devicePoseHistory;
+    /**
+     * Time at which the device is rendered [ns], or 0 to render the last
+     * pose read from the device.
+     */
+    protected volatile long displayTime;
+    /**
+     * Pose of the device at the display time.
+     */
+    private JPose displayPose;
+    private JVector3d displayLocalPosition;
+    private JMatrix3d displayLocalRotation;
     /**
      * World in which tool is interacting.
      */
@@ -161,7 +181,46 @@ public class JGeneric3dofPointer extends JGenericTool {
      * requirement with this variable.
      */
     protected boolean waitForSmallForce;
-    
+    /**
+     * Thread running the force algorithms against the world in two-rate
+     * mode, or null.
+     */
+    protected Thread plannerThread;
+    /**
+     * Is the planner thread requested to run?
+     */
+    protected volatile boolean plannerRunning;
+    /**
+     * Latest local contact model published by the planner.
+     */
+    protected volatile JLocalContactModel localContactModel;
+    /**
+     * Number of local contact models published by the planner.
+     */
+    protected volatile long numPlannerUpdates;
+    /**
+     * Device position and velocity handed from the servo to the planner,
+     * guarded by plannerLock.
+     */
+    protected final JVector3d plannerDevicePosition = new JVector3d();
+    protected final JVector3d plannerDeviceVelocity = new JVector3d();
+    protected final Object plannerLock = new Object();
+    /**
+     * Proxy position computed by the servo from the local contact model.
+     */
+    protected JVector3d servoProxyPosition = new JVector3d();
+    /**
+     * Distance from the proxy within which the planner adds the planes of
+     * the surrounding triangles to the local contact model.
+     */
+    protected double plannerContactRadius;
+    /**
+     * Force algorithms run by the planner thread. They are copies of the
+     * force models of the tool, only used by the planner while it runs.
+     */
+    protected JProxyPointForceAlgo plannerProxyModel;
+    protected JPotentialFieldForceAlgo plannerFieldModel;
+
     /**
      * Constructor of cGeneric3dofPointer.
      */
@@ -197,6 +256,9 @@ public class JGeneric3dofPointer extends JGenericTool {
         // initialize potential field model
         potentialFieldsForceModel.initialize(world, new JVector3d(0, 0, 0));
 
+        // surroundings of the proxy published by the planner in two-rate mode
+        plannerContactRadius = 0.01;
+
         // force settings
         forcesEnabled = true;
         forceStarted = false;
@@ -271,6 +333,13 @@ public class JGeneric3dofPointer extends JGenericTool {
 
         deviceGlobalRotation = new JMatrix3d();
         deviceLocalRotation = new JMatrix3d();
+
+        // device poses, for rendering at display time
+        devicePoseHistory = new JPoseHistory(32);
+        displayTime = 0;
+        displayPose = new JPose();
+        displayLocalPosition = new JVector3d();
+        displayLocalRotation = new JMatrix3d();
     }
 
     /**
@@ -407,13 +476,34 @@ public class JGeneric3dofPointer extends JGenericTool {
         globalRotation.mulr(deviceLocalVelocity, deviceGlobalVelocity);
         p.copyFrom(deviceGlobalPosition);
         v.copyFrom(deviceGlobalVelocity);
+
+        // publish the pose for the graphics thread
+        devicePoseHistory.add(System.nanoTime(), deviceLocalPosition, deviceLocalRotation);
     }
 
     /**
-     * Compute interaction forces with environment.
+     * Compute interaction forces with environment. When the planner thread
+     * is running, only the latest local contact model is evaluated here.
      */
     @Override
     public void computeInteractionForces() {
+        if (plannerRunning) {
+            // hand the fresh device state to the planner
+            synchronized (plannerLock) {
+                plannerDevicePosition.copyFrom(deviceGlobalPosition);
+                plannerDeviceVelocity.copyFrom(deviceGlobalVelocity);
+            }
+
+            // evaluate the local model, no force until the first one arrives
+            JLocalContactModel model = localContactModel;
+            if (model != null) {
+                model.computeForce(deviceGlobalPosition, servoProxyPosition, lastComputedGlobalForce);
+            } else {
+                lastComputedGlobalForce.zero();
+            }
+            return;
+        }
+
         // temporary variable to store forces
         JVector3d force = new JVector3d();
 
@@ -426,6 +516,147 @@ public class JGeneric3dofPointer extends JGenericTool {
     }
 
     
+    /**
+     * Switch to two-rate mode: a planner thread runs the proxy and potential
+     * field algorithms against the world at the given rate and publishes a
+     * local contact model, while computeInteractionForces() only evaluates
+     * that model and can run at servo rate (4-10 kHz) whatever the size of
+     * the scene. Potential field forces are held between two planner
+     * updates, and friction is only rendered by the planner.
+     *
+     * The planner runs its own copies of the force models, started from
+     * the current proxy position, so the force models of the tool are not
+     * shared between threads; the proxy position reached by the planner is
+     * handed back to them by stopPlanner(). Settings changed on the force
+     * models while the planner runs are only used after a restart.
+     *
+     * @param aRate update rate of the planner [Hz].
+     */
+    public synchronized void startPlanner(final double aRate) {
+        if (plannerThread != null) {
+            return;
+        }
+
+        synchronized (plannerLock) {
+            plannerDevicePosition.copyFrom(deviceGlobalPosition);
+            plannerDeviceVelocity.copyFrom(deviceGlobalVelocity);
+        }
+
+        final JProxyPointForceAlgo proxyModel = new JProxyPointForceAlgo();
+        proxyModel.copySettings(proxyPointForceModel);
+        proxyModel.initialize(world, proxyPointForceModel.getProxyGlobalPosition());
+        final JPotentialFieldForceAlgo fieldModel = new JPotentialFieldForceAlgo();
+        fieldModel.initialize(world, deviceGlobalPosition);
+        plannerProxyModel = proxyModel;
+        plannerFieldModel = fieldModel;
+        final double contactRadius = plannerContactRadius;
+
+        final long period = (long) (1e9 / Math.max(1.0, aRate));
+        localContactModel = null;
+        plannerRunning = true;
+
+        plannerThread = new Thread(new Runnable() {
+
+            public void run() {
+                JVector3d pos = new JVector3d();
+                JVector3d vel = new JVector3d();
+                JVector3d fieldForce = new JVector3d();
+                ArrayList<JGenericObject> fieldObjects = new ArrayList<JGenericObject>();
+
+                while (plannerRunning) {
+                    long start = System.nanoTime();
+
+                    synchronized (plannerLock) {
+                        pos.copyFrom(plannerDevicePosition);
+                        vel.copyFrom(plannerDeviceVelocity);
+                    }
+
+                    // run the full algorithms and publish the result
+                    fieldForce.copyFrom(fieldModel.computeForces(pos, vel));
+                    proxyModel.computeForces(pos, vel);
+                    fieldObjects.clear();
+                    for (JInteractionEvent event : fieldModel.interactionRecorder) {
+                        if (!fieldObjects.contains(event.getObject())) {
+                            fieldObjects.add(event.getObject());
+                        }
+                    }
+                    localContactModel = proxyModel.createLocalContactModel(fieldForce,
+                            fieldObjects, contactRadius);
+                    numPlannerUpdates++;
+
+                    long remaining = period - (System.nanoTime() - start);
+                    if (remaining > 0) {
+                        LockSupport.parkNanos(remaining);
+                    }
+                }
+            }
+        }, "JGeneric3dofPointer planner");
+        plannerThread.setDaemon(true);
+        plannerThread.start();
+    }
+
+    /**
+     * Leave two-rate mode and wait for the planner thread to terminate.
+     */
+    public synchronized void stopPlanner() {
+        if (plannerThread == null) {
+            return;
+        }
+
+        plannerRunning = false;
+        try {
+            plannerThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        plannerThread = null;
+        localContactModel = null;
+
+        // continue from the proxy position reached by the planner
+        proxyPointForceModel.initialize(world, plannerProxyModel.getProxyGlobalPosition());
+        plannerProxyModel = null;
+        plannerFieldModel = null;
+    }
+
+    /**
+     * Set the distance from the proxy within which the planner adds the
+     * planes of the surrounding triangles to the local contact model. It
+     * should cover the distance the device can travel between two planner
+     * updates. Used from the next call to startPlanner().
+     */
+    public void setPlannerContactRadius(final double aRadius) {
+        plannerContactRadius = Math.max(0.0, aRadius);
+    }
+
+    /**
+     * Read the distance from the proxy within which the planner adds the
+     * planes of the surrounding triangles to the local contact model.
+     */
+    public double getPlannerContactRadius() {
+        return (plannerContactRadius);
+    }
+
+    /**
+     * Is the tool running in two-rate mode?
+     */
+    public boolean isPlannerRunning() {
+        return (plannerRunning);
+    }
+
+    /**
+     * Read the latest local contact model published by the planner, or null.
+     */
+    public JLocalContactModel getLocalContactModel() {
+        return (localContactModel);
+    }
+
+    /**
+     * Read the number of local contact models published by the planner.
+     */
+    public long getNumPlannerUpdates() {
+        return (numPlannerUpdates);
+    }
+
     /**
      * Apply latest computed forces to device.
      */
@@ -458,6 +689,19 @@ public class JGeneric3dofPointer extends JGenericTool {
      */
     @Override
     public boolean isInContact(JGenericObject aObject) {
+        // in two-rate mode, the force models belong to the planner
+        if (plannerRunning) {
+            JLocalContactModel model = localContactModel;
+            if (model != null) {
+                for (int i = 0; i < model.getNumContactObjects(); i++) {
+                    if (model.getContactObject(i) == aObject) {
+                        return (true);
+                    }
+                }
+            }
+            return (false);
+        }
+
         //-------------------------------------------------------------------
         // CHECK PROXY ALGORITHM
         //-------------------------------------------------------------------
@@ -578,19 +822,36 @@ public class JGeneric3dofPointer extends JGenericTool {
         // compute local position of proxy
         JVector3d proxyLocalPos = new JVector3d();
         JMatrix3d tRot = new JMatrix3d();
-        proxyLocalPos = proxyPointForceModel.getProxyGlobalPosition();
+        JLocalContactModel model = localContactModel;
+        if (plannerRunning && (model != null)) {
+            proxyLocalPos = model.getProxyPosition();
+        } else {
+            proxyLocalPos.copyFrom(proxyPointForceModel.getProxyGlobalPosition());
+        }
         proxyLocalPos.sub(globalPosition);
         globalRotation.transr(tRot);
         tRot.mul(proxyLocalPos);
 
 
+        // pose of the device at display time, interpolated between the
+        // poses read by the haptic thread
+        JVector3d devicePos = deviceLocalPosition;
+        JMatrix3d deviceRot = deviceLocalRotation;
+        long time = displayTime;
+        if ((time != 0) && devicePoseHistory.getPose(time, displayPose)) {
+            displayPose.getPosition(displayLocalPosition);
+            displayPose.getRotation(displayLocalRotation);
+            devicePos = displayLocalPosition;
+            deviceRot = displayLocalRotation;
+        }
+
         // update position information of graphic entity for the device
-        deviceSphere.setPosition(deviceLocalPosition);
-        deviceSphere.setRotation(deviceLocalRotation);
+        deviceSphere.setPosition(devicePos);
+        deviceSphere.setRotation(deviceRot);
 
         // update position information of graphic entity for the proxy
         proxySphere.setPosition(proxyLocalPos);
-        proxySphere.setRotation(deviceLocalRotation);
+        proxySphere.setRotation(deviceRot);
 
         // Button 0 determines the color of the proxy
         if (userSwitch0) {
@@ -617,7 +878,7 @@ public class JGeneric3dofPointer extends JGenericTool {
             gl.glColor4fv(lineColor.color,0);
 
             gl.glBegin(GL2.GL_LINES);
-            gl.glVertex3d(deviceLocalPosition.getX(), deviceLocalPosition.getY(), deviceLocalPosition.getZ());
+            gl.glVertex3d(devicePos.getX(), devicePos.getY(), devicePos.getZ());
             gl.glVertex3d(proxyLocalPos.getX(), proxyLocalPos.getY(), proxyLocalPos.getZ());
             gl.glEnd();
 
@@ -812,6 +1073,31 @@ public class JGeneric3dofPointer extends JGenericTool {
         return deviceGlobalRotation;
     }
 
+    /**
+     * Read the time stamped local poses of the device. The time stamps are
+     * taken from System.nanoTime().
+     */
+    public JPoseHistory getDevicePoseHistory() {
+        return (devicePoseHistory);
+    }
+
+    /**
+     * Set the time at which the next frame will be displayed [ns], on the
+     * clock of System.nanoTime(); the device is then rendered at its pose
+     * at that time, interpolated or extrapolated from the poses read by the
+     * haptic thread. 0 renders the last pose read from the device.
+     */
+    public void setDisplayTime(long aTime) {
+        displayTime = aTime;
+    }
+
+    /**
+     * Read the time at which the device is rendered [ns], or 0.
+     */
+    public long getDisplayTime() {
+        return (displayTime);
+    }
+
     /**
      * @return the world
      */
@@ -0,0 +1,82 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.collisions;
+
+import java.util.Random;
+import org.jchai3d.collisions.aabb.JCollisionAABB;
+import org.jchai3d.collisions.spheres.JCollisionSpheres;
+import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JMesh;
+
+/**
+ * Compares the closest point queries of the collision trees with brute
+ * force, for a tool moving a little from one query to the next, as in a
+ * haptic loop. Run with: java org.jchai3d.collisions.JClosestPointBenchmark
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JClosestPointBenchmark {
+
+    private static final int NUM_QUERIES = 20000;
+    private static final int NUM_RUNS = 5;
+
+    public static void main(String[] aArgs) {
+        JMesh mesh = JClosestPointTest.createSphere(null, 100, 200);
+
+        JGenericCollision brute = new JCollisionBrute(mesh.getTriangles());
+        JCollisionAABB aabb = new JCollisionAABB(mesh.getTriangles(), false);
+        aabb.initialize(0.0);
+        JCollisionSpheres spheres = new JCollisionSpheres(mesh.getTriangles(), false);
+        spheres.initialize(0.0);
+
+        // a path near the surface
+        Random random = new Random(1);
+        JVector3d[] path = new JVector3d[NUM_QUERIES];
+        JVector3d point = new JVector3d(0.55, 0, 0);
+        for (int i = 0; i < NUM_QUERIES; i++) {
+            point = new JVector3d(point.x + 0.004 * (random.nextDouble() - 0.5),
+                    point.y + 0.004 * (random.nextDouble() - 0.5),
+                    point.z + 0.004 * (random.nextDouble() - 0.5));
+            if (point.length() > 0.7) {
+                point.mul(0.9);
+            }
+            path[i] = point;
+        }
+
+        System.out.println(mesh.getNumTriangles(false) + " triangles, " + NUM_QUERIES + " queries");
+        run("brute force", brute, path, NUM_QUERIES / 50);
+        run("AABB tree", aabb, path, NUM_QUERIES);
+        run("sphere tree", spheres, path, NUM_QUERIES);
+    }
+
+    private static void run(String aName, JGenericCollision aDetector, JVector3d[] aPath, int aNumQueries) {
+        JCollisionRecorder recorder = new JCollisionRecorder();
+        double best = Double.MAX_VALUE;
+        long tests = 0;
+        for (int run = 0; run < NUM_RUNS; run++) {
+            tests = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < aNumQueries; i++) {
+                aDetector.computeClosestPoint(aPath[i], Double.MAX_VALUE, recorder);
+                tests += aDetector.getNumClosestPointTests();
+            }
+            best = Math.min(best, (System.nanoTime() - start) / 1000.0 / aNumQueries);
+        }
+        System.out.printf("%-12s %10.2f us/query %10.1f triangles/query%n",
+                aName, best, (double) tests / aNumQueries);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.collisions;
+
+import java.util.Random;
+import junit.framework.TestCase;
+import org.jchai3d.collisions.aabb.JCollisionAABB;
+import org.jchai3d.collisions.spheres.JCollisionSpheres;
+import org.jchai3d.effects.JEffectSurface;
+import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JMesh;
+import org.jchai3d.scenegraph.JWorld;
+
+/**
+ * Unit tests of the closest point queries of the collision detectors.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JClosestPointTest extends TestCase {
+
+    private static final double EPSILON = 1e-12;
+
+    /**
+     * Build a sphere of radius 0.5 centered on the origin.
+     */
+    static JMesh createSphere(JWorld aWorld, int aRings, int aSectors) {
+        JMesh mesh = new JMesh(aWorld);
+        for (int i = 0; i < aRings; i++) {
+            for (int j = 0; j < aSectors; j++) {
+                double t0 = Math.PI * i / aRings, t1 = Math.PI * (i + 1) / aRings;
+                double p0 = 2 * Math.PI * j / aSectors, p1 = 2 * Math.PI * (j + 1) / aSectors;
+                mesh.newTriangle(spherePoint(t0, p0), spherePoint(t1, p0), spherePoint(t1, p1));
+                mesh.newTriangle(spherePoint(t0, p0), spherePoint(t1, p1), spherePoint(t0, p1));
+            }
+        }
+        mesh.computeAllNormals(false);
+        return (mesh);
+    }
+
+    private static JVector3d spherePoint(double aTheta, double aPhi) {
+        return (new JVector3d(0.5 * Math.sin(aTheta) * Math.cos(aPhi),
+                0.5 * Math.sin(aTheta) * Math.sin(aPhi),
+                0.5 * Math.cos(aTheta)));
+    }
+
+    public void testTreesMatchBruteForce() {
+        JMesh mesh = createSphere(null, 20, 40);
+        JCollisionBrute brute = new JCollisionBrute(mesh.getTriangles());
+        JCollisionAABB aabb = new JCollisionAABB(mesh.getTriangles(), false);
+        aabb.initialize(0.0);
+        JCollisionSpheres spheres = new JCollisionSpheres(mesh.getTriangles(), false);
+        spheres.initialize(0.0);
+        JGenericCollision[] detectors = {aabb, spheres};
+
+        JCollisionRecorder expected = new JCollisionRecorder();
+        JCollisionRecorder[] recorders = {new JCollisionRecorder(), new JCollisionRecorder()};
+        Random random = new Random(1);
+        for (int i = 0; i < 500; i++) {
+            JVector3d point = new JVector3d(2 * random.nextDouble() - 1,
+                    2 * random.nextDouble() - 1, 2 * random.nextDouble() - 1);
+            double maxDistance = (i % 2 == 0) ? 0.1 : Double.MAX_VALUE;
+
+            boolean hit = brute.computeClosestPoint(point, maxDistance, expected);
+            for (int d = 0; d < detectors.length; d++) {
+                assertEquals(hit, detectors[d].computeClosestPoint(point, maxDistance, recorders[d]));
+                if (hit) {
+                    assertEquals(expected.getNearestCollision().getSquareDistance(),
+                            recorders[d].getNearestCollision().getSquareDistance(), EPSILON);
+                }
+            }
+        }
+    }
+
+    public void testInteractionIsBoundedByTheEffects() {
+        JWorld world = new JWorld();
+        JMesh mesh = createSphere(world, 20, 40);
+        world.addChild(mesh);
+        mesh.createAABBCollisionDetector(0.0, false, false);
+        mesh.addEffect(new JEffectSurface(mesh));
+        mesh.computeBoundaryBox(true);
+
+        // deep inside, the surface is further than the radius of the effects
+        mesh.computeLocalInteraction(new JVector3d(0.05, 0, 0), new JVector3d(), 0);
+        assertTrue(mesh.isInteractionInside());
+        assertEquals(0.5, mesh.getInteractionProjectedPoint().length(), 0.01);
+
+        // out of reach, only the triangle of the previous query is tested
+        mesh.computeLocalInteraction(new JVector3d(2, 0, 0), new JVector3d(), 0);
+        assertFalse(mesh.isInteractionInside());
+        assertEquals(1, mesh.getCollisionDetector().getNumClosestPointTests());
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.collisions;
+
+import java.util.Random;
+import junit.framework.TestCase;
+import org.jchai3d.graphics.JTriangle;
+import org.jchai3d.math.JMatrix3d;
+import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JMesh;
+
+/**
+ * Unit tests of JCollisionHitList.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JCollisionHitListTest extends TestCase {
+
+    private static JMesh createMesh(int aNumTriangles) {
+        JMesh mesh = new JMesh();
+        for (int i = 0; i < aNumTriangles; i++) {
+            mesh.newTriangle(new JVector3d(i, 0, 0), new JVector3d(i + 1, 0, 0), new JVector3d(i, 1, 0));
+        }
+        return (mesh);
+    }
+
+    /**
+     * Add a hit whose values are all derived from the index of its triangle.
+     */
+    private static void addHit(JCollisionHitList aList, JMesh aMesh, int aTriangle, double aSquareDistance) {
+        aList.add(aMesh, aMesh.getTriangles().get(aTriangle),
+                new JVector3d(aTriangle, 0, 0), new JVector3d(0, 0, aTriangle),
+                aSquareDistance, null, null);
+    }
+
+    private static void assertHit(JCollisionHitList aList, int aIndex, JMesh aMesh) {
+        JTriangle triangle = aList.getTriangle(aIndex);
+        int t = triangle.getIndex();
+        assertSame(aMesh.getTriangles().get(t), triangle);
+        assertSame(aMesh, aList.getObject(aIndex));
+        JVector3d v = new JVector3d();
+        aList.getLocalPosition(aIndex, v);
+        assertEquals(t, v.x, 0.0);
+        aList.getLocalNormal(aIndex, v);
+        assertEquals(t, v.z, 0.0);
+    }
+
+    public void testSortByDistance() {
+        JMesh mesh = createMesh(100);
+        JCollisionHitList list = new JCollisionHitList(4);
+        Random random = new Random(1);
+        for (int i = 0; i < 100; i++) {
+            addHit(list, mesh, i, random.nextDouble());
+        }
+        addHit(list, mesh, 7, 0.5);
+        addHit(list, mesh, 8, 0.5);
+
+        list.sortByDistance();
+        assertEquals(102, list.size());
+        for (int i = 0; i < list.size(); i++) {
+            if (i > 0) {
+                assertTrue(list.getSquareDistance(i - 1) <= list.getSquareDistance(i));
+            }
+            // all the values of a hit move together
+            assertHit(list, i, mesh);
+        }
+
+        // empty and single hit lists
+        JCollisionHitList empty = new JCollisionHitList();
+        empty.sortByDistance();
+        assertEquals(0, empty.size());
+        addHit(empty, mesh, 3, 1.0);
+        empty.sortByDistance();
+        assertEquals(3, empty.getTriangle(0).getIndex());
+    }
+
+    public void testGrowthAndClear() {
+        JMesh mesh = createMesh(10);
+        JCollisionHitList list = new JCollisionHitList(2);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, list.size());
+            addHit(list, mesh, i, i);
+        }
+        assertTrue(list.getCapacity() >= 10);
+        for (int i = 0; i < 10; i++) {
+            assertHit(list, i, mesh);
+        }
+
+        // memory is kept, references are released
+        int capacity = list.getCapacity();
+        list.clear();
+        assertEquals(0, list.size());
+        assertEquals(capacity, list.getCapacity());
+        addHit(list, mesh, 4, 1.0);
+        assertEquals(1, list.size());
+        assertHit(list, 0, mesh);
+    }
+
+    public void testAddAllAndEvents() {
+        JMesh mesh = createMesh(10);
+        JCollisionHitList list1 = new JCollisionHitList(2);
+        JCollisionHitList list2 = new JCollisionHitList(2);
+        addHit(list1, mesh, 0, 3.0);
+        for (int i = 1; i < 6; i++) {
+            addHit(list2, mesh, i, 3.0 - 0.5 * i);
+        }
+        list1.addAll(list2);
+        assertEquals(6, list1.size());
+        for (int i = 0; i < 6; i++) {
+            assertHit(list1, i, mesh);
+        }
+
+        list1.sortByDistance();
+        JCollisionEvent event = new JCollisionEvent();
+        list1.getEvent(0, event);
+        assertSame(mesh.getTriangles().get(5), event.getTriangle());
+        assertEquals(0.5, event.getSquareDistance(), 0.0);
+        assertEquals(5.0, event.getLocalPosition().x, 0.0);
+    }
+
+    public void testGlobalPositions() {
+        JMesh mesh = createMesh(1);
+        JCollisionHitList list = new JCollisionHitList();
+        JMatrix3d rotation = new JMatrix3d();
+        rotation.set(new JVector3d(0, 0, 1), 0.5 * Math.PI);
+        list.add(mesh, mesh.getTriangles().get(0), new JVector3d(1, 0, 0), new JVector3d(0, 1, 0),
+                1.0, new JVector3d(0, 0, 2), rotation);
+
+        JVector3d v = new JVector3d();
+        list.getGlobalPosition(0, v);
+        assertTrue(v.equals(new JVector3d(0, 1, 2), 1e-12));
+        list.getGlobalNormal(0, v);
+        assertTrue(v.equals(new JVector3d(-1, 0, 0), 1e-12));
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.collisions;
+
+import junit.framework.TestCase;
+import org.jchai3d.scenegraph.JMesh;
+import org.jchai3d.scenegraph.JWorld;
+
+/**
+ * Unit tests of JDistanceField and of its creation by JMesh.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JDistanceFieldTest extends TestCase {
+
+    public void testInvalidParametersAreRejected() {
+        JMesh mesh = JClosestPointTest.createSphere(null, 8, 16);
+        double[][] parameters = {{0.0, 0.1}, {-0.1, 0.1}, {Double.NaN, 0.1},
+            {Double.POSITIVE_INFINITY, 0.1}, {0.1, -1.0}, {0.1, Double.NaN}};
+        for (double[] p : parameters) {
+            try {
+                JDistanceField.build(mesh.getTriangles(), p[0], p[1]);
+                fail("cell size " + p[0] + ", band width " + p[1]);
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+    }
+
+    public void testFieldOfSphere() {
+        JMesh mesh = JClosestPointTest.createSphere(null, 20, 40);
+        JDistanceField field = JDistanceField.build(mesh.getTriangles(), 0.05, 0.2);
+
+        assertTrue(field.getDistance(0.0, 0.0, 0.0) < 0.0);
+        assertEquals(0.1, field.getDistance(0.6, 0.0, 0.0), field.getMaxError() + 0.01);
+    }
+
+    public void testGroupRootGetsFieldsOnItsChildren() {
+        JWorld world = new JWorld();
+        JMesh root = new JMesh(world);
+        world.addChild(root);
+        JMesh child = JClosestPointTest.createSphere(world, 10, 20);
+        root.addChild(child);
+
+        root.createDistanceField(0.05, 0.2, null, false, true);
+        assertNull(root.getDistanceField());
+        assertFalse(root.getCollisionDetector() instanceof JCollisionDistanceField);
+        assertNotNull(child.getDistanceField());
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.collisions;
+
+import junit.framework.TestCase;
+import org.jchai3d.extras.JGlobals;
+import org.jchai3d.math.JVector3d;
+
+/**
+ * Unit tests of JPooledCollisionRecorder.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JPooledCollisionRecorderTest extends TestCase {
+
+    public void testEventsAreReusedAcrossClear() {
+        JPooledCollisionRecorder recorder = new JPooledCollisionRecorder(4, JEventOverflowPolicy.GROW);
+        JCollisionEvent[] events = new JCollisionEvent[3];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = recorder.addCollision();
+            events[i].setSquareDistance(i);
+            events[i].setLocalPosition(new JVector3d(i, i, i));
+        }
+        assertEquals(3, recorder.getNumCollisions());
+
+        recorder.clear();
+        assertEquals(0, recorder.getNumCollisions());
+        for (int i = 0; i < events.length; i++) {
+            JCollisionEvent event = recorder.addCollision();
+            assertSame(events[i], event);
+            assertSame(event, recorder.getCollisions().get(i));
+
+            // a recycled event does not keep the values of the last update
+            assertEquals((double) JGlobals.CHAI_DBL_MAX, event.getSquareDistance(), 0.0);
+            assertEquals(0.0, event.getLocalPosition().length(), 0.0);
+        }
+    }
+
+    public void testPoolGrows() {
+        JPooledCollisionRecorder recorder = new JPooledCollisionRecorder(2, JEventOverflowPolicy.GROW);
+        JCollisionEvent[] events = new JCollisionEvent[5];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = recorder.addCollision();
+            for (int j = 0; j < i; j++) {
+                assertNotSame(events[j], events[i]);
+            }
+        }
+        assertEquals(8, recorder.getCapacity());
+        assertEquals(5, recorder.getNumCollisions());
+        assertEquals(0, recorder.getNumDroppedEvents());
+
+        // the grown pool is kept, with the events allocated while growing
+        recorder.clear();
+        assertEquals(8, recorder.getCapacity());
+        for (int i = 0; i < events.length; i++) {
+            assertSame(events[i], recorder.addCollision());
+        }
+    }
+
+    public void testPoolDropsEvents() {
+        JPooledCollisionRecorder recorder = new JPooledCollisionRecorder(2, JEventOverflowPolicy.DROP);
+        JCollisionEvent first = recorder.addCollision();
+        recorder.addCollision();
+        JCollisionEvent dropped = recorder.addCollision();
+        assertNotSame(first, dropped);
+        assertFalse(recorder.getCollisions().contains(dropped));
+        assertEquals(2, recorder.getNumCollisions());
+        assertEquals(1, recorder.getNumDroppedEvents());
+        assertEquals(2, recorder.getCapacity());
+
+        recorder.clear();
+        assertEquals(0, recorder.getNumDroppedEvents());
+        assertSame(first, recorder.addCollision());
+    }
+
+    public void testSetCapacity() {
+        JPooledCollisionRecorder recorder = new JPooledCollisionRecorder(64, JEventOverflowPolicy.GROW);
+        recorder.setCapacity(8);
+        assertEquals(8, recorder.getCapacity());
+
+        // events in use are kept
+        JCollisionEvent first = recorder.addCollision();
+        JCollisionEvent second = recorder.addCollision();
+        JCollisionEvent third = recorder.addCollision();
+        recorder.setCapacity(1);
+        assertEquals(3, recorder.getCapacity());
+        recorder.setCapacity(16);
+        assertEquals(16, recorder.getCapacity());
+        assertSame(first, recorder.getCollisions().get(0));
+
+        recorder.clear();
+        assertSame(first, recorder.addCollision());
+        assertSame(second, recorder.addCollision());
+        assertSame(third, recorder.addCollision());
+
+        recorder.clear();
+        recorder.setCapacity(0);
+        assertEquals(1, recorder.getCapacity());
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.collisions;
+
+import java.util.Random;
+import org.jchai3d.collisions.aabb.JCollisionAABB;
+import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JMesh;
+import org.jchai3d.scenegraph.JWorld;
+
+/**
+ * Compares casting rays in packets, on one thread and on several, with one
+ * segment query per ray through the same AABB tree, for rays of a depth
+ * sensor looking at a sphere. Run with:
+ * java org.jchai3d.collisions.JRayCastBenchmark
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JRayCastBenchmark {
+
+    private static final int NUM_RAYS = 256 * 256;
+    private static final int NUM_RUNS = 5;
+    private static final double MAX_DISTANCE = 10.0;
+
+    public static void main(String[] aArgs) {
+        JWorld world = new JWorld();
+        JMesh mesh = JClosestPointTest.createSphere(world, 100, 200);
+        world.addChild(mesh);
+        mesh.createAABBCollisionDetector(0.0, false, false);
+        world.computeGlobalPositions(false);
+
+        // a sensor at 2 units from the sphere, with a field of view of 40 degrees
+        Random random = new Random(1);
+        double[] origins = new double[3 * NUM_RAYS];
+        double[] directions = new double[3 * NUM_RAYS];
+        for (int i = 0; i < NUM_RAYS; i++) {
+            origins[3 * i] = 2.0;
+            directions[3 * i] = -1.0;
+            directions[3 * i + 1] = 0.7 * ((i % 256) / 255.0 - 0.5) + 1e-4 * random.nextDouble();
+            directions[3 * i + 2] = 0.7 * ((i / 256) / 255.0 - 0.5);
+        }
+
+        System.out.println(mesh.getNumTriangles(false) + " triangles, " + NUM_RAYS + " rays, "
+                + Runtime.getRuntime().availableProcessors() + " processors");
+        runSingleRays((JCollisionAABB) mesh.getCollisionDetector(), origins, directions);
+        runPackets(world, origins, directions, false);
+        runPackets(world, origins, directions, true);
+    }
+
+    private static void runSingleRays(JCollisionAABB aTree, double[] aOrigins, double[] aDirections) {
+        JCollisionSettings settings = new JCollisionSettings();
+        settings.setCheckForNearestCollisionOnly(true);
+        settings.setReturnMinimalCollisionData(true);
+        settings.setCheckBothSidesOfTriangles(true);
+        JCollisionRecorder recorder = new JCollisionRecorder();
+        JVector3d pointA = new JVector3d();
+        JVector3d pointB = new JVector3d();
+
+        double best = Double.MAX_VALUE;
+        int numHits = 0;
+        for (int run = 0; run < NUM_RUNS; run++) {
+            numHits = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < NUM_RAYS; i++) {
+                pointA.set(aOrigins[3 * i], aOrigins[3 * i + 1], aOrigins[3 * i + 2]);
+                pointB.set(aDirections[3 * i], aDirections[3 * i + 1], aDirections[3 * i + 2]);
+                pointB.normalize();
+                pointB.mul(MAX_DISTANCE);
+                pointB.add(pointA);
+                recorder.clear();
+                if (aTree.computeCollision(pointA, pointB, recorder, settings)) {
+                    numHits++;
+                }
+            }
+            best = Math.min(best, (System.nanoTime() - start) / 1e9);
+        }
+        print("single rays", best, numHits);
+    }
+
+    private static void runPackets(JWorld aWorld, double[] aOrigins, double[] aDirections,
+            boolean aParallel) {
+        JRayCaster caster = new JRayCaster(aWorld);
+        caster.setParallelEnabled(aParallel);
+        double[] distances = new double[NUM_RAYS];
+
+        double best = Double.MAX_VALUE;
+        int numHits = 0;
+        for (int run = 0; run < NUM_RUNS; run++) {
+            long start = System.nanoTime();
+            numHits = caster.castRays(aOrigins, aDirections, NUM_RAYS, MAX_DISTANCE,
+                    distances, null, null);
+            best = Math.min(best, (System.nanoTime() - start) / 1e9);
+        }
+        print(aParallel ? "packets, parallel" : "packets", best, numHits);
+    }
+
+    private static void print(String aName, double aSeconds, int aNumHits) {
+        System.out.printf("%-18s %10.1f ms %12.0f rays/s %8d hits%n",
+                aName, 1000.0 * aSeconds, NUM_RAYS / aSeconds, aNumHits);
+    }
+}
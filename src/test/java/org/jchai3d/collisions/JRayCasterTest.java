@@ -0,0 +1,169 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.collisions;
+
+import java.util.Arrays;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.jchai3d.graphics.JTriangle;
+import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JGenericObject;
+import org.jchai3d.scenegraph.JMesh;
+import org.jchai3d.scenegraph.JWorld;
+
+/**
+ * Unit tests of JRayCaster.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JRayCasterTest extends TestCase {
+
+    private static final int NUM_RAYS = 1000;
+    private static final double MAX_DISTANCE = 4.0;
+    private static final double EPSILON = 1e-9;
+
+    private JWorld world;
+    private JMesh packetSphere;
+    private JMesh singleSphere;
+    private double[] origins;
+    private double[] directions;
+
+    /**
+     * Build a world holding two spheres: one with an AABB tree, cast in
+     * packets, and one with a sphere tree, cast one ray at a time. Both are
+     * moved and rotated away from the world frame.
+     */
+    @Override
+    protected void setUp() {
+        world = new JWorld();
+        packetSphere = JClosestPointTest.createSphere(world, 20, 40);
+        world.addChild(packetSphere);
+        packetSphere.createAABBCollisionDetector(0.0, false, false);
+        packetSphere.setPosition(0.3, -0.2, 0.1);
+        packetSphere.rotate(new JVector3d(0, 0, 1), 0.7);
+
+        singleSphere = JClosestPointTest.createSphere(world, 20, 40);
+        world.addChild(singleSphere);
+        singleSphere.createSphereTreeCollisionDetector(0.0, false, false);
+        singleSphere.setPosition(-0.6, 0.5, -0.3);
+        singleSphere.rotate(new JVector3d(1, 0, 0), 1.1);
+
+        world.computeGlobalPositions(false);
+
+        // rays from a box around the spheres, in random directions
+        Random random = new Random(3);
+        origins = new double[3 * NUM_RAYS];
+        directions = new double[3 * NUM_RAYS];
+        for (int i = 0; i < 3 * NUM_RAYS; i++) {
+            origins[i] = 3.0 * (random.nextDouble() - 0.5);
+            directions[i] = random.nextDouble() - 0.5;
+        }
+    }
+
+    public void testPacketsMatchSingleQueries() {
+        JRayCaster caster = new JRayCaster(world);
+        caster.setParallelEnabled(false);
+        double[] distances = new double[NUM_RAYS];
+        JTriangle[] triangles = new JTriangle[NUM_RAYS];
+        JGenericObject[] objects = new JGenericObject[NUM_RAYS];
+        int numHits = caster.castRays(origins, directions, NUM_RAYS, MAX_DISTANCE,
+                distances, triangles, objects);
+
+        // reference: one segment query per ray through the scene graph
+        JCollisionSettings settings = new JCollisionSettings();
+        settings.setCheckForNearestCollisionOnly(true);
+        settings.setCheckVisibleObjectsOnly(true);
+        settings.setCheckBothSidesOfTriangles(true);
+        JCollisionRecorder recorder = new JCollisionRecorder();
+        int expectedHits = 0;
+        boolean[] hitObject = new boolean[2];
+
+        for (int i = 0; i < NUM_RAYS; i++) {
+            JVector3d origin = new JVector3d(origins[3 * i], origins[3 * i + 1], origins[3 * i + 2]);
+            JVector3d end = new JVector3d(directions[3 * i], directions[3 * i + 1], directions[3 * i + 2]);
+            end.normalize();
+            end.mul(MAX_DISTANCE);
+            end.add(origin);
+
+            recorder.clear();
+            if (world.computeCollisionDetection(origin, end, recorder, settings)) {
+                JCollisionEvent event = recorder.getNearestCollision();
+                expectedHits++;
+                assertEquals(Math.sqrt(event.getSquareDistance()), distances[i], EPSILON);
+                assertSame(event.getTriangle(), triangles[i]);
+                assertSame(event.getObject(), objects[i]);
+                hitObject[objects[i] == packetSphere ? 0 : 1] = true;
+            } else {
+                assertEquals(Double.POSITIVE_INFINITY, distances[i], 0.0);
+                assertNull(triangles[i]);
+                assertNull(objects[i]);
+            }
+        }
+        assertEquals(expectedHits, numHits);
+
+        // both code paths were exercised
+        assertTrue(hitObject[0]);
+        assertTrue(hitObject[1]);
+    }
+
+    public void testMissesAndDegeneratedRays() {
+        JRayCaster caster = new JRayCaster(world);
+        double[] rayOrigins = {
+            0.3, -0.2, 0.1,
+            5.0, 5.0, 5.0,
+            0.3, -0.2, 3.0,
+            0.3, -0.2, 3.0};
+        double[] rayDirections = {
+            0.0, 0.0, 0.0,
+            1.0, 0.0, 0.0,
+            0.0, 0.0, -1.0,
+            0.0, 0.0, -1.0};
+        double[] distances = new double[4];
+
+        // zero length direction, pointing away, and too short
+        caster.castRays(rayOrigins, rayDirections, 3, 2.0, distances, null, null);
+        assertEquals(Double.POSITIVE_INFINITY, distances[0], 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, distances[1], 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, distances[2], 0.0);
+
+        // the top of the sphere is 2.4 away
+        assertEquals(2, caster.castRays(rayOrigins, rayDirections, 4, 3.0, distances, null, null));
+        assertEquals(Double.POSITIVE_INFINITY, distances[0], 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, distances[1], 0.0);
+        assertEquals(2.4, distances[2], 1e-2);
+        assertEquals(distances[2], distances[3], 0.0);
+    }
+
+    public void testParallelMatchesSequential() {
+        JRayCaster caster = new JRayCaster(world);
+        double[] sequential = new double[NUM_RAYS];
+        JGenericObject[] sequentialObjects = new JGenericObject[NUM_RAYS];
+        caster.setParallelEnabled(false);
+        int sequentialHits = caster.castRays(origins, directions, NUM_RAYS, MAX_DISTANCE,
+                sequential, null, sequentialObjects);
+
+        double[] parallel = new double[NUM_RAYS];
+        JGenericObject[] parallelObjects = new JGenericObject[NUM_RAYS];
+        caster.setParallelEnabled(true);
+        int parallelHits = caster.castRays(origins, directions, NUM_RAYS, MAX_DISTANCE,
+                parallel, null, parallelObjects);
+
+        assertEquals(sequentialHits, parallelHits);
+        assertTrue(Arrays.equals(sequential, parallel));
+        assertTrue(Arrays.equals(sequentialObjects, parallelObjects));
+    }
+}
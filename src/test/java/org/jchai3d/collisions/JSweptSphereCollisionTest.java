@@ -0,0 +1,173 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.collisions;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import junit.framework.TestCase;
+import org.jchai3d.collisions.aabb.JCollisionAABB;
+import org.jchai3d.collisions.spheres.JCollisionSpheres;
+import org.jchai3d.graphics.JTriangle;
+import org.jchai3d.math.JMaths;
+import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JMesh;
+
+/**
+ * Unit tests of the segment queries with a collision radius (a sphere swept
+ * along the segment), and of the intersection routines they rely on.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JSweptSphereCollisionTest extends TestCase {
+
+    private static final double EPSILON = 1e-12;
+
+    private static Set<JTriangle> getTriangles(JCollisionRecorder aRecorder) {
+        Set<JTriangle> triangles = new HashSet<JTriangle>();
+        for (JCollisionEvent event : aRecorder.getCollisions()) {
+            triangles.add(event.getTriangle());
+        }
+        return (triangles);
+    }
+
+    /**
+     * Compare the trees, built with and without a radius, to the brute force
+     * search for segments swept by spheres of several radii.
+     */
+    public void testTreesMatchBruteForce() {
+        JMesh mesh = JClosestPointTest.createSphere(null, 12, 24);
+        JCollisionBrute brute = new JCollisionBrute(mesh.getTriangles());
+        JCollisionAABB aabb = new JCollisionAABB(mesh.getTriangles(), false);
+        aabb.initialize(0.0);
+        JCollisionAABB aabbRadius = new JCollisionAABB(mesh.getTriangles(), false);
+        aabbRadius.initialize(0.05);
+        JCollisionSpheres spheres = new JCollisionSpheres(mesh.getTriangles(), false);
+        spheres.initialize(0.0);
+        JCollisionSpheres spheresRadius = new JCollisionSpheres(mesh.getTriangles(), false);
+        spheresRadius.initialize(0.05);
+        JGenericCollision[] detectors = {aabb, aabbRadius, spheres, spheresRadius};
+
+        JCollisionSettings settings = new JCollisionSettings();
+        settings.setCheckForNearestCollisionOnly(false);
+        settings.setCheckBothSidesOfTriangles(true);
+        double[] radii = {0.0, 0.01, 0.05, 0.2};
+
+        Random random = new Random(3);
+        int numHits = 0;
+        for (int i = 0; i < 300; i++) {
+            JVector3d a = new JVector3d(2 * random.nextDouble() - 1,
+                    2 * random.nextDouble() - 1, 2 * random.nextDouble() - 1);
+            JVector3d b = new JVector3d(a);
+            b.add(new JVector3d(random.nextDouble() - 0.5,
+                    random.nextDouble() - 0.5, random.nextDouble() - 0.5));
+            settings.setCollisionRadius(radii[i % radii.length]);
+
+            JCollisionRecorder expected = new JCollisionRecorder();
+            boolean hit = brute.computeCollision(a, b, expected, settings);
+            if (hit) {
+                numHits++;
+            }
+            for (int d = 0; d < detectors.length; d++) {
+                JCollisionRecorder recorder = new JCollisionRecorder();
+                assertEquals(hit, detectors[d].computeCollision(a, b, recorder, settings));
+                assertEquals(getTriangles(expected), getTriangles(recorder));
+                if (hit) {
+                    assertEquals(expected.getNearestCollision().getSquareDistance(),
+                            recorder.getNearestCollision().getSquareDistance(), EPSILON);
+                }
+            }
+        }
+        assertTrue(numHits > 20);
+    }
+
+    /**
+     * A segment passing beside the mesh is only reported when the radius
+     * reaches the surface; the box of the tree leaves does not include it.
+     */
+    public void testRadiusIsAppliedAtQueryTime() {
+        JMesh mesh = JClosestPointTest.createSphere(null, 12, 24);
+        JCollisionAABB aabb = new JCollisionAABB(mesh.getTriangles(), false);
+        aabb.initialize(0.0);
+        JCollisionSettings settings = new JCollisionSettings();
+        settings.setCheckForNearestCollisionOnly(false);
+        settings.setCheckBothSidesOfTriangles(true);
+
+        JVector3d a = new JVector3d(0.6, -1.0, 0.0);
+        JVector3d b = new JVector3d(0.6, 1.0, 0.0);
+        settings.setCollisionRadius(0.0);
+        assertFalse(aabb.computeCollision(a, b, new JCollisionRecorder(), settings));
+
+        settings.setCollisionRadius(0.15);
+        JCollisionRecorder recorder = new JCollisionRecorder();
+        assertTrue(aabb.computeCollision(a, b, recorder, settings));
+
+        // the reported position is the center of the sphere at contact
+        JVector3d center = recorder.getNearestCollision().getGlobalPosition();
+        assertEquals(0.6, center.x, 1e-9);
+        assertTrue(center.length() < 0.5 + 0.15 + 1e-9);
+        assertTrue(center.length() > 0.5);
+    }
+
+    public void testSegmentSphereIntersection() {
+        JVector3d center = new JVector3d(1, 0, 0);
+        JVector3d p0 = new JVector3d(), n0 = new JVector3d();
+        JVector3d p1 = new JVector3d(), n1 = new JVector3d();
+
+        // the point nearest to the start of the segment comes first
+        assertEquals(2, JMaths.jIntersectionSegmentSphere(new JVector3d(-2, 0, 0),
+                new JVector3d(3, 0, 0), center, 1.0, p0, n0, p1, n1));
+        assertTrue(p0.equals(new JVector3d(0, 0, 0), EPSILON));
+        assertTrue(n0.equals(new JVector3d(-1, 0, 0), EPSILON));
+        assertTrue(p1.equals(new JVector3d(2, 0, 0), EPSILON));
+        assertTrue(n1.equals(new JVector3d(1, 0, 0), EPSILON));
+
+        assertEquals(2, JMaths.jIntersectionSegmentSphere(new JVector3d(3, 0, 0),
+                new JVector3d(-2, 0, 0), center, 1.0, p0, n0, p1, n1));
+        assertTrue(p0.equals(new JVector3d(2, 0, 0), EPSILON));
+        assertTrue(p1.equals(new JVector3d(0, 0, 0), EPSILON));
+
+        // starting inside the sphere
+        assertEquals(1, JMaths.jIntersectionSegmentSphere(new JVector3d(1, 0, 0),
+                new JVector3d(1, 0, 3), center, 1.0, p0, n0, p1, n1));
+        assertTrue(p0.equals(new JVector3d(1, 0, 1), EPSILON));
+
+        assertEquals(0, JMaths.jIntersectionSegmentSphere(new JVector3d(-2, 2, 0),
+                new JVector3d(3, 2, 0), center, 1.0, p0, n0, p1, n1));
+    }
+
+    public void testSegmentCylinderIntersection() {
+        JVector3d axisA = new JVector3d(0, 0, 0);
+        JVector3d axisB = new JVector3d(0, 0, 1);
+        JVector3d p0 = new JVector3d(), n0 = new JVector3d();
+        JVector3d p1 = new JVector3d(), n1 = new JVector3d();
+
+        // both points lie on the surface, nearest to the start first
+        assertEquals(2, JMaths.jIntersectionSegmentToplessCylinder(new JVector3d(-2, 0, 0.5),
+                new JVector3d(3, 0, 0.5), axisA, axisB, 1.0, p0, n0, p1, n1));
+        assertTrue(p0.equals(new JVector3d(-1, 0, 0.5), 1e-9));
+        assertTrue(n0.equals(new JVector3d(-1, 0, 0), 1e-9));
+        assertTrue(p1.equals(new JVector3d(1, 0, 0.5), 1e-9));
+        assertTrue(n1.equals(new JVector3d(1, 0, 0), 1e-9));
+
+        // the cylinder is bounded by its end points
+        assertEquals(0, JMaths.jIntersectionSegmentToplessCylinder(new JVector3d(-2, 0, 1.5),
+                new JVector3d(3, 0, 1.5), axisA, axisB, 1.0, p0, n0, p1, n1));
+        assertEquals(0, JMaths.jIntersectionSegmentToplessCylinder(new JVector3d(-2, 3, 0.5),
+                new JVector3d(3, 3, 0.5), axisA, axisB, 1.0, p0, n0, p1, n1));
+    }
+}
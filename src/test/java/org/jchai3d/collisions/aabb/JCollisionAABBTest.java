@@ -0,0 +1,162 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.collisions.aabb;
+
+import java.util.Random;
+import junit.framework.TestCase;
+import org.jchai3d.collisions.JCollisionHitList;
+import org.jchai3d.collisions.JCollisionRecorder;
+import org.jchai3d.collisions.JCollisionSettings;
+import org.jchai3d.graphics.JTriangle;
+import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JMesh;
+
+/**
+ * Unit tests of the AABB tree.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JCollisionAABBTest extends TestCase {
+
+    private int threshold;
+
+    @Override
+    protected void setUp() {
+        threshold = JCollisionAABB.CHAI_PARALLEL_COLLISION_THRESHOLD;
+    }
+
+    @Override
+    protected void tearDown() {
+        JCollisionAABB.CHAI_PARALLEL_COLLISION_THRESHOLD = threshold;
+    }
+
+    /**
+     * Build a mesh of randomly placed small triangles.
+     */
+    static JMesh createTriangles(int aNumTriangles, long aSeed) {
+        JMesh mesh = new JMesh();
+        Random random = new Random(aSeed);
+        for (int i = 0; i < aNumTriangles; i++) {
+            JVector3d p = new JVector3d(random.nextDouble(), random.nextDouble(), random.nextDouble());
+            JVector3d[] corners = new JVector3d[3];
+            for (int k = 0; k < 3; k++) {
+                corners[k] = new JVector3d(p);
+                corners[k].add(new JVector3d(0.1 * random.nextDouble(),
+                        0.1 * random.nextDouble(), 0.1 * random.nextDouble()));
+            }
+            mesh.newTriangle(corners[0], corners[1], corners[2]);
+        }
+        return (mesh);
+    }
+
+    private static int checkBoxes(JCollisionAABBNode aNode) {
+        if (aNode instanceof JCollisionAABBLeaf) {
+            // leaves enclose their triangle exactly, whatever the build radius
+            JTriangle triangle = ((JCollisionAABBLeaf) aNode).triangle;
+            JVector3d min = new JVector3d(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
+            JVector3d max = new JVector3d(-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE);
+            for (int k = 0; k < 3; k++) {
+                JVector3d p = triangle.getVertex(k).getLocalPosition();
+                min.set(Math.min(min.x, p.x), Math.min(min.y, p.y), Math.min(min.z, p.z));
+                max.set(Math.max(max.x, p.x), Math.max(max.y, p.y), Math.max(max.z, p.z));
+            }
+            assertTrue(aNode.bbox.min.equals(min, 0.0));
+            assertTrue(aNode.bbox.max.equals(max, 0.0));
+            return (1);
+        }
+
+        // internal nodes enclose the boxes of their children
+        JCollisionAABBInternal node = (JCollisionAABBInternal) aNode;
+        JCollisionAABBBox box = new JCollisionAABBBox();
+        box.enclose(node.leftSubTree.bbox, node.rightSubTree.bbox);
+        assertTrue(node.bbox.min.equals(box.min, 0.0));
+        assertTrue(node.bbox.max.equals(box.max, 0.0));
+        return (checkBoxes(node.leftSubTree) + checkBoxes(node.rightSubTree));
+    }
+
+    public void testLeafBoxesAreTight() {
+        JMesh mesh = createTriangles(200, 1);
+        JCollisionAABB aabb = new JCollisionAABB(mesh.getTriangles(), false);
+        aabb.initialize(0.25);
+        assertEquals(200, checkBoxes(aabb.getRoot()));
+    }
+
+    private static void assertSameHits(JCollisionRecorder aExpected, JCollisionRecorder aActual) {
+        assertEquals(aExpected.getCollisions().size(), aActual.getCollisions().size());
+        for (int i = 0; i < aExpected.getCollisions().size(); i++) {
+            assertSame(aExpected.getCollisions().get(i).getTriangle(),
+                    aActual.getCollisions().get(i).getTriangle());
+            assertEquals(aExpected.getCollisions().get(i).getSquareDistance(),
+                    aActual.getCollisions().get(i).getSquareDistance(), 0.0);
+        }
+        if (aExpected.getHitList() != null) {
+            JCollisionHitList expected = aExpected.getHitList();
+            JCollisionHitList actual = aActual.getHitList();
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertSame(expected.getTriangle(i), actual.getTriangle(i));
+                assertEquals(expected.getSquareDistance(i), actual.getSquareDistance(i), 0.0);
+            }
+        }
+        assertSame(aExpected.getNearestCollision().getTriangle(), aActual.getNearestCollision().getTriangle());
+        assertEquals(aExpected.getNearestCollision().getSquareDistance(),
+                aActual.getNearestCollision().getSquareDistance(), 0.0);
+    }
+
+    /**
+     * Run the same segments through the serial and the parallel traversals,
+     * with hits recorded as events and in hit lists.
+     */
+    public void testParallelTraversalMatchesSerial() {
+        JMesh mesh = createTriangles(2000, 2);
+        JCollisionAABB aabb = new JCollisionAABB(mesh.getTriangles(), false);
+        aabb.initialize(0.0);
+        JCollisionAABB.CHAI_PARALLEL_COLLISION_THRESHOLD = 1;
+
+        JCollisionSettings serial = new JCollisionSettings();
+        serial.setCheckForNearestCollisionOnly(false);
+        serial.setCheckBothSidesOfTriangles(true);
+        serial.setParallelTraversal(false);
+        JCollisionSettings parallel = new JCollisionSettings();
+        parallel.setCheckForNearestCollisionOnly(false);
+        parallel.setCheckBothSidesOfTriangles(true);
+        parallel.setParallelTraversal(true);
+
+        Random random = new Random(3);
+        int numHits = 0;
+        for (int i = 0; i < 100; i++) {
+            JVector3d a = new JVector3d(random.nextDouble(), random.nextDouble(), -0.5);
+            JVector3d b = new JVector3d(random.nextDouble(), random.nextDouble(), 1.5);
+            double radius = (i % 2 == 0) ? 0.0 : 0.02;
+            serial.setCollisionRadius(radius);
+            parallel.setCollisionRadius(radius);
+
+            JCollisionRecorder expected = new JCollisionRecorder();
+            JCollisionRecorder actual = new JCollisionRecorder();
+            if (i % 3 == 0) {
+                expected.setHitList(new JCollisionHitList());
+                actual.setHitList(new JCollisionHitList());
+            }
+            boolean hit = aabb.computeCollision(a, b, expected, serial);
+            assertEquals(hit, aabb.computeCollision(a, b, actual, parallel));
+            assertEquals(expected.getNumCollisions(), actual.getNumCollisions());
+            assertSameHits(expected, actual);
+            numHits += expected.getNumCollisions();
+        }
+        assertTrue(numHits > 100);
+    }
+}
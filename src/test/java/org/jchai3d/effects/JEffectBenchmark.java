@@ -0,0 +1,106 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.effects;
+
+import org.jchai3d.graphics.JMaterial;
+import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JGenericObject;
+
+/**
+ * Measures the force computation of each haptic effect, with the model kept
+ * from one servo tick to the next, and for the magnet also with the
+ * material edited at every tick. Run with:
+ * java org.jchai3d.effects.JEffectBenchmark
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JEffectBenchmark {
+
+    private static final int NUM_TICKS = 2000000;
+    private static final int NUM_RUNS = 5;
+
+    /**
+     * Object whose surface is the plane z = 0; the tool is inside below it.
+     */
+    private static class Plane extends JGenericObject {
+
+        @Override
+        public void computeLocalInteraction(final JVector3d aToolPos,
+                final JVector3d aToolVel,
+                final int a_IDN) {
+            interactionProjectedPoint.set(aToolPos.x, aToolPos.y, 0.0);
+            interactionInside = (aToolPos.z < 0.0);
+        }
+    }
+
+    public static void main(String[] aArgs) {
+        Plane plane = new Plane();
+        JMaterial material = plane.getMaterial();
+        material.setStiffness(500.0);
+        material.setViscosity(2.0);
+        material.setVibrationFrequency(50.0);
+        material.setVibrationAmplitude(0.5);
+        material.setMagnetMaxForce(2.0);
+        material.setMagnetMaxDistance(0.02);
+        material.setStickSlipForceMax(3.0);
+        material.setStickSlipStiffness(500.0);
+
+        JGenericEffect[] effects = {
+            new JGenericEffect(plane),
+            new JEffectSurface(plane),
+            new JEffectViscosity(plane),
+            new JEffectVibration(plane),
+            new JEffectMagnet(plane),
+            new JEffectStickSlip(plane)
+        };
+
+        System.out.println(NUM_TICKS + " ticks");
+        double sink = 0.0;
+        for (int run = 0; run < NUM_RUNS; run++) {
+            for (int i = 0; i < effects.length; i++) {
+                sink += run(effects[i].getClass().getSimpleName(), plane, effects[i], false);
+            }
+            sink += run("JEffectMagnet, material edited", plane, effects[4], true);
+        }
+        System.out.println("checksum " + sink);
+    }
+
+    private static double run(String aName, Plane aPlane, JGenericEffect aEffect, boolean aEditMaterial) {
+        JMaterial material = aPlane.getMaterial();
+        double stiffness = material.getStiffness();
+        JVector3d position = new JVector3d();
+        JVector3d velocity = new JVector3d(0.01, 0.0, 0.0);
+        JVector3d force = new JVector3d();
+        double sum = 0.0;
+        long start = System.nanoTime();
+        for (int i = 0; i < NUM_TICKS; i++) {
+            // strokes in and out of the surface
+            double t = 2.0 * Math.PI * i / 1000.0;
+            position.set(0.01 * Math.cos(t), 0.01 * Math.sin(t), 0.01 * Math.sin(3 * t));
+            if (aEditMaterial) {
+                material.setStiffness(stiffness + (i & 1));
+            }
+            aPlane.computeLocalInteraction(position, velocity, 0);
+            aEffect.computeForce(position, velocity, 0, force);
+            sum += force.x + force.y + force.z;
+        }
+        double time = (double) (System.nanoTime() - start) / NUM_TICKS;
+        material.setStiffness(stiffness);
+        System.out.printf("%-32s %8.1f ns/tick%n", aName, time);
+        return (sum);
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.extras;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests of JWorkerThreads.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JWorkerThreadsTest extends TestCase {
+
+    private static ArrayList<Callable<Integer>> createTasks(int aCount, final boolean aNested) {
+        ArrayList<Callable<Integer>> tasks = new ArrayList<Callable<Integer>>();
+        for (int i = 0; i < aCount; i++) {
+            final int value = i;
+            tasks.add(new Callable<Integer>() {
+
+                public Integer call() {
+                    if (!aNested) {
+                        return (value);
+                    }
+                    int sum = 0;
+                    for (Integer result : JWorkerThreads.callAll(createTasks(4 * JWorkerThreads.getNumThreads(), false))) {
+                        sum += result;
+                    }
+                    return (sum + value);
+                }
+            });
+        }
+        return (tasks);
+    }
+
+    public void testResultsAreInTaskOrder() {
+        ArrayList<Integer> results = JWorkerThreads.callAll(createTasks(100, false));
+        assertEquals(100, results.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, results.get(i).intValue());
+        }
+    }
+
+    public void testNestedCallsDoNotWaitForBusyWorkers() {
+        // more outer tasks than workers, each one running inner tasks
+        int numInner = 4 * JWorkerThreads.getNumThreads();
+        int innerSum = numInner * (numInner - 1) / 2;
+        ArrayList<Integer> results = JWorkerThreads.callAll(
+                createTasks(4 * JWorkerThreads.getNumThreads(), true));
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(innerSum + i, results.get(i).intValue());
+        }
+    }
+
+    public void testExceptionsArePropagated() {
+        ArrayList<Runnable> tasks = new ArrayList<Runnable>();
+        for (int i = 0; i < 3; i++) {
+            final int value = i;
+            tasks.add(new Runnable() {
+
+                public void run() {
+                    if (value == 1) {
+                        throw new IllegalStateException("task " + value);
+                    }
+                }
+            });
+        }
+        try {
+            JWorkerThreads.runAll(tasks);
+            fail();
+        } catch (RuntimeException ex) {
+            assertTrue(ex.getCause() instanceof IllegalStateException);
+        }
+    }
+}
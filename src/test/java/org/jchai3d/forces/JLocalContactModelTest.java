@@ -0,0 +1,125 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.forces;
+
+import junit.framework.TestCase;
+import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JMesh;
+import org.jchai3d.scenegraph.JWorld;
+
+/**
+ * Unit tests of JLocalContactModel and of its construction by
+ * JProxyPointForceAlgo.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JLocalContactModelTest extends TestCase {
+
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Build a world holding a 1 x 1 floor at z = 0.
+     */
+    private static JWorld createFloor() {
+        JWorld world = new JWorld();
+        JMesh floor = new JMesh(world);
+        world.addChild(floor);
+        floor.newVertex(-0.5, -0.5, 0.0);
+        floor.newVertex(0.5, -0.5, 0.0);
+        floor.newVertex(0.5, 0.5, 0.0);
+        floor.newVertex(-0.5, 0.5, 0.0);
+        floor.newTriangle(0, 1, 2);
+        floor.newTriangle(0, 2, 3);
+        floor.getMaterial().setStiffness(100.0);
+        floor.createAABBCollisionDetector(0.0, false, false);
+        world.computeGlobalPositions(false);
+        return (world);
+    }
+
+    public void testTouchedPlanes() {
+        // floor z >= 0 and wall x >= 0, the proxy in the corner
+        JLocalContactModel model = new JLocalContactModel(new JVector3d(0, 0, 0),
+                new JVector3d[]{new JVector3d(0, 0, 2), new JVector3d(1, 0, 0)}, 2, 100.0, null);
+        JVector3d proxy = new JVector3d();
+        JVector3d force = new JVector3d();
+
+        assertTrue(model.computeForce(new JVector3d(0.1, 0.2, -0.01), proxy, force));
+        assertEquals(0.0, proxy.z, EPSILON);
+        assertEquals(1.0, force.z, EPSILON);
+
+        assertTrue(model.computeForce(new JVector3d(-0.01, 0.3, -0.02), proxy, force));
+        assertEquals(0.0, proxy.x, EPSILON);
+        assertEquals(0.3, proxy.y, EPSILON);
+        assertEquals(0.0, proxy.z, EPSILON);
+
+        assertFalse(model.computeForce(new JVector3d(0.1, 0.1, 0.1), proxy, force));
+        assertEquals(0.0, force.length(), EPSILON);
+    }
+
+    public void testCornerOfThreePlanes() {
+        // box corner x >= 1, y >= 1, z >= 1, the proxy away from it
+        JLocalContactModel model = new JLocalContactModel(new JVector3d(2, 2, 2),
+                new JVector3d[]{new JVector3d(1, 0, 0), new JVector3d(0, 1, 0), new JVector3d(0, 0, 1)},
+                new double[]{1, 1, 1}, 3, 10.0, null, null);
+        JVector3d proxy = new JVector3d();
+        JVector3d force = new JVector3d();
+
+        assertTrue(model.computeForce(new JVector3d(0, 0, 0), proxy, force));
+        assertEquals(1.0, proxy.x, EPSILON);
+        assertEquals(1.0, proxy.y, EPSILON);
+        assertEquals(1.0, proxy.z, EPSILON);
+        assertEquals(10.0, force.x, EPSILON);
+    }
+
+    public void testParallelPlanesAreMerged() {
+        JLocalContactModel model = new JLocalContactModel(new JVector3d(0, 0, 1),
+                new JVector3d[]{new JVector3d(0, 0, 1), new JVector3d(0, 0, 2)},
+                new double[]{0.25, 1.0}, 2, 10.0, null, null);
+
+        assertEquals(1, model.getNumPlanes());
+        assertEquals(0.5, model.getOffset(0), EPSILON);
+    }
+
+    public void testNearbyTrianglesStopTheDevice() {
+        JWorld world = createFloor();
+        JProxyPointForceAlgo algo = new JProxyPointForceAlgo();
+        algo.setProxyRadius(0.001);
+        algo.initialize(world, new JVector3d(0, 0, 0.005));
+        algo.computeForces(new JVector3d(0, 0, 0.005), new JVector3d());
+
+        // in free space, the proxy touches nothing
+        JLocalContactModel touched = algo.createLocalContactModel(null);
+        assertEquals(0, touched.getNumPlanes());
+
+        // but the floor lies within the radius of the model
+        JLocalContactModel model = algo.createLocalContactModel(null, null, 0.01);
+        assertEquals(1, model.getNumPlanes());
+        assertEquals(100.0, model.getStiffness(), EPSILON);
+
+        // a device moving through the floor before the next update is held
+        JVector3d proxy = new JVector3d();
+        JVector3d force = new JVector3d();
+        assertTrue(model.computeForce(new JVector3d(0.1, 0.0, -0.01), proxy, force));
+        assertEquals(0.001, proxy.z, EPSILON);
+        assertEquals(100.0 * 0.011, force.z, EPSILON);
+
+        // triangles out of the radius are ignored
+        algo.initialize(world, new JVector3d(0, 0, 0.05));
+        algo.computeForces(new JVector3d(0, 0, 0.05), new JVector3d());
+        assertEquals(0, algo.createLocalContactModel(null, null, 0.01).getNumPlanes());
+    }
+}
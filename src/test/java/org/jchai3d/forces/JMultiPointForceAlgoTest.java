@@ -0,0 +1,98 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.forces;
+
+import junit.framework.TestCase;
+import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JGenericObject;
+import org.jchai3d.scenegraph.JMesh;
+import org.jchai3d.scenegraph.JWorld;
+
+/**
+ * Unit tests of JMultiPointForceAlgo.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMultiPointForceAlgoTest extends TestCase {
+
+    private static final double EPSILON = 1e-9;
+
+    /**
+     * Add a 1 x 1 floor at height \e aZ, centered on (\e aX, 0), below a
+     * group node.
+     */
+    private static JMesh addFloor(JWorld aWorld, double aX, double aZ) {
+        JGenericObject group = new JGenericObject();
+        aWorld.addChild(group);
+        JMesh floor = new JMesh(aWorld);
+        group.addChild(floor);
+        floor.newVertex(aX - 0.5, -0.5, aZ);
+        floor.newVertex(aX + 0.5, -0.5, aZ);
+        floor.newVertex(aX + 0.5, 0.5, aZ);
+        floor.newVertex(aX - 0.5, 0.5, aZ);
+        floor.newTriangle(0, 1, 2);
+        floor.newTriangle(0, 2, 3);
+        floor.getMaterial().setStiffness(100.0);
+        floor.createAABBCollisionDetector(0.0, false, false);
+        return (floor);
+    }
+
+    private static JWorld createWorld() {
+        JWorld world = new JWorld();
+        addFloor(world, 0.0, 0.0);
+        addFloor(world, 10.0, 0.0);
+        world.computeGlobalPositions(false);
+        world.computeBoundaryBox(true);
+        return (world);
+    }
+
+    private static JMultiPointForceAlgo createTool(JWorld aWorld, boolean aPruning) {
+        JMultiPointForceAlgo algo = new JMultiPointForceAlgo(new JVector3d[]{
+                    new JVector3d(-0.1, 0, 0), new JVector3d(0.1, 0, 0)}, 0.001);
+        algo.setPotentialFieldsEnabled(false);
+        algo.getInteractionSettings().setBoundaryPruningEnabled(aPruning);
+        algo.initialize(aWorld, new JVector3d(0, 0, 0.05));
+        return (algo);
+    }
+
+    public void testFloorPushesAllPoints() {
+        JWorld world = createWorld();
+        JMultiPointForceAlgo algo = createTool(world, false);
+
+        // the tool sinks into the floor; the torques of its points cancel
+        algo.computeForces(new JVector3d(0, 0, -0.01), new JVector3d());
+        assertEquals(1, algo.getNumCollisionCandidates());
+        assertTrue(algo.getPointForce(0).z > 0.0);
+        assertEquals(algo.getPointForce(0).z + algo.getPointForce(1).z, algo.getForce().z, EPSILON);
+        assertEquals(0.0, algo.getTorque().length(), EPSILON);
+    }
+
+    public void testPruningKeepsTheSameCandidates() {
+        JWorld world = createWorld();
+        JMultiPointForceAlgo pruned = createTool(world, true);
+        JMultiPointForceAlgo full = createTool(world, false);
+
+        JVector3d[] path = {new JVector3d(0, 0, 0.02), new JVector3d(0.3, 0, -0.01),
+            new JVector3d(0.3, 0.2, -0.02), new JVector3d(5.0, 0, 0.5)};
+        for (int i = 0; i < path.length; i++) {
+            pruned.computeForces(path[i], new JVector3d());
+            full.computeForces(path[i], new JVector3d());
+            assertEquals(full.getNumCollisionCandidates(), pruned.getNumCollisionCandidates());
+            assertEquals(0.0, full.getForce().distance(pruned.getForce()), EPSILON);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.forces;
+
+import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JGenericObject;
+import org.jchai3d.scenegraph.JMesh;
+import org.jchai3d.scenegraph.JWorld;
+
+/**
+ * Measures the updates of a multi-point tool moving over one object of a
+ * scene holding many, with and without boundary pruning. Run with:
+ * java org.jchai3d.forces.JMultiPointForceBenchmark
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMultiPointForceBenchmark {
+
+    private static final int NUM_GROUPS = 20;
+    private static final int NUM_OBJECTS = 20;
+    private static final int NUM_POINTS = 16;
+    private static final int NUM_UPDATES = 5000;
+    private static final int NUM_RUNS = 5;
+
+    public static void main(String[] aArgs) {
+        JWorld world = new JWorld();
+        for (int i = 0; i < NUM_GROUPS; i++) {
+            JGenericObject group = new JGenericObject();
+            world.addChild(group);
+            for (int j = 0; j < NUM_OBJECTS; j++) {
+                group.addChild(createPatch(world, 2.0 * i, 2.0 * j));
+            }
+        }
+        world.computeGlobalPositions(false);
+        world.computeBoundaryBox(true);
+
+        // points along a probe
+        JVector3d[] points = new JVector3d[NUM_POINTS];
+        for (int i = 0; i < NUM_POINTS; i++) {
+            points[i] = new JVector3d(0.02 * i, 0.0, 0.0);
+        }
+
+        System.out.println(NUM_GROUPS * NUM_OBJECTS + " objects, " + NUM_POINTS + " points, "
+                + NUM_UPDATES + " updates");
+        for (int run = 0; run < NUM_RUNS; run++) {
+            run("full traversal", world, points, false);
+            run("pruned", world, points, true);
+        }
+    }
+
+    /**
+     * Build a 10 x 10 grid of quads 1 unit wide at (\e aX, \e aY).
+     */
+    private static JMesh createPatch(JWorld aWorld, double aX, double aY) {
+        JMesh mesh = new JMesh(aWorld);
+        int n = 10;
+        for (int i = 0; i <= n; i++) {
+            for (int j = 0; j <= n; j++) {
+                mesh.newVertex(aX + (double) i / n, aY + (double) j / n, 0.0);
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                int v = i * (n + 1) + j;
+                mesh.newTriangle(v, v + n + 1, v + n + 2);
+                mesh.newTriangle(v, v + n + 2, v + 1);
+            }
+        }
+        mesh.getMaterial().setStiffness(100.0);
+        mesh.createAABBCollisionDetector(0.0, false, false);
+        return (mesh);
+    }
+
+    private static void run(String aName, JWorld aWorld, JVector3d[] aPoints, boolean aPruning) {
+        JMultiPointForceAlgo algo = new JMultiPointForceAlgo(aPoints, 0.001);
+        algo.setPotentialFieldsEnabled(false);
+        algo.getInteractionSettings().setBoundaryPruningEnabled(aPruning);
+        algo.initialize(aWorld, new JVector3d(0.3, 0.5, 0.05));
+
+        JVector3d position = new JVector3d();
+        JVector3d velocity = new JVector3d();
+        long candidates = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < NUM_UPDATES; i++) {
+            // strokes in and out of the first patch
+            double t = 2.0 * Math.PI * i / 500.0;
+            position.set(0.3 + 0.2 * Math.cos(t), 0.5 + 0.2 * Math.sin(t), 0.01 * Math.sin(3 * t));
+            algo.computeForces(position, velocity);
+            candidates += algo.getNumCollisionCandidates();
+        }
+        double time = (System.nanoTime() - start) / 1000.0 / NUM_UPDATES;
+        System.out.printf("%-16s %8.2f us/update %6.2f candidates/update%n",
+                aName, time, (double) candidates / NUM_UPDATES);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.forces;
+
+import junit.framework.TestCase;
+import org.jchai3d.collisions.JEventOverflowPolicy;
+import org.jchai3d.math.JVector3d;
+
+/**
+ * Unit tests of JPooledInteractionRecorder.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JPooledInteractionRecorderTest extends TestCase {
+
+    public void testEventsAreReusedAcrossClear() {
+        JPooledInteractionRecorder recorder = new JPooledInteractionRecorder(4, JEventOverflowPolicy.GROW);
+        JInteractionEvent[] events = new JInteractionEvent[3];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = recorder.addEvent();
+            events[i].setInside(true);
+            events[i].getLocalPosition().copyFrom(new JVector3d(i, i, i));
+        }
+        assertEquals(3, recorder.size());
+
+        recorder.clear();
+        assertTrue(recorder.isEmpty());
+        for (int i = 0; i < events.length; i++) {
+            JInteractionEvent event = recorder.addEvent();
+            assertSame(events[i], event);
+            assertSame(event, recorder.get(i));
+
+            // a recycled event does not keep the values of the last update
+            assertFalse(event.isInside());
+            assertEquals(0.0, event.getLocalPosition().length(), 0.0);
+        }
+    }
+
+    public void testPoolGrows() {
+        JPooledInteractionRecorder recorder = new JPooledInteractionRecorder(2, JEventOverflowPolicy.GROW);
+        JInteractionEvent[] events = new JInteractionEvent[5];
+        for (int i = 0; i < events.length; i++) {
+            events[i] = recorder.addEvent();
+            for (int j = 0; j < i; j++) {
+                assertNotSame(events[j], events[i]);
+            }
+        }
+        assertEquals(8, recorder.getCapacity());
+        assertEquals(5, recorder.size());
+
+        // the grown pool is kept, with the events allocated while growing
+        recorder.clear();
+        assertEquals(8, recorder.getCapacity());
+        for (int i = 0; i < events.length; i++) {
+            assertSame(events[i], recorder.addEvent());
+        }
+    }
+
+    public void testPoolDropsEvents() {
+        JPooledInteractionRecorder recorder = new JPooledInteractionRecorder(2, JEventOverflowPolicy.DROP);
+        recorder.addEvent();
+        recorder.addEvent();
+        JInteractionEvent dropped = recorder.addEvent();
+        assertFalse(recorder.contains(dropped));
+        assertEquals(2, recorder.size());
+        assertEquals(1, recorder.getNumDroppedEvents());
+
+        recorder.clear();
+        assertEquals(0, recorder.getNumDroppedEvents());
+    }
+
+    public void testSetCapacity() {
+        JPooledInteractionRecorder recorder = new JPooledInteractionRecorder(64, JEventOverflowPolicy.GROW);
+        recorder.setCapacity(8);
+        assertEquals(8, recorder.getCapacity());
+
+        // events in use are kept
+        JInteractionEvent first = recorder.addEvent();
+        JInteractionEvent second = recorder.addEvent();
+        recorder.setCapacity(1);
+        assertEquals(2, recorder.getCapacity());
+        recorder.setCapacity(16);
+        assertEquals(16, recorder.getCapacity());
+
+        recorder.clear();
+        assertSame(first, recorder.addEvent());
+        assertSame(second, recorder.addEvent());
+    }
+}
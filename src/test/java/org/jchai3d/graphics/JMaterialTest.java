@@ -0,0 +1,98 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.graphics;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests of the modification counter of JMaterial.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMaterialTest extends TestCase {
+
+    private static final int NUM_THREADS = 4;
+    private static final int NUM_UPDATES = 10000;
+
+    public void testHapticSettersIncrementVersion() {
+        JMaterial material = new JMaterial();
+        long version = material.getVersion();
+
+        material.setStiffness(100.0);
+        material.setStaticFriction(0.5);
+        material.setDynamicFriction(0.3);
+        material.setViscosity(1.0);
+        material.setVibrationFrequency(50.0);
+        material.setVibrationAmplitude(0.1);
+        material.setMagnetMaxForce(2.0);
+        material.setMagnetMaxDistance(0.01);
+        material.setStickSlipForceMax(1.0);
+        material.setStickSlipStiffness(10.0);
+        assertEquals(version + 10, material.getVersion());
+
+        material.copyFrom(new JMaterial());
+        assertEquals(version + 11, material.getVersion());
+    }
+
+    public void testConcurrentUpdatesAreCounted() throws InterruptedException {
+        final JMaterial material = new JMaterial();
+        long version = material.getVersion();
+
+        Thread[] threads = new Thread[NUM_THREADS];
+        for (int i = 0; i < NUM_THREADS; i++) {
+            threads[i] = new Thread() {
+
+                @Override
+                public void run() {
+                    for (int k = 0; k < NUM_UPDATES; k++) {
+                        material.setStiffness(k);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < NUM_THREADS; i++) {
+            threads[i].join();
+        }
+
+        assertEquals(version + NUM_THREADS * NUM_UPDATES, material.getVersion());
+    }
+
+    public void testUpdateIsSeenByAnotherThread() throws InterruptedException {
+        final JMaterial material = new JMaterial();
+        final long version = material.getVersion();
+        final double[] stiffness = new double[1];
+
+        // a haptic thread polling the counter, as JGenericEffect does
+        Thread reader = new Thread() {
+
+            @Override
+            public void run() {
+                while (material.getVersion() == version) {
+                }
+                stiffness[0] = material.getStiffness();
+            }
+        };
+        reader.start();
+        Thread.sleep(50);
+
+        material.setStiffness(250.0);
+        reader.join(5000);
+        assertFalse(reader.isAlive());
+        assertEquals(250.0, stiffness[0], 0.0);
+    }
+}
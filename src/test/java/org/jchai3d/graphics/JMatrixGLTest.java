@@ -0,0 +1,115 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.graphics;
+
+import junit.framework.TestCase;
+import org.jchai3d.math.JMatrix3d;
+import org.jchai3d.math.JVector3d;
+
+/**
+ * Unit tests of JMatrixGL and of the layout of its array.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMatrixGLTest extends TestCase {
+
+    private static final double EPSILON = 1e-12;
+
+    private static JMatrix3d createRotation(JVector3d aAxis, double aAngle) {
+        JMatrix3d rotation = new JMatrix3d();
+        aAxis.normalize();
+        rotation.set(aAxis, aAngle);
+        return (rotation);
+    }
+
+    public void testArrayIsColumnMajor() {
+        JMatrix3d rotation = createRotation(new JVector3d(0.3, 1, -0.2), 1.2);
+        JMatrixGL matrix = new JMatrixGL();
+        matrix.set(new JVector3d(1, 2, 3), rotation);
+
+        // the array is the one sent to OpenGL, translation last
+        double[] array = matrix.pMatrix();
+        assertSame(array, matrix.pMatrix());
+        assertEquals(1.0, array[12], 0.0);
+        assertEquals(2.0, array[13], 0.0);
+        assertEquals(3.0, array[14], 0.0);
+        assertEquals(1.0, array[15], 0.0);
+        assertEquals(rotation.m01, array[4], 0.0);
+        assertEquals(rotation.m10, array[1], 0.0);
+        assertEquals(0.0, array[3], 0.0);
+
+        assertEquals(new JVector3d(1, 2, 3), matrix.getPos());
+        assertTrue(rotation.equals(matrix.getRot()));
+
+        // toArray() returns a copy
+        double[] copy = matrix.toArray();
+        assertNotSame(array, copy);
+        copy[12] = 10.0;
+        assertEquals(1.0, matrix.pMatrix()[12], 0.0);
+    }
+
+    public void testMulComposesPoses() {
+        JMatrix3d rotationA = createRotation(new JVector3d(1, 0, 1), 0.4);
+        JMatrix3d rotationB = createRotation(new JVector3d(0, 1, -1), -0.9);
+        JVector3d positionA = new JVector3d(0.5, -1, 2);
+        JVector3d positionB = new JVector3d(-2, 0.25, 1);
+
+        JMatrixGL a = new JMatrixGL();
+        a.set(positionA, rotationA);
+        JMatrixGL b = new JMatrixGL();
+        b.set(positionB, rotationB);
+
+        // this = b * this: a point is moved by a, then by b
+        a.mul(b);
+
+        JMatrix3d rotation = new JMatrix3d();
+        rotationB.mulr(rotationA, rotation);
+        JVector3d position = new JVector3d();
+        rotationB.mulr(positionA, position);
+        position.add(positionB);
+
+        JMatrix3d resultRotation = a.getRot();
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(rotation.get(i, j), resultRotation.get(i, j), EPSILON);
+            }
+        }
+        assertEquals(0.0, position.distance(a.getPos()), EPSILON);
+    }
+
+    public void testInvertAndTranspose() {
+        JMatrixGL matrix = new JMatrixGL();
+        matrix.set(new JVector3d(3, -1, 0.5), createRotation(new JVector3d(2, 1, 0), 2.1));
+        JMatrixGL inverse = new JMatrixGL();
+        matrix.copyto(inverse);
+        assertTrue(inverse.invert());
+
+        inverse.mul(matrix);
+        JMatrixGL identity = new JMatrixGL();
+        for (int i = 0; i < 16; i++) {
+            assertEquals(identity.pMatrix()[i], inverse.pMatrix()[i], EPSILON);
+        }
+
+        JMatrixGL transpose = new JMatrixGL();
+        matrix.transr(transpose);
+        transpose.trans();
+        for (int i = 0; i < 16; i++) {
+            assertEquals(matrix.pMatrix()[i], transpose.pMatrix()[i], 0.0);
+        }
+        assertEquals(matrix.pMatrix()[12], matrix.toArray()[12], 0.0);
+    }
+}
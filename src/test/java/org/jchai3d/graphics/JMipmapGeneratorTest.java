@@ -0,0 +1,114 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.graphics;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests of JMipmapGenerator.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMipmapGeneratorTest extends TestCase {
+
+    private int threshold;
+
+    @Override
+    protected void setUp() {
+        threshold = JMipmapGenerator.CHAI_MIPMAP_PARALLEL_THRESHOLD;
+    }
+
+    @Override
+    protected void tearDown() {
+        JMipmapGenerator.CHAI_MIPMAP_PARALLEL_THRESHOLD = threshold;
+    }
+
+    private static ByteBuffer createImage(int aWidth, int aHeight, int aComponents, long aSeed) {
+        ByteBuffer image = ByteBuffer.allocateDirect(aWidth * aHeight * aComponents);
+        Random random = new Random(aSeed);
+        for (int i = 0; i < image.capacity(); i++) {
+            image.put(i, (byte) random.nextInt(256));
+        }
+        return (image);
+    }
+
+    public void testLevelCountAndSizes() {
+        ByteBuffer[] levels = JMipmapGenerator.generate(createImage(256, 64, 3, 1), 256, 64, 3);
+
+        // down to 1 x 1, with the sizes JTexture2D sends to OpenGL
+        assertEquals(8, levels.length);
+        for (int i = 0; i < levels.length; i++) {
+            int width = Math.max(1, 256 >> (i + 1));
+            int height = Math.max(1, 64 >> (i + 1));
+            assertEquals(width * height * 3, levels[i].capacity());
+        }
+        assertEquals(0, JMipmapGenerator.generate(createImage(1, 1, 4, 1), 1, 1, 4).length);
+    }
+
+    public void testBoxFilter() {
+        // a 4 x 2 image with two components per pixel
+        byte[] pixels = {
+            0, 10, 4, 20, (byte) 255, 0, (byte) 255, 1,
+            2, 30, 5, 40, (byte) 255, 0, (byte) 254, 0};
+        ByteBuffer image = ByteBuffer.allocateDirect(pixels.length);
+        image.put(pixels);
+
+        ByteBuffer[] levels = JMipmapGenerator.generate(image, 4, 2, 2);
+        assertEquals(2, levels.length);
+
+        // averages of 2 x 2 blocks, rounded to the nearest
+        ByteBuffer level = levels[0];
+        assertEquals(3, level.get(0) & 0xFF);
+        assertEquals(25, level.get(1) & 0xFF);
+        assertEquals(255, level.get(2) & 0xFF);
+        assertEquals(0, level.get(3) & 0xFF);
+        assertEquals((3 + 255 + 1) / 2, levels[1].get(0) & 0xFF);
+        assertEquals((25 + 0 + 1) / 2, levels[1].get(1) & 0xFF);
+    }
+
+    public void testOddSizesRepeatTheLastRowAndColumn() {
+        ByteBuffer image = createImage(3, 3, 1, 2);
+        ByteBuffer dst = ByteBuffer.allocateDirect(1);
+        JMipmapGenerator.downsample(image, 3, 3, dst, 1, 1, 1);
+
+        int sum = (image.get(0) & 0xFF) + (image.get(1) & 0xFF)
+                + (image.get(3) & 0xFF) + (image.get(4) & 0xFF);
+        assertEquals((sum + 2) >> 2, dst.get(0) & 0xFF);
+
+        // a single column: the pixel is averaged with itself
+        ByteBuffer column = createImage(1, 2, 1, 3);
+        ByteBuffer[] levels = JMipmapGenerator.generate(column, 1, 2, 1);
+        assertEquals(1, levels.length);
+        sum = 2 * (column.get(0) & 0xFF) + 2 * (column.get(1) & 0xFF);
+        assertEquals((sum + 2) >> 2, levels[0].get(0) & 0xFF);
+    }
+
+    public void testParallelMatchesSequential() {
+        ByteBuffer image = createImage(97, 64, 4, 4);
+        ByteBuffer[] sequential = JMipmapGenerator.generate(image, 97, 64, 4);
+
+        JMipmapGenerator.CHAI_MIPMAP_PARALLEL_THRESHOLD = 1;
+        ByteBuffer[] parallel = JMipmapGenerator.generate(image, 97, 64, 4);
+
+        assertEquals(sequential.length, parallel.length);
+        for (int i = 0; i < sequential.length; i++) {
+            assertEquals(sequential[i], parallel[i]);
+        }
+    }
+}
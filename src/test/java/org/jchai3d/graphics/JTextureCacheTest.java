@@ -0,0 +1,172 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.graphics;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+import junit.framework.TestCase;
+import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JMesh;
+import org.jchai3d.scenegraph.JWorld;
+
+/**
+ * Unit tests of JTextureCache and of the references held by meshes.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JTextureCacheTest extends TestCase {
+
+    private File imageFile;
+
+    @Override
+    protected void setUp() throws IOException {
+        imageFile = File.createTempFile("jchai3d", ".png");
+        ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "png", imageFile);
+    }
+
+    @Override
+    protected void tearDown() {
+        imageFile.delete();
+    }
+
+    public void testSameFileIsShared() throws IOException {
+        JTextureCache cache = new JTextureCache();
+        JTexture2D texture = cache.acquire(imageFile);
+
+        assertSame(texture, cache.acquire(imageFile));
+        assertEquals(2, cache.getReferenceCount(texture));
+        assertEquals(1, cache.getMisses());
+
+        assertTrue(cache.release(texture));
+        assertTrue(cache.release(texture));
+        assertEquals(0, cache.getReferenceCount(texture));
+        assertFalse(cache.release(new JTexture2D()));
+    }
+
+    public void testMeshHoldsReference() throws IOException {
+        JWorld world = new JWorld();
+        JMesh mesh = new JMesh(world);
+        world.addChild(mesh);
+        JTexture2D texture = world.newTexture(imageFile);
+        JTextureCache cache = world.getTextureCache();
+
+        mesh.setTexture(texture);
+        world.releaseTexture(texture);
+        assertEquals(1, cache.getReferenceCount(texture));
+
+        // setting the same texture again does not add a reference
+        mesh.setTexture(texture);
+        assertEquals(1, cache.getReferenceCount(texture));
+
+        // a replaced texture is released
+        mesh.setTexture(new JTexture2D());
+        assertEquals(0, cache.getReferenceCount(texture));
+
+        // clearing the geometry keeps the texture, deleting the mesh releases it
+        mesh.setTexture(texture);
+        mesh.clear();
+        assertEquals(1, cache.getReferenceCount(texture));
+        assertSame(texture, mesh.getTexture());
+        world.deleteChild(mesh);
+        assertEquals(0, cache.getReferenceCount(texture));
+        assertNull(mesh.getTexture());
+    }
+
+    public void testConcurrentAcquireLoadsOnce() throws Exception {
+        final JTextureCache cache = new JTextureCache();
+        final JTexture2D[] results = new JTexture2D[8];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+
+                public void run() {
+                    try {
+                        results[index] = cache.acquire(imageFile);
+                    } catch (IOException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // a single entry, referenced by every caller
+        for (JTexture2D texture : results) {
+            assertSame(results[0], texture);
+        }
+        assertEquals(1, cache.getNumTextures());
+        assertEquals(1, cache.getMisses());
+        assertEquals(results.length - 1, cache.getHits());
+        assertEquals(results.length, cache.getReferenceCount(results[0]));
+    }
+
+    public void testDeleteReleasesAndPurgeKeepsReferenced() throws IOException {
+        JWorld world = new JWorld();
+        JMesh used = new JMesh(world);
+        JMesh deleted = new JMesh(world);
+        world.addChild(used);
+        world.addChild(deleted);
+
+        JTexture2D texture = world.newTexture(imageFile);
+        used.setTexture(texture);
+        deleted.setTexture(texture);
+        world.releaseTexture(texture);
+        assertEquals(2, world.getTextureCache().getReferenceCount(texture));
+
+        world.deleteChild(deleted);
+        assertEquals(1, world.getTextureCache().getReferenceCount(texture));
+
+        // textures still used survive deleteAllTextures()
+        world.deleteAllTextures();
+        assertTrue(world.getTextureCache().contains(texture));
+
+        used.setTexture(null);
+        world.deleteAllTextures();
+        assertFalse(world.getTextureCache().contains(texture));
+        assertEquals(0, world.getTextureCache().getNumTextures());
+    }
+
+    public void testFrozenBatchHoldsReference() throws IOException {
+        JWorld world = new JWorld();
+        JMesh mesh = new JMesh(world);
+        world.addChild(mesh);
+        mesh.newTriangle(new JVector3d(0, 0, 0), new JVector3d(1, 0, 0), new JVector3d(0, 1, 0));
+        mesh.setTextureMappingEnabled(true);
+
+        JTexture2D texture = world.newTexture(imageFile);
+        mesh.setTexture(texture);
+        world.releaseTexture(texture);
+
+        world.freeze();
+        assertEquals(1, world.getStaticBatch().getNumBatches());
+        assertEquals(2, world.getTextureCache().getReferenceCount(texture));
+
+        // the batch keeps the texture while the mesh lets it go
+        mesh.setTexture(null);
+        world.deleteAllTextures();
+        assertTrue(world.getTextureCache().contains(texture));
+
+        world.unfreeze();
+        assertEquals(0, world.getTextureCache().getReferenceCount(texture));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.graphics;
+
+import junit.framework.TestCase;
+import org.jchai3d.math.JVector3d;
+import org.jchai3d.scenegraph.JMesh;
+import org.jchai3d.scenegraph.JWorld;
+
+/**
+ * Unit tests of the global positions of JVertex.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JVertexTest extends TestCase {
+
+    private static final double EPSILON = 1e-12;
+
+    private JWorld world;
+    private JMesh mesh;
+
+    @Override
+    protected void setUp() {
+        world = new JWorld();
+        mesh = new JMesh(world);
+        world.addChild(mesh);
+        mesh.newVertex(1, 2, 3);
+        mesh.setPosition(new JVector3d(10, 0, 0));
+    }
+
+    public void testLazyPositionIsComputedWhenRead() {
+        mesh.setLazyGlobalPositions(true, false);
+        world.computeGlobalPositions(false);
+        JVertex vertex = mesh.getVertex(0, false);
+        assertEquals(11.0, vertex.getGlobalPosition().x, EPSILON);
+
+        // the mesh moves: the copy is out of date and computed again
+        mesh.setPosition(new JVector3d(20, 0, 0));
+        world.computeGlobalPositions(false);
+        assertEquals(21.0, vertex.getGlobalPosition().x, EPSILON);
+        assertSame(vertex.getGlobalPosition(), mesh.getVertexGlobalPosition(0));
+    }
+
+    public void testMovedVertexIsComputedWhenRead() {
+        world.computeGlobalPositions(false);
+        JVertex vertex = mesh.getVertex(0, false);
+        assertEquals(11.0, vertex.getGlobalPosition().x, EPSILON);
+
+        vertex.setPosition(5, 2, 3);
+        assertEquals(15.0, vertex.getGlobalPosition().x, EPSILON);
+    }
+
+    public void testConcurrentReads() throws InterruptedException {
+        mesh.setLazyGlobalPositions(true, false);
+        world.computeGlobalPositions(false);
+        final JVertex vertex = mesh.getVertex(0, false);
+        final boolean[] failed = new boolean[1];
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread() {
+
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        JVector3d position = vertex.getGlobalPosition();
+                        if ((position == null) || (position.y != 2.0)) {
+                            failed[0] = true;
+                        }
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int i = 0; i < 1000; i++) {
+            vertex.releaseGlobalPosition();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertFalse(failed[0]);
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.math;
+
+import java.util.Random;
+
+/**
+ * Compares the primitive overloads of JMaths with the boxed generic helpers
+ * they replaced, and the allocation free frame transformation with the
+ * allocating one. Run with: java org.jchai3d.math.JMathsBenchmark
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMathsBenchmark {
+
+    private static final int NUM_VALUES = 1 << 20;
+    private static final int NUM_RUNS = 10;
+    /**
+     * Keeps the results alive.
+     */
+    private static double sink;
+
+    public static void main(String[] aArgs) {
+        Random random = new Random(1);
+        double[] values = new double[NUM_VALUES];
+        for (int i = 0; i < NUM_VALUES; i++) {
+            values[i] = 4.0 * random.nextDouble() - 2.0;
+        }
+        JVector3d[] points = new JVector3d[NUM_VALUES / 16];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new JVector3d(values[3 * i], values[3 * i + 1], values[3 * i + 2]);
+        }
+        JMatrix3d rotation = JMaths.jRotMatrix(new JVector3d(1, 2, 3), 0.3);
+        JVector3d position = new JVector3d(0.1, 0.2, 0.3);
+
+        System.out.println(NUM_VALUES + " values, " + points.length + " points");
+        for (int run = 0; run < NUM_RUNS; run++) {
+            long[] times = new long[6];
+            long start = System.nanoTime();
+            sink += primitiveMax(values);
+            times[0] = System.nanoTime() - start;
+            start = System.nanoTime();
+            sink += boxedMax(values);
+            times[1] = System.nanoTime() - start;
+            start = System.nanoTime();
+            sink += primitiveClampLerp(values);
+            times[2] = System.nanoTime() - start;
+            start = System.nanoTime();
+            sink += boxedClampLerp(values);
+            times[3] = System.nanoTime() - start;
+            start = System.nanoTime();
+            sink += fusedTransform(position, rotation, points);
+            times[4] = System.nanoTime() - start;
+            start = System.nanoTime();
+            sink += allocatingTransform(position, rotation, points);
+            times[5] = System.nanoTime() - start;
+
+            // the first runs only warm up the compiler
+            if (run >= NUM_RUNS / 2) {
+                System.out.printf("jMax %6.2f ms (boxed %6.2f)  jClamp+jLerp %6.2f ms (boxed %6.2f)"
+                        + "  jTransform %6.2f ms (allocating %6.2f)%n",
+                        times[0] / 1e6, times[1] / 1e6, times[2] / 1e6, times[3] / 1e6,
+                        times[4] / 1e6, times[5] / 1e6);
+            }
+        }
+        System.out.println("checksum " + sink);
+    }
+
+    private static double primitiveMax(double[] aValues) {
+        double result = 0.0;
+        for (int i = 0; i < aValues.length; i++) {
+            result = JMaths.jMax(result, JMaths.jAbs(aValues[i]));
+        }
+        return (result);
+    }
+
+    private static double boxedMax(double[] aValues) {
+        Double result = 0.0;
+        for (int i = 0; i < aValues.length; i++) {
+            result = genericMax(result, genericAbs(aValues[i]));
+        }
+        return (result);
+    }
+
+    private static double primitiveClampLerp(double[] aValues) {
+        double result = 0.0;
+        for (int i = 1; i < aValues.length; i++) {
+            result += JMaths.jLerp(JMaths.jClamp(aValues[i], 0.0, 1.0), aValues[i - 1], aValues[i]);
+        }
+        return (result);
+    }
+
+    private static double boxedClampLerp(double[] aValues) {
+        double result = 0.0;
+        for (int i = 1; i < aValues.length; i++) {
+            Double level = genericClamp(aValues[i], 0.0, 1.0);
+            result += genericLerp(level, aValues[i - 1], aValues[i]);
+        }
+        return (result);
+    }
+
+    private static double fusedTransform(JVector3d aPosition, JMatrix3d aRotation, JVector3d[] aPoints) {
+        JVector3d global = new JVector3d();
+        JVector3d local = new JVector3d();
+        double result = 0.0;
+        for (int i = 0; i < aPoints.length; i++) {
+            JMaths.jTransform(aPosition, aRotation, aPoints[i], global);
+            JMaths.jInverseTransform(aPosition, aRotation, global, local);
+            result += local.x;
+        }
+        return (result);
+    }
+
+    private static double allocatingTransform(JVector3d aPosition, JMatrix3d aRotation, JVector3d[] aPoints) {
+        JMatrix3d transposed = JMaths.jTrans(aRotation);
+        double result = 0.0;
+        for (int i = 0; i < aPoints.length; i++) {
+            JVector3d global = JMaths.jAdd(aPosition, JMaths.jMul(aRotation, aPoints[i]));
+            JVector3d local = JMaths.jMul(transposed, JMaths.jSub(global, aPosition));
+            result += local.x;
+        }
+        return (result);
+    }
+
+    //-----------------------------------------------------------------------
+    // BOXED GENERIC HELPERS, AS JMATHS DECLARED THEM BEFORE:
+    //-----------------------------------------------------------------------
+    @SuppressWarnings("unchecked")
+    private static <T extends Number> T genericAbs(final T a_value) {
+        return (T) new Double(Math.abs(a_value.doubleValue()));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Number> T genericMax(final T a_value1, final T a_value2) {
+        return (T) new Double(a_value1.doubleValue() >= a_value2.doubleValue()
+                ? a_value1.doubleValue() : a_value2.doubleValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Number> T genericLerp(final double a_level, final T a_value1, final T a_value2) {
+        return (T) new Double((a_value2.doubleValue() * a_level + a_value1.doubleValue() * (1 - a_level)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Number> T genericClamp(final T a_value, final T a_low, final T a_high) {
+        return (T) new Double((a_value.doubleValue() < a_low.doubleValue() ? a_low.doubleValue()
+                : a_value.doubleValue() > a_high.doubleValue() ? a_high.doubleValue()
+                : a_value.doubleValue()));
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.math;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests of the primitive overloads and of the fused vector operations
+ * of JMaths.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMathsTest extends TestCase {
+
+    private static final double EPSILON = 1e-12;
+
+    public void testOverloadsKeepTheirType() {
+        // int and float calls return their own type, and never throw
+        int i = JMaths.jClamp(7, 0, 5);
+        float f = JMaths.jClamp(0.7f, 0.0f, 0.5f);
+        assertEquals(5, i);
+        assertEquals(0.5f, f, 0.0f);
+        assertEquals(3, JMaths.jAbs(-3));
+        assertEquals(-2, JMaths.jMin(-2, 4));
+        assertEquals(4.0f, JMaths.jMax(-2.0f, 4.0f), 0.0f);
+        assertEquals(0, JMaths.jClamp0(-9));
+        assertEquals(0.0, JMaths.jClamp0(-0.5), 0.0);
+        assertEquals(1.0f, JMaths.jClamp01(3.0f), 0.0f);
+    }
+
+    public void testScalarHelpers() {
+        assertEquals(-1.0, JMaths.jMin3(2.0, -1.0, 0.5), 0.0);
+        assertEquals(2, JMaths.jMax3(2, -1, 0));
+        assertEquals(-4.0, JMaths.jMaxAbs(1.0, -4.0), 0.0);
+        assertEquals(1.0, JMaths.jMinAbs(1.0, -4.0), 0.0);
+        assertEquals(2.5, JMaths.jLerp(0.25, 2.0, 4.0), EPSILON);
+        assertTrue(JMaths.jContains(1.0, 1.0, 2.0));
+        assertFalse(JMaths.jContains(3, 1, 2));
+    }
+
+    public void testVectorOperationsWriteInPlace() {
+        JVector3d a = new JVector3d(1, -2, 3);
+        JVector3d b = new JVector3d(-1, 4, 2);
+        JVector3d result = new JVector3d();
+
+        JMaths.jAddScaled(a, 2.0, b, result);
+        assertEquals(-1.0, result.x, EPSILON);
+        assertEquals(6.0, result.y, EPSILON);
+        assertEquals(7.0, result.z, EPSILON);
+
+        JMaths.jLerp(0.5, a, b, result);
+        assertEquals(0.0, result.x, EPSILON);
+        assertEquals(1.0, result.y, EPSILON);
+        assertEquals(2.5, result.z, EPSILON);
+
+        JMaths.jMin(a, b, result);
+        assertEquals(-1.0, result.x, 0.0);
+        assertEquals(-2.0, result.y, 0.0);
+        assertEquals(2.0, result.z, 0.0);
+
+        // the result may be one of the inputs
+        JMaths.jClamp(a, new JVector3d(0, 0, 0), new JVector3d(2, 2, 2), a);
+        assertEquals(1.0, a.x, 0.0);
+        assertEquals(0.0, a.y, 0.0);
+        assertEquals(2.0, a.z, 0.0);
+    }
+
+    public void testTransformRoundTrip() {
+        JMatrix3d rotation = JMaths.jRotMatrix(new JVector3d(1, 2, 3), 0.7);
+        JVector3d position = new JVector3d(0.5, -1.0, 2.0);
+        JVector3d point = new JVector3d(0.3, 0.2, -0.1);
+
+        JVector3d global = new JVector3d();
+        JMaths.jTransform(position, rotation, point, global);
+        JVector3d expected = JMaths.jAdd(position, JMaths.jMul(rotation, point));
+        assertEquals(0.0, JMaths.jDistance(expected, global), EPSILON);
+
+        JVector3d local = new JVector3d();
+        JMaths.jInverseTransform(position, rotation, global, local);
+        assertEquals(0.0, JMaths.jDistance(point, local), EPSILON);
+
+        JMaths.jTransMul(rotation, point, local);
+        expected = JMaths.jMul(JMaths.jTrans(rotation), point);
+        assertEquals(0.0, JMaths.jDistance(expected, local), EPSILON);
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.math;
+
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests of JMatrix3d, checked against products computed from the
+ * indexed elements.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMatrix3dTest extends TestCase {
+
+    private static final double EPSILON = 1e-12;
+
+    private static JMatrix3d createRandom(Random aRandom) {
+        JMatrix3d matrix = new JMatrix3d();
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                matrix.set(i, j, aRandom.nextDouble() - 0.5);
+            }
+        }
+        return (matrix);
+    }
+
+    private static void assertMatrixEquals(JMatrix3d aExpected, JMatrix3d aActual, double aEpsilon) {
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(aExpected.get(i, j), aActual.get(i, j), aEpsilon);
+            }
+        }
+    }
+
+    public void testIndexedAccessMatchesFields() {
+        JMatrix3d matrix = new JMatrix3d();
+        matrix.set(1, 2, 5.0);
+        matrix.set(2, 0, -3.0);
+        assertEquals(5.0, matrix.m12, 0.0);
+        assertEquals(-3.0, matrix.m20, 0.0);
+
+        matrix.set(1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertEquals(2.0, matrix.get(0, 1), 0.0);
+        assertEquals(6.0, matrix.get(1, 2), 0.0);
+        assertEquals(7.0, matrix.get(2, 0), 0.0);
+        assertEquals(new JVector3d(4, 5, 6), matrix.getRow(1));
+        assertEquals(new JVector3d(3, 6, 9), matrix.getCol2());
+
+        // an out of range column must not alias the next row
+        try {
+            matrix.get(0, 3);
+            fail();
+        } catch (IndexOutOfBoundsException ex) {
+        }
+        try {
+            matrix.set(1, -1, 0.0);
+            fail();
+        } catch (IndexOutOfBoundsException ex) {
+        }
+        try {
+            matrix.get(3, 0);
+            fail();
+        } catch (IndexOutOfBoundsException ex) {
+        }
+    }
+
+    public void testProductsMatchReference() {
+        Random random = new Random(5);
+        for (int n = 0; n < 100; n++) {
+            JMatrix3d a = createRandom(random);
+            JMatrix3d b = createRandom(random);
+
+            JMatrix3d expected = new JMatrix3d();
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 3; j++) {
+                    double sum = 0.0;
+                    for (int k = 0; k < 3; k++) {
+                        sum += a.get(i, k) * b.get(k, j);
+                    }
+                    expected.set(i, j, sum);
+                }
+            }
+
+            JMatrix3d result = new JMatrix3d();
+            a.mulr(b, result);
+            assertMatrixEquals(expected, result, EPSILON);
+
+            JMatrix3d product = new JMatrix3d(a);
+            product.mul(b);
+            assertMatrixEquals(expected, product, EPSILON);
+
+            JVector3d v = new JVector3d(random.nextDouble(), random.nextDouble(), random.nextDouble());
+            JVector3d r = new JVector3d();
+            a.mulr(v, r);
+            for (int i = 0; i < 3; i++) {
+                assertEquals(a.get(i, 0) * v.x + a.get(i, 1) * v.y + a.get(i, 2) * v.z, r.get(i), EPSILON);
+            }
+            a.mul(v);
+            assertEquals(r, v);
+        }
+    }
+
+    public void testRotationInverseIsTranspose() {
+        JMatrix3d rotation = new JMatrix3d();
+        JVector3d axis = new JVector3d(1, -2, 0.5);
+        axis.normalize();
+        assertTrue(rotation.set(axis, 0.8));
+        assertEquals(1.0, rotation.det(), EPSILON);
+
+        JMatrix3d transpose = new JMatrix3d();
+        rotation.transr(transpose);
+        JMatrix3d inverse = new JMatrix3d();
+        assertTrue(rotation.invertr(inverse));
+        assertMatrixEquals(transpose, inverse, EPSILON);
+
+        JMatrix3d identity = new JMatrix3d();
+        identity.identity();
+        JMatrix3d product = new JMatrix3d();
+        rotation.mulr(transpose, product);
+        assertMatrixEquals(identity, product, EPSILON);
+
+        // the axis is left unchanged
+        JVector3d rotated = new JVector3d();
+        rotation.mulr(axis, rotated);
+        assertEquals(0.0, rotated.distance(axis), EPSILON);
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.math;
+
+import java.util.Random;
+import org.jchai3d.graphics.JMatrixGL;
+
+/**
+ * Compares JMatrix3d and JMatrixGL with copies of the nested array layout
+ * they replaced, on the work done for each object of a frame: composing the
+ * global pose of a chain of objects, and building the OpenGL matrix that is
+ * sent for rendering. Run with: java org.jchai3d.math.JMatrixBenchmark
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMatrixBenchmark {
+
+    private static final int NUM_OBJECTS = 4096;
+    private static final int NUM_FRAMES = 200;
+    private static final int NUM_RUNS = 10;
+    /**
+     * Keeps the results alive.
+     */
+    private static double sink;
+
+    public static void main(String[] aArgs) {
+        Random random = new Random(1);
+        JVector3d[] localPositions = new JVector3d[NUM_OBJECTS];
+        JMatrix3d[] localRotations = new JMatrix3d[NUM_OBJECTS];
+        NestedMatrix3d[] nestedRotations = new NestedMatrix3d[NUM_OBJECTS];
+        for (int i = 0; i < NUM_OBJECTS; i++) {
+            localPositions[i] = new JVector3d(random.nextDouble(), random.nextDouble(), random.nextDouble());
+            localRotations[i] = JMaths.jRotMatrix(new JVector3d(random.nextDouble(),
+                    random.nextDouble(), random.nextDouble() + 0.1), 0.01 * random.nextDouble());
+            nestedRotations[i] = new NestedMatrix3d(localRotations[i]);
+        }
+
+        JVector3d[] globalPositions = new JVector3d[NUM_OBJECTS];
+        JMatrix3d[] globalRotations = new JMatrix3d[NUM_OBJECTS];
+        NestedMatrix3d[] nestedGlobalRotations = new NestedMatrix3d[NUM_OBJECTS];
+        JMatrixGL[] frames = new JMatrixGL[NUM_OBJECTS];
+        NestedMatrixGL[] nestedFrames = new NestedMatrixGL[NUM_OBJECTS];
+        for (int i = 0; i < NUM_OBJECTS; i++) {
+            globalPositions[i] = new JVector3d();
+            globalRotations[i] = new JMatrix3d();
+            nestedGlobalRotations[i] = new NestedMatrix3d(localRotations[i]);
+            frames[i] = new JMatrixGL();
+            nestedFrames[i] = new NestedMatrixGL();
+        }
+
+        System.out.println(NUM_OBJECTS + " objects, " + NUM_FRAMES + " frames");
+        for (int run = 0; run < NUM_RUNS; run++) {
+            long start = System.nanoTime();
+            for (int frame = 0; frame < NUM_FRAMES; frame++) {
+                composeFlat(localPositions, localRotations, globalPositions, globalRotations, frames);
+            }
+            long flat = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int frame = 0; frame < NUM_FRAMES; frame++) {
+                composeNested(localPositions, nestedRotations, globalPositions,
+                        nestedGlobalRotations, nestedFrames);
+            }
+            long nested = System.nanoTime() - start;
+
+            System.out.printf("run %d: flat %6.1f ns/object, nested %6.1f ns/object%n", run,
+                    (double) flat / NUM_FRAMES / NUM_OBJECTS, (double) nested / NUM_FRAMES / NUM_OBJECTS);
+        }
+        System.out.println("checksum " + sink);
+    }
+
+    /**
+     * Global poses of a chain of objects, each one the parent of the next,
+     * and their OpenGL matrices.
+     */
+    private static void composeFlat(JVector3d[] aLocalPositions, JMatrix3d[] aLocalRotations,
+            JVector3d[] aGlobalPositions, JMatrix3d[] aGlobalRotations, JMatrixGL[] aFrames) {
+        aGlobalPositions[0].copyFrom(aLocalPositions[0]);
+        aGlobalRotations[0].copyFrom(aLocalRotations[0]);
+        for (int i = 1; i < NUM_OBJECTS; i++) {
+            aGlobalRotations[i - 1].mulr(aLocalPositions[i], aGlobalPositions[i]);
+            aGlobalPositions[i].add(aGlobalPositions[i - 1]);
+            aGlobalRotations[i - 1].mulr(aLocalRotations[i], aGlobalRotations[i]);
+        }
+        for (int i = 0; i < NUM_OBJECTS; i++) {
+            aFrames[i].set(aGlobalPositions[i], aGlobalRotations[i]);
+            sink += aFrames[i].pMatrix()[12];
+        }
+    }
+
+    private static void composeNested(JVector3d[] aLocalPositions, NestedMatrix3d[] aLocalRotations,
+            JVector3d[] aGlobalPositions, NestedMatrix3d[] aGlobalRotations, NestedMatrixGL[] aFrames) {
+        aGlobalPositions[0].copyFrom(aLocalPositions[0]);
+        aGlobalRotations[0].copyFrom(aLocalRotations[0]);
+        for (int i = 1; i < NUM_OBJECTS; i++) {
+            aGlobalRotations[i - 1].mulr(aLocalPositions[i], aGlobalPositions[i]);
+            aGlobalPositions[i].add(aGlobalPositions[i - 1]);
+            aGlobalRotations[i - 1].mulr(aLocalRotations[i], aGlobalRotations[i]);
+        }
+        for (int i = 0; i < NUM_OBJECTS; i++) {
+            aFrames[i].set(aGlobalPositions[i], aGlobalRotations[i]);
+            sink += aFrames[i].toArray()[12];
+        }
+    }
+
+    /**
+     * The previous JMatrix3d, with its elements in a double[3][3].
+     */
+    private static class NestedMatrix3d {
+
+        private final double[][] m = new double[3][3];
+
+        NestedMatrix3d(JMatrix3d aMatrix) {
+            for (int i = 0; i < 3; i++) {
+                for (int j = 0; j < 3; j++) {
+                    m[i][j] = aMatrix.get(i, j);
+                }
+            }
+        }
+
+        void copyFrom(NestedMatrix3d aSource) {
+            for (int i = 0; i < 3; i++) {
+                m[i][0] = aSource.m[i][0];
+                m[i][1] = aSource.m[i][1];
+                m[i][2] = aSource.m[i][2];
+            }
+        }
+
+        void mulr(NestedMatrix3d a_matrix, NestedMatrix3d a_result) {
+            a_result.m[0][0] = m[0][0] * a_matrix.m[0][0] + m[0][1] * a_matrix.m[1][0] + m[0][2] * a_matrix.m[2][0];
+            a_result.m[0][1] = m[0][0] * a_matrix.m[0][1] + m[0][1] * a_matrix.m[1][1] + m[0][2] * a_matrix.m[2][1];
+            a_result.m[0][2] = m[0][0] * a_matrix.m[0][2] + m[0][1] * a_matrix.m[1][2] + m[0][2] * a_matrix.m[2][2];
+            a_result.m[1][0] = m[1][0] * a_matrix.m[0][0] + m[1][1] * a_matrix.m[1][0] + m[1][2] * a_matrix.m[2][0];
+            a_result.m[1][1] = m[1][0] * a_matrix.m[0][1] + m[1][1] * a_matrix.m[1][1] + m[1][2] * a_matrix.m[2][1];
+            a_result.m[1][2] = m[1][0] * a_matrix.m[0][2] + m[1][1] * a_matrix.m[1][2] + m[1][2] * a_matrix.m[2][2];
+            a_result.m[2][0] = m[2][0] * a_matrix.m[0][0] + m[2][1] * a_matrix.m[1][0] + m[2][2] * a_matrix.m[2][0];
+            a_result.m[2][1] = m[2][0] * a_matrix.m[0][1] + m[2][1] * a_matrix.m[1][1] + m[2][2] * a_matrix.m[2][1];
+            a_result.m[2][2] = m[2][0] * a_matrix.m[0][2] + m[2][1] * a_matrix.m[1][2] + m[2][2] * a_matrix.m[2][2];
+        }
+
+        void mulr(JVector3d a_vector, JVector3d a_result) {
+            a_result.setX(m[0][0] * a_vector.getX() + m[0][1] * a_vector.getY() + m[0][2] * a_vector.getZ());
+            a_result.setY(m[1][0] * a_vector.getX() + m[1][1] * a_vector.getY() + m[1][2] * a_vector.getZ());
+            a_result.setZ(m[2][0] * a_vector.getX() + m[2][1] * a_vector.getY() + m[2][2] * a_vector.getZ());
+        }
+    }
+
+    /**
+     * The previous JMatrixGL, with its elements in a double[4][4] copied to
+     * a new array each time they were sent to OpenGL.
+     */
+    private static class NestedMatrixGL {
+
+        private final double[][] m = new double[4][4];
+
+        void set(JVector3d aPos, NestedMatrix3d aRot) {
+            m[0][0] = aRot.m[0][0];
+            m[0][1] = aRot.m[1][0];
+            m[0][2] = aRot.m[2][0];
+            m[0][3] = 0.0;
+            m[1][0] = aRot.m[0][1];
+            m[1][1] = aRot.m[1][1];
+            m[1][2] = aRot.m[2][1];
+            m[1][3] = 0.0;
+            m[2][0] = aRot.m[0][2];
+            m[2][1] = aRot.m[1][2];
+            m[2][2] = aRot.m[2][2];
+            m[2][3] = 0.0;
+            m[3][0] = aPos.getX();
+            m[3][1] = aPos.getY();
+            m[3][2] = aPos.getZ();
+            m[3][3] = 1.0;
+        }
+
+        double[] toArray() {
+            double[] k = new double[16];
+            for (int i = 0; i < 4; i++) {
+                k[4 * i] = m[i][0];
+                k[4 * i + 1] = m[i][1];
+                k[4 * i + 2] = m[i][2];
+                k[4 * i + 3] = m[i][3];
+            }
+            return (k);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.math;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests of JPoseHistory.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JPoseHistoryTest extends TestCase {
+
+    private static final double EPSILON = 1e-9;
+    private static final double DEGREE = Math.PI / 180.0;
+
+    /**
+     * Add a sample at time 10 i, at x = i, rotated by i degrees about z.
+     */
+    private static void addSample(JPoseHistory aHistory, int aIndex) {
+        aHistory.add(10L * aIndex, new JVector3d(aIndex, 0, 0),
+                JPoseTest.createRotation(0, 0, 1, aIndex * DEGREE));
+    }
+
+    private static void assertPose(JPoseHistory aHistory, long aTime, double aExpected) {
+        JPose pose = new JPose();
+        assertTrue(aHistory.getPose(aTime, pose));
+        assertEquals(aExpected, pose.px, EPSILON);
+        assertEquals(aExpected * DEGREE, pose.angleTo(new JPose()), 1e-6);
+    }
+
+    public void testEmptyHistory() {
+        JPoseHistory history = new JPoseHistory(4);
+        assertFalse(history.getPose(0L, new JPose()));
+        assertFalse(history.getLastPose(new JPose()));
+        assertEquals(Long.MIN_VALUE, history.getLastTime());
+        assertEquals(0, history.getNumSamples());
+
+        try {
+            new JPoseHistory(1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // a history needs two samples to interpolate
+        }
+    }
+
+    public void testInterpolation() {
+        JPoseHistory history = new JPoseHistory(8);
+        for (int i = 0; i < 4; i++) {
+            addSample(history, i);
+        }
+
+        // on the samples and between them
+        assertPose(history, 0L, 0.0);
+        assertPose(history, 10L, 1.0);
+        assertPose(history, 15L, 1.5);
+        assertPose(history, 27L, 2.7);
+        assertPose(history, 30L, 3.0);
+
+        // before the first sample, the first pose is held
+        assertPose(history, -50L, 0.0);
+    }
+
+    public void testSingleSample() {
+        JPoseHistory history = new JPoseHistory(4);
+        addSample(history, 3);
+        assertPose(history, 0L, 3.0);
+        assertPose(history, 1000L, 3.0);
+    }
+
+    public void testRingWrapsAround() {
+        JPoseHistory history = new JPoseHistory(4);
+        for (int i = 0; i < 10; i++) {
+            addSample(history, i);
+        }
+        assertEquals(4, history.getNumSamples());
+        assertEquals(4, history.getCapacity());
+        assertEquals(90L, history.getLastTime());
+
+        // samples 6 to 9 are kept; older times hold the oldest of them
+        assertPose(history, 20L, 6.0);
+        assertPose(history, 65L, 6.5);
+        assertPose(history, 75L, 7.5);
+        assertPose(history, 88L, 8.8);
+
+        JPose last = new JPose();
+        assertTrue(history.getLastPose(last));
+        assertEquals(9.0, last.px, EPSILON);
+
+        history.clear();
+        assertEquals(0, history.getNumSamples());
+        addSample(history, 1);
+        assertPose(history, 10L, 1.0);
+    }
+
+    public void testExtrapolation() {
+        JPoseHistory history = new JPoseHistory(4);
+        addSample(history, 0);
+        addSample(history, 1);
+
+        // after the last sample, the motion goes on up to the maximum time
+        history.setMaxExtrapolationTime(5L);
+        assertEquals(5L, history.getMaxExtrapolationTime());
+        assertPose(history, 13L, 1.3);
+        assertPose(history, 15L, 1.5);
+        assertPose(history, 1000L, 1.5);
+
+        // 0 holds the last pose
+        history.setMaxExtrapolationTime(0L);
+        assertPose(history, 1000L, 1.0);
+        history.setMaxExtrapolationTime(-3L);
+        assertEquals(0L, history.getMaxExtrapolationTime());
+    }
+
+    public void testOutOfOrderSamples() {
+        JPoseHistory history = new JPoseHistory(4);
+        addSample(history, 1);
+        addSample(history, 2);
+
+        // an older sample is ignored
+        addSample(history, 0);
+        assertEquals(2, history.getNumSamples());
+        assertEquals(20L, history.getLastTime());
+
+        // a sample with the time of the last one replaces it
+        history.add(20L, new JVector3d(5, 0, 0), JPoseTest.createRotation(0, 0, 1, 5 * DEGREE));
+        assertEquals(2, history.getNumSamples());
+        assertPose(history, 20L, 5.0);
+        assertPose(history, 15L, 3.0);
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.math;
+
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests of JPose, checked against the equivalent rotation matrices.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JPoseTest extends TestCase {
+
+    private static final double EPSILON = 1e-12;
+
+    static JMatrix3d createRotation(double aX, double aY, double aZ, double aAngle) {
+        JMatrix3d rotation = new JMatrix3d();
+        rotation.set(new JVector3d(aX, aY, aZ), aAngle);
+        return (rotation);
+    }
+
+    private static JMatrix3d createRandomRotation(Random aRandom) {
+        return (createRotation(aRandom.nextDouble() - 0.5, aRandom.nextDouble() - 0.5,
+                aRandom.nextDouble() - 0.5, 2.0 * Math.PI * aRandom.nextDouble()));
+    }
+
+    private static void assertMatrixEquals(JMatrix3d aExpected, JMatrix3d aActual, double aEpsilon) {
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                assertEquals(aExpected.get(i, j), aActual.get(i, j), aEpsilon);
+            }
+        }
+    }
+
+    private static void assertVectorEquals(JVector3d aExpected, JVector3d aActual, double aEpsilon) {
+        assertEquals(aExpected.x, aActual.x, aEpsilon);
+        assertEquals(aExpected.y, aActual.y, aEpsilon);
+        assertEquals(aExpected.z, aActual.z, aEpsilon);
+    }
+
+    public void testRotationMatrixRoundTrip() {
+        Random random = new Random(1);
+        JMatrix3d result = new JMatrix3d();
+        for (int i = 0; i < 200; i++) {
+            JMatrix3d rotation = createRandomRotation(random);
+            JPose pose = new JPose(new JVector3d(), rotation);
+            pose.getRotation(result);
+            assertMatrixEquals(rotation, result, 1e-9);
+        }
+
+        // half turns, where the trace of the matrix is -1
+        JMatrix3d[] halfTurns = {createRotation(1, 0, 0, Math.PI),
+            createRotation(0, 1, 0, Math.PI), createRotation(0, 0, 1, Math.PI),
+            createRotation(1, 1, 0, Math.PI)};
+        for (JMatrix3d rotation : halfTurns) {
+            new JPose(new JVector3d(), rotation).getRotation(result);
+            assertMatrixEquals(rotation, result, 1e-9);
+        }
+    }
+
+    public void testTransformMatchesMatrix() {
+        Random random = new Random(2);
+        JVector3d expected = new JVector3d();
+        JVector3d result = new JVector3d();
+        for (int i = 0; i < 100; i++) {
+            JMatrix3d rotation = createRandomRotation(random);
+            JVector3d position = new JVector3d(random.nextDouble(), random.nextDouble(), random.nextDouble());
+            JVector3d point = new JVector3d(random.nextDouble(), random.nextDouble(), random.nextDouble());
+            JPose pose = new JPose(position, rotation);
+
+            rotation.mulr(point, expected);
+            pose.rotate(point, result);
+            assertVectorEquals(expected, result, 1e-9);
+
+            expected.add(position);
+            pose.transform(point, result);
+            assertVectorEquals(expected, result, 1e-9);
+        }
+    }
+
+    public void testCompositionAndInverse() {
+        Random random = new Random(3);
+        JMatrix3d rotation1 = createRandomRotation(random);
+        JMatrix3d rotation2 = createRandomRotation(random);
+        JVector3d position1 = new JVector3d(1, 2, 3);
+        JVector3d position2 = new JVector3d(-1, 0.5, 2);
+        JPose pose = new JPose(position1, rotation1);
+        pose.mul(new JPose(position2, rotation2));
+
+        // T1 * T2 = (R1 R2, R1 p2 + p1)
+        JMatrix3d rotation = new JMatrix3d();
+        rotation1.mulr(rotation2, rotation);
+        JVector3d position = new JVector3d();
+        rotation1.mulr(position2, position);
+        position.add(position1);
+
+        JMatrix3d result = new JMatrix3d();
+        JVector3d resultPosition = new JVector3d();
+        pose.getRotation(result);
+        pose.getPosition(resultPosition);
+        assertMatrixEquals(rotation, result, 1e-9);
+        assertVectorEquals(position, resultPosition, 1e-9);
+
+        JPose inverse = new JPose();
+        inverse.copyFrom(pose);
+        inverse.invert();
+        inverse.mul(pose);
+        assertEquals(0.0, inverse.angleTo(new JPose()), 1e-6);
+        assertEquals(0.0, inverse.distanceTo(new JPose()), 1e-9);
+    }
+
+    public void testSlerp() {
+        JPose pose1 = new JPose(new JVector3d(0, 0, 0), createRotation(0, 0, 1, 0.0));
+        JPose pose2 = new JPose(new JVector3d(2, 4, 6), createRotation(0, 0, 1, 0.5 * Math.PI));
+        JPose pose = new JPose();
+        JVector3d position = new JVector3d();
+
+        pose.slerp(0.0, pose1, pose2);
+        assertEquals(0.0, pose.angleTo(pose1), 1e-9);
+        pose.slerp(1.0, pose1, pose2);
+        assertEquals(0.0, pose.angleTo(pose2), 1e-9);
+
+        // the rotation turns at a constant rate, the translation is linear
+        for (int i = 1; i < 10; i++) {
+            double level = 0.1 * i;
+            pose.slerp(level, pose1, pose2);
+            assertEquals(level * 0.5 * Math.PI, pose.angleTo(pose1), 1e-9);
+            assertEquals((1.0 - level) * 0.5 * Math.PI, pose.angleTo(pose2), 1e-9);
+            pose.getPosition(position);
+            assertVectorEquals(new JVector3d(2 * level, 4 * level, 6 * level), position, EPSILON);
+        }
+
+        JMatrix3d rotation = new JMatrix3d();
+        pose.slerp(0.5, pose1, pose2);
+        pose.getRotation(rotation);
+        assertMatrixEquals(createRotation(0, 0, 1, 0.25 * Math.PI), rotation, 1e-9);
+
+        // levels beyond 1 extrapolate the motion
+        pose.slerp(2.0, pose1, pose2);
+        pose.getRotation(rotation);
+        assertMatrixEquals(createRotation(0, 0, 1, Math.PI), rotation, 1e-9);
+        pose.getPosition(position);
+        assertVectorEquals(new JVector3d(4, 8, 12), position, EPSILON);
+    }
+
+    public void testSlerpTakesShortestArc() {
+        JPose pose1 = new JPose(new JVector3d(), createRotation(0, 0, 1, 0.0));
+        JPose pose2 = new JPose(new JVector3d(), createRotation(0, 0, 1, 0.5 * Math.PI));
+        JPose negated = new JPose();
+        negated.copyFrom(pose2);
+        negated.qw = -negated.qw;
+        negated.qx = -negated.qx;
+        negated.qy = -negated.qy;
+        negated.qz = -negated.qz;
+
+        JPose expected = new JPose();
+        JPose pose = new JPose();
+        for (int i = 0; i <= 10; i++) {
+            expected.slerp(0.1 * i, pose1, pose2);
+            pose.slerp(0.1 * i, pose1, negated);
+            assertEquals(0.0, pose.angleTo(expected), 1e-6);
+            assertTrue(pose.angleTo(pose1) <= 0.5 * Math.PI + 1e-9);
+        }
+    }
+}
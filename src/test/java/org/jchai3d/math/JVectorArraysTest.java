@@ -0,0 +1,246 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.math;
+
+import java.util.Random;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests of JVectorArrays, checked against the same operations applied
+ * to JVector3d objects. Each operation is applied to a range inside the
+ * arrays, and the vectors outside of the range must not change.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JVectorArraysTest extends TestCase {
+
+    private static final int NUM_VECTORS = 50;
+    private static final int FIRST = 5;
+    private static final int COUNT = 40;
+    private static final double EPSILON = 1e-12;
+
+    private JVector3d[] vectors;
+    private double[] values;
+
+    @Override
+    protected void setUp() {
+        Random random = new Random(1);
+        vectors = new JVector3d[NUM_VECTORS];
+        for (int i = 0; i < NUM_VECTORS; i++) {
+            vectors[i] = new JVector3d(random.nextDouble() - 0.5,
+                    random.nextDouble() - 0.5, random.nextDouble() - 0.5);
+        }
+        values = new double[3 * NUM_VECTORS];
+        JVectorArrays.jPack(vectors, values, 0, NUM_VECTORS);
+    }
+
+    private static boolean inRange(int aIndex) {
+        return ((aIndex >= FIRST) && (aIndex < FIRST + COUNT));
+    }
+
+    private static void assertVector(JVector3d aExpected, double[] aValues, int aIndex, double aEpsilon) {
+        assertEquals(aExpected.x, aValues[3 * aIndex], aEpsilon);
+        assertEquals(aExpected.y, aValues[3 * aIndex + 1], aEpsilon);
+        assertEquals(aExpected.z, aValues[3 * aIndex + 2], aEpsilon);
+    }
+
+    private static void assertVector(JVector3d aExpected, float[] aValues, int aIndex, double aEpsilon) {
+        assertEquals(aExpected.x, aValues[3 * aIndex], aEpsilon);
+        assertEquals(aExpected.y, aValues[3 * aIndex + 1], aEpsilon);
+        assertEquals(aExpected.z, aValues[3 * aIndex + 2], aEpsilon);
+    }
+
+    public void testPackAndUnpack() {
+        for (int i = 0; i < NUM_VECTORS; i++) {
+            assertVector(vectors[i], values, i, 0.0);
+        }
+
+        JVector3d[] result = new JVector3d[NUM_VECTORS];
+        for (int i = 0; i < NUM_VECTORS; i++) {
+            result[i] = new JVector3d(7, 7, 7);
+        }
+        JVectorArrays.jUnpack(values, result, FIRST, COUNT);
+        for (int i = 0; i < NUM_VECTORS; i++) {
+            assertTrue(result[i].equals(inRange(i) ? vectors[i] : new JVector3d(7, 7, 7), 0.0));
+        }
+    }
+
+    public void testTranslateScaleAndAddScaled() {
+        double[] directions = new double[3 * NUM_VECTORS];
+        for (int k = 0; k < directions.length; k++) {
+            directions[k] = 0.01 * k;
+        }
+        JVectorArrays.jTranslate(values, 1, 2, 3, FIRST, COUNT);
+        JVectorArrays.jScale(values, 2, -1, 0.5, FIRST, COUNT);
+        JVectorArrays.jAddScaled(values, 3.0, directions, FIRST, COUNT);
+
+        for (int i = 0; i < NUM_VECTORS; i++) {
+            JVector3d expected = new JVector3d(vectors[i]);
+            if (inRange(i)) {
+                expected.add(new JVector3d(1, 2, 3));
+                expected.set(2 * expected.x, -expected.y, 0.5 * expected.z);
+                JVector3d direction = new JVector3d(directions[3 * i], directions[3 * i + 1], directions[3 * i + 2]);
+                direction.mul(3.0);
+                expected.add(direction);
+            }
+            assertVector(expected, values, i, EPSILON);
+        }
+    }
+
+    public void testCross() {
+        double[] others = new double[3 * NUM_VECTORS];
+        for (int k = 0; k < others.length; k++) {
+            others[k] = Math.sin(k);
+        }
+        double[] result = new double[3 * NUM_VECTORS];
+        JVectorArrays.jCross(values, others, result, FIRST, COUNT);
+
+        JVector3d expected = new JVector3d();
+        for (int i = 0; i < NUM_VECTORS; i++) {
+            if (inRange(i)) {
+                vectors[i].crossr(new JVector3d(others[3 * i], others[3 * i + 1], others[3 * i + 2]), expected);
+            } else {
+                expected.zero();
+            }
+            assertVector(expected, result, i, EPSILON);
+        }
+    }
+
+    public void testNormalize() {
+        // vectors too short to be normalized are left unchanged
+        values[3 * FIRST] = 1e-9;
+        values[3 * FIRST + 1] = 0.0;
+        values[3 * FIRST + 2] = 0.0;
+        vectors[FIRST].set(1e-9, 0.0, 0.0);
+        float[] floats = new float[values.length];
+        for (int k = 0; k < values.length; k++) {
+            floats[k] = (float) values[k];
+        }
+
+        JVectorArrays.jNormalize(values, 1e-12, FIRST, COUNT);
+        JVectorArrays.jNormalize(floats, 1e-12f, FIRST, COUNT);
+
+        JVector3d expected = new JVector3d();
+        for (int i = 0; i < NUM_VECTORS; i++) {
+            if (inRange(i) && (i != FIRST)) {
+                vectors[i].normalizer(expected);
+            } else {
+                expected.copyFrom(vectors[i]);
+            }
+            assertVector(expected, values, i, EPSILON);
+            assertVector(expected, floats, i, 1e-6);
+        }
+    }
+
+    public void testRotateAndTransform() {
+        JMatrix3d rotation = new JMatrix3d();
+        rotation.set(new JVector3d(1, 2, 3), 0.7);
+        JVector3d position = new JVector3d(-1, 0.5, 2);
+
+        double[] rotated = new double[values.length];
+        double[] transformed = new double[values.length];
+        float[] floats = new float[values.length];
+        JVectorArrays.jRotate(rotation, values, rotated, FIRST, COUNT);
+        JVectorArrays.jTransform(position, rotation, values, transformed, FIRST, COUNT);
+        JVectorArrays.jTransform(position, rotation, values, floats, FIRST, COUNT);
+
+        JVector3d expected = new JVector3d();
+        for (int i = 0; i < NUM_VECTORS; i++) {
+            if (!inRange(i)) {
+                assertVector(new JVector3d(), transformed, i, 0.0);
+                continue;
+            }
+            rotation.mulr(vectors[i], expected);
+            assertVector(expected, rotated, i, EPSILON);
+            JMaths.jTransform(position, rotation, vectors[i], expected);
+            assertVector(expected, transformed, i, EPSILON);
+            assertVector(expected, floats, i, 1e-6);
+        }
+
+        // the result may be the input
+        JVectorArrays.jTransform(position, rotation, values, values, FIRST, COUNT);
+        for (int i = FIRST; i < FIRST + COUNT; i++) {
+            assertEquals(transformed[3 * i + 1], values[3 * i + 1], 0.0);
+        }
+    }
+
+    public void testBoundsAndMaxLength() {
+        JVector3d min = new JVector3d();
+        JVector3d max = new JVector3d();
+        JVector3d expectedMin = new JVector3d(Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE);
+        JVector3d expectedMax = new JVector3d(-Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE);
+        double expectedLengthSq = 0.0;
+        for (int i = FIRST; i < FIRST + COUNT; i++) {
+            JVector3d v = vectors[i];
+            expectedMin.set(Math.min(expectedMin.x, v.x), Math.min(expectedMin.y, v.y), Math.min(expectedMin.z, v.z));
+            expectedMax.set(Math.max(expectedMax.x, v.x), Math.max(expectedMax.y, v.y), Math.max(expectedMax.z, v.z));
+            expectedLengthSq = Math.max(expectedLengthSq, v.lengthsq());
+        }
+
+        JVectorArrays.jBounds(values, FIRST, COUNT, min, max);
+        assertTrue(min.equals(expectedMin, 0.0));
+        assertTrue(max.equals(expectedMax, 0.0));
+        assertEquals(expectedLengthSq, JVectorArrays.jMaxLengthSq(values, FIRST, COUNT), 0.0);
+
+        float[] floats = new float[values.length];
+        for (int k = 0; k < values.length; k++) {
+            floats[k] = (float) values[k];
+        }
+        JVectorArrays.jBounds(floats, FIRST, COUNT, min, max);
+        assertTrue(min.equals(expectedMin, 1e-6));
+        assertTrue(max.equals(expectedMax, 1e-6));
+
+        // an empty range leaves the bounds unchanged
+        min.set(9, 9, 9);
+        JVectorArrays.jBounds(values, FIRST, 0, min, max);
+        assertTrue(min.equals(new JVector3d(9, 9, 9), 0.0));
+        assertEquals(0.0, JVectorArrays.jMaxLengthSq(values, FIRST, 0), 0.0);
+    }
+
+    public void testTriangleNormals() {
+        // triangles over consecutive vectors, then a degenerate one
+        int numTriangles = 10;
+        int[] indices = new int[3 * (numTriangles + 1)];
+        for (int k = 0; k < 3 * numTriangles; k++) {
+            indices[k] = k;
+        }
+        indices[3 * numTriangles] = 0;
+        indices[3 * numTriangles + 1] = 1;
+        indices[3 * numTriangles + 2] = 0;
+        double[] normals = new double[3 * (numTriangles + 1)];
+        JVectorArrays.jTriangleNormals(values, indices, normals, 1e-12, 0, numTriangles + 1);
+
+        JVector3d expected = new JVector3d();
+        for (int t = 0; t < numTriangles; t++) {
+            JVector3d v0 = vectors[3 * t], v1 = vectors[3 * t + 1], v2 = vectors[3 * t + 2];
+            JMaths.jSub(v1, v0).crossr(JMaths.jSub(v2, v0), expected);
+            expected.normalize();
+            assertVector(expected, normals, t, EPSILON);
+        }
+        assertVector(new JVector3d(), normals, numTriangles, 0.0);
+
+        // the threshold applies to the length of the cross product, twice
+        // the area: a right triangle with unit legs has an area of 0.5
+        double[] positions = {0, 0, 0, 1, 0, 0, 0, 1, 0};
+        int[] triangle = {0, 1, 2};
+        double[] normal = new double[3];
+        JVectorArrays.jTriangleNormals(positions, triangle, normal, 0.99, 0, 1);
+        assertEquals(1.0, normal[2], 0.0);
+        JVectorArrays.jTriangleNormals(positions, triangle, normal, 1.0, 0, 1);
+        assertEquals(0.0, normal[2], 0.0);
+    }
+}
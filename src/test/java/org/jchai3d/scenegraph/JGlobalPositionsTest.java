@@ -0,0 +1,97 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.scenegraph;
+
+import junit.framework.TestCase;
+import org.jchai3d.math.JVector3d;
+
+/**
+ * Unit tests of the computation of global positions of JGenericObject.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JGlobalPositionsTest extends TestCase {
+
+    private JWorld world;
+    private JMesh mesh;
+
+    @Override
+    protected void setUp() {
+        world = new JWorld();
+        mesh = new JMesh(world);
+        world.addChild(mesh);
+        mesh.newTriangle(new JVector3d(0, 0, 0), new JVector3d(1, 0, 0), new JVector3d(0, 1, 0));
+    }
+
+    @Override
+    protected void tearDown() {
+        JGenericObject.CHAI_INCREMENTAL_GLOBAL_POSITIONS = false;
+    }
+
+    public void testMotionUpdateIncludesVertices() {
+        mesh.setPosition(1, 2, 3);
+        world.computeGlobalPositionsAndMotion();
+        assertEquals(3, world.getNumUpdatedVertices());
+        assertEquals(2.0, mesh.getVertex(1, false).getGlobalPosition().x, 0.0);
+
+        // the frames only
+        mesh.setPosition(2, 2, 3);
+        world.computeGlobalPositionsAndMotion(true);
+        assertEquals(0, world.getNumUpdatedVertices());
+        assertEquals(2.0, mesh.getGlobalPosition().x, 0.0);
+    }
+
+    public void testIncrementalUpdateVisitsMovedObjectsOnly() {
+        JGenericObject.CHAI_INCREMENTAL_GLOBAL_POSITIONS = true;
+        JGenericObject group = new JGenericObject();
+        JGenericObject child = new JGenericObject();
+        world.addChild(group);
+        group.addChild(child);
+        world.computeGlobalPositions(true);
+
+        world.computeGlobalPositions(true);
+        assertEquals(0, world.getNumUpdatedNodes());
+
+        child.translate(0, 0, 1);
+        group.setPosition(1, 0, 0);
+        world.computeGlobalPositions(true);
+        assertEquals(2, world.getNumUpdatedNodes());
+        assertEquals(1.0, child.getGlobalPosition().x, 0.0);
+        assertEquals(1.0, child.getGlobalPosition().z, 0.0);
+
+        // vertices edited in place are brought up to date when read
+        mesh.getVertex(1, false).setPosition(5, 0, 0);
+        world.computeGlobalPositions(false);
+        assertEquals(5.0, mesh.getVertex(1, false).getGlobalPosition().x, 0.0);
+    }
+
+    public void testCameraAndLightMovesArePropagated() {
+        JGenericObject.CHAI_INCREMENTAL_GLOBAL_POSITIONS = true;
+        JCamera camera = new JCamera(world);
+        JLight light = new JLight();
+        world.addChild(camera);
+        world.addChild(light);
+        world.computeGlobalPositions(true);
+
+        camera.set(new JVector3d(3, 0, 0), new JVector3d(0, 0, 0), new JVector3d(0, 0, 1));
+        light.setDirection(0, 0, -1);
+        world.computeGlobalPositions(true);
+
+        assertEquals(3.0, camera.getGlobalPosition().x, 0.0);
+        assertEquals(-1.0, light.getGlobalRotation().getCol0().z, 1e-12);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.scenegraph;
+
+import junit.framework.TestCase;
+import org.jchai3d.effects.JEffectMagnet;
+import org.jchai3d.forces.JInteractionRecorder;
+import org.jchai3d.forces.JInteractionSettings;
+import org.jchai3d.math.JVector3d;
+
+/**
+ * Unit tests of the boundary pruning of JGenericObject.computeInteractions().
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JInteractionPruningTest extends TestCase {
+
+    private JWorld world;
+    private JMesh mesh;
+    private JInteractionSettings settings;
+
+    @Override
+    protected void setUp() {
+        world = new JWorld();
+        mesh = new JMesh(world);
+        world.addChild(mesh);
+        mesh.newTriangle(new JVector3d(0, 0, 0), new JVector3d(1, 0, 0), new JVector3d(0, 1, 0));
+        mesh.getMaterial().setMagnetMaxDistance(0.5);
+        world.computeBoundaryBox(true);
+
+        settings = new JInteractionSettings();
+        settings.setBoundaryPruningEnabled(true);
+    }
+
+    private int countPruned(JVector3d aToolPos) {
+        JInteractionRecorder recorder = new JInteractionRecorder();
+        world.computeInteractions(aToolPos, new JVector3d(), 0, recorder, settings);
+        return (recorder.getNumPrunedObjects());
+    }
+
+    public void testAddedEffectExtendsTheRange() {
+        JVector3d tool = new JVector3d(0.5, 0.5, 0.3);
+        assertEquals(1, countPruned(tool));
+
+        // no new call to computeBoundaryBox()
+        mesh.addEffect(new JEffectMagnet(mesh));
+        assertEquals(0.5, world.getInteractionRadius(), 0.0);
+        assertEquals(0, countPruned(tool));
+        assertEquals(1, countPruned(new JVector3d(0.5, 0.5, 1.0)));
+    }
+
+    public void testEffectsWithoutBoxAreNotPruned() {
+        JGenericObject field = new JGenericObject();
+        mesh.addChild(field);
+        field.addEffect(new JEffectMagnet(field));
+        world.computeBoundaryBox(true);
+
+        // the child has no box, so the tool may be anywhere
+        assertEquals(0, countPruned(new JVector3d(10, 10, 10)));
+    }
+
+    public void testChildWithoutEffectsIsPruned() {
+        mesh.addChild(new JGenericObject());
+        world.computeBoundaryBox(true);
+        assertEquals(1, countPruned(new JVector3d(10, 10, 10)));
+    }
+}
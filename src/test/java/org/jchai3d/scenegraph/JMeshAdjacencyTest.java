@@ -0,0 +1,162 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.scenegraph;
+
+import java.util.Arrays;
+import junit.framework.TestCase;
+import org.jchai3d.collisions.spheres.JCollisionSpheres;
+import org.jchai3d.graphics.JTriangle;
+import org.jchai3d.math.JVector3d;
+
+/**
+ * Unit tests of JMeshAdjacency, checked against a brute force search of
+ * the triangles sharing a position.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMeshAdjacencyTest extends TestCase {
+
+    private static final int GRID = 6;
+
+    private double epsilon;
+    private int threshold;
+
+    @Override
+    protected void setUp() {
+        epsilon = JMeshAdjacency.CHAI_ADJACENCY_EPSILON;
+        threshold = JMeshAdjacency.CHAI_ADJACENCY_PARALLEL_THRESHOLD;
+    }
+
+    @Override
+    protected void tearDown() {
+        JMeshAdjacency.CHAI_ADJACENCY_EPSILON = epsilon;
+        JMeshAdjacency.CHAI_ADJACENCY_PARALLEL_THRESHOLD = threshold;
+    }
+
+    /**
+     * Build a grid of GRID x GRID quads with one vertex per triangle corner.
+     */
+    private static JMesh createGrid() {
+        JMesh mesh = new JMesh();
+        for (int i = 0; i < GRID; i++) {
+            for (int j = 0; j < GRID; j++) {
+                JVector3d p00 = new JVector3d(0.1 * i, 0.1 * j, 0);
+                JVector3d p10 = new JVector3d(0.1 * (i + 1), 0.1 * j, 0);
+                JVector3d p11 = new JVector3d(0.1 * (i + 1), 0.1 * (j + 1), 0);
+                JVector3d p01 = new JVector3d(0.1 * i, 0.1 * (j + 1), 0);
+                mesh.newTriangle(p00, p10, p11);
+                mesh.newTriangle(p00, p11, p01);
+            }
+        }
+        return (mesh);
+    }
+
+    private static boolean sharePosition(JTriangle aTriangle0, JTriangle aTriangle1) {
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                if (aTriangle0.getVertex(i).getLocalPosition().equals(
+                        aTriangle1.getVertex(j).getLocalPosition(), 1e-12)) {
+                    return (true);
+                }
+            }
+        }
+        return (false);
+    }
+
+    public void testNeighborsMatchBruteForce() {
+        JMesh mesh = createGrid();
+        mesh.removeTriangle(7);
+        JMeshAdjacency adjacency = mesh.createAdjacency(false);
+        int numTriangles = mesh.getTriangles().size();
+
+        assertEquals((GRID + 1) * (GRID + 1), adjacency.getNumVertices());
+        assertEquals(0, adjacency.getNumNeighbors(7));
+
+        for (int t = 0; t < numTriangles; t++) {
+            if (t == 7) {
+                continue;
+            }
+            int count = 0;
+            for (int u = 0; u < numTriangles; u++) {
+                if ((u != t) && (u != 7) && sharePosition(mesh.getTriangles().get(t), mesh.getTriangles().get(u))) {
+                    count++;
+                }
+            }
+            assertEquals(count, adjacency.getNumNeighbors(t));
+            for (int i = 0; i < adjacency.getNumNeighbors(t); i++) {
+                assertTrue(sharePosition(mesh.getTriangles().get(t),
+                        mesh.getTriangles().get(adjacency.getNeighbor(t, i))));
+            }
+        }
+
+        // the diagonal of each quad, the borders of the grid and the hole
+        assertEquals(1, adjacency.getEdgeNeighbor(0, 2));
+        assertEquals(0, adjacency.getEdgeNeighbor(1, 0));
+        assertTrue(adjacency.isBorderEdge(0, 0));
+        assertTrue(adjacency.isBorderEdge(6, 2));
+    }
+
+    public void testCornersWithinEpsilonAreShared() {
+        JMesh mesh = new JMesh();
+        mesh.newTriangle(new JVector3d(0, 0, 0), new JVector3d(1, 0, 0), new JVector3d(0, 1, 0));
+        mesh.newTriangle(new JVector3d(1 + 1e-11, 0, 0), new JVector3d(1, 1, 0), new JVector3d(0, 1 - 1e-11, 0));
+
+        // a rounding error does not split the shared edge
+        JMeshAdjacency adjacency = mesh.createAdjacency(false);
+        assertEquals(4, adjacency.getNumVertices());
+        assertEquals(1, adjacency.getEdgeNeighbor(0, 1));
+
+        // exact matching keeps the corners apart
+        JMeshAdjacency.CHAI_ADJACENCY_EPSILON = 0.0;
+        adjacency = mesh.createAdjacency(false);
+        assertEquals(6, adjacency.getNumVertices());
+        assertTrue(adjacency.isBorderEdge(0, 1));
+        assertEquals(0, adjacency.getNumNeighbors(0));
+
+        // corners further apart than the epsilon are distinct
+        JMeshAdjacency.CHAI_ADJACENCY_EPSILON = 1e-12;
+        assertEquals(6, mesh.createAdjacency(false).getNumVertices());
+    }
+
+    public void testParallelMatchesSequential() {
+        JMesh mesh = createGrid();
+        JMeshAdjacency sequential = mesh.createAdjacency(false);
+        JMeshAdjacency.CHAI_ADJACENCY_PARALLEL_THRESHOLD = 1;
+        JMeshAdjacency parallel = mesh.createAdjacency(true);
+
+        assertTrue(Arrays.equals(sequential.getNeighborOffsets(), parallel.getNeighborOffsets()));
+        assertTrue(Arrays.equals(sequential.getNeighbors(), parallel.getNeighbors()));
+        assertTrue(Arrays.equals(sequential.getEdgeNeighbors(), parallel.getEdgeNeighbors()));
+    }
+
+    public void testSphereTreeUsesAdjacency() {
+        JMesh mesh = createGrid();
+        mesh.createSphereTreeCollisionDetector(0.0, false, true);
+        JCollisionSpheres spheres = (JCollisionSpheres) mesh.getCollisionDetector();
+        assertNotNull(mesh.getAdjacency());
+        assertSame(mesh.getAdjacency(), spheres.getAdjacency());
+
+        // a tree built directly over triangles builds its own
+        JCollisionSpheres tree = new JCollisionSpheres(mesh.getTriangles(), true);
+        tree.initialize(0.0);
+        assertEquals(mesh.getTriangles().size(), tree.getAdjacency().getNumTriangles());
+
+        // and none without neighbors
+        mesh.createSphereTreeCollisionDetector(0.0, false, false);
+        assertNull(((JCollisionSpheres) mesh.getCollisionDetector()).getAdjacency());
+    }
+}
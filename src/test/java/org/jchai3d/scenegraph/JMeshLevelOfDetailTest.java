@@ -0,0 +1,133 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.scenegraph;
+
+import java.util.HashSet;
+import junit.framework.TestCase;
+import org.jchai3d.graphics.JVertex;
+import org.jchai3d.math.JVector3d;
+
+/**
+ * Unit tests of JMeshSimplifier and of the selection of the levels of
+ * detail of JMesh.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMeshLevelOfDetailTest extends TestCase {
+
+    private static final int GRID = 20;
+
+    /**
+     * Build a bumpy GRID x GRID height field with one vertex per triangle
+     * corner. If \e aSeam is true, the texture coordinates jump at x = 0.5,
+     * as along the seam of a texture atlas.
+     */
+    private static JMesh createHeightField(boolean aSeam) {
+        JMesh mesh = new JMesh();
+        double step = 1.0 / GRID;
+        for (int i = 0; i < GRID; i++) {
+            for (int j = 0; j < GRID; j++) {
+                int[] corners = new int[4];
+                for (int k = 0; k < 4; k++) {
+                    double x = (i + (k == 1 || k == 2 ? 1 : 0)) * step;
+                    double y = (j + (k >= 2 ? 1 : 0)) * step;
+                    corners[k] = mesh.newVertex(x, y, 0.01 * Math.sin(7 * x) * Math.cos(5 * y));
+                    double u = (aSeam && i >= GRID / 2) ? x + 1.0 : x;
+                    mesh.getVertex(corners[k], false).setTexCoord(u, y);
+                }
+                mesh.newTriangle(corners[0], corners[1], corners[2]);
+                mesh.newTriangle(corners[0], corners[2], corners[3]);
+            }
+        }
+        mesh.computeBoundaryBox(false);
+        return (mesh);
+    }
+
+    private static String key(JVector3d aPos) {
+        return (aPos.x + " " + aPos.y + " " + aPos.z);
+    }
+
+    public void testCornerVerticesAreMerged() {
+        JMesh mesh = createHeightField(false);
+        JMesh simplified = JMeshSimplifier.simplify(mesh, GRID * GRID / 4);
+
+        assertTrue(simplified.getNumTriangles(false) <= GRID * GRID / 4);
+        assertTrue(simplified.getNumVertices(false) < (GRID + 1) * (GRID + 1));
+    }
+
+    public void testSeamsStayJoined() {
+        JMesh mesh = createHeightField(true);
+        JMesh simplified = JMeshSimplifier.simplify(mesh, GRID * GRID / 4);
+        assertTrue(simplified.getNumTriangles(false) <= GRID * GRID / 4);
+
+        // every vertex on the seam is still there, on both sides
+        HashSet<String> left = new HashSet<String>();
+        HashSet<String> right = new HashSet<String>();
+        for (int i = 0; i < simplified.getNumVertices(false); i++) {
+            JVertex vertex = simplified.getVertex(i, false);
+            if (vertex.getLocalPosition().x == 0.5) {
+                (vertex.getTexCoord().x < 1.0 ? left : right).add(key(vertex.getLocalPosition()));
+            }
+        }
+        assertEquals(GRID + 1, left.size());
+        assertEquals(left, right);
+    }
+
+    public void testLevelSelectedFromCameraDistance() {
+        JWorld world = new JWorld();
+        JMesh mesh = createHeightField(false);
+        world.addChild(mesh);
+        mesh.createLevelsOfDetail(new double[]{0.5, 0.25}, new double[]{5.0, 20.0}, false);
+        assertEquals(2, mesh.getNumLevelsOfDetail());
+
+        JCamera camera = new JCamera(world);
+        world.addChild(camera);
+
+        // outside of a rendering pass, the mesh itself is rendered
+        camera.setPosition(10.5, 0.5, 0.0);
+        world.computeGlobalPositions(false);
+        assertEquals(0, mesh.selectLevelOfDetail());
+
+        world.renderingCamera = camera;
+        assertEquals(1, mesh.selectLevelOfDetail());
+        camera.setPosition(30.5, 0.5, 0.0);
+        world.computeGlobalPositions(false);
+        assertEquals(2, mesh.selectLevelOfDetail());
+
+        // the distance is measured in world coordinates
+        mesh.setPosition(28.0, 0.0, 0.0);
+        world.computeGlobalPositions(false);
+        assertEquals(0, mesh.selectLevelOfDetail());
+    }
+
+    public void testSettingsAreCopiedOnChange() {
+        JMesh mesh = createHeightField(false);
+        mesh.createLevelsOfDetail(new double[]{0.5}, new double[]{5.0}, false);
+        JMesh level = mesh.getLevelOfDetail(0);
+        assertTrue(level.cullingEnabled);
+
+        mesh.setCullingEnabled(false, false);
+        assertTrue(level.cullingEnabled);
+        mesh.updateLevelOfDetailSettings();
+        assertFalse(level.cullingEnabled);
+
+        // unchanged settings are not copied again
+        level.cullingEnabled = true;
+        mesh.updateLevelOfDetailSettings();
+        assertTrue(level.cullingEnabled);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.scenegraph;
+
+import junit.framework.TestCase;
+import org.jchai3d.math.JVector3d;
+
+/**
+ * Unit tests of the vertex normals computed by JMesh.computeAllNormals().
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMeshNormalsTest extends TestCase {
+
+    private static final int GRID = 60;
+
+    private boolean parallel;
+    private int grain;
+
+    @Override
+    protected void setUp() {
+        parallel = JMesh.CHAI_PARALLEL_MESH_OPERATIONS;
+        grain = JMesh.CHAI_PARALLEL_MESH_GRAIN;
+    }
+
+    @Override
+    protected void tearDown() {
+        JMesh.CHAI_PARALLEL_MESH_OPERATIONS = parallel;
+        JMesh.CHAI_PARALLEL_MESH_GRAIN = grain;
+    }
+
+    /**
+     * Build a bumpy grid of GRID x GRID quads sharing their vertices.
+     */
+    private static JMesh createGrid() {
+        JMesh mesh = new JMesh();
+        for (int i = 0; i <= GRID; i++) {
+            for (int j = 0; j <= GRID; j++) {
+                mesh.newVertex(i, j, Math.sin(0.3 * i) * Math.cos(0.2 * j));
+            }
+        }
+        for (int i = 0; i < GRID; i++) {
+            for (int j = 0; j < GRID; j++) {
+                int v = i * (GRID + 1) + j;
+                mesh.newTriangle(v, v + 1, v + GRID + 2);
+                mesh.newTriangle(v, v + GRID + 2, v + GRID + 1);
+            }
+        }
+        return (mesh);
+    }
+
+    public void testParallelNormalsMatchSequential() {
+        JMesh.CHAI_PARALLEL_MESH_OPERATIONS = false;
+        JMesh sequential = createGrid();
+        sequential.computeAllNormals(false);
+
+        // small ranges force the vertices to gather their triangles
+        JMesh.CHAI_PARALLEL_MESH_OPERATIONS = true;
+        JMesh.CHAI_PARALLEL_MESH_GRAIN = 100;
+        JMesh parallel = createGrid();
+        parallel.computeAllNormals(false);
+
+        for (int i = 0; i < sequential.getNumVertices(false); i++) {
+            JVector3d expected = sequential.getVertex(i, false).getNormal();
+            JVector3d normal = parallel.getVertex(i, false).getNormal();
+            assertEquals(expected.x, normal.x, 0.0);
+            assertEquals(expected.y, normal.y, 0.0);
+            assertEquals(expected.z, normal.z, 0.0);
+            assertEquals(sequential.getVertex(i, false).getTriangleCount(),
+                    parallel.getVertex(i, false).getTriangleCount());
+        }
+    }
+
+    public void testSplitVerticesKeepTheirNormals() {
+        // two faces of a cube edge, with their own vertices along the edge
+        JMesh.CHAI_PARALLEL_MESH_OPERATIONS = true;
+        JMesh.CHAI_PARALLEL_MESH_GRAIN = 1;
+        JMesh mesh = new JMesh();
+        mesh.newTriangle(new JVector3d(0, 0, 0), new JVector3d(1, 0, 0), new JVector3d(0, 1, 0));
+        mesh.newTriangle(new JVector3d(0, 0, 0), new JVector3d(0, 1, 0), new JVector3d(0, 0, 1));
+        mesh.computeAllNormals(false);
+
+        assertEquals(1.0, mesh.getVertex(0, false).getNormal().z, 1e-12);
+        assertEquals(1.0, mesh.getVertex(3, false).getNormal().x, 1e-12);
+    }
+
+    public void testExtrudeMovesVerticesAlongTheirNormals() {
+        JMesh mesh = createGrid();
+        mesh.setPosition(5, -3, 2);
+        mesh.computeAllNormals(false);
+        JMesh child = createGrid();
+        child.computeAllNormals(false);
+        mesh.addChild(child);
+        mesh.addChild(new JGenericObject());
+
+        int numVertices = mesh.getNumVertices(false);
+        JVector3d[] positions = new JVector3d[numVertices];
+        for (int i = 0; i < numVertices; i++) {
+            positions[i] = new JVector3d(mesh.getVertex(i, false).getLocalPosition());
+        }
+
+        // the position of the mesh plays no part, and children that are not
+        // meshes are skipped
+        mesh.extrude(0.25, true, false);
+        for (int i = 0; i < numVertices; i++) {
+            JVector3d expected = new JVector3d(mesh.getVertex(i, false).getNormal());
+            expected.mul(0.25);
+            expected.add(positions[i]);
+            assertTrue(expected.equals(mesh.getVertex(i, false).getLocalPosition(), 1e-12));
+            assertTrue(expected.equals(child.getVertex(i, false).getLocalPosition(), 1e-12));
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.scenegraph;
+
+import junit.framework.TestCase;
+import org.jchai3d.graphics.JVertex;
+import org.jchai3d.math.JVector3d;
+
+/**
+ * Unit tests of JMeshRenderData.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JMeshRenderDataTest extends TestCase {
+
+    private static final int NUM_VERTICES = 300;
+
+    private static JMesh createMesh() {
+        JMesh mesh = new JMesh();
+        for (int i = 0; i < NUM_VERTICES; i++) {
+            mesh.newVertex(i, 2 * i, 3 * i);
+        }
+        for (int i = 0; i + 2 < NUM_VERTICES; i += 3) {
+            mesh.newTriangle(i, i + 1, i + 2);
+        }
+        mesh.renderData = new JMeshRenderData();
+        mesh.renderData.update(mesh);
+        return (mesh);
+    }
+
+    private static void assertInSync(JMesh aMesh) {
+        JMeshRenderData data = aMesh.getRenderData();
+        for (int i = 0; i < aMesh.getVertices().size(); i++) {
+            JVector3d p = aMesh.getVertices().get(i).getLocalPosition();
+            assertEquals((float) p.x, data.positions.get(3 * i), 0.0f);
+            assertEquals((float) p.y, data.positions.get(3 * i + 1), 0.0f);
+            assertEquals((float) p.z, data.positions.get(3 * i + 2), 0.0f);
+        }
+    }
+
+    public void testOnlyModifiedVerticesAreConverted() {
+        JMesh mesh = createMesh();
+        long converted = mesh.getRenderData().getNumUpdatedVertices();
+        assertEquals(NUM_VERTICES, converted);
+        assertEquals(NUM_VERTICES, mesh.getRenderData().getNumIndices());
+
+        for (int i = 100; i < 110; i++) {
+            mesh.getVertices().get(i).getLocalPosition().x += 1.0;
+        }
+        mesh.invalidateRenderData(100, 10);
+        mesh.getRenderData().update(mesh);
+
+        assertEquals(converted + 10, mesh.getRenderData().getNumUpdatedVertices());
+        assertInSync(mesh);
+    }
+
+    public void testMeshOperationsInvalidate() {
+        JMesh mesh = createMesh();
+        mesh.offsetVertices(new JVector3d(1, 2, 3), false, false);
+        mesh.getRenderData().update(mesh);
+        assertInSync(mesh);
+
+        int vertex = mesh.newVertex(-1, -1, -1);
+        mesh.newTriangle(vertex, 0, 1);
+        mesh.getRenderData().update(mesh);
+        assertInSync(mesh);
+        assertEquals(NUM_VERTICES + 3, mesh.getRenderData().getNumIndices());
+
+        mesh.removeTriangle(0);
+        mesh.getRenderData().update(mesh);
+        assertEquals(NUM_VERTICES, mesh.getRenderData().getNumIndices());
+    }
+
+    public void testVertexSettersInvalidate() {
+        JMesh mesh = createMesh();
+        long converted = mesh.getRenderData().getNumUpdatedVertices();
+
+        JVertex vertex = mesh.getVertices().get(42);
+        vertex.setPosition(-4, -5, -6);
+        vertex.setNormal(0, 0, 1);
+        vertex.setTexCoord(0.25, 0.75);
+        vertex.setColor(0.5f, 0.25f, 0.125f, 1.0f);
+        mesh.getRenderData().update(mesh);
+
+        // only the edited vertex is converted again
+        assertEquals(converted + 1, mesh.getRenderData().getNumUpdatedVertices());
+        assertInSync(mesh);
+        JMeshRenderData data = mesh.getRenderData();
+        assertEquals(1.0f, data.normals.get(3 * 42 + 2), 0.0f);
+        assertEquals(0.75f, data.texCoords.get(2 * 42 + 1), 0.0f);
+        assertEquals(0.125f, data.colors.get(4 * 42 + 2), 0.0f);
+
+        mesh.getVertices().get(7).translate(new JVector3d(1, 1, 1));
+        mesh.getVertices().get(250).setLocalPosition(new JVector3d(9, 9, 9));
+        mesh.getRenderData().update(mesh);
+        assertInSync(mesh);
+    }
+
+    public void testAddedVertexInvalidatesItsOwnSlot() {
+        JMesh mesh = createMesh();
+        JVertex vertex = new JVertex(1, 2, 3);
+        mesh.addVertex(vertex);
+        mesh.getRenderData().update(mesh);
+        long converted = mesh.getRenderData().getNumUpdatedVertices();
+
+        vertex.setPosition(3, 2, 1);
+        mesh.getRenderData().update(mesh);
+        assertEquals(converted + 1, mesh.getRenderData().getNumUpdatedVertices());
+        assertInSync(mesh);
+    }
+
+    public void testCopyIsKeptWhenVertexArraysAreDisabled() {
+        JMesh mesh = createMesh();
+        mesh.useVertexArrays(false, false);
+        assertNotNull(mesh.getRenderData());
+
+        JVertex vertex = mesh.getVertices().get(5);
+        vertex.setPosition(7, 8, 9);
+        mesh.invalidateRenderData(5, 1);
+        mesh.getRenderData().update(mesh);
+        assertInSync(mesh);
+    }
+}
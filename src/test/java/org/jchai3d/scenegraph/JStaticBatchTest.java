@@ -0,0 +1,154 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.scenegraph;
+
+import junit.framework.TestCase;
+import org.jchai3d.graphics.JColorf;
+import org.jchai3d.graphics.JMaterial;
+import org.jchai3d.graphics.JTriangle;
+import org.jchai3d.math.JMatrix3d;
+import org.jchai3d.math.JVector3d;
+
+/**
+ * Unit tests of JStaticBatch and of the freezing of subtrees.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JStaticBatchTest extends TestCase {
+
+    private JGenericObject root;
+    private JMesh mesh1;
+    private JMesh mesh2;
+
+    @Override
+    protected void setUp() {
+        root = new JGenericObject();
+        mesh1 = createQuad();
+        mesh1.setPosition(1, 0, 0);
+        mesh2 = createQuad();
+        mesh2.setPosition(0, 2, 0);
+        JMatrix3d rotation = new JMatrix3d();
+        rotation.identity();
+        rotation.rotate(new JVector3d(0, 0, 1), 0.5 * Math.PI);
+        mesh2.setRotation(rotation);
+        root.addChild(mesh1);
+        root.addChild(mesh2);
+    }
+
+    private static JMesh createQuad() {
+        JMesh mesh = new JMesh();
+        mesh.newVertex(0, 0, 0);
+        mesh.newVertex(1, 0, 0);
+        mesh.newVertex(1, 1, 0);
+        mesh.newVertex(0, 1, 0);
+        mesh.newTriangle(0, 1, 2);
+        mesh.newTriangle(0, 2, 3);
+        return (mesh);
+    }
+
+    public void testFreezeAndUnfreeze() {
+        root.freeze();
+        assertTrue(root.isFrozen());
+        JStaticBatch batch = root.getStaticBatch();
+        assertSame(root, batch.getRoot());
+        assertEquals(3, batch.getNumCoveredObjects());
+        assertTrue(mesh1.renderedByBatch);
+        assertTrue(mesh1.subtreeRenderedByBatch);
+        assertTrue(mesh2.subtreeRenderedByBatch);
+        assertTrue(root.renderedByBatch);
+        assertFalse(root.subtreeRenderedByBatch);
+
+        root.unfreeze();
+        assertFalse(root.isFrozen());
+        assertNull(root.getStaticBatch());
+        assertFalse(mesh1.renderedByBatch);
+        assertFalse(mesh1.subtreeRenderedByBatch);
+        assertFalse(root.renderedByBatch);
+    }
+
+    public void testMergedGeometry() {
+        root.freeze();
+        JStaticBatch batch = root.getStaticBatch();
+        assertEquals(1, batch.getNumBatches());
+        assertEquals(2, batch.getNumMergedMeshes());
+
+        JMesh merged = batch.getBatch(0);
+        assertEquals(8, merged.getVertices().size());
+        assertEquals(4, merged.getTriangles().size());
+
+        // vertices are expressed in the frame of the root
+        assertTrue(merged.getVertices().get(2).getLocalPosition().equals(new JVector3d(2, 1, 0), 1e-12));
+        assertTrue(merged.getVertices().get(5).getLocalPosition().equals(new JVector3d(0, 3, 0), 1e-12));
+        assertTrue(merged.getVertices().get(6).getLocalPosition().equals(new JVector3d(-1, 3, 0), 1e-12));
+    }
+
+    public void testRenderSettingsSplitBatches() {
+        JMaterial material = new JMaterial();
+        material.setDiffuse(new JColorf(1.0f, 0.0f, 0.0f, 1.0f));
+        mesh2.setMaterial(material);
+        root.freeze();
+        assertEquals(2, root.getStaticBatch().getNumBatches());
+        assertEquals(2, root.getStaticBatch().getBatch(1).getTriangles().size());
+    }
+
+    public void testSourceTriangles() {
+        mesh1.removeTriangle(0);
+        root.freeze();
+        JStaticBatch batch = root.getStaticBatch();
+        JMesh merged = batch.getBatch(0);
+        assertEquals(3, merged.getTriangles().size());
+
+        // free triangles are skipped, the others map back to their mesh
+        assertSame(mesh1.getTriangles().get(1), batch.getSourceTriangle(0, 0));
+        assertSame(mesh2.getTriangles().get(0), batch.getSourceTriangle(0, 1));
+        assertSame(mesh2.getTriangles().get(1), batch.getSourceTriangle(0, 2));
+        assertSame(mesh2, batch.getSourceMesh(0, 2));
+
+        JTriangle triangle = merged.getTriangles().get(1);
+        assertSame(mesh2.getTriangles().get(0), batch.getSourceTriangle(triangle));
+        assertNull(batch.getSourceTriangle(mesh1.getTriangles().get(1)));
+    }
+
+    public void testHiddenMeshesAreNotMerged() {
+        mesh2.setVisible(false);
+        root.freeze();
+        JStaticBatch batch = root.getStaticBatch();
+        assertEquals(1, batch.getNumMergedMeshes());
+        assertEquals(2, batch.getBatch(0).getTriangles().size());
+        assertTrue(mesh2.renderedByBatch);
+
+        // showing it builds the batches again
+        mesh2.setVisible(true);
+        assertNotSame(batch, root.getStaticBatch());
+        assertEquals(2, root.getStaticBatch().getNumMergedMeshes());
+
+        // and hiding it again leaves it out
+        root.setVisible(true, true);
+        assertEquals(2, root.getStaticBatch().getNumMergedMeshes());
+        mesh1.setVisible(false);
+        assertEquals(1, root.getStaticBatch().getNumMergedMeshes());
+        assertSame(mesh2, root.getStaticBatch().getSourceMesh(0, 0));
+    }
+
+    public void testUnchangedVisibilityKeepsBatches() {
+        root.freeze();
+        JStaticBatch batch = root.getStaticBatch();
+        mesh1.setVisible(true);
+        root.setVisible(true, true);
+        assertSame(batch, root.getStaticBatch());
+    }
+}
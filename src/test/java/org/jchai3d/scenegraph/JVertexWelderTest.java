@@ -0,0 +1,128 @@
+/*
+ *   This file is part of the JCHAI 3D visualization and haptics libraries.
+ *   Copyright (C) 2010 by JCHAI 3D. All rights reserved.
+ *
+ *   This library is free software; you can redistribute it and/or modify
+ *   it under the terms of the GNU General Public License("GPL") version 2
+ *   as published by the Free Software Foundation.
+ *
+ *   For using the JCHAI 3D libraries with software that can not be combined
+ *   with the GNU GPL, and for taking advantage of the additional benefits
+ *   of our support services, please contact CHAI 3D about acquiring a
+ *   Professional Edition License.
+ *
+ *   project   <https://sourceforge.net/projects/jchai3d>
+ *   version   1.0.0
+ */
+package org.jchai3d.scenegraph;
+
+import junit.framework.TestCase;
+import org.jchai3d.math.JVector3d;
+
+/**
+ * Unit tests of JVertexWelder.
+ *
+ * @author Marcos da Silva Ramos (Java adaptation)
+ */
+public class JVertexWelderTest extends TestCase {
+
+    private static final int GRID = 40;
+
+    /**
+     * Build a grid of GRID x GRID quads with one vertex per triangle corner,
+     * far from the origin.
+     */
+    private static JMesh createGrid(double aOffset, double aSpacing) {
+        JMesh mesh = new JMesh();
+        for (int i = 0; i < GRID; i++) {
+            for (int j = 0; j < GRID; j++) {
+                double x = aOffset + i * aSpacing;
+                double y = aOffset + j * aSpacing;
+                JVector3d p00 = new JVector3d(x, y, aOffset);
+                JVector3d p10 = new JVector3d(x + aSpacing, y, aOffset);
+                JVector3d p11 = new JVector3d(x + aSpacing, y + aSpacing, aOffset);
+                JVector3d p01 = new JVector3d(x, y + aSpacing, aOffset);
+                mesh.newTriangle(p00, p10, p11);
+                mesh.newTriangle(p00, p11, p01);
+            }
+        }
+        return (mesh);
+    }
+
+    public void testExactWeldFarFromOrigin() {
+        JMesh mesh = createGrid(1000.0, 0.25);
+        JVertexWelder.weld(mesh, 0.0, false, false);
+
+        assertEquals((GRID + 1) * (GRID + 1), mesh.getNumVertices(false));
+        assertEquals(2 * GRID * GRID, mesh.getNumTriangles(false));
+    }
+
+    public void testExactWeldKeepsCloseVertices() {
+        // positions a few ulps apart must not be merged with an epsilon of 0
+        JMesh mesh = new JMesh();
+        double x = 3.5;
+        mesh.newVertex(x, x, x);
+        mesh.newVertex(Math.nextUp(x), x, x);
+        mesh.newVertex(x, Math.nextUp(x), x);
+        mesh.newVertex(x, x, x);
+        mesh.newVertex(-0.0, 0.0, 0.0);
+        mesh.newVertex(0.0, 0.0, 0.0);
+        mesh.newTriangle(0, 1, 2);
+        mesh.newTriangle(3, 4, 5);
+
+        assertEquals(2, JVertexWelder.weld(mesh, 0.0, false, false));
+        assertEquals(4, mesh.getNumVertices(false));
+    }
+
+    public void testEpsilonWeldFarFromOrigin() {
+        JMesh mesh = createGrid(5.0, 0.01);
+
+        // move every vertex by less than epsilon
+        for (int i = 0; i < mesh.getNumVertices(false); i++) {
+            JVector3d p = mesh.getVertex(i, false).getLocalPosition();
+            double d = ((i % 7) - 3) * 1e-7;
+            mesh.getVertex(i, false).setPosition(p.x + d, p.y - d, p.z + d);
+        }
+        JVertexWelder.weld(mesh, 1e-5, false, false);
+
+        assertEquals((GRID + 1) * (GRID + 1), mesh.getNumVertices(false));
+        assertEquals(2 * GRID * GRID, mesh.getNumTriangles(false));
+    }
+
+    public void testEpsilonWeldKeepsDistantVertices() {
+        // vertices 2 epsilon apart are kept, even when the mesh is large
+        JMesh mesh = new JMesh();
+        mesh.newVertex(-1e6, 0, 0);
+        mesh.newVertex(1e6, 0, 0);
+        mesh.newVertex(4.0, 4.0, 4.0);
+        mesh.newVertex(4.0 + 2e-3, 4.0, 4.0);
+        mesh.newVertex(4.0 + 5e-4, 4.0, 4.0);
+        mesh.newTriangle(0, 1, 2);
+        mesh.newTriangle(2, 3, 4);
+
+        assertEquals(1, JVertexWelder.weld(mesh, 1e-3, false, false));
+        assertEquals(4, mesh.getNumVertices(false));
+    }
+
+    public void testWeldInvalidatesDerivedData() {
+        JMesh mesh = createGrid(1.0, 0.25);
+        mesh.renderData = new JMeshRenderData();
+        mesh.renderData.update(mesh);
+        mesh.createAdjacency(false);
+
+        mesh.weldVertices(0.0, false, false, false);
+
+        // the connectivity refers to the old indices
+        assertNull(mesh.getAdjacency());
+
+        // the copy drawn by OpenGL follows the renumbered vertices
+        JMeshRenderData data = mesh.getRenderData();
+        data.update(mesh);
+        assertEquals(3 * 2 * GRID * GRID, data.getNumIndices());
+        for (int i = 0; i < mesh.getNumVertices(false); i++) {
+            JVector3d p = mesh.getVertex(i, false).getLocalPosition();
+            assertEquals((float) p.x, data.positions.get(3 * i), 0.0f);
+            assertEquals((float) p.y, data.positions.get(3 * i + 1), 0.0f);
+        }
+    }
+}